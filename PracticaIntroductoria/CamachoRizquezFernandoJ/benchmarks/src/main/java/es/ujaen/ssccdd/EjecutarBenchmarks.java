@@ -0,0 +1,34 @@
+package es.ujaen.ssccdd;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanza los benchmarks del proyecto una vez por cada número de hilos y guarda los
+ * resultados de cada ejecución en un JSON para compararlos entre versiones.
+ *
+ * Uso: EjecutarBenchmarks [hilos separados por comas] [expresión regular de benchmarks]
+ */
+public class EjecutarBenchmarks {
+    private static final String HILOS = "1,2,4,8";
+    private static final String TODOS = ".*Benchmark.*";
+
+    public static void main(String[] args) throws RunnerException {
+        String[] hilos = (args.length > 0 ? args[0] : HILOS).split(",");
+        String incluir = args.length > 1 ? args[1] : TODOS;
+
+        for (String numHilos : hilos) {
+            Options opciones = new OptionsBuilder()
+                    .include(incluir)
+                    .threads(Integer.parseInt(numHilos.trim()))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-" + numHilos.trim() + "-hilos.json")
+                    .build();
+
+            new Runner(opciones).run();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package es.ujaen.ssccdd;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+
+/**
+ * Benchmarks de las operaciones frecuentes de EstacionBicicletas y del sorteo de
+ * EstadoBicicleta. La estación es compartida por todos los hilos, el número de hilos se
+ * elige al lanzar JMH (-t) o con EjecutarBenchmarks.
+ *
+ * Cada operación deja la bicicleta como estaba para que el estado de la estación no se
+ * degrade a lo largo de la medida: si no quedan disponibles la operación no hace nada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EstacionBicicletasBenchmark {
+    @Param({"100", "10000", "100000"})
+    private int numBicicletas;
+
+    private EstacionBicicletas estacion;
+
+    /**
+     * Cada hilo sortea con su propio generador, un generador compartido mediría la
+     * contención sobre su semilla y no el sorteo
+     */
+    @State(Scope.Thread)
+    public static class Hilo {
+        private final SplittableRandom azar = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Bicicleta[] bicicletas = new Bicicleta[numBicicletas];
+        for (int i = 0; i < numBicicletas; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i);
+
+        estacion = new EstacionBicicletas("EST-001", bicicletas);
+    }
+
+    @Benchmark
+    public Optional<Bicicleta> alquilarBicicleta() {
+        Optional<Bicicleta> resultado = estacion.alquilarBicicleta();
+
+        resultado.ifPresent(bicicleta -> bicicleta.cambiarEstado(ALQUILADA, DISPONIBLE));
+
+        return resultado;
+    }
+
+    @Benchmark
+    public Optional<Bicicleta> recogerBicicleta() {
+        Optional<Bicicleta> resultado = estacion.alquilarBicicleta()
+                .flatMap(bicicleta -> estacion.recogerBicicleta(bicicleta.getId()));
+
+        resultado.ifPresent(bicicleta -> bicicleta.cambiarEstado(EN_TRANSITO, DISPONIBLE));
+
+        return resultado;
+    }
+
+    /**
+     * Ciclo completo de un alquiler, las bicicletas que se averían al devolverlas se
+     * reparan en el acto
+     */
+    @Benchmark
+    public boolean cicloAlquiler() {
+        boolean resultado = false;
+        Optional<Bicicleta> recogida = estacion.alquilarBicicleta()
+                .flatMap(bicicleta -> estacion.recogerBicicleta(bicicleta.getId()));
+
+        if( recogida.isPresent() ) {
+            resultado = estacion.devolverBicicleta(recogida.get());
+            recogida.get().cambiarEstado(FUERA_DE_SERVICIO, DISPONIBLE);
+        }
+
+        return resultado;
+    }
+
+    @Benchmark
+    public int getDisponibles() {
+        return estacion.getDisponibles();
+    }
+
+    @Benchmark
+    public Constantes.EstadoBicicleta getEstado(Hilo hilo) {
+        return Constantes.EstadoBicicleta.getEstado(hilo.azar);
+    }
+}
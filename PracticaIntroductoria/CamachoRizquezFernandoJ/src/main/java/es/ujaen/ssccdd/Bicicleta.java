@@ -1,39 +1,86 @@
 package es.ujaen.ssccdd;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static es.ujaen.ssccdd.Constantes.*;
 import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.DISPONIBLE;
 
 public class Bicicleta implements Comparable<Bicicleta> {
+    private static final ObservadorBicicleta[] SIN_OBSERVADORES = new ObservadorBicicleta[0];
+
     private final String id;
-    private EstadoBicicleta estado;
-    private Date fechaEstado;
-    private Date fechaMantenimiento;
+    private final Reloj reloj;
+    private final AtomicReference<Situacion> situacion; // Estado, fecha, versión y observadores
+    private volatile long fechaMantenimiento;   // Milisegundos desde la época del próximo mantenimiento
 
     /*
       El constructor debe inicializar los atributos de la clase y el identificador
       de una bicicleta es único
       ningún atributo de la clase puede ser null
+
+      El estado, su fecha, su versión y los observadores forman una situación inmutable
+      que se sustituye con compareAndSet, así un cambio de estado nunca separa el estado
+      de su fecha y no hace falta el monitor de la bicicleta. La versión cuenta los
+      cambios de estado: dos cambios en el mismo milisegundo, o con un reloj virtual
+      parado, tienen la misma fecha pero distinta versión, por eso los cambios
+      condicionados comparan la versión y no la fecha. Añadir o quitar observadores no
+      cambia la versión.
+
+      El hilo que gana el compareAndSet avisa del cambio, con el estado anterior y el
+      nuevo, a los observadores que había antes del cambio, sin esperar a nadie. Los
+      avisos de cambios simultáneos pueden llegar en otro orden que los cambios, incluso
+      después de eliminar el observador, pero cada cambio se avisa una sola vez a cada
+      observador registrado cuando se hizo. Un observador que suma y resta cada aviso
+      queda cuadrado cuando terminan los avisos pendientes, y uno lento o bloqueado solo
+      retrasa sus propios avisos, no los cambios de la bicicleta.
+     */
+
+    /**
+     * Estado de la bicicleta, el instante en que entró en él y el número de cambios de
+     * estado que lleva la bicicleta, que identifica el cambio aunque se repitan estado y
+     * fecha
+     *
+     * @param estado el estado
+     * @param fechaEstado milisegundos desde la época del cambio al estado
+     * @param version número de cambios de estado de la bicicleta
+     */
+    public record Instantanea(EstadoBicicleta estado, long fechaEstado, long version) {
+    }
+
+    /**
+     * Valor inmutable con todo lo que cambia a la vez en una bicicleta
      */
+    private record Situacion(EstadoBicicleta estado, long fechaEstado, long version,
+                             ObservadorBicicleta[] observadores) {
+        private Instantanea instantanea() {
+            return new Instantanea(estado, fechaEstado, version);
+        }
+    }
 
     public Bicicleta(String id) {
-        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
-        this.estado = DISPONIBLE;
-        this.fechaEstado = new Date();
-        this.fechaMantenimiento = sumarSegundos.apply(fechaEstado, TIEMPO_HASTA_MANTENIMIENTO);
+        this(id, DISPONIBLE, RELOJ_SISTEMA);
     }
 
     public Bicicleta(String id, EstadoBicicleta estado) {
-        if (estado == null)
-            throw new IllegalArgumentException("El estado de la bicicleta no puede ser null");
+        this(id, estado, RELOJ_SISTEMA);
+    }
 
-        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
-        this.estado = estado;
-        this.fechaEstado = new Date();
-        this.fechaMantenimiento = sumarSegundos.apply(fechaEstado, TIEMPO_HASTA_MANTENIMIENTO);
+    /**
+     * Crea una bicicleta cuyas fechas se toman del reloj indicado, por ejemplo un
+     * RelojVirtual en pruebas y simulaciones
+     */
+    public Bicicleta(String id, EstadoBicicleta estado, Reloj reloj) {
+        if (estado == null || reloj == null)
+            throw new IllegalArgumentException("El estado de la bicicleta y el reloj no pueden ser null");
 
+        long ahora = reloj.milis();
+        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
+        this.reloj = reloj;
+        this.situacion = new AtomicReference<>(new Situacion(estado, ahora, 0, SIN_OBSERVADORES));
+        this.fechaMantenimiento = Reloj.sumarSegundos(ahora, TIEMPO_HASTA_MANTENIMIENTO);
     }
 
     // Incluir los get y set para el funcionamiento correcto de la clase
@@ -43,24 +90,188 @@ public class Bicicleta implements Comparable<Bicicleta> {
     }
 
     public EstadoBicicleta getEstado() {
-        return estado;
+        return situacion.get().estado();
+    }
+
+    /**
+     * El estado, su fecha y su versión leídos a la vez
+     * @return la instantánea actual de la bicicleta
+     */
+    public Instantanea getInstantanea() {
+        return situacion.get().instantanea();
     }
 
+    /**
+     * Cambia el estado de la bicicleta y avisa a sus observadores si es distinto del
+     * anterior
+     * @param estado el nuevo estado
+     */
     public void setEstado(EstadoBicicleta estado) {
-        this.estado = estado;
-        this.fechaEstado = new Date();
+        if (estado == null)
+            throw new IllegalArgumentException("El estado de la bicicleta no puede ser null");
+
+        Situacion actual;
+        do {
+            actual = situacion.get();
+        } while (!cambiar(actual, estado));
+    }
+
+    /**
+     * Cambia el estado solo si la bicicleta sigue en el estado esperado. Permite que
+     * dos hilos no se queden con la misma bicicleta.
+     * @param esperado el estado que debe tener la bicicleta
+     * @param estado el nuevo estado
+     * @return true si se ha hecho el cambio
+     */
+    public boolean cambiarEstado(EstadoBicicleta esperado, EstadoBicicleta estado) {
+        boolean resultado = false;
+        boolean vigente = true;
+
+        if (estado == null)
+            throw new IllegalArgumentException("El estado de la bicicleta no puede ser null");
+
+        while (!resultado && vigente) {
+            Situacion actual = situacion.get();
+            vigente = actual.estado() == esperado;
+            resultado = vigente && cambiar(actual, estado);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Cambia el estado solo si la bicicleta no ha vuelto a cambiar desde la instantánea
+     * esperada. Permite decidir el nuevo estado a partir de la instantánea, por ejemplo
+     * para comprobar un plazo con su fecha, sin que otro hilo cambie la bicicleta entre
+     * la comprobación y el cambio.
+     * @param esperada la instantánea que debe seguir vigente, leída con getInstantanea()
+     * @param estado el nuevo estado
+     * @return true si se ha hecho el cambio
+     */
+    public boolean cambiarEstado(Instantanea esperada, EstadoBicicleta estado) {
+        boolean resultado = false;
+        boolean vigente = true;
+
+        if (esperada == null || estado == null)
+            throw new IllegalArgumentException("La instantánea y el estado de la bicicleta no pueden ser null");
+
+        while (!resultado && vigente) {
+            Situacion actual = situacion.get();
+            vigente = actual.version() == esperada.version() && actual.estado() == esperada.estado();
+            resultado = vigente && cambiar(actual, estado);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Registra un observador de los cambios de estado, recibirá los cambios posteriores
+     * al estado devuelto
+     * @param observador el observador que se añade
+     * @return el estado de la bicicleta en el momento del registro
+     */
+    public EstadoBicicleta agregarObservador(ObservadorBicicleta observador) {
+        if (observador == null)
+            throw new IllegalArgumentException("El observador no puede ser null");
+
+        Situacion actual;
+        ObservadorBicicleta[] observadores;
+        do {
+            actual = situacion.get();
+            observadores = Arrays.copyOf(actual.observadores(), actual.observadores().length + 1);
+            observadores[observadores.length - 1] = observador;
+        } while (!sustituir(actual, observadores));
+
+        return actual.estado();
+    }
+
+    /**
+     * Elimina un observador de los cambios de estado. No recibirá los cambios posteriores
+     * al estado devuelto, pero aún puede recibir el aviso de un cambio anterior que otro
+     * hilo no ha terminado de avisar.
+     * @param observador el observador que se elimina
+     * @return el estado de la bicicleta en el momento de eliminarlo
+     */
+    public EstadoBicicleta eliminarObservador(ObservadorBicicleta observador) {
+        Situacion actual;
+        ObservadorBicicleta[] observadores;
+        do {
+            actual = situacion.get();
+            observadores = Arrays.stream(actual.observadores())
+                    .filter(registrado -> registrado != observador)
+                    .toArray(ObservadorBicicleta[]::new);
+        } while (!sustituir(actual, observadores));
+
+        return actual.estado();
+    }
+
+    /**
+     * Sustituye la situación actual por otra con el nuevo estado y una versión más, y
+     * avisa del cambio
+     * @return false si otro hilo ha cambiado antes la situación
+     */
+    private boolean cambiar(Situacion actual, EstadoBicicleta estado) {
+        Situacion nueva = new Situacion(estado, reloj.milis(), actual.version() + 1, actual.observadores());
+        boolean resultado = situacion.compareAndSet(actual, nueva);
+
+        if (resultado && actual.estado() != estado)
+            for (ObservadorBicicleta observador : actual.observadores())
+                observador.cambioEstado(this, actual.estado(), estado);
+
+        return resultado;
+    }
+
+    /**
+     * Sustituye la situación actual por otra con los nuevos observadores y la misma
+     * versión
+     * @return false si otro hilo ha cambiado antes la situación
+     */
+    private boolean sustituir(Situacion actual, ObservadorBicicleta[] observadores) {
+        Situacion nueva = new Situacion(actual.estado(), actual.fechaEstado(), actual.version(), observadores);
+
+        return situacion.compareAndSet(actual, nueva);
+    }
+
+    public Reloj getReloj() {
+        return reloj;
     }
 
+    /**
+     * Las fechas se guardan en milisegundos, se devuelve una fecha nueva en cada llamada
+     */
     public Date getFechaEstado() {
-        return fechaEstado;
+        return new Date(getMarcaEstado());
+    }
+
+    public long getMarcaEstado() {
+        return situacion.get().fechaEstado();
     }
 
     public Date getFechaMantenimiento() {
+        return new Date(fechaMantenimiento);
+    }
+
+    public long getMarcaMantenimiento() {
         return fechaMantenimiento;
     }
 
     public void setFechaMantenimiento(Date fechaMantenimiento) {
+        if (fechaMantenimiento == null)
+            throw new IllegalArgumentException("La fecha de mantenimiento no puede ser null");
+
+        setMarcaMantenimiento(fechaMantenimiento.getTime());
+    }
+
+    /**
+     * Cambia la fecha del próximo mantenimiento y avisa a los observadores para que
+     * reprogramen el mantenimiento de la bicicleta
+     * @param fechaMantenimiento milisegundos desde la época
+     */
+    public void setMarcaMantenimiento(long fechaMantenimiento) {
         this.fechaMantenimiento = fechaMantenimiento;
+
+        for (ObservadorBicicleta observador : situacion.get().observadores())
+            observador.cambioMantenimiento(this, fechaMantenimiento);
     }
 
     /**
@@ -71,9 +282,9 @@ public class Bicicleta implements Comparable<Bicicleta> {
     public String toString() {
         return "Bicicleta{" +
                 "Id='" + id + '\'' +
-                ", estado=" + estado +
-                ", fechaEstado=" + fechaEstado +
-                ", fechaMantenimiento=" + fechaMantenimiento +
+                ", estado=" + getEstado() +
+                ", fechaEstado=" + getFechaEstado() +
+                ", fechaMantenimiento=" + getFechaMantenimiento() +
                 '}';
     }
 
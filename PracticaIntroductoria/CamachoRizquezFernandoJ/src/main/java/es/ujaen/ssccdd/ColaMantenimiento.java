@@ -0,0 +1,83 @@
+package es.ujaen.ssccdd;
+
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Cola concurrente de bicicletas que entrega primero la de fecha de mantenimiento más
+ * próxima, la cola de la política MENOS_MANTENIDA
+ */
+class ColaMantenimiento extends AbstractQueue<Bicicleta> {
+    private final PriorityBlockingQueue<Entrada> entradas; // Bicicletas por fecha de mantenimiento al encolar
+
+    /*
+      La fecha de mantenimiento de una bicicleta puede cambiar mientras está en la cola.
+      Un montículo ordenado por un valor que cambia deja de ser un montículo y entrega
+      las bicicletas en cualquier orden, por eso cada entrada guarda la fecha que tenía
+      la bicicleta al encolarla y el orden solo depende de esa copia.
+     */
+
+    /**
+     * Bicicleta de la cola con la fecha de mantenimiento que tenía al encolarla
+     */
+    private record Entrada(long fecha, Bicicleta bicicleta) {
+    }
+
+    ColaMantenimiento(int capacidadInicial) {
+        this.entradas = new PriorityBlockingQueue<>(capacidadInicial, Comparator.comparingLong(Entrada::fecha));
+    }
+
+    @Override
+    public boolean offer(Bicicleta bicicleta) {
+        Objects.requireNonNull(bicicleta, "La bicicleta no puede ser null");
+
+        return entradas.offer(new Entrada(bicicleta.getMarcaMantenimiento(), bicicleta));
+    }
+
+    @Override
+    public Bicicleta poll() {
+        Entrada entrada = entradas.poll();
+
+        return entrada == null ? null : entrada.bicicleta();
+    }
+
+    @Override
+    public Bicicleta peek() {
+        Entrada entrada = entradas.peek();
+
+        return entrada == null ? null : entrada.bicicleta();
+    }
+
+    @Override
+    public int size() {
+        return entradas.size();
+    }
+
+    /**
+     * Recorre las bicicletas sin un orden concreto, como el iterador de PriorityBlockingQueue
+     */
+    @Override
+    public Iterator<Bicicleta> iterator() {
+        Iterator<Entrada> iterador = entradas.iterator();
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterador.hasNext();
+            }
+
+            @Override
+            public Bicicleta next() {
+                return iterador.next().bicicleta();
+            }
+
+            @Override
+            public void remove() {
+                iterador.remove();
+            }
+        };
+    }
+}
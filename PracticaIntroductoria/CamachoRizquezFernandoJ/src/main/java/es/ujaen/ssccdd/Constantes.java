@@ -1,40 +1,50 @@
 package es.ujaen.ssccdd;
 
-import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 public interface Constantes {
-    // Generador aleatorio
+    // Generador aleatorio, compartido entre hilos, la aplicación usa FUENTE_ALEATORIA
     Random aleatorio = new Random();
 
+    // Generadores aleatorios por hilo para las operaciones de la aplicación
+    FuenteAleatoria FUENTE_ALEATORIA = FuenteAleatoria.local();
+
+    // Reloj por defecto de bicicletas y estaciones
+    Reloj RELOJ_SISTEMA = new RelojSistema();
 
     /**
      * Suma una cantidad de segundos a una fecha dada y nos devuelve la nueva
-     * fecha.
+     * fecha. Las clases de la aplicación trabajan con Reloj.sumarSegundos sobre
+     * milisegundos y no necesitan crear la fecha.
      */
-    BiFunction<Date, Integer, Date> sumarSegundos = (fecha, segundos) -> {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(fecha);
-        calendar.add(Calendar.SECOND, segundos);
-        return calendar.getTime();
-    };
+    BiFunction<Date, Integer, Date> sumarSegundos = (fecha, segundos) ->
+            new Date(Reloj.sumarSegundos(fecha.getTime(), segundos));
 
     /**
      * Predicado para comprobar si se ha alcanzado el vencimiento de una fecha
      * comparando con la fecha actual.
      */
-    Predicate<Date> vencimiento = (fecha) -> fecha.before(new Date());
+    Predicate<Date> vencimiento = (fecha) -> RELOJ_SISTEMA.vencido(fecha.getTime());
 
     enum EstadoBicicleta {
         DISPONIBLE(50,0), ALQUILADA(70,4), EN_REPARACION(85,2),
         EN_TRANSITO(95,6), FUERA_DE_SERVICIO(100,0);
 
-        private final int peso;
+        private final int peso;             // Peso acumulado sobre D100 hasta este estado
         private final int tiempoOperacion;
 
+        // Tabla de alias construida una vez con las probabilidades de los pesos
+        private static final MuestreoPonderado<EstadoBicicleta> MUESTREO =
+                new MuestreoPonderado<>(EstadoBicicleta.class, EstadoBicicleta::getProbabilidad);
+
         EstadoBicicleta(int peso, int tiempoOperacion) {
             this.peso = peso;
             this.tiempoOperacion = tiempoOperacion;
@@ -46,18 +56,27 @@ public interface Constantes {
          * @return
          */
         public static EstadoBicicleta getEstado() {
-            EstadoBicicleta resultado = null;
-            int peso = aleatorio.nextInt(D100);
-            int indice = 0;
-
-            while( (indice < estadosBicicleta.length) && (resultado == null) ) {
-                if( estadosBicicleta[indice].peso > peso )
-                    resultado = estadosBicicleta[indice];
+            return getEstado(FUENTE_ALEATORIA.generador());
+        }
 
-                indice++;
-            }
+        /**
+         * Nos devuelve un estado de la bicicleta según el peso asignado a cada etiqueta
+         * usando el generador indicado, por ejemplo el flujo de un trabajador de una
+         * FuenteReproducible
+         * @param generador el generador del hilo que pide el estado
+         * @return el estado de la bicicleta
+         */
+        public static EstadoBicicleta getEstado(RandomGenerator generador) {
+            return MUESTREO.siguiente(generador);
+        }
 
-            return resultado;
+        /**
+         * Probabilidad sobre D100 con la que getEstado() devuelve este estado, la
+         * diferencia entre su peso acumulado y el del estado anterior
+         * @return la probabilidad en tanto por cien
+         */
+        public int getProbabilidad() {
+            return ordinal() == 0 ? peso : peso - values()[ordinal() - 1].peso;
         }
 
         /**
@@ -69,6 +88,65 @@ public interface Constantes {
         }
     }
 
+    /**
+     * Operaciones que lanza GeneradorCarga contra las estaciones, el peso es la
+     * proporción de cada una en el tráfico por defecto
+     */
+    enum OperacionCarga {
+        ALQUILAR(35), RECOGER(30), DEVOLVER(30), MANTENIMIENTO(5);
+
+        private final int peso;
+
+        OperacionCarga(int peso) {
+            this.peso = peso;
+        }
+
+        public int getPeso() {
+            return peso;
+        }
+    }
+
+    /**
+     * Orden en el que una estación entrega sus bicicletas DISPONIBLE al alquilarlas
+     */
+    enum PoliticaAlquiler {
+        /**
+         * La última bicicleta devuelta es la primera que se alquila
+         */
+        LIFO {
+            @Override
+            public Queue<Bicicleta> crearCola() {
+                return Collections.asLifoQueue(new ConcurrentLinkedDeque<>());
+            }
+        },
+        /**
+         * Se alquila la bicicleta que lleva más tiempo disponible, reparte el desgaste
+         */
+        FIFO {
+            @Override
+            public Queue<Bicicleta> crearCola() {
+                return new ConcurrentLinkedQueue<>();
+            }
+        },
+        /**
+         * Se alquila primero la bicicleta con la fecha de mantenimiento más próxima,
+         * la que lleva más tiempo sin mantenimiento. Cuenta la fecha que tenía la
+         * bicicleta al quedar disponible.
+         */
+        MENOS_MANTENIDA {
+            @Override
+            public Queue<Bicicleta> crearCola() {
+                return new ColaMantenimiento(MAX_ESTACION_INICIAL);
+            }
+        };
+
+        /**
+         * Crea una cola concurrente que entrega las bicicletas en el orden de la política
+         * @return la cola vacía
+         */
+        public abstract Queue<Bicicleta> crearCola();
+    }
+
     int D100 = 100; // Simula una tirada de dado de 100 caras
     EstadoBicicleta[] estadosBicicleta = EstadoBicicleta.values();
     int TIEMPO_HASTA_MANTENIMIENTO = 12; // segundo, simula el tiempo necesario para el mantenimiento
@@ -77,4 +155,13 @@ public interface Constantes {
     int MENOR = -1;
     int MAYOR = 1;
     int PRIMERO = 0;
+    int MAX_ESTACION_INICIAL = 16; // capacidad inicial de las colas de bicicletas de una estación
+    double TAMANO_CELDA_RED = 250.0; // metros, lado de las celdas del índice espacial de RedEstaciones
+    double LADO_DISTRITO = 2_000.0; // metros, lado de los distritos que planifica PlanificadorReparto
+    long TICK_RUEDA = 100; // milisegundos, precisión de los vencimientos de RuedaTemporizacion
+    int BITS_RANURAS_RUEDA = 6; // 64 ranuras por nivel de RuedaTemporizacion
+    int NIVELES_RUEDA = 4; // con el tick por defecto la rueda alcanza unos 19 días
+    int BITS_PRECISION_HISTOGRAMA = 7; // error relativo menor del 1,6% en HistogramaLatencias
+    long MAX_LATENCIA_HISTOGRAMA = 60_000_000_000L; // nanosegundos, un minuto
+    int MAX_PENDIENTES_CARGA = 4_096; // bicicletas por hilo de GeneradorCarga a la espera de recogida o devolución
 }
@@ -1,37 +1,192 @@
 package es.ujaen.ssccdd;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
 
 import static es.ujaen.ssccdd.Constantes.*;
 import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
 
 public class EstacionBicicletas {
     private final String id;
-    private final List<Bicicleta> bicicletasAsignadas;
-    private int operacionesFueraDePlazo;
+    private final Reloj reloj;
+    private final FuenteAleatoria fuenteAleatoria;
+    private final List<Bicicleta> bicicletasAsignadas;      // Copia en escritura, se lee sin cerrojo
+    private final Map<String, Bicicleta> indiceBicicletas;  // Bicicletas asignadas por identificador
+    private final AtomicIntegerArray bicicletasPorEstado;  // Número de bicicletas en cada EstadoBicicleta
+    private final ObservadorBicicleta contador;             // Mantiene bicicletasPorEstado y las colas al día
+    private final PoliticaAlquiler politica;                // Orden de la cola de bicicletas DISPONIBLE
+    private final Queue<Bicicleta>[] colasPorEstado;        // Bicicletas de cada estado listas para extraer
+    private final Set<Bicicleta>[] encoladas;               // Bicicletas presentes en cada cola
+    private final LongAdder operacionesFueraDePlazo;         // Recogidas y devoluciones fuera de plazo
+    private final RuedaTemporizacion rueda;                 // Vence las reservas no recogidas
+    private final Map<Bicicleta, Reserva> reservas;        // Vencimiento de cada ALQUILADA
+    private final Queue<CitaMantenimiento> citasMantenimiento; // Montículo de mantenimientos por fecha
+    private final Map<Bicicleta, Long> citasProgramadas;    // Fecha de la última cita de cada bicicleta en el montículo
 
     /*
       El constructor debe inicializar los atributos de la clase y el identificador
       de una bicicleta es único
       ningún atributo de la clase puede ser null
+
+      La estación observa los cambios de estado de sus bicicletas, también los que se
+      hacen fuera de ella con setEstado, y mantiene un contador por estado indexado por
+      el ordinal, así las consultas de disponibilidad no recorren la lista.
+      Las bicicletas también se indexan por su identificador para localizarlas en la
+      recogida y rechazar duplicados sin recorrer la lista.
+
+      Cada estado tiene una cola concurrente con las bicicletas que han entrado en él,
+      la de DISPONIBLE ordenada según la política de alquiler. Las colas no se limpian
+      cuando una bicicleta sale del estado: al extraerla se confirma con cambiarEstado
+      que sigue en ese estado y en la estación, y si no se descarta. Los conjuntos de
+      encoladas evitan que una bicicleta aparezca dos veces en la misma cola.
+
+      Alquilar, recoger y devolver no bloquean la estación: cada operación es un único
+      cambiarEstado sobre la bicicleta, que solo tiene éxito si la bicicleta sigue en el
+      estado (y en la misma versión) que se ha comprobado. Si dos hilos operan sobre la misma
+      bicicleta solo uno de ellos la cambia.
+
+      Cada bicicleta que pasa a ALQUILADA programa en la rueda de temporización su
+      vencimiento, que la devuelve a DISPONIBLE si nadie la ha recogido en el plazo. El
+      temporizador se cancela cuando la bicicleta sale de ALQUILADA. Como los avisos de
+      cambios simultáneos pueden llegar desordenados, cada reserva guarda la versión del
+      alquiler y solo la sustituye o la cancela el aviso de un alquiler posterior o de su
+      final. El vencimiento solo
+      cambia la bicicleta si sigue en la misma reserva, por eso no importa que llegue a la
+      vez que una recogida. La comprobación del plazo en recogerBicicleta se mantiene
+      para el intervalo entre el vencimiento y el siguiente tick de la rueda.
+
+      Los mantenimientos programados se guardan en un montículo ordenado por la fecha de
+      mantenimiento. Cada cambio de fecha añade una cita nueva y las citas cuya fecha ya
+      no coincide con la de la bicicleta se descartan al llegar a la cima, así no hay que
+      reordenar el montículo ni recorrer la estación para encontrar las que han vencido.
+      Una bicicleta que ya tiene en el montículo una cita con su fecha no recibe otra, así
+      el montículo no crece cada vez que una bicicleta con el mantenimiento vencido vuelve
+      a estar disponible.
+     */
+
+    /**
+     * Mantenimiento previsto de una bicicleta, vigente mientras la bicicleta conserve la fecha
+     */
+    private record CitaMantenimiento(long fecha, Bicicleta bicicleta) {
+    }
+
+    /**
+     * Vencimiento de un alquiler, identificado por la versión de la bicicleta al alquilarla
      */
+    private record Reserva(long version, RuedaTemporizacion.Temporizador temporizador) {
+    }
 
     public EstacionBicicletas(String id) {
-        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
-        this.bicicletasAsignadas = new ArrayList<>();
-        this.operacionesFueraDePlazo = 0;
+        this(id, RELOJ_SISTEMA, FUENTE_ALEATORIA);
     }
 
 
 
     public EstacionBicicletas(String id, Bicicleta... bicicleta) {
-        if( bicicleta == null || Arrays.stream(bicicleta).anyMatch(Objects::isNull)
-                || Arrays.stream(bicicleta).map(Bicicleta::getId).distinct().count() < bicicleta.length )
-            throw new IllegalArgumentException("No se deben permitir bicicletas duplicadas");
+        this(id, RELOJ_SISTEMA, bicicleta);
+    }
+
+    /**
+     * Crea una estación que comprueba los plazos con el reloj indicado
+     */
+    public EstacionBicicletas(String id, Reloj reloj, Bicicleta... bicicleta) {
+        this(id, reloj, FUENTE_ALEATORIA, bicicleta);
+    }
+
+    /**
+     * Crea una estación que decide las averías con la fuente aleatoria indicada, por
+     * ejemplo una FuenteReproducible para repetir una simulación
+     */
+    public EstacionBicicletas(String id, Reloj reloj, FuenteAleatoria fuenteAleatoria, Bicicleta... bicicleta) {
+        this(id, reloj, fuenteAleatoria, PoliticaAlquiler.FIFO, bicicleta);
+    }
+
+    /**
+     * Crea una estación que alquila sus bicicletas en el orden de la política indicada
+     */
+    public EstacionBicicletas(String id, PoliticaAlquiler politica, Bicicleta... bicicleta) {
+        this(id, RELOJ_SISTEMA, FUENTE_ALEATORIA, politica, bicicleta);
+    }
+
+    /**
+     * Las estaciones con RELOJ_SISTEMA vencen sus reservas con RuedaTemporizacion.sistema(), las que
+     * usan otro reloj con una rueda propia parada que se avanza con getRueda().avanzar()
+     */
+    public EstacionBicicletas(String id, Reloj reloj, FuenteAleatoria fuenteAleatoria, PoliticaAlquiler politica,
+                              Bicicleta... bicicleta) {
+        this(id, reloj, fuenteAleatoria, politica,
+                reloj == RELOJ_SISTEMA ? RuedaTemporizacion.sistema() : new RuedaTemporizacion(reloj), bicicleta);
+    }
+
+    /**
+     * Crea una estación que programa el vencimiento de sus reservas en la rueda indicada,
+     * que debe usar el mismo reloj que la estación
+     */
+    @SuppressWarnings("unchecked")
+    public EstacionBicicletas(String id, Reloj reloj, FuenteAleatoria fuenteAleatoria, PoliticaAlquiler politica,
+                              RuedaTemporizacion rueda, Bicicleta... bicicleta) {
+        Map<String, Bicicleta> indice = indexar(bicicleta);
+        if( reloj == null || fuenteAleatoria == null || politica == null || rueda == null )
+            throw new IllegalArgumentException("El reloj, la fuente aleatoria, la política y la rueda no pueden ser null");
+        if( rueda.getReloj() != reloj )
+            throw new IllegalArgumentException("La rueda debe usar el reloj de la estación");
 
         this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
-        this.bicicletasAsignadas = new ArrayList<>(List.of(bicicleta));
-        this.operacionesFueraDePlazo = 0;
+        this.reloj = reloj;
+        this.fuenteAleatoria = fuenteAleatoria;
+        this.bicicletasAsignadas = new CopyOnWriteArrayList<>(bicicleta);
+        this.indiceBicicletas = indice;
+        this.bicicletasPorEstado = new AtomicIntegerArray(estadosBicicleta.length);
+        this.contador = new ObservadorBicicleta() {
+            @Override
+            public void cambioEstado(Bicicleta bicicleta, EstadoBicicleta anterior, EstadoBicicleta nuevo) {
+                EstacionBicicletas.this.cambioEstado(bicicleta, anterior, nuevo);
+            }
+
+            @Override
+            public void cambioMantenimiento(Bicicleta bicicleta, long fechaMantenimiento) {
+                programarMantenimiento(bicicleta, fechaMantenimiento);
+            }
+        };
+        this.politica = politica;
+        this.colasPorEstado = new Queue[estadosBicicleta.length];
+        this.encoladas = new Set[estadosBicicleta.length];
+        this.operacionesFueraDePlazo = new LongAdder();
+        this.rueda = rueda;
+        this.reservas = new ConcurrentHashMap<>();
+        this.citasMantenimiento = new PriorityQueue<>(Math.max(MAX_ESTACION_INICIAL, bicicleta.length),
+                Comparator.comparingLong(CitaMantenimiento::fecha));
+        this.citasProgramadas = new HashMap<>();
+
+        for (EstadoBicicleta estado : estadosBicicleta) {
+            colasPorEstado[estado.ordinal()] = estado == DISPONIBLE ? politica.crearCola()
+                    : PoliticaAlquiler.FIFO.crearCola();
+            encoladas[estado.ordinal()] = ConcurrentHashMap.newKeySet();
+        }
+
+        for (Bicicleta asignada : bicicletasAsignadas)
+            asignar(asignada);
+    }
+
+    /**
+     * Construye el índice por identificador de las bicicletas iniciales
+     * @return el índice de las bicicletas
+     */
+    private static Map<String, Bicicleta> indexar(Bicicleta[] bicicletas) {
+        if( bicicletas == null )
+            throw new IllegalArgumentException("No se deben permitir bicicletas duplicadas");
+
+        Map<String, Bicicleta> resultado = new ConcurrentHashMap<>(Math.max(16, bicicletas.length * 4 / 3 + 1));
+
+        for (Bicicleta bicicleta : bicicletas)
+            if( bicicleta == null || resultado.putIfAbsent(bicicleta.getId(), bicicleta) != null )
+                throw new IllegalArgumentException("No se deben permitir bicicletas duplicadas");
+
+        return resultado;
     }
 
     // Incluir los get el funcionamiento correcto de la clase
@@ -39,8 +194,82 @@ public class EstacionBicicletas {
         return id;
     }
 
+    public Reloj getReloj() {
+        return reloj;
+    }
+
+    /**
+     * Las bicicletas se asignan a través de la estación para que los contadores por
+     * estado sean correctos, la lista devuelta no se puede modificar. Se puede recorrer
+     * mientras otros hilos asignan o retiran bicicletas, cada recorrido ve la lista tal
+     * como estaba al empezar.
+     */
     public List<Bicicleta> getBicicletasAsignadas() {
-        return bicicletasAsignadas;
+        return Collections.unmodifiableList(bicicletasAsignadas);
+    }
+
+    /**
+     * Busca una bicicleta asignada a la estación por su identificador
+     * @param idBicicleta el identificador de la bicicleta
+     * @return un optional con la bicicleta si está asignada a la estación
+     */
+    public Optional<Bicicleta> getBicicleta(String idBicicleta) {
+        if( idBicicleta == null )
+            throw new IllegalArgumentException("La idBicicleta no puede ser null");
+
+        return Optional.ofNullable(indiceBicicletas.get(idBicicleta));
+    }
+
+    /**
+     * Asigna una bicicleta a la estación
+     * @param bicicleta la bicicleta que se asigna
+     * @return false si ya había una bicicleta con el mismo identificador
+     */
+    public synchronized boolean agregarBicicleta(Bicicleta bicicleta) {
+        boolean resultado = false;
+
+        if( bicicleta == null )
+            throw new IllegalArgumentException("La bicicleta no puede ser null");
+
+        if( indiceBicicletas.putIfAbsent(bicicleta.getId(), bicicleta) == null ) {
+            bicicletasAsignadas.add(bicicleta);
+            asignar(bicicleta);
+            resultado = true;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Retira una bicicleta de la estación, deja de contar en sus estados
+     * @param idBicicleta el identificador de la bicicleta
+     * @return un optional con la bicicleta retirada si estaba asignada a la estación
+     */
+    public synchronized Optional<Bicicleta> retirarBicicleta(String idBicicleta) {
+        if( idBicicleta == null )
+            throw new IllegalArgumentException("La idBicicleta no puede ser null");
+
+        Bicicleta resultado = indiceBicicletas.remove(idBicicleta);
+
+        if( resultado != null ) {
+            bicicletasAsignadas.remove(resultado);
+            bicicletasPorEstado.decrementAndGet(resultado.eliminarObservador(contador).ordinal());
+            cancelarReserva(resultado);
+        }
+
+        return Optional.ofNullable(resultado);
+    }
+
+    public PoliticaAlquiler getPolitica() {
+        return politica;
+    }
+
+    public RuedaTemporizacion getRueda() {
+        return rueda;
+    }
+
+    public int getOperacionesFueraDePlazo() {
+        return operacionesFueraDePlazo.intValue();
     }
 
 
@@ -51,9 +280,7 @@ public class EstacionBicicletas {
      * @return el número de bicicletas disponibles
      */
     public int getDisponibles() {
-        return (int) bicicletasAsignadas.stream()
-                .filter(bicicleta -> bicicleta.getEstado().equals(DISPONIBLE))
-                .count();
+        return getDisponibles(DISPONIBLE);
     }
 
     /**
@@ -65,9 +292,8 @@ public class EstacionBicicletas {
         if (estado == null)
             throw new IllegalArgumentException("El estado no puede ser null");
 
-        return (int) bicicletasAsignadas.stream()
-                .filter(bicicleta -> bicicleta.getEstado().equals(estado))
-                .count();
+        // Mientras llega el aviso de un cambio simultáneo el contador puede quedar por debajo de 0
+        return Math.max(0, bicicletasPorEstado.get(estado.ordinal()));
     }
 
     /**
@@ -77,44 +303,35 @@ public class EstacionBicicletas {
      */
     public Optional<Bicicleta> alquilarBicicleta() {
         //El optional hace que no trabajemos con nulos
-        Optional<Bicicleta> resultado = Optional.empty();
-        Iterator<Bicicleta> it = bicicletasAsignadas.iterator();
-
-        while( it.hasNext() && resultado.isEmpty()) {
-            Bicicleta bicicleta = it.next();
-
-            if( bicicleta.getEstado().equals(DISPONIBLE) ) {
-                bicicleta.setEstado(ALQUILADA);
-                resultado = Optional.of(bicicleta);
-            }
-        }
-
-        return resultado;
+        return Optional.ofNullable(extraer(DISPONIBLE, ALQUILADA));
     }
 
     /**
-     * Pasa el estado de la bicicleta a EN_TRANSITO si se recoge en el plazo establecido. En otro
-     * caso pasará a DISPLONIBLE.
+     * Pasa el estado de la bicicleta a EN_TRANSITO si se recoge en el plazo establecido, el tiempo
+     * de operación de ALQUILADA desde el alquiler. En otro caso pasará a DISPLONIBLE.
      * @param idBicicleta la bicicleta que está en el proceso de recogida
      * @return la bicicleta si se recoge en el plazo establecido
      */
     public Optional<Bicicleta> recogerBicicleta(String idBicicleta) {
         Optional<Bicicleta> resultado = Optional.empty();
-        Iterator<Bicicleta> it = bicicletasAsignadas.iterator();
 
         if( idBicicleta == null )
             throw new IllegalArgumentException("La idBicicleta no puede ser null");
 
-        while (it.hasNext() && resultado.isEmpty()) {
-            Bicicleta actual = it.next();
-            if (actual.getId().equals(idBicicleta) &&
-                    actual.getEstado().equals(EstadoBicicleta.ALQUILADA)) {
+        Bicicleta actual = indiceBicicletas.get(idBicicleta);
+        boolean alquilada = actual != null;
+        while( alquilada ) {
+            Bicicleta.Instantanea alquiler = actual.getInstantanea();
+            alquilada = alquiler.estado() == ALQUILADA;
 
-                if (!vencimiento.test(actual.getFechaEstado())) {
-                    actual.setEstado(EN_TRANSITO);
-                    resultado = Optional.of(actual);
-                } else {
-                    actual.setEstado(EstadoBicicleta.DISPONIBLE);
+            if( alquilada ) {
+                boolean enPlazo = !reloj.vencido(Reloj.sumarSegundos(alquiler.fechaEstado(),
+                        ALQUILADA.getTiempoOperacion()));
+
+                if( actual.cambiarEstado(alquiler, enPlazo ? EN_TRANSITO : DISPONIBLE) ) {
+                    alquilada = false;
+                    if( enPlazo )
+                        resultado = Optional.of(actual);
                 }
             }
         }
@@ -129,51 +346,135 @@ public class EstacionBicicletas {
      * @return true si se ha completado la acción de devolución
      */
     public boolean devolverBicicleta(Bicicleta bicicleta) {
-        boolean resultado = false;
-
         if( bicicleta == null )
             throw new IllegalArgumentException("La bicicleta no puede ser null");
 
-        if( bicicleta.getEstado().equals(EN_TRANSITO) ) {
-            if( vencimiento.test(sumarSegundos.apply(bicicleta.getFechaEstado(), bicicleta.getEstado().getTiempoOperacion()) ) )
-                this.operacionesFueraDePlazo++;
+        return devolver(bicicleta, fuenteAleatoria.generador(), reloj.milis());
+    }
 
-            if( necesitaMantenimiento(bicicleta) ) {
-                bicicleta.setEstado(FUERA_DE_SERVICIO);
-                bicicleta.setFechaMantenimiento(sumarSegundos.apply(new Date(), TIEMPO_HASTA_MANTENIMIENTO));
-            } else
-                bicicleta.setEstado(DISPONIBLE);
+    /**
+     * Alquila varias bicicletas de una vez, por ejemplo para una reserva de grupo. Cada
+     * bicicleta se extrae de la cola de disponibles igual que en alquilarBicicleta.
+     * @param numBicicletas el número de bicicletas que se quieren alquilar
+     * @return las bicicletas alquiladas, menos de las pedidas si no hay suficientes disponibles
+     */
+    public List<Bicicleta> alquilarBicicletas(int numBicicletas) {
+        if( numBicicletas < 0 )
+            throw new IllegalArgumentException("El número de bicicletas no puede ser negativo");
 
-            resultado = true;
+        List<Bicicleta> resultado = new ArrayList<>(Math.min(numBicicletas, getDisponibles()));
+        Bicicleta bicicleta = numBicicletas > 0 ? extraer(DISPONIBLE, ALQUILADA) : null;
+
+        while( bicicleta != null ) {
+            resultado.add(bicicleta);
+            bicicleta = resultado.size() < numBicicletas ? extraer(DISPONIBLE, ALQUILADA) : null;
         }
 
         return resultado;
     }
 
     /**
-     * Devuelve una lista de bicicletas reparadas a la estación de bicicletas. Comprueba para cada una de ellas si se ha devuelto
-     * en el plazo establecido. Todas ellas tendrán el estado DISPONIBLE.
+     * Devuelve varias bicicletas de una vez, por ejemplo la carga de un camión de reparto.
+     * Cada bicicleta se comprueba como en devolverBicicleta, con la misma lectura del reloj
+     * y el mismo generador aleatorio para todo el lote. El lote se comprueba entero antes
+     * de devolver ninguna bicicleta.
+     * @param bicicletas las bicicletas entregadas, sin null ni repetidas
+     * @return para cada bicicleta, en el orden del lote, si se ha completado su devolución
+     */
+    public Map<Bicicleta, Boolean> devolverBicicletas(Collection<Bicicleta> bicicletas) {
+        if( bicicletas == null )
+            throw new IllegalArgumentException("Las bicicletas no pueden ser null");
+        Set<Bicicleta> lote = new HashSet<>(bicicletas.size() * 4 / 3 + 1);
+        for( Bicicleta bicicleta : bicicletas ) {
+            if( bicicleta == null )
+                throw new IllegalArgumentException("Las bicicletas no pueden ser null");
+            if( !lote.add(bicicleta) )
+                throw new IllegalArgumentException("La bicicleta " + bicicleta.getId() + " está repetida en el lote");
+        }
+
+        Map<Bicicleta, Boolean> resultado = new LinkedHashMap<>(bicicletas.size() * 4 / 3 + 1);
+        RandomGenerator generador = fuenteAleatoria.generador();
+        long ahora = reloj.milis();
+
+        for( Bicicleta bicicleta : bicicletas )
+            resultado.put(bicicleta, devolver(bicicleta, generador, ahora));
+
+        return resultado;
+    }
+
+    /**
+     * Devuelve a DISPONIBLE las bicicletas reparadas y les programa el próximo mantenimiento.
+     * Solo se aceptan las bicicletas asignadas a la estación que siguen EN_REPARACION, el
+     * resto se dejan como están.
      * @param listaBicicletas la lista de bicicletas que se devuelven
-     * @return true si se ha completado la acción de devolución
+     * @return true si la lista no está vacía y se han aceptado todas sus bicicletas
      */
     public boolean bicicletasReparadas(List<Bicicleta> listaBicicletas) {
+        if( listaBicicletas == null )
+            throw new IllegalArgumentException("La lista de bicicletas no puede ser null");
+
+        long proximoMantenimiento = Reloj.sumarSegundos(reloj.milis(), TIEMPO_HASTA_MANTENIMIENTO);
+        int reparadas = 0;
+
         for( Bicicleta bicicleta : listaBicicletas ) {
-            bicicleta.setEstado(DISPONIBLE);
+            if( bicicleta != null && indiceBicicletas.get(bicicleta.getId()) == bicicleta
+                    && bicicleta.getEstado() == EN_REPARACION ) {
+                // La fecha se cambia antes que el estado para que no entre vencida en DISPONIBLE
+                bicicleta.setMarcaMantenimiento(proximoMantenimiento);
+                if( bicicleta.cambiarEstado(EN_REPARACION, DISPONIBLE) )
+                    reparadas++;
+            }
+        }
+
+        return !listaBicicletas.isEmpty() && reparadas == listaBicicletas.size();
+    }
+
+    /**
+     * Pasa una bicicleta EN_TRANSITO a DISPONIBLE, o a FUERA_DE_SERVICIO si necesita
+     * mantenimiento, y cuenta la devolución si está fuera de plazo
+     * @param generador el generador aleatorio para las averías
+     * @param ahora la marca de tiempo de la devolución
+     * @return true si la bicicleta estaba en tránsito
+     */
+    private boolean devolver(Bicicleta bicicleta, RandomGenerator generador, long ahora) {
+        boolean resultado = false;
+        boolean enTransito = true;
+
+        while( enTransito ) {
+            Bicicleta.Instantanea recogida = bicicleta.getInstantanea();
+            enTransito = recogida.estado() == EN_TRANSITO;
+
+            if( enTransito ) {
+                boolean averiada = necesitaMantenimiento(bicicleta, generador, ahora);
+
+                if( bicicleta.cambiarEstado(recogida, averiada ? FUERA_DE_SERVICIO : DISPONIBLE) ) {
+                    if( Reloj.sumarSegundos(recogida.fechaEstado(), EN_TRANSITO.getTiempoOperacion()) < ahora )
+                        operacionesFueraDePlazo.increment();
+
+                    if( averiada )
+                        bicicleta.setMarcaMantenimiento(Reloj.sumarSegundos(ahora, TIEMPO_HASTA_MANTENIMIENTO));
+
+                    enTransito = false;
+                    resultado = true;
+                }
+            }
         }
 
-        return !listaBicicletas.isEmpty();
+        return resultado;
     }
 
     /**
      * Comprueba si una bicicleta presenta algún tipo de avería o necesita mantenimiento.
      *
      * @param bicicleta la bicicleta que se va a verificar
+     * @param generador el generador aleatorio para las averías
+     * @param ahora la marca de tiempo con la que se compara la fecha de mantenimiento
      * @return true si la bicicleta tiene una avería o requiere mantenimiento, false en caso contrario
      */
-    private boolean necesitaMantenimiento(Bicicleta bicicleta) {
-        int posibleAveria = aleatorio.nextInt(D100);
+    private boolean necesitaMantenimiento(Bicicleta bicicleta, RandomGenerator generador, long ahora) {
+        int posibleAveria = generador.nextInt(D100);
 
-        return posibleAveria < PROB_AVERIA || vencimiento.test(bicicleta.getFechaMantenimiento());
+        return posibleAveria < PROB_AVERIA || bicicleta.getMarcaMantenimiento() < ahora;
     }
 
     /**
@@ -182,14 +483,219 @@ public class EstacionBicicletas {
      */
     public List<Bicicleta> mantenimientoBicicletas() {
         List<Bicicleta> resultado = new ArrayList<>();
+        Bicicleta bicicleta;
+
+        while ((bicicleta = extraer(FUERA_DE_SERVICIO, EN_REPARACION)) != null)
+            resultado.add(bicicleta);
+
+
+        return resultado;
+    }
+
+    /**
+     * Pasa a EN_REPARACION, en orden de fecha de mantenimiento, las bicicletas DISPONIBLE o
+     * FUERA_DE_SERVICIO cuyo mantenimiento ha vencido. Las que están alquiladas o en
+     * tránsito se revisan al devolverlas. Cada bicicleta cuesta O(log n) y no se recorre
+     * la estación, la lista resultante se entrega después a bicicletasReparadas.
+     * @param lote el número máximo de bicicletas que se pasan a reparación
+     * @return las bicicletas que se han de reparar
+     */
+    public List<Bicicleta> mantenimientoProgramado(int lote) {
+        if( lote <= 0 )
+            throw new IllegalArgumentException("El lote debe ser positivo");
+
+        List<Bicicleta> resultado = new ArrayList<>();
+        CitaMantenimiento cita;
 
-        for (Bicicleta bicicleta : bicicletasAsignadas) {
-            if (bicicleta.getEstado().equals(FUERA_DE_SERVICIO)) {
-                bicicleta.setEstado(EN_REPARACION);
+        while( resultado.size() < lote && (cita = siguienteCita(true)) != null ) {
+            Bicicleta bicicleta = cita.bicicleta();
+
+            if( bicicleta.cambiarEstado(DISPONIBLE, EN_REPARACION) || bicicleta.cambiarEstado(FUERA_DE_SERVICIO, EN_REPARACION) )
                 resultado.add(bicicleta);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * La fecha del mantenimiento más próximo de las bicicletas de la estación
+     * @return la fecha en milisegundos desde la época o vacío si no hay ninguno programado
+     */
+    public OptionalLong getProximoMantenimiento() {
+        CitaMantenimiento cita = siguienteCita(false);
+
+        return cita == null ? OptionalLong.empty() : OptionalLong.of(cita.fecha());
+    }
+
+    /**
+     * Número de citas en el montículo, incluidas las que ya no están vigentes y aún no
+     * han llegado a la cima
+     */
+    int getCitasMantenimiento() {
+        synchronized (citasMantenimiento) {
+            return citasMantenimiento.size();
+        }
+    }
+
+    /**
+     * Descarta las citas que ya no están vigentes de la cima del montículo
+     * @param extraer si se extrae la cita vigente de la cima, solo si ha vencido
+     * @return la cita vigente de la cima o null si no hay o no ha vencido
+     */
+    private CitaMantenimiento siguienteCita(boolean extraer) {
+        CitaMantenimiento resultado = null;
+
+        synchronized (citasMantenimiento) {
+            CitaMantenimiento cita;
+            boolean buscar = true;
+            while( buscar && (cita = citasMantenimiento.peek()) != null ) {
+                Bicicleta bicicleta = cita.bicicleta();
+
+                if( indiceBicicletas.get(bicicleta.getId()) != bicicleta || bicicleta.getMarcaMantenimiento() != cita.fecha() )
+                    descartarCita();
+                else {
+                    buscar = false;
+                    if( !extraer )
+                        resultado = cita;
+                    else if( reloj.vencido(cita.fecha()) )
+                        resultado = descartarCita();
+                }
             }
         }
 
+        return resultado;
+    }
+
+    /**
+     * Saca la cita de la cima del montículo, debe llamarse con el montículo bloqueado
+     * @return la cita extraída
+     */
+    private CitaMantenimiento descartarCita() {
+        CitaMantenimiento resultado = citasMantenimiento.poll();
+
+        citasProgramadas.remove(resultado.bicicleta(), resultado.fecha());
+
+        return resultado;
+    }
+
+    /**
+     * Añade una cita al montículo salvo que la bicicleta ya tenga una con esa fecha
+     */
+    private void programarMantenimiento(Bicicleta bicicleta, long fechaMantenimiento) {
+        synchronized (citasMantenimiento) {
+            Long programada = citasProgramadas.put(bicicleta, fechaMantenimiento);
+
+            if( programada == null || programada != fechaMantenimiento )
+                citasMantenimiento.offer(new CitaMantenimiento(fechaMantenimiento, bicicleta));
+        }
+    }
+
+    /**
+     * Actualiza los contadores y las colas cuando una bicicleta de la estación cambia de estado.
+     * Los avisos pueden llegar desordenados o después de retirar la bicicleta: los contadores
+     * aplican siempre la diferencia, que cuadra en cualquier orden, y las colas y reservas
+     * solo se tocan si la bicicleta sigue asignada. Una entrada de cola o una reserva
+     * atrasada no hace daño, extraer y el vencimiento de la reserva comprueban el estado.
+     */
+    private void cambioEstado(Bicicleta bicicleta, EstadoBicicleta anterior, EstadoBicicleta nuevo) {
+        bicicletasPorEstado.decrementAndGet(anterior.ordinal());
+        bicicletasPorEstado.incrementAndGet(nuevo.ordinal());
+
+        if( indiceBicicletas.get(bicicleta.getId()) == bicicleta ) {
+            encolar(bicicleta, nuevo);
+
+            if( anterior == ALQUILADA )
+                terminarReserva(bicicleta);
+            if( nuevo == ALQUILADA )
+                programarReserva(bicicleta);
+            if( nuevo == DISPONIBLE && reloj.vencido(bicicleta.getMarcaMantenimiento()) )
+                programarMantenimiento(bicicleta, bicicleta.getMarcaMantenimiento());
+        }
+    }
+
+    private void asignar(Bicicleta bicicleta) {
+        EstadoBicicleta estado = bicicleta.agregarObservador(contador);
+
+        bicicletasPorEstado.incrementAndGet(estado.ordinal());
+        encolar(bicicleta, estado);
+
+        if( estado == ALQUILADA )
+            programarReserva(bicicleta);
+        programarMantenimiento(bicicleta, bicicleta.getMarcaMantenimiento());
+    }
+
+    /**
+     * Programa la vuelta a DISPONIBLE de una bicicleta ALQUILADA cuando vence el plazo de
+     * recogida. Vence justo cuando reloj.vencido daría true para el plazo, y solo si la
+     * bicicleta sigue en el mismo alquiler.
+     */
+    private void programarReserva(Bicicleta bicicleta) {
+        Bicicleta.Instantanea alquiler = bicicleta.getInstantanea();
+
+        if( alquiler.estado() == ALQUILADA ) {
+            long plazo = Reloj.sumarSegundos(alquiler.fechaEstado(), ALQUILADA.getTiempoOperacion());
+
+            reservas.compute(bicicleta, (clave, anterior) -> {
+                Reserva resultado = anterior;
+
+                if( anterior == null || anterior.version() < alquiler.version() ) {
+                    if( anterior != null )
+                        anterior.temporizador().cancelar();
+                    resultado = new Reserva(alquiler.version(), rueda.programar(plazo + 1,
+                            () -> bicicleta.cambiarEstado(alquiler, DISPONIBLE)));
+                }
+
+                return resultado;
+            });
+        }
+    }
+
+    /**
+     * Cancela la reserva de la bicicleta si su alquiler ha terminado, la de un alquiler
+     * posterior cuyo aviso ha llegado antes se mantiene
+     */
+    private void terminarReserva(Bicicleta bicicleta) {
+        reservas.computeIfPresent(bicicleta, (clave, reserva) -> {
+            Reserva resultado = reserva;
+
+            if( reserva.version() != bicicleta.getInstantanea().version() ) {
+                reserva.temporizador().cancelar();
+                resultado = null;
+            }
+
+            return resultado;
+        });
+    }
+
+    private void cancelarReserva(Bicicleta bicicleta) {
+        Reserva reserva = reservas.remove(bicicleta);
+
+        if( reserva != null )
+            reserva.temporizador().cancelar();
+    }
+
+    private void encolar(Bicicleta bicicleta, EstadoBicicleta estado) {
+        if( encoladas[estado.ordinal()].add(bicicleta) )
+            colasPorEstado[estado.ordinal()].offer(bicicleta);
+    }
+
+    /**
+     * Extrae de la cola del estado origen una bicicleta de la estación y la pasa al estado
+     * destino. Las entradas de bicicletas que ya no están en ese estado o que se han
+     * retirado de la estación se descartan.
+     * @return la bicicleta que ha cambiado de estado o null si no hay ninguna
+     */
+    private Bicicleta extraer(EstadoBicicleta origen, EstadoBicicleta destino) {
+        Bicicleta resultado = null;
+        Queue<Bicicleta> cola = colasPorEstado[origen.ordinal()];
+        Bicicleta candidata;
+
+        while( resultado == null && (candidata = cola.poll()) != null ) {
+            encoladas[origen.ordinal()].remove(candidata);
+
+            if( indiceBicicletas.get(candidata.getId()) == candidata && candidata.cambiarEstado(origen, destino) )
+                resultado = candidata;
+        }
 
         return resultado;
     }
@@ -0,0 +1,35 @@
+package es.ujaen.ssccdd;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Proporciona el generador aleatorio que debe usar el hilo que lo pide. Ningún
+ * generador se comparte entre hilos, así no compiten por la misma semilla.
+ */
+@FunctionalInterface
+public interface FuenteAleatoria {
+
+    /**
+     * @return el generador del hilo actual, no debe pasarse a otros hilos
+     */
+    RandomGenerator generador();
+
+    /**
+     * Fuente para el máximo rendimiento, cada hilo usa su ThreadLocalRandom
+     * @return la fuente aleatoria
+     */
+    static FuenteAleatoria local() {
+        return ThreadLocalRandom::current;
+    }
+
+    /**
+     * Fuente para repetir una ejecución, cada trabajador tiene su propio flujo
+     * derivado de la semilla
+     * @param semilla la semilla de la ejecución
+     * @return la fuente aleatoria
+     */
+    static FuenteReproducible reproducible(long semilla) {
+        return new FuenteReproducible(semilla);
+    }
+}
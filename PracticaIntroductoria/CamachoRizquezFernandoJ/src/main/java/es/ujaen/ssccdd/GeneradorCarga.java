@@ -0,0 +1,281 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class GeneradorCarga {
+    private final List<EstacionBicicletas> estaciones;          // Estaciones que reciben la carga
+    private final int hilos;                                    // Hilos que lanzan operaciones
+    private final MuestreoPonderado<OperacionCarga> mezcla;     // Proporción de cada operación
+    private final FuenteAleatoria fuenteAleatoria;
+
+    /*
+      Carga en lazo abierto: cada hilo lanza operaciones según un proceso de Poisson
+      de tasa operacionesPorSegundo / hilos, sin esperar a que el sistema vaya más
+      rápido o más lento. La latencia se mide desde el instante en que la operación
+      estaba prevista, no desde que empieza, así el tiempo que pasa en cola un hilo
+      retrasado cuenta en la latencia (omisión coordinada). Cuando se supera la
+      capacidad el retraso crece sin límite y los percentiles altos lo muestran.
+
+      Cada hilo guarda las bicicletas que ha alquilado y las que ha recogido para
+      recogerlas y devolverlas después en la misma estación. Si no tiene ninguna
+      pendiente una recogida o una devolución se convierte en un alquiler.
+
+      Una bicicleta recogida solo vuelve a la estación si alguien la devuelve, así que
+      las que el hilo no puede guardar y las que le quedan al terminar se devuelven en
+      el acto. Las alquiladas que se olvidan no hace falta, su reserva vence.
+     */
+
+    /**
+     * Estación y bicicleta pendientes de recoger o devolver
+     */
+    private record Pendiente(EstacionBicicletas estacion, Bicicleta bicicleta) {
+    }
+
+    public GeneradorCarga(int numEstaciones, int bicicletasPorEstacion, int hilos) {
+        this(numEstaciones, bicicletasPorEstacion, hilos,
+                new MuestreoPonderado<>(OperacionCarga.class, OperacionCarga::getPeso), FUENTE_ALEATORIA);
+    }
+
+    /**
+     * Crea las estaciones con bicicletas cuyo estado inicial sigue la distribución de
+     * EstadoBicicleta.getEstado()
+     * @param numEstaciones el número de estaciones
+     * @param bicicletasPorEstacion las bicicletas de cada estación
+     * @param hilos los hilos que lanzan operaciones
+     * @param mezcla la proporción de cada operación
+     * @param fuenteAleatoria la fuente de los estados iniciales y de las operaciones; con
+     *                        una FuenteReproducible cada hilo usa el flujo de su índice
+     */
+    public GeneradorCarga(int numEstaciones, int bicicletasPorEstacion, int hilos,
+                          MuestreoPonderado<OperacionCarga> mezcla, FuenteAleatoria fuenteAleatoria) {
+        if( mezcla == null || fuenteAleatoria == null )
+            throw new IllegalArgumentException("La mezcla y la fuente aleatoria no pueden ser null");
+        if( numEstaciones < 1 || bicicletasPorEstacion < 0 || hilos < 1 )
+            throw new IllegalArgumentException("Debe haber al menos una estación y un hilo");
+
+        this.estaciones = new ArrayList<>(numEstaciones);
+        this.hilos = hilos;
+        this.mezcla = mezcla;
+        this.fuenteAleatoria = fuenteAleatoria;
+
+        RandomGenerator generador = fuenteAleatoria.generador();
+        for (int i = 0; i < numEstaciones; i++) {
+            Bicicleta[] bicicletas = new Bicicleta[bicicletasPorEstacion];
+            for (int j = 0; j < bicicletasPorEstacion; j++)
+                bicicletas[j] = new Bicicleta("BICI-" + i + "-" + j, EstadoBicicleta.getEstado(generador));
+
+            estaciones.add(new EstacionBicicletas("EST-" + i, RELOJ_SISTEMA, fuenteAleatoria, bicicletas));
+        }
+    }
+
+    public List<EstacionBicicletas> getEstaciones() {
+        return Collections.unmodifiableList(estaciones);
+    }
+
+    /**
+     * Lanza operaciones contra las estaciones durante el tiempo indicado
+     * @param operacionesPorSegundo la tasa objetivo entre todos los hilos
+     * @param duracion el tiempo de la medida
+     * @param unidad la unidad del tiempo de la medida
+     * @return las operaciones realizadas y su latencia
+     * @throws InterruptedException si se interrumpe la espera a los hilos
+     */
+    public Resultado ejecutar(double operacionesPorSegundo, long duracion, TimeUnit unidad) throws InterruptedException {
+        if( !(operacionesPorSegundo > 0) || Double.isInfinite(operacionesPorSegundo) || duracion <= 0 || unidad == null )
+            throw new IllegalArgumentException("La tasa y la duración deben ser positivas");
+
+        Map<OperacionCarga, HistogramaLatencias> latencias = new EnumMap<>(OperacionCarga.class);
+        for (OperacionCarga operacion : OperacionCarga.values())
+            latencias.put(operacion, new HistogramaLatencias());
+        LongAdder programadas = new LongAdder();
+        double intervalo = 1e9 * hilos / operacionesPorSegundo;
+        long inicio = System.nanoTime();
+        long fin = inicio + unidad.toNanos(duracion);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> trabajadores = new ArrayList<>(hilos);
+            for (int hilo = 0; hilo < hilos; hilo++) {
+                int indice = hilo;
+                trabajadores.add(ejecutor.submit(() -> trabajar(indice, intervalo, inicio, fin, latencias, programadas)));
+            }
+
+            for (Future<?> trabajador : trabajadores)
+                trabajador.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error en un hilo del generador de carga", e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        return new Resultado(operacionesPorSegundo, hilos, programadas.sum(), System.nanoTime() - inicio, latencias);
+    }
+
+    /**
+     * Bucle de un hilo: espera al instante previsto de la siguiente operación o la
+     * lanza en el acto si va retrasado. Termina al llegar al final de la medida, las
+     * operaciones retrasadas que quedan se cuentan como programadas pero no se hacen.
+     */
+    private void trabajar(int indice, double intervalo, long inicio, long fin,
+                          Map<OperacionCarga, HistogramaLatencias> latencias, LongAdder programadas) {
+        if( fuenteAleatoria instanceof FuenteReproducible reproducible )
+            reproducible.asignar(indice);
+
+        RandomGenerator generador = fuenteAleatoria.generador();
+        Deque<Pendiente> alquiladas = new ArrayDeque<>();
+        Deque<Pendiente> enTransito = new ArrayDeque<>();
+        long prevista = inicio + (long) (generador.nextExponential() * intervalo);
+        boolean activo = prevista < fin;
+
+        while( activo ) {
+            long ahora = System.nanoTime();
+
+            if( ahora >= fin )
+                activo = false;
+            else if( ahora < prevista )
+                LockSupport.parkNanos(prevista - ahora);
+            else {
+                OperacionCarga realizada = operar(mezcla.siguiente(generador), generador, alquiladas, enTransito);
+                latencias.get(realizada).registrar(System.nanoTime() - prevista);
+
+                programadas.increment();
+                prevista += (long) (generador.nextExponential() * intervalo);
+                activo = prevista < fin;
+            }
+        }
+
+        // Las que tocaban antes del final y no se han podido lanzar
+        while( prevista < fin ) {
+            programadas.increment();
+            prevista += (long) (generador.nextExponential() * intervalo);
+        }
+
+        while( !enTransito.isEmpty() )
+            devolver(enTransito.pollFirst());
+    }
+
+    /**
+     * Realiza una operación sobre una estación al azar o sobre una bicicleta pendiente
+     * @return la operación que se ha realizado realmente
+     */
+    private OperacionCarga operar(OperacionCarga operacion, RandomGenerator generador,
+                                  Deque<Pendiente> alquiladas, Deque<Pendiente> enTransito) {
+        OperacionCarga resultado = operacion;
+        Deque<Pendiente> origen = operacion == OperacionCarga.RECOGER ? alquiladas : enTransito;
+
+        if( (operacion == OperacionCarga.RECOGER || operacion == OperacionCarga.DEVOLVER) && origen.isEmpty() )
+            resultado = OperacionCarga.ALQUILAR;
+
+        EstacionBicicletas estacion = estaciones.get(generador.nextInt(estaciones.size()));
+        switch (resultado) {
+            case ALQUILAR -> estacion.alquilarBicicleta()
+                    .ifPresent(bicicleta -> guardar(alquiladas, new Pendiente(estacion, bicicleta)));
+            case RECOGER -> {
+                Pendiente pendiente = alquiladas.pollFirst();
+                pendiente.estacion().recogerBicicleta(pendiente.bicicleta().getId())
+                        .ifPresent(bicicleta -> transportar(enTransito, pendiente));
+            }
+            case DEVOLVER -> devolver(enTransito.pollFirst());
+            case MANTENIMIENTO -> {
+                List<Bicicleta> averiadas = estacion.mantenimientoBicicletas();
+                if( !averiadas.isEmpty() )
+                    estacion.bicicletasReparadas(averiadas);
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Las bicicletas alquiladas más antiguas se olvidan si hay demasiadas pendientes,
+     * vuelven a estar disponibles al vencer su reserva
+     */
+    private static void guardar(Deque<Pendiente> alquiladas, Pendiente pendiente) {
+        if( alquiladas.size() >= MAX_PENDIENTES_CARGA )
+            alquiladas.pollFirst();
+
+        alquiladas.addLast(pendiente);
+    }
+
+    /**
+     * Guarda una bicicleta recogida hasta su devolución, si hay demasiadas pendientes la
+     * más antigua se devuelve ya para que no se quede EN_TRANSITO
+     */
+    private static void transportar(Deque<Pendiente> enTransito, Pendiente pendiente) {
+        if( enTransito.size() >= MAX_PENDIENTES_CARGA )
+            devolver(enTransito.pollFirst());
+
+        enTransito.addLast(pendiente);
+    }
+
+    private static void devolver(Pendiente pendiente) {
+        pendiente.estacion().devolverBicicleta(pendiente.bicicleta());
+    }
+
+    /**
+     * Resultado de una ejecución del generador de carga
+     *
+     * @param objetivo operaciones por segundo pedidas
+     * @param hilos hilos que lanzaban operaciones
+     * @param programadas operaciones que tocaban durante la medida
+     * @param duracion duración en nanosegundos
+     * @param latencias latencia de cada operación desde su instante previsto
+     */
+    public record Resultado(double objetivo, int hilos, long programadas, long duracion,
+                            Map<OperacionCarga, HistogramaLatencias> latencias) {
+
+        public long getRealizadas() {
+            long resultado = 0;
+
+            for (HistogramaLatencias histograma : latencias.values())
+                resultado += histograma.getCuenta();
+
+            return resultado;
+        }
+
+        public double getOperacionesPorSegundo() {
+            return duracion > 0 ? getRealizadas() / (duracion / 1e9) : 0;
+        }
+
+        /**
+         * La latencia de todas las operaciones juntas
+         */
+        public HistogramaLatencias getLatenciaTotal() {
+            HistogramaLatencias resultado = new HistogramaLatencias();
+
+            for (HistogramaLatencias histograma : latencias.values())
+                resultado.sumar(histograma);
+
+            return resultado;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder resultado = new StringBuilder(String.format(
+                    "Resultado{objetivo=%.0f op/s, hilos=%d, programadas=%d, realizadas=%d, op/s=%.0f, total=%s}",
+                    objetivo, hilos, programadas, getRealizadas(), getOperacionesPorSegundo(), getLatenciaTotal()));
+
+            for (Map.Entry<OperacionCarga, HistogramaLatencias> latencia : latencias.entrySet())
+                resultado.append(System.lineSeparator()).append("  ").append(latencia.getKey())
+                        .append(": ").append(latencia.getValue());
+
+            return resultado.toString();
+        }
+    }
+}
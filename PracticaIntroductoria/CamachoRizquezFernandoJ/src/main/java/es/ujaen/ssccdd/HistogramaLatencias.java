@@ -0,0 +1,163 @@
+package es.ujaen.ssccdd;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class HistogramaLatencias {
+    private static final int SUBCUBETAS = 1 << BITS_PRECISION_HISTOGRAMA;
+    private static final int MITAD = SUBCUBETAS / 2;
+
+    private final long maximoRegistrable;       // Nanosegundos, los valores mayores se recortan
+    private final AtomicLongArray cuentas;      // Registros de cada cubeta
+    private final LongAdder total;              // Registros de todas las cubetas
+    private final LongAdder suma;               // Suma de las latencias para la media
+    private final AtomicLong maximo;            // Mayor latencia registrada sin recortar
+
+    /*
+      Histograma logarítmico-lineal al estilo de HdrHistogram. Los valores menores que
+      SUBCUBETAS tienen una cubeta cada uno, a partir de ahí cada potencia de 2 se
+      divide en SUBCUBETAS / 2 cubetas iguales, de forma que el error relativo de
+      cualquier valor es menor que 2 / SUBCUBETAS.
+
+      Registrar es un incremento atómico sobre un array de tamaño fijo, sin bloqueos
+      ni reservas de memoria, y lo pueden hacer muchos hilos a la vez. Las consultas
+      se hacen al terminar la medida, durante ella solo son aproximadas.
+     */
+
+    public HistogramaLatencias() {
+        this(MAX_LATENCIA_HISTOGRAMA);
+    }
+
+    /**
+     * Crea un histograma vacío
+     * @param maximoRegistrable la mayor latencia en nanosegundos que se distingue, las
+     *                          mayores cuentan en la última cubeta
+     */
+    public HistogramaLatencias(long maximoRegistrable) {
+        if( maximoRegistrable < SUBCUBETAS )
+            throw new IllegalArgumentException("El máximo registrable debe ser al menos " + SUBCUBETAS);
+
+        this.maximoRegistrable = maximoRegistrable;
+        this.cuentas = new AtomicLongArray(indice(maximoRegistrable) + 1);
+        this.total = new LongAdder();
+        this.suma = new LongAdder();
+        this.maximo = new AtomicLong();
+    }
+
+    /**
+     * Registra una latencia
+     * @param nanos la latencia en nanosegundos, las negativas cuentan como 0
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+
+        cuentas.incrementAndGet(indice(Math.min(valor, maximoRegistrable)));
+        total.increment();
+        suma.add(valor);
+        if( valor > maximo.get() )
+            maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    /**
+     * Añade los registros de otro histograma con el mismo máximo registrable
+     * @param otro el histograma que se suma
+     */
+    public void sumar(HistogramaLatencias otro) {
+        if( otro == null || otro.maximoRegistrable != maximoRegistrable )
+            throw new IllegalArgumentException("Solo se suman histogramas con el mismo máximo registrable");
+
+        for (int i = 0; i < cuentas.length(); i++)
+            if( otro.cuentas.get(i) > 0 )
+                cuentas.addAndGet(i, otro.cuentas.get(i));
+        total.add(otro.total.sum());
+        suma.add(otro.suma.sum());
+        maximo.accumulateAndGet(otro.maximo.get(), Math::max);
+    }
+
+    public long getCuenta() {
+        return total.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long cuenta = getCuenta();
+
+        return cuenta == 0 ? 0 : (double) suma.sum() / cuenta;
+    }
+
+    /**
+     * La latencia por debajo de la que queda el porcentaje indicado de los registros
+     * @param percentil entre 0 y 100
+     * @return el mayor valor de la cubeta que alcanza el percentil, 0 si no hay registros
+     */
+    public long getPercentil(double percentil) {
+        if( !(percentil >= 0 && percentil <= 100) )
+            throw new IllegalArgumentException("El percentil debe estar entre 0 y 100");
+
+        long resultado = 0;
+        long cuenta = getCuenta();
+
+        if( cuenta > 0 ) {
+            long objetivo = Math.max(1, (long) Math.ceil(percentil / 100 * cuenta));
+            long acumulado = 0;
+            int cubeta = 0;
+
+            while( cubeta < cuentas.length() && acumulado < objetivo ) {
+                acumulado += cuentas.get(cubeta);
+                cubeta++;
+            }
+
+            resultado = Math.min(mayorEquivalente(cubeta - 1), getMaximo());
+        }
+
+        return resultado;
+    }
+
+    /**
+     * La cubeta de un valor: la potencia de 2 a partir de SUBCUBETAS y los bits más
+     * significativos del valor dentro de ella
+     */
+    private static int indice(long valor) {
+        int resultado;
+
+        if( valor < SUBCUBETAS )
+            resultado = (int) valor;
+        else {
+            int desplazamiento = 64 - Long.numberOfLeadingZeros(valor) - BITS_PRECISION_HISTOGRAMA;
+            resultado = desplazamiento * MITAD + (int) (valor >>> desplazamiento);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * El mayor valor que cae en la cubeta
+     */
+    private static long mayorEquivalente(int indice) {
+        long resultado;
+
+        if( indice < SUBCUBETAS )
+            resultado = indice;
+        else {
+            int desplazamiento = indice / MITAD - 1;
+            long subcubeta = indice - (long) desplazamiento * MITAD;
+            resultado = ((subcubeta + 1) << desplazamiento) - 1;
+        }
+
+        return resultado;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistogramaLatencias{cuenta=%d, media=%.1f µs, p50=%.1f µs, p99=%.1f µs, " +
+                        "p99.9=%.1f µs, max=%.1f µs}",
+                getCuenta(), getMedia() / 1e3, getPercentil(50) / 1e3, getPercentil(99) / 1e3,
+                getPercentil(99.9) / 1e3, getMaximo() / 1e3);
+    }
+}
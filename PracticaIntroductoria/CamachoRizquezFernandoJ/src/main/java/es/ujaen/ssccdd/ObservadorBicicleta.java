@@ -0,0 +1,30 @@
+package es.ujaen.ssccdd;
+
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta;
+
+/**
+ * Recibe los cambios de estado de una bicicleta. Una bicicleta puede tener varios
+ * observadores, por ejemplo cada estación a la que está asignada.
+ */
+@FunctionalInterface
+public interface ObservadorBicicleta {
+
+    /**
+     * Se invoca cada vez que la bicicleta cambia a un estado distinto del que tenía, desde
+     * el hilo que ha hecho el cambio. Los avisos de cambios simultáneos pueden llegar en
+     * otro orden que los cambios, así que el observador debe poder aplicarlos en cualquier
+     * orden, por ejemplo sumando y restando en contadores.
+     * @param bicicleta la bicicleta que cambia
+     * @param anterior el estado que tenía
+     * @param nuevo el estado que tiene ahora
+     */
+    void cambioEstado(Bicicleta bicicleta, EstadoBicicleta anterior, EstadoBicicleta nuevo);
+
+    /**
+     * Se invoca cada vez que se cambia la fecha del próximo mantenimiento de la bicicleta
+     * @param bicicleta la bicicleta que cambia
+     * @param fechaMantenimiento la nueva fecha en milisegundos desde la época
+     */
+    default void cambioMantenimiento(Bicicleta bicicleta, long fechaMantenimiento) {
+    }
+}
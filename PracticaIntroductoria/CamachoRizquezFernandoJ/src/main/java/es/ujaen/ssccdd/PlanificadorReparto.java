@@ -0,0 +1,314 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToIntFunction;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class PlanificadorReparto {
+    private final RedEstaciones red;
+    private final double ladoDistrito;
+    private final ForkJoinPool pool;
+
+    /*
+      El reparto se planifica por distritos. En cada distrito las estaciones con más
+      bicicletas DISPONIBLE de las que predice la demanda son orígenes y las que tienen
+      menos son destinos, sin pedir más de los muelles libres que les quedan. Los
+      traslados son el flujo de coste mínimo desde los orígenes a los destinos con la
+      distancia entre estaciones como coste, se resuelve con caminos mínimos sucesivos
+      y potenciales.
+
+      Los distritos son independientes y se resuelven en paralelo con un ForkJoinPool
+      que divide la lista de distritos por mitades. Los excedentes y los déficits que no
+      se pueden compensar dentro de un distrito quedan sin resolver.
+     */
+
+    /**
+     * Traslado de bicicletas entre dos estaciones de la red
+     * @param origen la estación de la que salen las bicicletas
+     * @param destino la estación a la que llegan
+     * @param bicicletas el número de bicicletas
+     * @param distancia la distancia en metros entre las estaciones
+     */
+    public record Traslado(EstacionBicicletas origen, EstacionBicicletas destino, int bicicletas, double distancia) {
+    }
+
+    public PlanificadorReparto(RedEstaciones red) {
+        this(red, LADO_DISTRITO, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un planificador para las estaciones de una red
+     * @param red la red de estaciones
+     * @param ladoDistrito el lado en metros de los distritos que se planifican por separado
+     * @param pool el pool en el que se resuelven los distritos
+     */
+    public PlanificadorReparto(RedEstaciones red, double ladoDistrito, ForkJoinPool pool) {
+        if( red == null || pool == null )
+            throw new IllegalArgumentException("La red y el pool no pueden ser null");
+        if( !(ladoDistrito > 0) || Double.isInfinite(ladoDistrito) )
+            throw new IllegalArgumentException("El lado de los distritos debe ser positivo");
+
+        this.red = red;
+        this.ladoDistrito = ladoDistrito;
+        this.pool = pool;
+    }
+
+    /**
+     * Calcula los traslados que ajustan las bicicletas disponibles a la demanda prevista
+     * @param demanda las bicicletas DISPONIBLE que se prevé que necesita cada estación
+     * @return los traslados de todos los distritos
+     */
+    public List<Traslado> planificar(ToIntFunction<EstacionBicicletas> demanda) {
+        if( demanda == null )
+            throw new IllegalArgumentException("La demanda no puede ser null");
+
+        List<List<EstacionBicicletas>> distritos = new ArrayList<>(red.distritos(ladoDistrito));
+
+        return pool.invoke(new Distritos(distritos, 0, distritos.size(), demanda));
+    }
+
+    /**
+     * Mueve las bicicletas de un traslado: se alquilan y recogen en el origen, pasan al
+     * destino y allí se devuelven. Pueden moverse menos de las previstas si el origen ya
+     * no tiene tantas disponibles. Una bicicleta que el destino no admite se devuelve en
+     * el origen.
+     * @param traslado el traslado que se realiza
+     * @return las bicicletas que han llegado al destino
+     */
+    public int ejecutar(Traslado traslado) {
+        if( traslado == null )
+            throw new IllegalArgumentException("El traslado no puede ser null");
+
+        List<Bicicleta> cargadas = new ArrayList<>(traslado.bicicletas());
+
+        for (Bicicleta bicicleta : traslado.origen().alquilarBicicletas(traslado.bicicletas())) {
+            if( traslado.origen().recogerBicicleta(bicicleta.getId()).isPresent() ) {
+                traslado.origen().retirarBicicleta(bicicleta.getId());
+                if( traslado.destino().agregarBicicleta(bicicleta) )
+                    cargadas.add(bicicleta);
+                else if( traslado.origen().agregarBicicleta(bicicleta) )
+                    traslado.origen().devolverBicicleta(bicicleta);
+            }
+        }
+
+        return (int) traslado.destino().devolverBicicletas(cargadas).values().stream()
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    /**
+     * Divide los distritos por mitades hasta resolver cada uno por separado
+     */
+    private class Distritos extends RecursiveTask<List<Traslado>> {
+        private final List<List<EstacionBicicletas>> distritos;
+        private final int desde, hasta;
+        private final ToIntFunction<EstacionBicicletas> demanda;
+
+        Distritos(List<List<EstacionBicicletas>> distritos, int desde, int hasta,
+                  ToIntFunction<EstacionBicicletas> demanda) {
+            this.distritos = distritos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.demanda = demanda;
+        }
+
+        @Override
+        protected List<Traslado> compute() {
+            List<Traslado> resultado;
+
+            if( hasta - desde <= 1 )
+                resultado = desde < hasta ? planificarDistrito(distritos.get(desde), demanda) : new ArrayList<>();
+            else {
+                int mitad = (desde + hasta) >>> 1;
+                Distritos izquierda = new Distritos(distritos, desde, mitad, demanda);
+                izquierda.fork();
+                resultado = new Distritos(distritos, mitad, hasta, demanda).compute();
+                resultado.addAll(izquierda.join());
+            }
+
+            return resultado;
+        }
+    }
+
+    /**
+     * Plantea el distrito como un flujo: fuente -> orígenes -> destinos -> sumidero
+     */
+    private List<Traslado> planificarDistrito(List<EstacionBicicletas> estaciones, ToIntFunction<EstacionBicicletas> demanda) {
+        List<EstacionBicicletas> origenes = new ArrayList<>();
+        List<EstacionBicicletas> destinos = new ArrayList<>();
+        List<Integer> excedentes = new ArrayList<>();
+        List<Integer> deficits = new ArrayList<>();
+
+        for (EstacionBicicletas estacion : estaciones) {
+            int diferencia = estacion.getDisponibles() - Math.max(0, demanda.applyAsInt(estacion));
+
+            if( diferencia > 0 ) {
+                origenes.add(estacion);
+                excedentes.add(diferencia);
+            } else if( diferencia < 0 ) {
+                int libres = red.getMuellesLibres(estacion.getId());
+
+                if( libres > 0 ) {
+                    destinos.add(estacion);
+                    deficits.add(Math.min(-diferencia, libres));
+                }
+            }
+        }
+
+        List<Traslado> resultado = new ArrayList<>();
+        if( !origenes.isEmpty() && !destinos.isEmpty() ) {
+            int numOrigenes = origenes.size();
+            int fuente = numOrigenes + destinos.size();
+            int sumidero = fuente + 1;
+            FlujoCosteMinimo flujo = new FlujoCosteMinimo(sumidero + 1, numOrigenes * destinos.size());
+            int[][] aristas = new int[numOrigenes][destinos.size()];
+            double[][] distancias = new double[numOrigenes][destinos.size()];
+
+            for (int o = 0; o < numOrigenes; o++)
+                flujo.arista(fuente, o, excedentes.get(o), 0);
+            for (int d = 0; d < destinos.size(); d++)
+                flujo.arista(numOrigenes + d, sumidero, deficits.get(d), 0);
+            for (int o = 0; o < numOrigenes; o++)
+                for (int d = 0; d < destinos.size(); d++) {
+                    distancias[o][d] = red.distancia(origenes.get(o), destinos.get(d));
+                    aristas[o][d] = flujo.arista(o, numOrigenes + d, Integer.MAX_VALUE, distancias[o][d]);
+                }
+
+            flujo.resolver(fuente, sumidero);
+
+            for (int o = 0; o < numOrigenes; o++)
+                for (int d = 0; d < destinos.size(); d++)
+                    if( flujo.getFlujo(aristas[o][d]) > 0 )
+                        resultado.add(new Traslado(origenes.get(o), destinos.get(d),
+                                flujo.getFlujo(aristas[o][d]), distancias[o][d]));
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Flujo de coste mínimo por caminos mínimos sucesivos. Los potenciales mantienen los
+     * costes reducidos no negativos y cada camino se busca con Dijkstra en O(V^2), que
+     * conviene porque el grafo de un distrito es denso.
+     */
+    private static final class FlujoCosteMinimo {
+        private final int numNodos;
+        private final int[] primera;        // Primera arista de cada nodo
+        private int[] destino, siguiente, capacidad;
+        private double[] coste;
+        private int numAristas;
+
+        FlujoCosteMinimo(int numNodos, int aristasPrevistas) {
+            int tamano = 2 * (aristasPrevistas + numNodos);
+
+            this.numNodos = numNodos;
+            this.primera = new int[numNodos];
+            this.destino = new int[tamano];
+            this.siguiente = new int[tamano];
+            this.capacidad = new int[tamano];
+            this.coste = new double[tamano];
+            this.numAristas = 0;
+            Arrays.fill(primera, -1);
+        }
+
+        /**
+         * Añade una arista y su inversa residual
+         * @return el índice de la arista para consultar su flujo
+         */
+        int arista(int origen, int fin, int capacidadArista, double costeArista) {
+            if( numAristas + 2 > destino.length ) {
+                int tamano = 2 * destino.length;
+                destino = Arrays.copyOf(destino, tamano);
+                siguiente = Arrays.copyOf(siguiente, tamano);
+                capacidad = Arrays.copyOf(capacidad, tamano);
+                coste = Arrays.copyOf(coste, tamano);
+            }
+
+            int resultado = numAristas;
+            enlazar(origen, fin, capacidadArista, costeArista);
+            enlazar(fin, origen, 0, -costeArista);
+
+            return resultado;
+        }
+
+        /**
+         * El flujo de una arista es la capacidad que ha ganado su inversa
+         */
+        int getFlujo(int arista) {
+            return capacidad[arista ^ 1];
+        }
+
+        void resolver(int fuente, int sumidero) {
+            double[] potencial = new double[numNodos];
+            double[] distancia = new double[numNodos];
+            int[] llegada = new int[numNodos];         // Arista por la que se llega a cada nodo
+            boolean[] cerrado = new boolean[numNodos];
+            boolean hayCamino = true;
+
+            while( hayCamino ) {
+                Arrays.fill(distancia, Double.POSITIVE_INFINITY);
+                Arrays.fill(llegada, -1);
+                Arrays.fill(cerrado, false);
+                distancia[fuente] = 0;
+
+                for (int paso = 0; paso < numNodos; paso++) {
+                    int nodo = -1;
+                    for (int v = 0; v < numNodos; v++)
+                        if( !cerrado[v] && distancia[v] < Double.POSITIVE_INFINITY
+                                && (nodo == -1 || distancia[v] < distancia[nodo]) )
+                            nodo = v;
+
+                    if( nodo != -1 ) {
+                        cerrado[nodo] = true;
+                        for (int a = primera[nodo]; a != -1; a = siguiente[a]) {
+                            int v = destino[a];
+                            double reducido = Math.max(0, coste[a] + potencial[nodo] - potencial[v]);
+
+                            if( capacidad[a] > 0 && !cerrado[v] && distancia[nodo] + reducido < distancia[v] ) {
+                                distancia[v] = distancia[nodo] + reducido;
+                                llegada[v] = a;
+                            }
+                        }
+                    }
+                }
+
+                hayCamino = llegada[sumidero] != -1;
+                if( hayCamino ) {
+                    for (int v = 0; v < numNodos; v++)
+                        if( distancia[v] < Double.POSITIVE_INFINITY )
+                            potencial[v] += distancia[v];
+
+                    int cuello = Integer.MAX_VALUE;
+                    for (int v = sumidero; v != fuente; v = destino[llegada[v] ^ 1])
+                        cuello = Math.min(cuello, capacidad[llegada[v]]);
+                    for (int v = sumidero; v != fuente; v = destino[llegada[v] ^ 1]) {
+                        capacidad[llegada[v]] -= cuello;
+                        capacidad[llegada[v] ^ 1] += cuello;
+                    }
+                }
+            }
+        }
+
+        private void enlazar(int origen, int fin, int capacidadArista, double costeArista) {
+            destino[numAristas] = fin;
+            capacidad[numAristas] = capacidadArista;
+            coste[numAristas] = costeArista;
+            siguiente[numAristas] = primera[origen];
+            primera[origen] = numAristas;
+            numAristas++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PlanificadorReparto{" +
+                "ladoDistrito=" + ladoDistrito +
+                ", estaciones=" + red.getNumEstaciones() +
+                '}';
+    }
+}
@@ -0,0 +1,277 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.EN_TRANSITO;
+
+public class RedEstaciones {
+    private final double tamanoCelda;
+    private final Map<String, Nodo> estaciones;            // Estaciones de la red por identificador
+    private final Map<Long, List<Nodo>> celdas;            // Índice espacial, estaciones de cada celda
+    private volatile int minColumna, maxColumna;           // Extensión de las celdas ocupadas
+    private volatile int minFila, maxFila;
+
+    /*
+      La red sitúa cada estación en un plano en metros y la guarda en una rejilla de
+      celdas cuadradas. Una consulta recorre los anillos de celdas alrededor del punto
+      hasta que ningún anillo pendiente puede tener una estación más cercana que la
+      mejor encontrada.
+
+      La disponibilidad no se copia en la red: se lee de los contadores por estado de
+      cada estación, que ya se actualizan de forma concurrente con cada cambio de sus
+      bicicletas, así las consultas siempre ven el estado actual sin que las estaciones
+      tengan que avisar a la red.
+     */
+
+    /**
+     * Una estación de la red con su posición y su número de muelles
+     */
+    private record Nodo(EstacionBicicletas estacion, double x, double y, int muelles) {
+
+        /**
+         * Los muelles ocupados son los de las bicicletas asignadas que no están en la calle
+         */
+        int muellesLibres() {
+            int ocupados = 0;
+
+            for (EstadoBicicleta estado : estadosBicicleta)
+                if( estado != EN_TRANSITO )
+                    ocupados += estacion.getDisponibles(estado);
+
+            return muelles - ocupados;
+        }
+
+        double distancia(double x, double y) {
+            return Math.hypot(this.x - x, this.y - y);
+        }
+    }
+
+    public RedEstaciones() {
+        this(TAMANO_CELDA_RED);
+    }
+
+    /**
+     * Crea una red cuyo índice espacial usa celdas del lado indicado, conviene que sea
+     * del orden de la distancia entre estaciones vecinas
+     * @param tamanoCelda el lado de las celdas en metros
+     */
+    public RedEstaciones(double tamanoCelda) {
+        if( !(tamanoCelda > 0) || Double.isInfinite(tamanoCelda) )
+            throw new IllegalArgumentException("El tamaño de celda debe ser positivo");
+
+        this.tamanoCelda = tamanoCelda;
+        this.estaciones = new ConcurrentHashMap<>();
+        this.celdas = new ConcurrentHashMap<>();
+        this.minColumna = Integer.MAX_VALUE;
+        this.maxColumna = Integer.MIN_VALUE;
+        this.minFila = Integer.MAX_VALUE;
+        this.maxFila = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Añade una estación a la red
+     * @param estacion la estación
+     * @param x la posición este-oeste en metros
+     * @param y la posición norte-sur en metros
+     * @param muelles el número de bicicletas que caben en la estación
+     * @return false si ya había una estación con el mismo identificador
+     */
+    public synchronized boolean agregarEstacion(EstacionBicicletas estacion, double x, double y, int muelles) {
+        boolean resultado = false;
+
+        if( estacion == null )
+            throw new IllegalArgumentException("La estación no puede ser null");
+        if( !Double.isFinite(x) || !Double.isFinite(y) || muelles < 0 )
+            throw new IllegalArgumentException("La posición debe ser finita y los muelles no negativos");
+
+        Nodo nodo = new Nodo(estacion, x, y, muelles);
+        if( estaciones.putIfAbsent(estacion.getId(), nodo) == null ) {
+            int columna = columna(x);
+            int fila = fila(y);
+
+            celdas.computeIfAbsent(clave(columna, fila), celda -> new CopyOnWriteArrayList<>()).add(nodo);
+            minColumna = Math.min(minColumna, columna);
+            maxColumna = Math.max(maxColumna, columna);
+            minFila = Math.min(minFila, fila);
+            maxFila = Math.max(maxFila, fila);
+            resultado = true;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Quita una estación de la red
+     * @param idEstacion el identificador de la estación
+     * @return un optional con la estación si estaba en la red
+     */
+    public synchronized Optional<EstacionBicicletas> retirarEstacion(String idEstacion) {
+        if( idEstacion == null )
+            throw new IllegalArgumentException("La idEstacion no puede ser null");
+
+        Nodo nodo = estaciones.remove(idEstacion);
+        if( nodo != null )
+            celdas.get(clave(columna(nodo.x()), fila(nodo.y()))).remove(nodo);
+
+        return Optional.ofNullable(nodo).map(Nodo::estacion);
+    }
+
+    public Optional<EstacionBicicletas> getEstacion(String idEstacion) {
+        if( idEstacion == null )
+            throw new IllegalArgumentException("La idEstacion no puede ser null");
+
+        return Optional.ofNullable(estaciones.get(idEstacion)).map(Nodo::estacion);
+    }
+
+    public int getNumEstaciones() {
+        return estaciones.size();
+    }
+
+    /**
+     * Distancia en línea recta entre dos estaciones de la red
+     * @return la distancia en metros
+     */
+    public double distancia(EstacionBicicletas origen, EstacionBicicletas destino) {
+        Nodo nodoOrigen = origen == null ? null : estaciones.get(origen.getId());
+        Nodo nodoDestino = destino == null ? null : estaciones.get(destino.getId());
+
+        if( nodoOrigen == null || nodoDestino == null )
+            throw new IllegalArgumentException("Las estaciones deben estar en la red");
+
+        return nodoOrigen.distancia(nodoDestino.x(), nodoDestino.y());
+    }
+
+    /**
+     * Agrupa las estaciones de la red en distritos cuadrados
+     * @param lado el lado de los distritos en metros
+     * @return las estaciones de cada distrito que tiene alguna
+     */
+    public Collection<List<EstacionBicicletas>> distritos(double lado) {
+        if( !(lado > 0) || Double.isInfinite(lado) )
+            throw new IllegalArgumentException("El lado de los distritos debe ser positivo");
+
+        Map<Long, List<EstacionBicicletas>> resultado = new HashMap<>();
+
+        for (Nodo nodo : estaciones.values())
+            resultado.computeIfAbsent(clave((int) Math.floor(nodo.x() / lado), (int) Math.floor(nodo.y() / lado)),
+                    distrito -> new ArrayList<>()).add(nodo.estacion());
+
+        return resultado.values();
+    }
+
+    /**
+     * Muelles en los que se puede dejar una bicicleta en una estación de la red
+     * @param idEstacion el identificador de la estación
+     * @return los muelles libres, 0 si la estación no está en la red
+     */
+    public int getMuellesLibres(String idEstacion) {
+        if( idEstacion == null )
+            throw new IllegalArgumentException("La idEstacion no puede ser null");
+
+        Nodo nodo = estaciones.get(idEstacion);
+
+        return nodo == null ? 0 : Math.max(0, nodo.muellesLibres());
+    }
+
+    /**
+     * Busca la estación más cercana a un punto con alguna bicicleta DISPONIBLE
+     * @param x la posición este-oeste en metros
+     * @param y la posición norte-sur en metros
+     * @return un optional con la estación si hay alguna en la red con bicicletas disponibles
+     */
+    public Optional<EstacionBicicletas> estacionConBicicleta(double x, double y) {
+        return masCercana(x, y, nodo -> nodo.estacion().getDisponibles() > 0);
+    }
+
+    /**
+     * Busca la estación más cercana a un punto con algún muelle libre para devolver una bicicleta
+     * @param x la posición este-oeste en metros
+     * @param y la posición norte-sur en metros
+     * @return un optional con la estación si hay alguna en la red con muelles libres
+     */
+    public Optional<EstacionBicicletas> estacionConMuelleLibre(double x, double y) {
+        return masCercana(x, y, nodo -> nodo.muellesLibres() > 0);
+    }
+
+    /**
+     * Recorre los anillos de celdas alrededor del punto, recortados a la extensión de las
+     * celdas ocupadas. Las estaciones de un anillo están al menos a (anillo - 1) celdas
+     * del punto, la búsqueda termina cuando esa distancia supera a la de la mejor
+     * estación o se sale de las celdas ocupadas.
+     */
+    private Optional<EstacionBicicletas> masCercana(double x, double y, Predicate<Nodo> condicion) {
+        if( !Double.isFinite(x) || !Double.isFinite(y) )
+            throw new IllegalArgumentException("La posición debe ser finita");
+
+        Nodo mejor = null;
+        double distanciaMejor = Double.POSITIVE_INFINITY;
+        long columna = columna(x);
+        long fila = fila(y);
+        int minC = minColumna, maxC = maxColumna, minF = minFila, maxF = maxFila;
+        long anillo = Math.max(0, Math.max(Math.max(minC - columna, columna - maxC),
+                                           Math.max(minF - fila, fila - maxF)));
+        long ultimoAnillo = estaciones.isEmpty() ? -1
+                : Math.max(Math.max(columna - minC, maxC - columna), Math.max(fila - minF, maxF - fila));
+
+        while( anillo <= ultimoAnillo && (anillo - 1) * tamanoCelda <= distanciaMejor ) {
+            for (long c = Math.max(columna - anillo, minC); c <= Math.min(columna + anillo, maxC); c++) {
+                boolean lateral = c == columna - anillo || c == columna + anillo;
+
+                for (long f = Math.max(fila - anillo, minF); f <= Math.min(fila + anillo, maxF); f++) {
+                    if( lateral || f == fila - anillo || f == fila + anillo ) {
+                        List<Nodo> celda = celdas.get(clave((int) c, (int) f));
+
+                        if( celda != null )
+                            for (Nodo nodo : celda) {
+                                double distancia = nodo.distancia(x, y);
+
+                                if( distancia < distanciaMejor && condicion.test(nodo) ) {
+                                    mejor = nodo;
+                                    distanciaMejor = distancia;
+                                }
+                            }
+                    } else
+                        f = fila + anillo - 1;  // Salta el interior del anillo
+                }
+            }
+
+            anillo++;
+        }
+
+        return Optional.ofNullable(mejor).map(Nodo::estacion);
+    }
+
+    private int columna(double x) {
+        return (int) Math.floor(x / tamanoCelda);
+    }
+
+    private int fila(double y) {
+        return (int) Math.floor(y / tamanoCelda);
+    }
+
+    private static long clave(int columna, int fila) {
+        return ((long) columna << Integer.SIZE) | (fila & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Una representación legible de la red de estaciones
+     *
+     * @return el String que representa la red de estaciones
+     */
+    @Override
+    public String toString() {
+        return "RedEstaciones{" +
+                "numEstaciones=" + estaciones.size() +
+                ", tamanoCelda=" + tamanoCelda +
+                '}';
+    }
+}
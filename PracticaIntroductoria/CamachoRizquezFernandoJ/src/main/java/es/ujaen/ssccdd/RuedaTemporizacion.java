@@ -0,0 +1,382 @@
+package es.ujaen.ssccdd;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class RuedaTemporizacion implements AutoCloseable {
+    private static final int RANURAS = 1 << BITS_RANURAS_RUEDA;
+    private static final int MASCARA = RANURAS - 1;
+
+    private final Reloj reloj;
+    private final long tick;                            // Milisegundos de cada tick de la rueda
+    private final Temporizador[][] ranuras;             // Listas de temporizadores por nivel y ranura
+    private final Queue<Temporizador> entrada;          // Temporizadores programados que aún no están en la rueda
+    private final LongAdder pendientes;                 // Programados que no han vencido ni se han cancelado
+    private final LongAdder errores;                    // Tareas que han fallado en el hilo de la rueda
+    private volatile RuntimeException ultimoError;      // Error de la última tarea que ha fallado en el hilo
+    private long tickActual;                            // Último tick procesado
+    private volatile int enRueda;                       // Temporizadores enlazados en las ranuras
+    private volatile boolean dormida;                   // El hilo de la rueda espera a que se programe algo
+    private volatile boolean activa;
+    private volatile Thread hilo;
+
+    /*
+      Rueda de temporización jerárquica. El nivel 0 tiene una ranura por tick y cada
+      nivel siguiente cubre RANURAS veces más tiempo. Un temporizador se guarda en el
+      nivel más bajo que alcanza su vencimiento y, cuando la rueda llega al inicio de su
+      ranura, baja de nivel hasta que vence en el nivel 0.
+
+      Programar solo añade el temporizador a una cola concurrente y cancelar solo
+      cambia su estado, ambas operaciones son O(1) y no bloquean. Los temporizadores
+      cancelados se descartan cuando la rueda pasa por su ranura. Las ranuras solo las
+      toca el hilo que avanza la rueda: el hilo propio tras iniciar() o quien llame a
+      avanzar(), por ejemplo una prueba con un RelojVirtual.
+
+      Un temporizador nunca vence antes de su instante, como mucho un tick después.
+
+      Si una tarea falla, avanzar() relanza el error a quien la llama. En el hilo propio
+      no hay a quién relanzarlo: se cuenta y se guarda el último para consultarlo con
+      getErrores() y getUltimoError(), y la rueda sigue girando.
+     */
+
+    /**
+     * Rueda de RELOJ_SISTEMA, se crea y se arranca la primera vez que se pide
+     */
+    private static final class Sistema {
+        private static final RuedaTemporizacion RUEDA = new RuedaTemporizacion(RELOJ_SISTEMA).iniciar();
+    }
+
+    /**
+     * Una tarea programada en la rueda que se puede cancelar
+     */
+    public static final class Temporizador {
+        private static final int PROGRAMADO = 0;
+        private static final int VENCIDO = 1;
+        private static final int CANCELADO = 2;
+        private static final AtomicIntegerFieldUpdater<Temporizador> ESTADO =
+                AtomicIntegerFieldUpdater.newUpdater(Temporizador.class, "estado");
+
+        private final long instante;
+        private final long tickVencimiento;
+        private final Runnable tarea;
+        private final LongAdder pendientes;
+        private volatile int estado;
+        private Temporizador siguiente;     // Siguiente de la misma ranura
+
+        private Temporizador(long instante, long tickVencimiento, Runnable tarea, LongAdder pendientes) {
+            this.instante = instante;
+            this.tickVencimiento = tickVencimiento;
+            this.tarea = tarea;
+            this.pendientes = pendientes;
+            this.estado = PROGRAMADO;
+        }
+
+        /**
+         * Evita que la tarea se ejecute
+         * @return false si la tarea ya había vencido o se había cancelado
+         */
+        public boolean cancelar() {
+            boolean resultado = ESTADO.compareAndSet(this, PROGRAMADO, CANCELADO);
+
+            if( resultado )
+                pendientes.decrement();
+
+            return resultado;
+        }
+
+        public boolean isCancelado() {
+            return estado == CANCELADO;
+        }
+
+        public boolean isVencido() {
+            return estado == VENCIDO;
+        }
+
+        public long getInstante() {
+            return instante;
+        }
+
+        private boolean vencer() {
+            boolean resultado = ESTADO.compareAndSet(this, PROGRAMADO, VENCIDO);
+
+            if( resultado )
+                pendientes.decrement();
+
+            return resultado;
+        }
+    }
+
+    public RuedaTemporizacion(Reloj reloj) {
+        this(reloj, TICK_RUEDA);
+    }
+
+    /**
+     * Crea una rueda parada, se avanza con avanzar() o con su propio hilo tras iniciar()
+     * @param reloj el reloj con el que se comparan los vencimientos
+     * @param tick los milisegundos de cada tick, la precisión de los vencimientos
+     */
+    public RuedaTemporizacion(Reloj reloj, long tick) {
+        if( reloj == null || tick <= 0 )
+            throw new IllegalArgumentException("El reloj no puede ser null y el tick debe ser positivo");
+
+        this.reloj = reloj;
+        this.tick = tick;
+        this.ranuras = new Temporizador[NIVELES_RUEDA][RANURAS];
+        this.entrada = new ConcurrentLinkedQueue<>();
+        this.pendientes = new LongAdder();
+        this.errores = new LongAdder();
+        this.ultimoError = null;
+        this.tickActual = Math.floorDiv(reloj.milis(), tick);
+        this.enRueda = 0;
+        this.dormida = false;
+        this.activa = false;
+    }
+
+    /**
+     * La rueda compartida que vence las reservas de las estaciones que usan RELOJ_SISTEMA.
+     * Su hilo no se arranca hasta la primera llamada.
+     * @return la rueda del reloj del sistema, ya iniciada
+     */
+    public static RuedaTemporizacion sistema() {
+        return Sistema.RUEDA;
+    }
+
+    public Reloj getReloj() {
+        return reloj;
+    }
+
+    /**
+     * El número de tareas que han fallado al ejecutarse en el hilo de la rueda
+     */
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    /**
+     * El error de la última tarea que ha fallado en el hilo de la rueda
+     * @return un optional con el error, vacío si no ha fallado ninguna
+     */
+    public Optional<RuntimeException> getUltimoError() {
+        return Optional.ofNullable(ultimoError);
+    }
+
+    /**
+     * El número de temporizadores programados que no han vencido ni se han cancelado
+     */
+    public long getPendientes() {
+        return pendientes.sum();
+    }
+
+    /**
+     * Programa una tarea para el instante indicado. La tarea se ejecuta en el hilo que
+     * avanza la rueda y debe ser breve.
+     * @param instante milisegundos desde la época según el reloj de la rueda
+     * @param tarea la tarea que se ejecuta al vencer
+     * @return el temporizador para poder cancelar la tarea
+     */
+    public Temporizador programar(long instante, Runnable tarea) {
+        if( tarea == null )
+            throw new IllegalArgumentException("La tarea no puede ser null");
+
+        Temporizador resultado = new Temporizador(instante, Math.floorDiv(instante, tick) +
+                (Math.floorMod(instante, tick) == 0 ? 0 : 1), tarea, pendientes);
+
+        pendientes.increment();
+        entrada.offer(resultado);
+        if( dormida )
+            LockSupport.unpark(hilo);
+
+        return resultado;
+    }
+
+    /**
+     * Procesa los ticks hasta el instante actual del reloj y ejecuta las tareas vencidas
+     * @return el número de tareas ejecutadas
+     */
+    public synchronized int avanzar() {
+        long objetivo = Math.floorDiv(reloj.milis(), tick);
+        int resultado = drenarEntrada();
+
+        while( tickActual < objetivo ) {
+            if( enRueda == 0 )
+                tickActual = objetivo;      // Nada en la rueda, se salta al tick actual
+            else {
+                tickActual++;
+                for (int nivel = NIVELES_RUEDA - 1; nivel > 0; nivel--)
+                    if( (tickActual & ((1L << (BITS_RANURAS_RUEDA * nivel)) - 1)) == 0 )
+                        bajarNivel(nivel, ranura(tickActual, nivel));
+
+                resultado += vencerRanura(ranura(tickActual, 0));
+            }
+
+            resultado += drenarEntrada();
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Arranca un hilo demonio que avanza la rueda cada tick y se detiene mientras no
+     * hay nada programado. No se debe usar con un RelojVirtual, cuya espera adelanta
+     * el reloj.
+     * @return la propia rueda
+     */
+    public synchronized RuedaTemporizacion iniciar() {
+        if( hilo == null ) {
+            activa = true;
+            hilo = new Thread(this::girar, "rueda-temporizacion");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+
+        return this;
+    }
+
+    /**
+     * Detiene el hilo de la rueda si se había iniciado
+     */
+    @Override
+    public void close() throws InterruptedException {
+        Thread parar;
+
+        synchronized (this) {
+            activa = false;
+            parar = hilo;
+        }
+
+        if( parar != null ) {
+            parar.interrupt();
+            parar.join();
+        }
+    }
+
+    private void girar() {
+        while( activa ) {
+            try {
+                avanzar();
+
+                if( enRueda == 0 ) {
+                    dormida = true;
+                    if( entrada.isEmpty() && activa )
+                        LockSupport.park(this);
+                    dormida = false;
+                } else
+                    reloj.esperar(tick, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                activa = false;
+            } catch (RuntimeException e) {
+                ultimoError = e;
+                errores.add(1 + e.getSuppressed().length);
+            }
+        }
+    }
+
+    /**
+     * Pasa a la rueda los temporizadores programados, los que ya han vencido se ejecutan
+     * @return el número de tareas ejecutadas
+     */
+    private int drenarEntrada() {
+        int resultado = 0;
+        Temporizador temporizador;
+
+        while( (temporizador = entrada.poll()) != null ) {
+            if( temporizador.tickVencimiento <= tickActual ) {
+                if( ejecutar(temporizador) )
+                    resultado++;
+            } else if( !temporizador.isCancelado() )
+                insertar(temporizador);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Enlaza el temporizador en el nivel más bajo que alcanza su vencimiento, los que
+     * quedan fuera del último nivel se vuelven a colocar al pasar por su ranura
+     */
+    private void insertar(Temporizador temporizador) {
+        long distancia = temporizador.tickVencimiento - tickActual;
+        int nivel = 0;
+
+        while( nivel < NIVELES_RUEDA - 1 && distancia >= (1L << (BITS_RANURAS_RUEDA * (nivel + 1))) )
+            nivel++;
+
+        int ranura = ranura(temporizador.tickVencimiento, nivel);
+        temporizador.siguiente = ranuras[nivel][ranura];
+        ranuras[nivel][ranura] = temporizador;
+        enRueda++;
+    }
+
+    private void bajarNivel(int nivel, int ranura) {
+        Temporizador temporizador = ranuras[nivel][ranura];
+        ranuras[nivel][ranura] = null;
+
+        while( temporizador != null ) {
+            Temporizador siguiente = temporizador.siguiente;
+            enRueda--;
+            if( !temporizador.isCancelado() )
+                insertar(temporizador);
+            temporizador = siguiente;
+        }
+    }
+
+    /**
+     * Ejecuta todas las tareas de la ranura aunque alguna falle, el primer error se
+     * relanza al terminar con los demás como suprimidos
+     */
+    private int vencerRanura(int ranura) {
+        int resultado = 0;
+        RuntimeException error = null;
+        Temporizador temporizador = ranuras[0][ranura];
+        ranuras[0][ranura] = null;
+
+        while( temporizador != null ) {
+            Temporizador siguiente = temporizador.siguiente;
+            temporizador.siguiente = null;
+            enRueda--;
+            try {
+                if( ejecutar(temporizador) )
+                    resultado++;
+            } catch (RuntimeException e) {
+                if( error == null )
+                    error = e;
+                else
+                    error.addSuppressed(e);
+            }
+            temporizador = siguiente;
+        }
+
+        if( error != null )
+            throw error;
+
+        return resultado;
+    }
+
+    private boolean ejecutar(Temporizador temporizador) {
+        boolean resultado = temporizador.vencer();
+
+        if( resultado )
+            temporizador.tarea.run();
+
+        return resultado;
+    }
+
+    private static int ranura(long tick, int nivel) {
+        return (int) ((tick >>> (BITS_RANURAS_RUEDA * nivel)) & MASCARA);
+    }
+
+    @Override
+    public String toString() {
+        return "RuedaTemporizacion{" +
+                "tick=" + tick +
+                ", pendientes=" + getPendientes() +
+                '}';
+    }
+}
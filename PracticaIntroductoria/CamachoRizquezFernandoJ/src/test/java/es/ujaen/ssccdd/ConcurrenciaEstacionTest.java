@@ -0,0 +1,232 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los cambios de estado sin monitores de Bicicleta y EstacionBicicletas. Se evalúa:
+ * - Que un cambio condicionado a una instantánea falla si la bicicleta ha vuelto a cambiar,
+ *   aunque sea al mismo estado y en el mismo milisegundo
+ * - Que de varias recogidas o devoluciones simultáneas de una bicicleta solo una tiene éxito
+ * - Que muchos hilos alquilando, recogiendo y devolviendo nunca comparten una bicicleta
+ *   y dejan los contadores de la estación cuadrados
+ * - Que la lista de bicicletas asignadas se puede recorrer mientras otro hilo la modifica
+ * - Que un observador bloqueado no detiene los cambios de estado y que los contadores
+ *   cuadran aunque los avisos lleguen desordenados
+ */
+@DisplayName("Pruebas de Concurrencia de la Estación")
+public class ConcurrenciaEstacionTest {
+    private static final int NUM_BICICLETAS = 64;
+    private static final int NUM_HILOS = 8;
+    private static final int CICLOS_POR_HILO = 5_000;
+    private static final int RONDAS = 200;
+
+    @Test
+    @DisplayName("Cambio condicionado a la instantánea")
+    void testCambioConInstantanea() {
+        RelojVirtual reloj = new RelojVirtual(0);
+        Bicicleta bicicleta = new Bicicleta("BICI-001", ALQUILADA, reloj);
+        Bicicleta.Instantanea alquiler = bicicleta.getInstantanea();
+
+        // Con el reloj parado la bicicleta vuelve al mismo estado con la misma fecha
+        bicicleta.setEstado(DISPONIBLE);
+        bicicleta.setEstado(ALQUILADA);
+        Bicicleta.Instantanea realquiler = bicicleta.getInstantanea();
+
+        assertAll("Cambios condicionados",
+                () -> assertEquals(alquiler.fechaEstado(), realquiler.fechaEstado()),
+                () -> assertEquals(alquiler.version() + 2, realquiler.version()),
+                () -> assertFalse(bicicleta.cambiarEstado(alquiler, EN_TRANSITO),
+                        "La bicicleta se ha vuelto a alquilar después de la instantánea esperada"),
+                () -> assertFalse(bicicleta.cambiarEstado(DISPONIBLE, EN_TRANSITO)),
+                () -> assertTrue(bicicleta.cambiarEstado(realquiler, EN_TRANSITO)),
+                () -> assertFalse(bicicleta.cambiarEstado(realquiler, DISPONIBLE), "La instantánea ya no está vigente"),
+                () -> assertEquals(EN_TRANSITO, bicicleta.getEstado()),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> bicicleta.cambiarEstado((Bicicleta.Instantanea) null, DISPONIBLE))
+        );
+
+        // Los observadores no cambian la versión
+        Bicicleta.Instantanea recogida = bicicleta.getInstantanea();
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, bicicleta);
+        assertEquals(recogida, bicicleta.getInstantanea());
+        assertTrue(estacion.devolverBicicleta(bicicleta));
+    }
+
+    @Test
+    @DisplayName("Recogidas y devoluciones simultáneas de la misma bicicleta")
+    void testOperacionesRepetidas() throws Exception {
+        Bicicleta bicicleta = new Bicicleta("BICI-001");
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bicicleta);
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+
+        try {
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                bicicleta.setEstado(ALQUILADA);
+                assertEquals(1, ejecutarALaVez(hilos, () -> estacion.recogerBicicleta("BICI-001").isPresent()),
+                        "Solo una recogida tiene éxito");
+                assertEquals(1, ejecutarALaVez(hilos, () -> estacion.devolverBicicleta(bicicleta)),
+                        "Solo una devolución tiene éxito");
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        assertEquals(0, estacion.getOperacionesFueraDePlazo());
+        assertEquals(1, estacion.getDisponibles(bicicleta.getEstado()));
+    }
+
+    @Test
+    @DisplayName("Alquileres, recogidas y devoluciones simultáneas")
+    void testCiclosSimultaneos() throws InterruptedException {
+        Bicicleta[] bicicletas = new Bicicleta[NUM_BICICLETAS];
+        for (int i = 0; i < bicicletas.length; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bicicletas);
+
+        Set<Bicicleta> enUso = ConcurrentHashMap.newKeySet();
+        AtomicInteger compartidas = new AtomicInteger();
+        AtomicInteger devueltas = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        for (int h = 0; h < NUM_HILOS; h++) {
+            hilos.execute(() -> {
+                for (int n = 0; n < CICLOS_POR_HILO; n++) {
+                    Optional<Bicicleta> alquilada = estacion.alquilarBicicleta();
+
+                    if (alquilada.isPresent()) {
+                        Bicicleta bicicleta = alquilada.get();
+                        if (!enUso.add(bicicleta))
+                            compartidas.incrementAndGet();
+
+                        estacion.recogerBicicleta(bicicleta.getId());
+                        enUso.remove(bicicleta);
+                        if (estacion.devolverBicicleta(bicicleta))
+                            devueltas.incrementAndGet();
+                    } else
+                        estacion.bicicletasReparadas(estacion.mantenimientoBicicletas());
+                }
+            });
+        }
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(1, TimeUnit.MINUTES), "Los hilos deben terminar");
+
+        assertAll("Estación tras los ciclos",
+                () -> assertEquals(0, compartidas.get(), "Ninguna bicicleta se alquila a dos hilos a la vez"),
+                () -> assertTrue(devueltas.get() > 0),
+                () -> assertEquals(0, estacion.getDisponibles(ALQUILADA)),
+                () -> assertEquals(0, estacion.getDisponibles(EN_TRANSITO))
+        );
+
+        int total = 0;
+        for (EstadoBicicleta estado : estadosBicicleta) {
+            long esperado = estacion.getBicicletasAsignadas().stream()
+                    .filter(bicicleta -> bicicleta.getEstado() == estado)
+                    .count();
+            assertEquals(esperado, estacion.getDisponibles(estado), "Contador de " + estado);
+            total += estacion.getDisponibles(estado);
+        }
+        assertEquals(NUM_BICICLETAS, total, "Cada bicicleta cuenta en un estado");
+    }
+
+    @Test
+    @DisplayName("Recorrido de las bicicletas asignadas mientras cambian")
+    void testRecorridoConcurrente() throws Exception {
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001");
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+
+        Future<?> cambios = hilo.submit(() -> {
+            for (int ronda = 0; ronda < RONDAS * NUM_BICICLETAS; ronda++) {
+                String idBicicleta = "BICI-" + (ronda % NUM_BICICLETAS);
+                if (estacion.retirarBicicleta(idBicicleta).isEmpty())
+                    estacion.agregarBicicleta(new Bicicleta(idBicicleta));
+            }
+        });
+        try {
+            while (!cambios.isDone()) {
+                int asignadas = 0;
+                for (Bicicleta bicicleta : estacion.getBicicletasAsignadas())
+                    asignadas += bicicleta.getId().startsWith("BICI-") ? 1 : 0;
+                assertTrue(asignadas <= NUM_BICICLETAS);
+                assertNotNull(estacion.toString());
+            }
+            cambios.get();
+        } finally {
+            hilo.shutdown();
+        }
+
+        assertEquals(0, estacion.getBicicletasAsignadas().size(), "Cada bicicleta se ha agregado y retirado");
+    }
+
+    @Test
+    @DisplayName("Observador bloqueado y avisos desordenados")
+    void testObservadorBloqueado() throws Exception {
+        Bicicleta bicicleta = new Bicicleta("BICI-001");
+        CountDownLatch bloqueado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // Se registra antes que la estación, así el aviso del alquiler a la estación llega el último
+        bicicleta.agregarObservador((bici, anterior, nuevo) -> {
+            if (nuevo == ALQUILADA) {
+                bloqueado.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bicicleta);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Boolean> alquiler = hilos.submit(() -> bicicleta.cambiarEstado(DISPONIBLE, ALQUILADA));
+            assertTrue(bloqueado.await(5, TimeUnit.SECONDS));
+
+            Future<Boolean> devolucion = hilos.submit(() ->
+                    bicicleta.cambiarEstado(ALQUILADA, EN_TRANSITO) && estacion.devolverBicicleta(bicicleta));
+            assertTrue(devolucion.get(5, TimeUnit.SECONDS), "Los cambios no esperan al observador bloqueado");
+            assertEquals(0, estacion.getDisponibles(ALQUILADA), "El contador no baja de 0 mientras falta un aviso");
+
+            liberar.countDown();
+            assertTrue(alquiler.get());
+        } finally {
+            liberar.countDown();
+            hilos.shutdown();
+        }
+
+        assertAll("Contadores tras todos los avisos",
+                () -> assertEquals(1, estacion.getDisponibles(bicicleta.getEstado())),
+                () -> assertEquals(0, estacion.getDisponibles(ALQUILADA)),
+                () -> assertEquals(0, estacion.getDisponibles(EN_TRANSITO)),
+                () -> assertEquals(1, estacion.getDisponibles() + estacion.getDisponibles(FUERA_DE_SERVICIO))
+        );
+    }
+
+    /**
+     * Lanza la misma operación en todos los hilos a la vez
+     * @return el número de hilos en los que la operación ha tenido éxito
+     */
+    private int ejecutarALaVez(ExecutorService hilos, Callable<Boolean> operacion) throws Exception {
+        CyclicBarrier salida = new CyclicBarrier(NUM_HILOS);
+        Callable<Boolean> tarea = () -> {
+            salida.await();
+            return operacion.call();
+        };
+        int resultado = 0;
+
+        for (Future<Boolean> exito : hilos.invokeAll(Collections.nCopies(NUM_HILOS, tarea)))
+            if (exito.get())
+                resultado++;
+
+        return resultado;
+    }
+}
@@ -0,0 +1,110 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los contadores por estado de EstacionBicicletas. Se evalúa:
+ * - Que los contadores siguen a las operaciones de la estación
+ * - Que una bicicleta asignada a varias estaciones actualiza todas ellas
+ * - Que los contadores no se descuadran con cambios de estado simultáneos
+ */
+@DisplayName("Pruebas de los Contadores de la Estación")
+public class ContadoresEstacionTest {
+    private static final int NUM_BICICLETAS = 100;
+    private static final int NUM_HILOS = 8;
+    private static final int CAMBIOS_POR_HILO = 20_000;
+
+    @Test
+    @DisplayName("Contadores tras las operaciones de la estación")
+    void testOperaciones() {
+        Bicicleta averiada = new Bicicleta("BICI-003", FUERA_DE_SERVICIO);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001",
+                new Bicicleta("BICI-001"), new Bicicleta("BICI-002"), averiada);
+
+        comprobarContadores(estacion);
+        assertEquals(2, estacion.getDisponibles());
+
+        Bicicleta alquilada = estacion.alquilarBicicleta().orElseThrow();
+        assertEquals(1, estacion.getDisponibles(ALQUILADA));
+        estacion.recogerBicicleta(alquilada.getId());
+        assertEquals(1, estacion.getDisponibles(EN_TRANSITO));
+        estacion.devolverBicicleta(alquilada);
+        assertEquals(0, estacion.getDisponibles(EN_TRANSITO));
+
+        List<Bicicleta> enReparacion = estacion.mantenimientoBicicletas();
+        assertEquals(enReparacion.size(), estacion.getDisponibles(EN_REPARACION));
+        estacion.bicicletasReparadas(enReparacion);
+        assertEquals(0, estacion.getDisponibles(EN_REPARACION));
+
+        comprobarContadores(estacion);
+        assertThrows(UnsupportedOperationException.class,
+                () -> estacion.getBicicletasAsignadas().add(new Bicicleta("BICI-004")));
+    }
+
+    @Test
+    @DisplayName("Bicicleta asignada a varias estaciones")
+    void testVariasEstaciones() {
+        Bicicleta compartida = new Bicicleta("BICI-001");
+        EstacionBicicletas estacion1 = new EstacionBicicletas("EST-001", compartida);
+        EstacionBicicletas estacion2 = new EstacionBicicletas("EST-002", compartida, new Bicicleta("BICI-002"));
+
+        compartida.setEstado(EN_TRANSITO);
+
+        assertAll("Estados en ambas estaciones",
+                () -> assertEquals(0, estacion1.getDisponibles()),
+                () -> assertEquals(1, estacion1.getDisponibles(EN_TRANSITO)),
+                () -> assertEquals(1, estacion2.getDisponibles()),
+                () -> assertEquals(1, estacion2.getDisponibles(EN_TRANSITO))
+        );
+    }
+
+    @Test
+    @DisplayName("Cambios de estado simultáneos")
+    void testCambiosSimultaneos() throws InterruptedException {
+        Bicicleta[] bicicletas = new Bicicleta[NUM_BICICLETAS];
+        for (int i = 0; i < bicicletas.length; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bicicletas);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        for (int h = 0; h < NUM_HILOS; h++) {
+            hilos.execute(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                for (int n = 0; n < CAMBIOS_POR_HILO; n++) {
+                    bicicletas[azar.nextInt(bicicletas.length)]
+                            .setEstado(estadosBicicleta[azar.nextInt(estadosBicicleta.length)]);
+                    estacion.getDisponibles();
+                }
+            });
+        }
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(1, TimeUnit.MINUTES), "Los hilos deben terminar");
+
+        comprobarContadores(estacion);
+    }
+
+    private void comprobarContadores(EstacionBicicletas estacion) {
+        int total = 0;
+
+        for (EstadoBicicleta estado : estadosBicicleta) {
+            long esperado = estacion.getBicicletasAsignadas().stream()
+                    .filter(bicicleta -> bicicleta.getEstado() == estado)
+                    .count();
+            assertEquals(esperado, estacion.getDisponibles(estado), "Contador de " + estado);
+            total += estacion.getDisponibles(estado);
+        }
+
+        assertEquals(estacion.getBicicletasAsignadas().size(), total, "Cada bicicleta cuenta en un estado");
+    }
+}
@@ -0,0 +1,141 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de GeneradorCarga y HistogramaLatencias. Se evalúa:
+ * - Los percentiles del histograma dentro de su precisión y el registro desde varios hilos
+ * - Que las estaciones se crean con la distribución de estados de EstadoBicicleta
+ * - Que a una tasa baja cada hilo realiza todas sus operaciones programadas salvo, como
+ *   mucho, la que tocaba al terminar
+ * - Que al terminar no queda EN_TRANSITO ninguna bicicleta recogida por el generador
+ * - Que en un barrido de tasas la mayor satura el sistema y dispara la latencia
+ */
+@DisplayName("Pruebas del Generador de Carga")
+public class GeneradorCargaTest {
+    private static final int NUM_VALORES = 100_000;
+    private static final double PRECISION = 2.0 / (1 << BITS_PRECISION_HISTOGRAMA);
+    private static final int NUM_HILOS = 4;
+    private static final double[] TASAS = {1_000, 10_000, 100_000, 1_000_000, 5_000_000};
+    private static final double TASA_BAJA = 200; // op/s, un hilo solo se retrasa si se detiene decenas de ms
+
+    @Test
+    @DisplayName("Percentiles del histograma")
+    void testHistograma() throws InterruptedException {
+        HistogramaLatencias histograma = new HistogramaLatencias();
+        for (long valor = 1; valor <= NUM_VALORES; valor++)
+            histograma.registrar(valor * 1_000);
+
+        assertAll("Percentiles de una distribución uniforme",
+                () -> assertEquals(NUM_VALORES, histograma.getCuenta()),
+                () -> assertEquals(50_000_000, histograma.getPercentil(50), 50_000_000 * PRECISION),
+                () -> assertEquals(99_000_000, histograma.getPercentil(99), 99_000_000 * PRECISION),
+                () -> assertEquals(100_000_000, histograma.getPercentil(100)),
+                () -> assertEquals(100_000_000, histograma.getMaximo()),
+                () -> assertEquals(50_000_500, histograma.getMedia(), 1e-6),
+                () -> assertThrows(IllegalArgumentException.class, () -> histograma.getPercentil(101))
+        );
+
+        HistogramaLatencias pequenos = new HistogramaLatencias();
+        pequenos.registrar(-5);
+        pequenos.registrar(3);
+        pequenos.registrar(MAX_LATENCIA_HISTOGRAMA * 2);
+        assertEquals(0, pequenos.getPercentil(10), "Las latencias negativas cuentan como 0");
+        assertEquals(3, pequenos.getPercentil(50), "Los valores pequeños son exactos");
+        assertEquals(MAX_LATENCIA_HISTOGRAMA * 2, pequenos.getMaximo(), "El máximo no se recorta");
+
+        HistogramaLatencias concurrente = new HistogramaLatencias();
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        hilos.invokeAll(Collections.nCopies(NUM_HILOS, () -> {
+            for (int i = 0; i < NUM_VALORES; i++)
+                concurrente.registrar(i);
+            return null;
+        }));
+        hilos.shutdown();
+        concurrente.sumar(histograma);
+
+        assertEquals((long) NUM_HILOS * NUM_VALORES + NUM_VALORES, concurrente.getCuenta());
+        assertEquals(100_000_000, concurrente.getMaximo());
+    }
+
+    @Test
+    @DisplayName("Estados iniciales de las bicicletas")
+    void testPoblacion() {
+        GeneradorCarga generador = new GeneradorCarga(20, 500, NUM_HILOS, new MuestreoPonderado<>(
+                OperacionCarga.class, OperacionCarga::getPeso), FuenteAleatoria.reproducible(22));
+        int total = 20 * 500;
+        int[] estados = new int[estadosBicicleta.length];
+
+        for (EstacionBicicletas estacion : generador.getEstaciones())
+            for (EstadoBicicleta estado : estadosBicicleta)
+                estados[estado.ordinal()] += estacion.getDisponibles(estado);
+
+        for (EstadoBicicleta estado : estadosBicicleta)
+            assertEquals(estado.getProbabilidad() / (double) D100, (double) estados[estado.ordinal()] / total, 0.02,
+                    estado.name());
+        assertThrows(IllegalArgumentException.class, () -> new GeneradorCarga(0, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> generador.ejecutar(0, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Carga asumible")
+    void testCargaAsumible() throws InterruptedException {
+        GeneradorCarga generador = new GeneradorCarga(50, 200, NUM_HILOS);
+        int enTransito = contarEnTransito(generador);
+
+        GeneradorCarga.Resultado resultado = generador.ejecutar(TASA_BAJA, 2, TimeUnit.SECONDS);
+
+        // Las programadas siguen el proceso de Poisson y no dependen de la velocidad de la máquina
+        assertAll("Resultado a " + TASA_BAJA + " op/s",
+                () -> assertEquals(2 * TASA_BAJA, resultado.programadas(), 80),
+                () -> assertEquals(enTransito, contarEnTransito(generador), "Las recogidas se devuelven"),
+                () -> assertTrue(resultado.getRealizadas() <= resultado.programadas()),
+                () -> assertTrue(resultado.programadas() - resultado.getRealizadas() <= NUM_HILOS,
+                        "Cada hilo deja como mucho una operación sin lanzar"),
+                () -> assertTrue(resultado.latencias().get(OperacionCarga.ALQUILAR).getCuenta() > 0),
+                () -> assertTrue(resultado.latencias().get(OperacionCarga.RECOGER).getCuenta() > 0),
+                () -> assertTrue(resultado.latencias().get(OperacionCarga.DEVOLVER).getCuenta() > 0),
+                () -> assertTrue(resultado.latencias().get(OperacionCarga.MANTENIMIENTO).getCuenta() > 0)
+        );
+    }
+
+    @Test
+    @DisplayName("Barrido de tasas")
+    void testBarrido() throws InterruptedException {
+        GeneradorCarga generador = new GeneradorCarga(50, 200, NUM_HILOS);
+        List<GeneradorCarga.Resultado> resultados = new ArrayList<>();
+        int enTransito = contarEnTransito(generador);
+
+        for (double tasa : TASAS)
+            resultados.add(generador.ejecutar(tasa, 500, TimeUnit.MILLISECONDS));
+
+        GeneradorCarga.Resultado menor = resultados.get(PRIMERO);
+        GeneradorCarga.Resultado mayor = resultados.get(resultados.size() - 1);
+        assertTrue(mayor.getRealizadas() < mayor.programadas(), "A la mayor tasa no se llega a todo lo programado");
+        assertTrue(mayor.getLatenciaTotal().getPercentil(99) > menor.getLatenciaTotal().getPercentil(99),
+                "Saturado, la cola dispara la latencia");
+        assertEquals(enTransito, contarEnTransito(generador), "Cada medida empieza con las mismas bicicletas");
+    }
+
+    /**
+     * Bicicletas EN_TRANSITO en todas las estaciones, las que empiezan así nadie las devuelve
+     */
+    private int contarEnTransito(GeneradorCarga generador) {
+        int resultado = 0;
+
+        for (EstacionBicicletas estacion : generador.getEstaciones())
+            resultado += estacion.getDisponibles(EN_TRANSITO);
+
+        return resultado;
+    }
+}
@@ -0,0 +1,143 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del mantenimiento programado de EstacionBicicletas. Se evalúa:
+ * - Que las bicicletas vencidas pasan a reparación por orden de fecha y en lotes
+ * - Que los cambios de fecha de mantenimiento reprograman la bicicleta
+ * - Que una bicicleta alquilada se revisa cuando vuelve a estar disponible
+ * - Que las citas no se repiten cada vez que una bicicleta vencida vuelve a estar disponible
+ * - Que las bicicletas reparadas reciben una nueva fecha de mantenimiento
+ * - Que con 100.000 bicicletas el montículo extrae las mismas vencidas que recorrerlas
+ */
+@DisplayName("Pruebas del Mantenimiento Programado")
+public class MantenimientoProgramadoTest {
+    private static final long INICIO = 1_700_000_000_000L;
+    private static final long SEGUNDO = 1_000;
+    private static final int NUM_BICICLETAS = 100_000;
+    private static final int VENCIDAS = 1_000;
+
+    @Test
+    @DisplayName("Mantenimiento por orden de fecha y en lotes")
+    void testOrdenLotes() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta[] bicicletas = new Bicicleta[5];
+        for (int i = 0; i < bicicletas.length; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i, i == 3 ? FUERA_DE_SERVICIO : DISPONIBLE, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, bicicletas);
+
+        bicicletas[0].setMarcaMantenimiento(INICIO + 3 * SEGUNDO);
+        bicicletas[1].setMarcaMantenimiento(INICIO + SEGUNDO);
+        bicicletas[2].setMarcaMantenimiento(INICIO + 100 * SEGUNDO);
+        bicicletas[3].setMarcaMantenimiento(INICIO + 2 * SEGUNDO);
+        bicicletas[4].setMarcaMantenimiento(INICIO + 50 * SEGUNDO);
+        bicicletas[4].setMarcaMantenimiento(INICIO + 200 * SEGUNDO);
+
+        assertEquals(INICIO + SEGUNDO, estacion.getProximoMantenimiento().orElseThrow());
+        assertTrue(estacion.mantenimientoProgramado(10).isEmpty(), "Aún no ha vencido ninguno");
+
+        reloj.avanzar(60, TimeUnit.SECONDS);
+        List<Bicicleta> primerLote = estacion.mantenimientoProgramado(2);
+        List<Bicicleta> segundoLote = estacion.mantenimientoProgramado(2);
+
+        assertAll("Lotes de mantenimiento",
+                () -> assertEquals(List.of(bicicletas[1], bicicletas[3]), primerLote),
+                () -> assertEquals(List.of(bicicletas[0]), segundoLote, "La fecha pospuesta ya no ha vencido"),
+                () -> assertEquals(3, estacion.getDisponibles(EN_REPARACION)),
+                () -> assertEquals(INICIO + 100 * SEGUNDO, estacion.getProximoMantenimiento().orElseThrow()),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.mantenimientoProgramado(0))
+        );
+
+        estacion.bicicletasReparadas(primerLote);
+        assertAll("Bicicletas reparadas",
+                () -> assertEquals(DISPONIBLE, bicicletas[1].getEstado()),
+                () -> assertEquals(reloj.milis() + TIEMPO_HASTA_MANTENIMIENTO * SEGUNDO,
+                        bicicletas[1].getMarcaMantenimiento()),
+                () -> assertEquals(reloj.milis() + TIEMPO_HASTA_MANTENIMIENTO * SEGUNDO,
+                        estacion.getProximoMantenimiento().orElseThrow())
+        );
+    }
+
+    @Test
+    @DisplayName("Bicicletas alquiladas y retiradas")
+    void testAlquiladasRetiradas() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta alquilada = new Bicicleta("BICI-001", DISPONIBLE, reloj);
+        Bicicleta retirada = new Bicicleta("BICI-002", DISPONIBLE, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, alquilada, retirada);
+
+        assertSame(alquilada, estacion.alquilarBicicleta().orElseThrow());
+        estacion.retirarBicicleta("BICI-002");
+        reloj.avanzar(TIEMPO_HASTA_MANTENIMIENTO + 1, TimeUnit.SECONDS);
+
+        assertTrue(estacion.mantenimientoProgramado(10).isEmpty(),
+                "Ni la alquilada ni la retirada se pasan a reparación");
+        assertTrue(estacion.getProximoMantenimiento().isEmpty());
+
+        estacion.getRueda().avanzar();
+        assertEquals(DISPONIBLE, alquilada.getEstado(), "La reserva ha vencido");
+        assertEquals(List.of(alquilada), estacion.mantenimientoProgramado(10),
+                "Al volver a estar disponible se revisa su mantenimiento");
+    }
+
+    @Test
+    @DisplayName("Citas sin repetir para una bicicleta vencida")
+    void testCitasSinRepetir() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta bicicleta = new Bicicleta("BICI-001", DISPONIBLE, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, bicicleta);
+        reloj.avanzar(TIEMPO_HASTA_MANTENIMIENTO + 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < VENCIDAS; i++) {
+            bicicleta.setEstado(ALQUILADA);
+            bicicleta.setEstado(DISPONIBLE);
+        }
+        assertEquals(1, estacion.getCitasMantenimiento(), "La cita vigente no se repite");
+
+        bicicleta.setMarcaMantenimiento(reloj.milis() - 1);
+        assertEquals(2, estacion.getCitasMantenimiento(), "Una fecha nueva sí añade una cita");
+        assertEquals(List.of(bicicleta), estacion.mantenimientoProgramado(10));
+        assertEquals(0, estacion.getCitasMantenimiento(), "La cita antigua se descarta al llegar a la cima");
+    }
+
+    @Test
+    @DisplayName("Mantenimiento programado frente a recorrer la estación")
+    void testFrenteRecorrido() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        EstacionBicicletas recorrida = crearEstacion(reloj);
+        EstacionBicicletas programada = crearEstacion(reloj);
+        reloj.avanzar(2, TimeUnit.SECONDS);
+
+        int vencidasRecorrido = 0;
+        for (Bicicleta bicicleta : recorrida.getBicicletasAsignadas())
+            if (reloj.vencido(bicicleta.getMarcaMantenimiento()) && bicicleta.cambiarEstado(DISPONIBLE, EN_REPARACION))
+                vencidasRecorrido++;
+
+        int vencidasMonticulo = programada.mantenimientoProgramado(NUM_BICICLETAS).size();
+
+        assertEquals(VENCIDAS, vencidasRecorrido);
+        assertEquals(VENCIDAS, vencidasMonticulo);
+    }
+
+    private EstacionBicicletas crearEstacion(RelojVirtual reloj) {
+        SplittableRandom azar = new SplittableRandom(17);
+        Bicicleta[] bicicletas = new Bicicleta[NUM_BICICLETAS];
+
+        for (int i = 0; i < NUM_BICICLETAS; i++) {
+            bicicletas[i] = new Bicicleta("BICI-" + i, DISPONIBLE, reloj);
+            bicicletas[i].setMarcaMantenimiento(INICIO + (i < VENCIDAS ? 1 : 3 + azar.nextInt(1_000_000)) * SEGUNDO);
+        }
+
+        return new EstacionBicicletas("EST-001", reloj, bicicletas);
+    }
+}
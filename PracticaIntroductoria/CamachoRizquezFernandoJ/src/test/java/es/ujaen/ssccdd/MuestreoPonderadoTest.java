@@ -0,0 +1,147 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de MuestreoPonderado. Se evalúa:
+ * - Que EstadoBicicleta.getEstado() mantiene la probabilidad de cada estado
+ * - Los pesos de un mapa y de un fichero de configuración, los de peso 0 nunca salen
+ * - Que los pesos no válidos se rechazan
+ * - Que la tabla de alias da las mismas proporciones que recorrer los pesos acumulados
+ */
+@DisplayName("Pruebas del Muestreo Ponderado")
+public class MuestreoPonderadoTest {
+    private static final int MUESTRAS = 1_000_000;
+    private static final double TOLERANCIA = 0.005;
+
+    @Test
+    @DisplayName("Probabilidades de EstadoBicicleta")
+    void testEstadoBicicleta() {
+        SplittableRandom azar = new SplittableRandom(21);
+        int[] cuentas = new int[estadosBicicleta.length];
+
+        for (int i = 0; i < MUESTRAS; i++)
+            cuentas[EstadoBicicleta.getEstado(azar).ordinal()]++;
+
+        assertAll("Probabilidad de cada estado",
+                () -> assertEquals(50, DISPONIBLE.getProbabilidad()),
+                () -> assertEquals(20, ALQUILADA.getProbabilidad()),
+                () -> assertEquals(5, FUERA_DE_SERVICIO.getProbabilidad())
+        );
+        for (EstadoBicicleta estado : estadosBicicleta)
+            assertEquals(estado.getProbabilidad() / (double) D100, (double) cuentas[estado.ordinal()] / MUESTRAS,
+                    TOLERANCIA, estado.name());
+    }
+
+    @Test
+    @DisplayName("Pesos de un mapa y de la configuración")
+    void testPesos() {
+        Map<EstadoBicicleta, Integer> pesos = new EnumMap<>(EstadoBicicleta.class);
+        pesos.put(DISPONIBLE, 3);
+        pesos.put(EN_TRANSITO, 1);
+        Properties configuracion = new Properties();
+        configuracion.setProperty("ALQUILADA", "0.25");
+        configuracion.setProperty("EN_REPARACION", " 0.75 ");
+
+        MuestreoPonderado<EstadoBicicleta> delMapa = MuestreoPonderado.de(EstadoBicicleta.class, pesos);
+        MuestreoPonderado<EstadoBicicleta> deConfiguracion =
+                MuestreoPonderado.desdeConfiguracion(EstadoBicicleta.class, configuracion);
+        int[] cuentas = contar(delMapa, new SplittableRandom(3));
+        int[] cuentasConfiguracion = contar(deConfiguracion, new SplittableRandom(4));
+
+        assertAll("Muestreos con pesos propios",
+                () -> assertEquals(0.75, delMapa.getProbabilidad(DISPONIBLE), 1e-12),
+                () -> assertEquals(0, cuentas[ALQUILADA.ordinal()] + cuentas[EN_REPARACION.ordinal()]
+                        + cuentas[FUERA_DE_SERVICIO.ordinal()], "Los valores de peso 0 nunca salen"),
+                () -> assertEquals(0.75, (double) cuentas[DISPONIBLE.ordinal()] / MUESTRAS, TOLERANCIA),
+                () -> assertEquals(0.75, (double) cuentasConfiguracion[EN_REPARACION.ordinal()] / MUESTRAS, TOLERANCIA),
+                () -> assertEquals(MUESTRAS, cuentasConfiguracion[ALQUILADA.ordinal()]
+                        + cuentasConfiguracion[EN_REPARACION.ordinal()]),
+                () -> assertEquals(0.2, MuestreoPonderado.uniforme(EstadoBicicleta.class)
+                        .getProbabilidad(EN_TRANSITO), 1e-12)
+        );
+    }
+
+    @Test
+    @DisplayName("Pesos no válidos")
+    void testPesosNoValidos() {
+        Properties noNumerico = new Properties();
+        noNumerico.setProperty("DISPONIBLE", "mucho");
+
+        assertAll("Pesos rechazados",
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> MuestreoPonderado.de(EstadoBicicleta.class, Map.of(DISPONIBLE, -1))),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> MuestreoPonderado.de(EstadoBicicleta.class, Map.of(DISPONIBLE, Double.NaN))),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> MuestreoPonderado.de(EstadoBicicleta.class, Map.of())),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> MuestreoPonderado.desdeConfiguracion(EstadoBicicleta.class, noNumerico)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new MuestreoPonderado<>(EstadoBicicleta.class, null))
+        );
+    }
+
+    @Test
+    @DisplayName("Tabla de alias frente a pesos acumulados")
+    void testFrenteAcumulados() {
+        SplittableRandom azar = new SplittableRandom(21);
+        int[] acumulados = new int[estadosBicicleta.length];
+        int suma = 0;
+        for (EstadoBicicleta estado : estadosBicicleta) {
+            suma += estado.getProbabilidad();
+            acumulados[estado.ordinal()] = suma;
+        }
+
+        int disponiblesRecorrido = 0;
+        for (int i = 0; i < MUESTRAS; i++)
+            if (recorrerAcumulados(acumulados, azar) == DISPONIBLE)
+                disponiblesRecorrido++;
+
+        int disponiblesAlias = 0;
+        for (int i = 0; i < MUESTRAS; i++)
+            if (EstadoBicicleta.getEstado(azar) == DISPONIBLE)
+                disponiblesAlias++;
+
+        assertEquals(0.5, (double) disponiblesRecorrido / MUESTRAS, TOLERANCIA);
+        assertEquals(0.5, (double) disponiblesAlias / MUESTRAS, TOLERANCIA);
+    }
+
+    private int[] contar(MuestreoPonderado<EstadoBicicleta> muestreo, RandomGenerator generador) {
+        int[] resultado = new int[estadosBicicleta.length];
+
+        for (int i = 0; i < MUESTRAS; i++)
+            resultado[muestreo.siguiente(generador).ordinal()]++;
+
+        return resultado;
+    }
+
+    /**
+     * El recorrido que hacía getEstado() antes de la tabla de alias
+     */
+    private EstadoBicicleta recorrerAcumulados(int[] acumulados, RandomGenerator generador) {
+        EstadoBicicleta resultado = null;
+        int peso = generador.nextInt(D100);
+        int indice = 0;
+
+        while( (indice < acumulados.length) && (resultado == null) ) {
+            if( acumulados[indice] > peso )
+                resultado = estadosBicicleta[indice];
+
+            indice++;
+        }
+
+        return resultado;
+    }
+}
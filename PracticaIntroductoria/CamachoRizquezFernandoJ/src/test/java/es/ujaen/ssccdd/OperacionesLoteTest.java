@@ -0,0 +1,139 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las operaciones por lotes de EstacionBicicletas. Se evalúa:
+ * - Alquilar varias bicicletas de una vez, también más de las disponibles
+ * - Devolver un lote con el resultado de cada bicicleta y los plazos
+ * - Que un lote con bicicletas nulas o repetidas se rechaza sin devolver ninguna
+ * - Que bicicletasReparadas solo acepta bicicletas de la estación en reparación
+ * - Que reservas de grupo simultáneas nunca comparten bicicletas
+ */
+@DisplayName("Pruebas de las Operaciones por Lotes")
+public class OperacionesLoteTest {
+    private static final long INICIO = 1_700_000_000_000L;
+    private static final int NUM_BICICLETAS = 1_000;
+    private static final int NUM_HILOS = 8;
+    private static final int TAMANO_GRUPO = 7;
+
+    @Test
+    @DisplayName("Alquilar varias bicicletas")
+    void testAlquilarBicicletas() {
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", new Bicicleta("BICI-1"),
+                new Bicicleta("BICI-2"), new Bicicleta("BICI-3"), new Bicicleta("BICI-4", EN_REPARACION),
+                new Bicicleta("BICI-5"));
+
+        List<Bicicleta> grupo = estacion.alquilarBicicletas(3);
+        List<Bicicleta> resto = estacion.alquilarBicicletas(10);
+
+        assertAll("Alquileres por lotes",
+                () -> assertEquals(3, grupo.size()),
+                () -> assertEquals(1, resto.size(), "Solo queda una disponible"),
+                () -> assertTrue(grupo.stream().allMatch(bicicleta -> bicicleta.getEstado() == ALQUILADA)),
+                () -> assertFalse(grupo.contains(resto.get(PRIMERO))),
+                () -> assertEquals(4, estacion.getDisponibles(ALQUILADA)),
+                () -> assertEquals(0, estacion.getDisponibles()),
+                () -> assertTrue(estacion.alquilarBicicletas(0).isEmpty()),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.alquilarBicicletas(-1))
+        );
+    }
+
+    @Test
+    @DisplayName("Devolver varias bicicletas")
+    void testDevolverBicicletas() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta tarde = new Bicicleta("BICI-1", EN_TRANSITO, reloj);
+        reloj.avanzar(EN_TRANSITO.getTiempoOperacion(), TimeUnit.SECONDS);
+        Bicicleta aTiempo = new Bicicleta("BICI-2", EN_TRANSITO, reloj);
+        Bicicleta disponible = new Bicicleta("BICI-3", DISPONIBLE, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, tarde, aTiempo, disponible);
+        reloj.avanzar(1, TimeUnit.SECONDS);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> estacion.devolverBicicletas(Arrays.asList(tarde, null)));
+        assertEquals(2, estacion.getDisponibles(EN_TRANSITO), "Un lote con null no se procesa");
+        assertThrows(IllegalArgumentException.class,
+                () -> estacion.devolverBicicletas(List.of(aTiempo, tarde, aTiempo)));
+        assertEquals(2, estacion.getDisponibles(EN_TRANSITO), "Un lote con repetidas no se procesa");
+
+        Map<Bicicleta, Boolean> resultado = estacion.devolverBicicletas(List.of(disponible, tarde, aTiempo));
+
+        assertAll("Resultado del lote",
+                () -> assertEquals(List.of(disponible, tarde, aTiempo), List.copyOf(resultado.keySet()),
+                        "El resultado sigue el orden del lote"),
+                () -> assertFalse(resultado.get(disponible)),
+                () -> assertTrue(resultado.get(tarde)),
+                () -> assertTrue(resultado.get(aTiempo)),
+                () -> assertEquals(1, estacion.getOperacionesFueraDePlazo()),
+                () -> assertEquals(0, estacion.getDisponibles(EN_TRANSITO)),
+                () -> assertFalse(estacion.devolverBicicletas(List.of(tarde)).get(tarde),
+                        "Una bicicleta no se devuelve dos veces")
+        );
+    }
+
+    @Test
+    @DisplayName("Validación de las bicicletas reparadas")
+    void testBicicletasReparadas() {
+        Bicicleta reparada = new Bicicleta("BICI-1", EN_REPARACION);
+        Bicicleta disponible = new Bicicleta("BICI-2", DISPONIBLE);
+        Bicicleta ajena = new Bicicleta("BICI-3", EN_REPARACION);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reparada, disponible);
+
+        assertFalse(estacion.bicicletasReparadas(List.of(reparada, disponible, ajena)),
+                "No se aceptan todas las bicicletas del lote");
+
+        assertAll("Solo cambia la bicicleta en reparación de la estación",
+                () -> assertEquals(DISPONIBLE, reparada.getEstado()),
+                () -> assertEquals(EN_REPARACION, ajena.getEstado()),
+                () -> assertEquals(2, estacion.getDisponibles()),
+                () -> assertEquals(0, estacion.getDisponibles(EN_REPARACION)),
+                () -> assertFalse(estacion.bicicletasReparadas(List.of(reparada)), "Ya no está en reparación"),
+                () -> assertFalse(estacion.bicicletasReparadas(List.of())),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.bicicletasReparadas(null))
+        );
+    }
+
+    @Test
+    @DisplayName("Reservas de grupo simultáneas")
+    void testGruposSimultaneos() throws Exception {
+        Bicicleta[] bicicletas = new Bicicleta[NUM_BICICLETAS];
+        for (int i = 0; i < bicicletas.length; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bicicletas);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        List<Future<Set<Bicicleta>>> grupos = hilos.invokeAll(Collections.nCopies(NUM_HILOS, () -> {
+            Set<Bicicleta> alquiladas = new HashSet<>();
+            List<Bicicleta> grupo;
+            while (!(grupo = estacion.alquilarBicicletas(TAMANO_GRUPO)).isEmpty())
+                alquiladas.addAll(grupo);
+            return alquiladas;
+        }));
+        hilos.shutdown();
+
+        Set<Bicicleta> todas = new HashSet<>();
+        int total = 0;
+        for (Future<Set<Bicicleta>> grupo : grupos) {
+            todas.addAll(grupo.get());
+            total += grupo.get().size();
+        }
+
+        assertEquals(NUM_BICICLETAS, total, "Se alquilan todas las bicicletas");
+        assertEquals(NUM_BICICLETAS, todas.size(), "Ninguna bicicleta está en dos grupos");
+        assertEquals(NUM_BICICLETAS, estacion.getDisponibles(ALQUILADA));
+    }
+}
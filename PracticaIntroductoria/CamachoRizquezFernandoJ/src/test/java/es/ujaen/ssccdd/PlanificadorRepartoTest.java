@@ -0,0 +1,178 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de PlanificadorReparto. Se evalúa:
+ * - Que el plan es el de coste mínimo donde emparejar con la más cercana no lo es
+ * - Que los traslados no salen de su distrito ni superan los muelles libres
+ * - Que ejecutar un traslado mueve las bicicletas entre las estaciones y devuelve al origen las
+ *   que el destino no admite
+ * - Que en una red de 5.000 estaciones se compensa todo lo posible en cada distrito
+ */
+@DisplayName("Pruebas del Planificador de Reparto")
+public class PlanificadorRepartoTest {
+    private static final int NUM_ESTACIONES = 5_000;
+    private static final double SEPARACION = 250.0;       // metros entre estaciones vecinas
+    private static final int MUELLES = 30;
+    private static final int MAX_BICICLETAS = 20;
+
+    @Test
+    @DisplayName("Plan de coste mínimo")
+    void testCosteMinimo() {
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas origen1 = crearEstacion("EST-1", 1);
+        EstacionBicicletas destino1 = crearEstacion("EST-2", 0);
+        EstacionBicicletas origen2 = crearEstacion("EST-3", 1);
+        EstacionBicicletas destino2 = crearEstacion("EST-4", 0);
+        red.agregarEstacion(origen1, 0, 0, MUELLES);
+        red.agregarEstacion(destino1, 300, 0, MUELLES);
+        red.agregarEstacion(origen2, 400, 0, MUELLES);
+        red.agregarEstacion(destino2, 500, 0, MUELLES);
+
+        // Emparejar EST-2 con su origen más cercano, EST-3, obliga a llevar EST-1 hasta EST-4
+        List<PlanificadorReparto.Traslado> plan = new PlanificadorReparto(red)
+                .planificar(estacion -> estacion.getDisponibles() == 0 ? 1 : 0);
+
+        assertAll("Plan de reparto",
+                () -> assertEquals(2, plan.size()),
+                () -> assertEquals(400.0, coste(plan), 1e-9),
+                () -> assertTrue(plan.contains(new PlanificadorReparto.Traslado(origen1, destino1, 1, 300.0))),
+                () -> assertTrue(plan.contains(new PlanificadorReparto.Traslado(origen2, destino2, 1, 100.0))),
+                () -> assertThrows(IllegalArgumentException.class, () -> new PlanificadorReparto(red).planificar(null)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new PlanificadorReparto(red, 0, ForkJoinPool.commonPool()))
+        );
+    }
+
+    @Test
+    @DisplayName("Distritos y muelles libres")
+    void testDistritosMuelles() {
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas sobrante = crearEstacion("EST-1", 5);
+        EstacionBicicletas vecina = crearEstacion("EST-2", 0);
+        EstacionBicicletas otroDistrito = crearEstacion("EST-3", 0);
+        red.agregarEstacion(sobrante, 100, 100, MUELLES);
+        red.agregarEstacion(vecina, 200, 100, 2);
+        red.agregarEstacion(otroDistrito, LADO_DISTRITO + 100, 100, MUELLES);
+
+        List<PlanificadorReparto.Traslado> plan = new PlanificadorReparto(red)
+                .planificar(estacion -> estacion == sobrante ? 0 : 5);
+
+        assertEquals(List.of(new PlanificadorReparto.Traslado(sobrante, vecina, 2, 100.0)), plan,
+                "Solo se llenan los muelles libres de la vecina y no se cruza de distrito");
+        assertTrue(new PlanificadorReparto(red).planificar(EstacionBicicletas::getDisponibles).isEmpty(),
+                "Si la demanda coincide con las disponibles no hay traslados");
+    }
+
+    @Test
+    @DisplayName("Ejecutar un traslado")
+    void testEjecutar() {
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas origen = crearEstacion("EST-1", 6);
+        EstacionBicicletas destino = crearEstacion("EST-2", 1);
+        red.agregarEstacion(origen, 0, 0, MUELLES);
+        red.agregarEstacion(destino, 500, 0, MUELLES);
+        PlanificadorReparto planificador = new PlanificadorReparto(red);
+
+        List<PlanificadorReparto.Traslado> plan = planificador.planificar(estacion -> 4);
+        assertEquals(1, plan.size());
+        assertEquals(2, plan.get(0).bicicletas());
+
+        assertEquals(2, planificador.ejecutar(plan.get(0)));
+        assertAll("Estaciones tras el traslado",
+                () -> assertEquals(4, origen.getBicicletasAsignadas().size()),
+                () -> assertEquals(4, origen.getDisponibles()),
+                () -> assertEquals(3, destino.getBicicletasAsignadas().size()),
+                () -> assertEquals(0, origen.getDisponibles(ALQUILADA) + origen.getDisponibles(EN_TRANSITO)),
+                () -> assertEquals(0, destino.getDisponibles(ALQUILADA) + destino.getDisponibles(EN_TRANSITO)),
+                () -> assertEquals(0, origen.getOperacionesFueraDePlazo() + destino.getOperacionesFueraDePlazo())
+        );
+
+        // Un destino que ya tiene una bicicleta con el mismo identificador no la admite
+        EstacionBicicletas repetida = new EstacionBicicletas("EST-3", new Bicicleta("EST-1-BICI-5"));
+        int movidas = planificador.ejecutar(new PlanificadorReparto.Traslado(origen, repetida, 4, 100.0));
+        assertAll("Bicicleta no admitida en el destino",
+                () -> assertEquals(3, movidas),
+                () -> assertEquals(1, origen.getBicicletasAsignadas().size(), "La bicicleta vuelve al origen"),
+                () -> assertEquals(0, origen.getDisponibles(ALQUILADA) + origen.getDisponibles(EN_TRANSITO),
+                        "La bicicleta devuelta no se queda en tránsito")
+        );
+    }
+
+    @Test
+    @DisplayName("Red de 5.000 estaciones")
+    void testRedGrande() {
+        SplittableRandom azar = new SplittableRandom(19);
+        RedEstaciones red = new RedEstaciones();
+        Map<EstacionBicicletas, Integer> demanda = new HashMap<>();
+        int lado = (int) Math.ceil(Math.sqrt(NUM_ESTACIONES));
+
+        for (int i = 0; i < NUM_ESTACIONES; i++) {
+            EstacionBicicletas estacion = crearEstacion("EST-" + i, azar.nextInt(MAX_BICICLETAS + 1));
+            red.agregarEstacion(estacion, (i % lado) * SEPARACION + azar.nextDouble(SEPARACION / 2),
+                    (i / lado) * SEPARACION + azar.nextDouble(SEPARACION / 2), MUELLES);
+            demanda.put(estacion, azar.nextInt(MAX_BICICLETAS + 1));
+        }
+        PlanificadorReparto planificador = new PlanificadorReparto(red);
+
+        List<PlanificadorReparto.Traslado> plan = planificador.planificar(demanda::get);
+
+        Map<EstacionBicicletas, Integer> salidas = new HashMap<>();
+        Map<EstacionBicicletas, Integer> llegadas = new HashMap<>();
+        int trasladadas = 0;
+        for (PlanificadorReparto.Traslado traslado : plan) {
+            salidas.merge(traslado.origen(), traslado.bicicletas(), Integer::sum);
+            llegadas.merge(traslado.destino(), traslado.bicicletas(), Integer::sum);
+            trasladadas += traslado.bicicletas();
+        }
+
+        int compensables = 0;
+        Collection<List<EstacionBicicletas>> distritos = red.distritos(LADO_DISTRITO);
+        for (List<EstacionBicicletas> distrito : distritos) {
+            int excedente = 0, deficit = 0;
+            for (EstacionBicicletas estacion : distrito) {
+                int diferencia = estacion.getDisponibles() - demanda.get(estacion);
+                excedente += Math.max(0, diferencia);
+                deficit += Math.max(0, Math.min(-diferencia, red.getMuellesLibres(estacion.getId())));
+            }
+            compensables += Math.min(excedente, deficit);
+        }
+
+        assertEquals(compensables, trasladadas, "Se compensa todo lo posible en cada distrito");
+        for (Map.Entry<EstacionBicicletas, Integer> salida : salidas.entrySet())
+            assertTrue(salida.getValue() <= salida.getKey().getDisponibles() - demanda.get(salida.getKey()));
+        for (Map.Entry<EstacionBicicletas, Integer> llegada : llegadas.entrySet())
+            assertTrue(llegada.getValue() <= demanda.get(llegada.getKey()) - llegada.getKey().getDisponibles());
+    }
+
+    private double coste(List<PlanificadorReparto.Traslado> plan) {
+        double resultado = 0;
+
+        for (PlanificadorReparto.Traslado traslado : plan)
+            resultado += traslado.bicicletas() * traslado.distancia();
+
+        return resultado;
+    }
+
+    private EstacionBicicletas crearEstacion(String id, int disponibles) {
+        Bicicleta[] bicicletas = new Bicicleta[disponibles];
+
+        for (int i = 0; i < disponibles; i++)
+            bicicletas[i] = new Bicicleta(id + "-BICI-" + i);
+
+        return new EstacionBicicletas(id, bicicletas);
+    }
+}
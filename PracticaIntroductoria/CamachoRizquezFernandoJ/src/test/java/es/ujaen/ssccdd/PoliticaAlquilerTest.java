@@ -0,0 +1,141 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las colas por estado de EstacionBicicletas. Se evalúa:
+ * - El orden de alquiler de cada PoliticaAlquiler
+ * - Que la cola MENOS_MANTENIDA conserva su orden aunque cambien las fechas de mantenimiento
+ * - Que los cambios de estado externos se reflejan en las bicicletas que se pueden alquilar
+ * - Que dos hilos nunca alquilan la misma bicicleta
+ */
+@DisplayName("Pruebas de las Políticas de Alquiler")
+public class PoliticaAlquilerTest {
+    private static final int NUM_BICICLETAS = 1_000;
+    private static final int NUM_HILOS = 8;
+
+    @Test
+    @DisplayName("Orden de alquiler FIFO y LIFO")
+    void testFifoLifo() {
+        assertEquals(List.of("BICI-1", "BICI-2", "BICI-3"), ordenAlquiler(PoliticaAlquiler.FIFO));
+        assertEquals(List.of("BICI-3", "BICI-2", "BICI-1"), ordenAlquiler(PoliticaAlquiler.LIFO));
+    }
+
+    @Test
+    @DisplayName("Orden de alquiler por mantenimiento")
+    void testMenosMantenida() {
+        RelojVirtual reloj = new RelojVirtual(0);
+        Bicicleta reciente = new Bicicleta("BICI-1", DISPONIBLE, reloj);
+        reloj.avanzar(1, TimeUnit.SECONDS);
+        Bicicleta antigua = new Bicicleta("BICI-2", DISPONIBLE, reloj);
+        antigua.setMarcaMantenimiento(-1);
+        Bicicleta media = new Bicicleta("BICI-3", DISPONIBLE, reloj);
+        media.setMarcaMantenimiento(reciente.getMarcaMantenimiento() - 1);
+
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, FUENTE_ALEATORIA,
+                PoliticaAlquiler.MENOS_MANTENIDA, reciente, antigua, media);
+
+        assertAll("Orden por fecha de mantenimiento",
+                () -> assertSame(antigua, estacion.alquilarBicicleta().orElseThrow()),
+                () -> assertSame(media, estacion.alquilarBicicleta().orElseThrow()),
+                () -> assertSame(reciente, estacion.alquilarBicicleta().orElseThrow()),
+                () -> assertTrue(estacion.alquilarBicicleta().isEmpty())
+        );
+    }
+
+    @Test
+    @DisplayName("Fechas de mantenimiento que cambian en la cola")
+    void testFechasCambiantes() {
+        SplittableRandom azar = new SplittableRandom(17);
+        Queue<Bicicleta> cola = PoliticaAlquiler.MENOS_MANTENIDA.crearCola();
+        for (int i = 0; i < NUM_BICICLETAS; i++) {
+            Bicicleta bicicleta = new Bicicleta("BICI-" + i);
+            bicicleta.setMarcaMantenimiento(i);
+            cola.offer(bicicleta);
+        }
+
+        // Las fechas cambian con las bicicletas ya en la cola
+        for (Bicicleta bicicleta : cola)
+            bicicleta.setMarcaMantenimiento(azar.nextLong(NUM_BICICLETAS));
+
+        for (int i = 0; i < NUM_BICICLETAS; i++)
+            assertEquals("BICI-" + i, cola.poll().getId(), "El orden es el de las fechas al encolar");
+        assertNull(cola.poll());
+    }
+
+    @Test
+    @DisplayName("Cambios de estado externos")
+    void testCambiosExternos() {
+        Bicicleta bici1 = new Bicicleta("BICI-1");
+        Bicicleta bici2 = new Bicicleta("BICI-2", FUERA_DE_SERVICIO);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bici1, bici2);
+
+        bici1.setEstado(EN_REPARACION);
+        assertTrue(estacion.alquilarBicicleta().isEmpty(), "Una bicicleta que ya no está disponible no se alquila");
+
+        bici2.setEstado(DISPONIBLE);
+        assertSame(bici2, estacion.alquilarBicicleta().orElseThrow(), "Debe alquilarse al pasar a disponible");
+
+        bici1.setEstado(DISPONIBLE);
+        estacion.retirarBicicleta("BICI-1");
+        assertTrue(estacion.alquilarBicicleta().isEmpty(), "Una bicicleta retirada no se alquila");
+    }
+
+    @Test
+    @DisplayName("Alquileres simultáneos sin repetir bicicleta")
+    void testAlquileresSimultaneos() throws InterruptedException {
+        for (PoliticaAlquiler politica : PoliticaAlquiler.values()) {
+            Bicicleta[] bicicletas = new Bicicleta[NUM_BICICLETAS];
+            for (int i = 0; i < bicicletas.length; i++)
+                bicicletas[i] = new Bicicleta("BICI-" + i);
+            EstacionBicicletas estacion = new EstacionBicicletas("EST-001", politica, bicicletas);
+
+            Set<Bicicleta> alquiladas = ConcurrentHashMap.newKeySet();
+            AtomicInteger repetidas = new AtomicInteger();
+            ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+            for (int h = 0; h < NUM_HILOS; h++) {
+                hilos.execute(() -> {
+                    Optional<Bicicleta> alquilada;
+                    while ((alquilada = estacion.alquilarBicicleta()).isPresent())
+                        if (!alquiladas.add(alquilada.get()))
+                            repetidas.incrementAndGet();
+                });
+            }
+            hilos.shutdown();
+            assertTrue(hilos.awaitTermination(1, TimeUnit.MINUTES), "Los hilos deben terminar");
+
+            assertAll("Alquileres con " + politica,
+                    () -> assertEquals(0, repetidas.get(), "Ninguna bicicleta se alquila dos veces"),
+                    () -> assertEquals(NUM_BICICLETAS, alquiladas.size(), "Se alquilan todas las bicicletas"),
+                    () -> assertEquals(NUM_BICICLETAS, estacion.getDisponibles(ALQUILADA)),
+                    () -> assertEquals(0, estacion.getDisponibles())
+            );
+        }
+    }
+
+    private List<String> ordenAlquiler(PoliticaAlquiler politica) {
+        Bicicleta[] bicicletas = {new Bicicleta("BICI-1", ALQUILADA), new Bicicleta("BICI-2", ALQUILADA),
+                new Bicicleta("BICI-3", ALQUILADA)};
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", politica, bicicletas);
+
+        for (Bicicleta bicicleta : bicicletas)
+            bicicleta.setEstado(DISPONIBLE);
+
+        return List.of(estacion.alquilarBicicleta().orElseThrow().getId(),
+                estacion.alquilarBicicleta().orElseThrow().getId(),
+                estacion.alquilarBicicleta().orElseThrow().getId());
+    }
+}
@@ -0,0 +1,148 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de RedEstaciones. Se evalúa:
+ * - La estación más cercana con bicicletas disponibles y con muelles libres
+ * - Que el índice espacial da el mismo resultado que recorrer todas las estaciones
+ *   en una red de 5.000 estaciones, también desde puntos alejados de la red
+ * - Las consultas mientras las estaciones alquilan y devuelven bicicletas
+ */
+@DisplayName("Pruebas de la Red de Estaciones")
+public class RedEstacionesTest {
+    private static final int NUM_ESTACIONES = 5_000;
+    private static final double LADO_CIUDAD = 10_000.0;   // metros
+    private static final int MUELLES = 4;
+    private static final int CONSULTAS = 2_000;
+    private static final int NUM_HILOS = 4;
+
+    @Test
+    @DisplayName("Estación más cercana con bicicletas y con muelles libres")
+    void testMasCercana() {
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas vacia = new EstacionBicicletas("EST-001");
+        EstacionBicicletas llena = new EstacionBicicletas("EST-002", new Bicicleta("BICI-1"), new Bicicleta("BICI-2"));
+        EstacionBicicletas lejana = new EstacionBicicletas("EST-003", new Bicicleta("BICI-3"));
+
+        assertTrue(red.estacionConBicicleta(0, 0).isEmpty(), "Una red vacía no tiene bicicletas");
+        assertTrue(red.agregarEstacion(vacia, 0, 0, 2));
+        assertTrue(red.agregarEstacion(llena, 100, 0, 2));
+        assertTrue(red.agregarEstacion(lejana, 5_000, 5_000, 2));
+        assertFalse(red.agregarEstacion(new EstacionBicicletas("EST-001"), 1, 1, 2), "No debe admitir duplicados");
+
+        assertAll("Consultas desde el origen",
+                () -> assertSame(llena, red.estacionConBicicleta(0, 0).orElseThrow()),
+                () -> assertSame(vacia, red.estacionConMuelleLibre(90, 0).orElseThrow()),
+                () -> assertSame(lejana, red.estacionConBicicleta(4_000, 4_000).orElseThrow()),
+                () -> assertEquals(0, red.getMuellesLibres("EST-002")),
+                () -> assertThrows(IllegalArgumentException.class, () -> red.agregarEstacion(vacia, Double.NaN, 0, 2))
+        );
+
+        Bicicleta alquilada = llena.alquilarBicicleta().orElseThrow();
+        llena.recogerBicicleta(alquilada.getId());
+        assertEquals(1, red.getMuellesLibres("EST-002"), "Una bicicleta en la calle libera su muelle");
+
+        llena.alquilarBicicleta();
+        assertSame(lejana, red.estacionConBicicleta(0, 0).orElseThrow(), "Sin disponibles se busca más lejos");
+
+        assertSame(lejana, red.retirarEstacion("EST-003").orElseThrow());
+        assertTrue(red.estacionConBicicleta(0, 0).isEmpty());
+        assertEquals(2, red.getNumEstaciones());
+    }
+
+    @Test
+    @DisplayName("Índice espacial frente a recorrer todas las estaciones")
+    void testFrenteRecorrido() {
+        SplittableRandom azar = new SplittableRandom(15);
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas[] estaciones = new EstacionBicicletas[NUM_ESTACIONES];
+        double[][] posiciones = new double[NUM_ESTACIONES][];
+
+        for (int i = 0; i < NUM_ESTACIONES; i++) {
+            estaciones[i] = crearEstacion(i, azar.nextInt(MUELLES + 1));
+            posiciones[i] = new double[]{azar.nextDouble(LADO_CIUDAD), azar.nextDouble(LADO_CIUDAD)};
+            red.agregarEstacion(estaciones[i], posiciones[i][0], posiciones[i][1], MUELLES);
+        }
+
+        for (int n = 0; n < CONSULTAS; n++) {
+            double x = azar.nextDouble(-LADO_CIUDAD, 2 * LADO_CIUDAD);
+            double y = azar.nextDouble(-LADO_CIUDAD, 2 * LADO_CIUDAD);
+
+            double esperada = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < NUM_ESTACIONES; i++)
+                if (estaciones[i].getDisponibles() > 0)
+                    esperada = Math.min(esperada, Math.hypot(posiciones[i][0] - x, posiciones[i][1] - y));
+
+            int encontrada = Integer.parseInt(red.estacionConBicicleta(x, y).orElseThrow().getId().substring(4));
+            assertEquals(esperada, Math.hypot(posiciones[encontrada][0] - x, posiciones[encontrada][1] - y),
+                    "Consulta desde " + x + ", " + y);
+        }
+    }
+
+    @Test
+    @DisplayName("Consultas con alquileres y devoluciones simultáneas")
+    void testConsultasSimultaneas() throws InterruptedException {
+        SplittableRandom azar = new SplittableRandom(15);
+        RedEstaciones red = new RedEstaciones();
+        EstacionBicicletas[] estaciones = new EstacionBicicletas[NUM_ESTACIONES];
+
+        for (int i = 0; i < NUM_ESTACIONES; i++) {
+            estaciones[i] = crearEstacion(i, 1 + azar.nextInt(MUELLES));
+            red.agregarEstacion(estaciones[i], azar.nextDouble(LADO_CIUDAD), azar.nextDouble(LADO_CIUDAD), MUELLES);
+        }
+
+        AtomicBoolean terminar = new AtomicBoolean();
+        AtomicInteger sinResultado = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        for (int h = 0; h < NUM_HILOS / 2; h++) {
+            hilos.execute(() -> {
+                ThreadLocalRandom local = ThreadLocalRandom.current();
+                while (!terminar.get()) {
+                    EstacionBicicletas estacion = estaciones[local.nextInt(NUM_ESTACIONES)];
+                    Optional<Bicicleta> alquilada = estacion.alquilarBicicleta();
+                    alquilada.ifPresent(bicicleta -> {
+                        estacion.recogerBicicleta(bicicleta.getId());
+                        estacion.devolverBicicleta(bicicleta);
+                    });
+                    estacion.bicicletasReparadas(estacion.mantenimientoBicicletas());
+                }
+            });
+        }
+
+        ThreadLocalRandom local = ThreadLocalRandom.current();
+        for (int n = 0; n < CONSULTAS; n++) {
+            double x = local.nextDouble(LADO_CIUDAD);
+            double y = local.nextDouble(LADO_CIUDAD);
+            if (red.estacionConBicicleta(x, y).isEmpty() || red.estacionConMuelleLibre(x, y).isEmpty())
+                sinResultado.incrementAndGet();
+        }
+
+        terminar.set(true);
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(1, TimeUnit.MINUTES), "Los hilos deben terminar");
+
+        assertEquals(0, sinResultado.get(), "Siempre hay estaciones con bicicletas y con muelles libres");
+    }
+
+    private EstacionBicicletas crearEstacion(int indice, int numBicicletas) {
+        Bicicleta[] bicicletas = new Bicicleta[numBicicletas];
+        for (int i = 0; i < numBicicletas; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + indice + "-" + i, DISPONIBLE);
+
+        return new EstacionBicicletas("EST-" + indice, bicicletas);
+    }
+}
@@ -0,0 +1,115 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los plazos de bicicletas y estaciones con un reloj virtual. Se evalúa:
+ * - Que el reloj virtual solo avanza cuando se le pide o cuando se espera
+ * - Que los plazos de recogida y devolución se comprueban con el reloj de la estación
+ * - Que las fechas de la bicicleta se toman de su reloj
+ */
+@DisplayName("Pruebas del Reloj")
+public class RelojTest {
+    private static final long INICIO = 1_000_000L;
+
+    @Test
+    @DisplayName("Reloj virtual")
+    void testRelojVirtual() throws InterruptedException {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+
+        assertEquals(INICIO, reloj.milis());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(INICIO), reloj.nanos());
+        assertEquals(INICIO + 4_000, reloj.avanzar(4, TimeUnit.SECONDS));
+
+        reloj.esperar(1, TimeUnit.SECONDS);
+        assertAll("Plazos",
+                () -> assertEquals(INICIO + 5_000, reloj.milis(), "La espera adelanta el reloj"),
+                () -> assertTrue(reloj.vencido(INICIO + 4_999)),
+                () -> assertFalse(reloj.vencido(INICIO + 5_000)),
+                () -> assertThrows(IllegalArgumentException.class, () -> reloj.avanzar(-1, TimeUnit.SECONDS))
+        );
+    }
+
+    @Test
+    @DisplayName("Reloj del sistema monótono")
+    void testRelojSistema() {
+        long anterior = RELOJ_SISTEMA.nanos();
+
+        for (int i = 0; i < 1_000; i++) {
+            long actual = RELOJ_SISTEMA.nanos();
+            assertTrue(actual >= anterior, "Los nanosegundos no deben retroceder");
+            anterior = actual;
+        }
+
+        assertTrue(Math.abs(TimeUnit.NANOSECONDS.toMillis(anterior) - RELOJ_SISTEMA.milis()) < 1_000,
+                "Los nanosegundos deben estar anclados a la época");
+    }
+
+    @Test
+    @DisplayName("Fechas de la bicicleta")
+    void testFechasBicicleta() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta bici = new Bicicleta("BICI-001", DISPONIBLE, reloj);
+
+        assertEquals(INICIO, bici.getMarcaEstado());
+        assertEquals(INICIO + TIEMPO_HASTA_MANTENIMIENTO * 1_000L, bici.getMarcaMantenimiento());
+
+        reloj.avanzar(3, TimeUnit.SECONDS);
+        bici.setEstado(ALQUILADA);
+        assertEquals(INICIO + 3_000, bici.getFechaEstado().getTime());
+        assertThrows(IllegalArgumentException.class, () -> new Bicicleta("BICI-002", DISPONIBLE, null));
+    }
+
+    @Test
+    @DisplayName("Plazo de recogida")
+    void testPlazoRecogida() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta bici1 = new Bicicleta("BICI-001", DISPONIBLE, reloj);
+        Bicicleta bici2 = new Bicicleta("BICI-002", DISPONIBLE, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, bici1, bici2);
+
+        assertTrue(estacion.alquilarBicicleta().isPresent());
+        reloj.avanzar(ALQUILADA.getTiempoOperacion(), TimeUnit.SECONDS);
+        Optional<Bicicleta> recogida = estacion.recogerBicicleta("BICI-001");
+        assertTrue(recogida.isPresent(), "Debe recogerse justo al final del plazo");
+        assertEquals(EN_TRANSITO, bici1.getEstado());
+
+        assertTrue(estacion.alquilarBicicleta().isPresent());
+        reloj.avanzar(ALQUILADA.getTiempoOperacion() * 1_000L + 1, TimeUnit.MILLISECONDS);
+        assertTrue(estacion.recogerBicicleta("BICI-002").isEmpty(), "No debe recogerse fuera de plazo");
+        assertEquals(DISPONIBLE, bici2.getEstado());
+    }
+
+    @Test
+    @DisplayName("Plazo de devolución sin esperas reales")
+    void testPlazoDevolucion() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        Bicicleta aTiempo = new Bicicleta("BICI-001", EN_TRANSITO, reloj);
+        Bicicleta tarde = new Bicicleta("BICI-002", EN_TRANSITO, reloj);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj, aTiempo, tarde);
+
+        reloj.avanzar(4, TimeUnit.SECONDS);
+        assertTrue(estacion.devolverBicicleta(aTiempo));
+        assertEquals(0, estacion.getOperacionesFueraDePlazo());
+
+        reloj.avanzar(7, TimeUnit.SECONDS);
+        assertTrue(estacion.devolverBicicleta(tarde));
+        assertEquals(1, estacion.getOperacionesFueraDePlazo());
+
+        reloj.avanzar(TIEMPO_HASTA_MANTENIMIENTO, TimeUnit.SECONDS);
+        Bicicleta vencida = new Bicicleta("BICI-003", EN_TRANSITO, reloj);
+        vencida.setMarcaMantenimiento(INICIO);
+        estacion = new EstacionBicicletas("EST-002", reloj, vencida);
+        estacion.devolverBicicleta(vencida);
+        assertEquals(FUERA_DE_SERVICIO, vencida.getEstado(), "Con el mantenimiento vencido queda fuera de servicio");
+        assertEquals(reloj.milis() + TIEMPO_HASTA_MANTENIMIENTO * 1_000L, vencida.getMarcaMantenimiento());
+    }
+}
@@ -0,0 +1,121 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las fuentes aleatorias. Se evalúa:
+ * - Que una fuente reproducible genera la misma secuencia para el mismo trabajador
+ * - Que trabajadores distintos reciben secuencias distintas
+ * - Que EstadoBicicleta.getEstado() mantiene la proporción de estados con un Random
+ *   compartido y con generadores por hilo al aumentar el número de hilos
+ */
+@DisplayName("Pruebas de las Fuentes Aleatorias")
+public class RendimientoAleatorioTest {
+    private static final int NUM_ESTADOS = 200;
+    private static final int OPERACIONES_POR_HILO = 500_000;
+    private static final double TOLERANCIA = 0.01;
+
+    @Test
+    @DisplayName("Secuencias reproducibles por trabajador")
+    void testReproducible() throws InterruptedException, ExecutionException {
+        List<EstadoBicicleta> primera = secuencia(FuenteAleatoria.reproducible(42), 3);
+        List<EstadoBicicleta> segunda = secuencia(FuenteAleatoria.reproducible(42), 3);
+        List<EstadoBicicleta> otroTrabajador = secuencia(FuenteAleatoria.reproducible(42), 4);
+        List<EstadoBicicleta> otraSemilla = secuencia(FuenteAleatoria.reproducible(7), 3);
+
+        assertAll("Secuencias",
+                () -> assertEquals(primera, segunda, "La misma semilla y trabajador repiten la secuencia"),
+                () -> assertNotEquals(primera, otroTrabajador, "Cada trabajador tiene su propio flujo"),
+                () -> assertNotEquals(primera, otraSemilla, "Otra semilla da otra secuencia"),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> FuenteAleatoria.reproducible(42).paraTrabajador(-1))
+        );
+    }
+
+    @Test
+    @DisplayName("Averías reproducibles en la estación")
+    void testAveriasReproducibles() {
+        assertEquals(estadosTrasDevolver(99), estadosTrasDevolver(99),
+                "Con la misma semilla las devoluciones producen las mismas averías");
+    }
+
+    @Test
+    @DisplayName("Fuentes aleatorias con varios hilos")
+    void testEscalado() throws InterruptedException {
+        Random compartido = new Random();
+        int maximo = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        for (int hilos = 1; hilos <= maximo; hilos *= 2) {
+            int numHilos = hilos;
+
+            assertAll("Proporción de DISPONIBLE con " + hilos + " hilos",
+                    () -> assertEquals(0.5, proporcionDisponibles(numHilos, () -> compartido), TOLERANCIA),
+                    () -> assertEquals(0.5, proporcionDisponibles(numHilos, FuenteAleatoria.local()), TOLERANCIA),
+                    () -> assertEquals(0.5, proporcionDisponibles(numHilos, FuenteAleatoria.reproducible(numHilos)),
+                            TOLERANCIA)
+            );
+        }
+    }
+
+    private List<EstadoBicicleta> secuencia(FuenteReproducible fuente, int trabajador)
+            throws InterruptedException, ExecutionException {
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        try {
+            return ejecutor.submit(() -> {
+                fuente.asignar(trabajador);
+                List<EstadoBicicleta> resultado = new ArrayList<>();
+                for (int i = 0; i < NUM_ESTADOS; i++)
+                    resultado.add(EstadoBicicleta.getEstado(fuente.generador()));
+                return resultado;
+            }).get();
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    private List<EstadoBicicleta> estadosTrasDevolver(long semilla) {
+        FuenteReproducible fuente = FuenteAleatoria.reproducible(semilla);
+        fuente.asignar(0);
+        Bicicleta[] bicicletas = new Bicicleta[NUM_ESTADOS];
+        for (int i = 0; i < bicicletas.length; i++)
+            bicicletas[i] = new Bicicleta("BICI-" + i, EstadoBicicleta.EN_TRANSITO);
+
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", RELOJ_SISTEMA, fuente, bicicletas);
+        List<EstadoBicicleta> resultado = new ArrayList<>();
+        for (Bicicleta bicicleta : bicicletas) {
+            estacion.devolverBicicleta(bicicleta);
+            resultado.add(bicicleta.getEstado());
+        }
+
+        return resultado;
+    }
+
+    private double proporcionDisponibles(int hilos, FuenteAleatoria fuente) throws InterruptedException {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        LongAdder disponibles = new LongAdder();
+
+        for (int h = 0; h < hilos; h++) {
+            ejecutor.execute(() -> {
+                int cuenta = 0;
+                for (int i = 0; i < OPERACIONES_POR_HILO; i++)
+                    if (EstadoBicicleta.getEstado(fuente.generador()) == EstadoBicicleta.DISPONIBLE)
+                        cuenta++;
+                disponibles.add(cuenta);
+            });
+        }
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(1, TimeUnit.MINUTES), "Los hilos deben terminar");
+
+        return (double) disponibles.sum() / ((long) hilos * OPERACIONES_POR_HILO);
+    }
+}
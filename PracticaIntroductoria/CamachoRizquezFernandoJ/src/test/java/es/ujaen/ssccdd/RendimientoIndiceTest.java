@@ -0,0 +1,80 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del índice por identificador de EstacionBicicletas. Se evalúa:
+ * - Que agregar y retirar bicicletas mantiene el índice, la lista y los contadores
+ * - Que los duplicados se rechazan al construir y al agregar
+ * - Que el índice localiza las mismas bicicletas que recorrer la lista con 10,
+ *   1.000 y 100.000 bicicletas
+ */
+@DisplayName("Pruebas del Índice de Bicicletas")
+public class RendimientoIndiceTest {
+    private static final int[] TAMANOS = {10, 1_000, 100_000};
+    private static final int BUSQUEDAS = 2_000;
+
+    @Test
+    @DisplayName("Agregar y retirar bicicletas")
+    void testAgregarRetirar() {
+        Bicicleta bici1 = new Bicicleta("BICI-001");
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", bici1);
+
+        assertTrue(estacion.agregarBicicleta(new Bicicleta("BICI-002", ALQUILADA)));
+        assertFalse(estacion.agregarBicicleta(new Bicicleta("BICI-001")), "No debe admitir duplicados");
+        assertTrue(estacion.recogerBicicleta("BICI-002").isPresent(), "Debe recoger una bicicleta agregada");
+
+        Optional<Bicicleta> retirada = estacion.retirarBicicleta("BICI-001");
+        bici1.setEstado(FUERA_DE_SERVICIO);
+
+        assertAll("Estación tras retirar",
+                () -> assertSame(bici1, retirada.orElseThrow()),
+                () -> assertTrue(estacion.getBicicleta("BICI-001").isEmpty()),
+                () -> assertEquals(1, estacion.getBicicletasAsignadas().size()),
+                () -> assertEquals(0, estacion.getDisponibles()),
+                () -> assertEquals(0, estacion.getDisponibles(FUERA_DE_SERVICIO),
+                        "Una bicicleta retirada no cuenta en la estación"),
+                () -> assertEquals(1, estacion.getDisponibles(EN_TRANSITO)),
+                () -> assertThrows(IllegalArgumentException.class, () -> estacion.agregarBicicleta(null))
+        );
+    }
+
+    @Test
+    @DisplayName("Localizar bicicletas: recorrido frente a índice")
+    void testRecorridoFrenteIndice() {
+        for (int tamano : TAMANOS) {
+            Bicicleta[] bicicletas = new Bicicleta[tamano];
+            for (int i = 0; i < tamano; i++)
+                bicicletas[i] = new Bicicleta("BICI-" + i);
+            EstacionBicicletas estacion = new EstacionBicicletas("EST-" + tamano, bicicletas);
+
+            String[] buscadas = new String[BUSQUEDAS];
+            SplittableRandom azar = new SplittableRandom(tamano);
+            for (int i = 0; i < BUSQUEDAS; i++)
+                buscadas[i] = "BICI-" + azar.nextInt(tamano);
+
+            int encontradasRecorrido = 0;
+            for (String id : buscadas)
+                for (Bicicleta bicicleta : estacion.getBicicletasAsignadas())
+                    if (bicicleta.getId().equals(id)) {
+                        encontradasRecorrido++;
+                        break;
+                    }
+
+            int encontradasIndice = 0;
+            for (String id : buscadas)
+                if (estacion.getBicicleta(id).isPresent())
+                    encontradasIndice++;
+
+            assertEquals(BUSQUEDAS, encontradasRecorrido);
+            assertEquals(BUSQUEDAS, encontradasIndice);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoBicicleta.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de RuedaTemporizacion y del vencimiento de las reservas. Se evalúa:
+ * - Que los temporizadores de todos los niveles vencen en su tick, nunca antes
+ * - Que los temporizadores cancelados no se ejecutan
+ * - Que con un millón de temporizadores vencen justo los que no se cancelan
+ * - Que una estación devuelve a DISPONIBLE las reservas no recogidas sin esperar a recogerBicicleta
+ * - El hilo propio de la rueda con el reloj del sistema
+ * - Que una tarea con error no detiene el hilo de la rueda y queda contada
+ */
+@DisplayName("Pruebas de la Rueda de Temporización")
+public class RuedaTemporizacionTest {
+    private static final long INICIO = 1_700_000_000_000L;
+    private static final long TICK = 100;
+    private static final int NUM_TEMPORIZADORES = 1_000_000;
+    private static final long HORIZONTE = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    @DisplayName("Vencimientos en todos los niveles")
+    void testNiveles() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        RuedaTemporizacion rueda = new RuedaTemporizacion(reloj, TICK);
+        long[] retrasos = {1, TICK, 63 * TICK + 1, 64 * TICK, 4_096 * TICK - 7, 300_000 * TICK,
+                (1L << (BITS_RANURAS_RUEDA * NIVELES_RUEDA)) * TICK + 5 * TICK};
+        long[] ejecuciones = new long[retrasos.length];
+
+        for (int i = 0; i < retrasos.length; i++) {
+            int indice = i;
+            rueda.programar(INICIO + retrasos[i], () -> ejecuciones[indice] = reloj.milis());
+        }
+        assertEquals(retrasos.length, rueda.getPendientes());
+
+        long ultimo = INICIO + retrasos[retrasos.length - 1] + TICK;
+        while (reloj.milis() < ultimo) {
+            reloj.avanzar(TICK, TimeUnit.MILLISECONDS);
+            rueda.avanzar();
+        }
+
+        for (int i = 0; i < retrasos.length; i++) {
+            long instante = INICIO + retrasos[i];
+            assertTrue(ejecuciones[i] >= instante, "No vence antes de tiempo: " + retrasos[i]);
+            assertTrue(ejecuciones[i] < instante + TICK, "Vence en su tick: " + retrasos[i]);
+        }
+        assertEquals(0, rueda.getPendientes());
+    }
+
+    @Test
+    @DisplayName("Temporizadores cancelados y vencidos")
+    void testCancelar() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        RuedaTemporizacion rueda = new RuedaTemporizacion(reloj, TICK);
+        AtomicInteger ejecutadas = new AtomicInteger();
+
+        RuedaTemporizacion.Temporizador cancelado = rueda.programar(INICIO + 10 * TICK, ejecutadas::incrementAndGet);
+        RuedaTemporizacion.Temporizador vencido = rueda.programar(INICIO + 10 * TICK, ejecutadas::incrementAndGet);
+        RuedaTemporizacion.Temporizador pasado = rueda.programar(INICIO - TICK, ejecutadas::incrementAndGet);
+
+        assertTrue(cancelado.cancelar());
+        assertFalse(cancelado.cancelar(), "Solo se cancela una vez");
+        assertEquals(1, rueda.avanzar(), "Un instante pasado vence en el siguiente avance");
+
+        reloj.avanzar(TICK * 10, TimeUnit.MILLISECONDS);
+        assertEquals(1, rueda.avanzar());
+
+        assertAll("Estado de los temporizadores",
+                () -> assertEquals(2, ejecutadas.get()),
+                () -> assertTrue(cancelado.isCancelado()),
+                () -> assertTrue(vencido.isVencido()),
+                () -> assertTrue(pasado.isVencido()),
+                () -> assertFalse(vencido.cancelar(), "Un temporizador vencido no se cancela"),
+                () -> assertEquals(0, rueda.getPendientes())
+        );
+    }
+
+    @Test
+    @DisplayName("Un millón de temporizadores")
+    void testMillonTemporizadores() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        RuedaTemporizacion rueda = new RuedaTemporizacion(reloj, TICK);
+        SplittableRandom azar = new SplittableRandom(16);
+        RuedaTemporizacion.Temporizador[] temporizadores = new RuedaTemporizacion.Temporizador[NUM_TEMPORIZADORES];
+        AtomicLong ejecutadas = new AtomicLong();
+        AtomicLong tempranas = new AtomicLong();
+
+        for (int i = 0; i < NUM_TEMPORIZADORES; i++) {
+            long instante = INICIO + azar.nextLong(HORIZONTE);
+            temporizadores[i] = rueda.programar(instante, () -> {
+                ejecutadas.incrementAndGet();
+                if (reloj.milis() < instante)
+                    tempranas.incrementAndGet();
+            });
+        }
+
+        for (int i = 0; i < NUM_TEMPORIZADORES; i += 2)
+            temporizadores[i].cancelar();
+        assertEquals(NUM_TEMPORIZADORES / 2, rueda.getPendientes());
+
+        while (reloj.milis() <= INICIO + HORIZONTE) {
+            reloj.avanzar(TICK, TimeUnit.MILLISECONDS);
+            rueda.avanzar();
+        }
+
+        assertEquals(NUM_TEMPORIZADORES / 2, ejecutadas.get());
+        assertEquals(0, tempranas.get(), "Ningún temporizador vence antes de su instante");
+        assertEquals(0, rueda.getPendientes());
+    }
+
+    @Test
+    @DisplayName("Reservas no recogidas vuelven a estar disponibles")
+    void testVencimientoReservas() {
+        RelojVirtual reloj = new RelojVirtual(INICIO);
+        EstacionBicicletas estacion = new EstacionBicicletas("EST-001", reloj,
+                new Bicicleta("BICI-001", DISPONIBLE, reloj), new Bicicleta("BICI-002", DISPONIBLE, reloj),
+                new Bicicleta("BICI-003", ALQUILADA, reloj));
+        RuedaTemporizacion rueda = estacion.getRueda();
+
+        Bicicleta olvidada = estacion.alquilarBicicleta().orElseThrow();
+        Bicicleta recogida = estacion.alquilarBicicleta().orElseThrow();
+        estacion.recogerBicicleta(recogida.getId());
+        assertEquals(2, rueda.getPendientes(), "La recogida cancela su vencimiento");
+
+        reloj.avanzar(ALQUILADA.getTiempoOperacion(), TimeUnit.SECONDS);
+        rueda.avanzar();
+        assertEquals(ALQUILADA, olvidada.getEstado(), "Al cumplirse el plazo aún se puede recoger");
+
+        reloj.avanzar(TICK, TimeUnit.MILLISECONDS);
+        rueda.avanzar();
+
+        assertAll("Estación tras vencer las reservas",
+                () -> assertEquals(DISPONIBLE, olvidada.getEstado()),
+                () -> assertEquals(EN_TRANSITO, recogida.getEstado()),
+                () -> assertEquals(2, estacion.getDisponibles(), "La reserva inicial también vence"),
+                () -> assertEquals(0, estacion.getDisponibles(ALQUILADA)),
+                () -> assertEquals(0, rueda.getPendientes())
+        );
+    }
+
+    @Test
+    @DisplayName("Hilo de la rueda con el reloj del sistema")
+    void testHiloRueda() throws InterruptedException {
+        try (RuedaTemporizacion rueda = new RuedaTemporizacion(RELOJ_SISTEMA, 10).iniciar()) {
+            CountDownLatch vencidos = new CountDownLatch(2);
+            long inicio = RELOJ_SISTEMA.milis();
+
+            rueda.programar(inicio + 50, vencidos::countDown);
+            rueda.programar(inicio + 120, vencidos::countDown);
+            rueda.programar(inicio + 80, vencidos::countDown).cancelar();
+
+            assertTrue(vencidos.await(5, TimeUnit.SECONDS), "El hilo de la rueda debe vencer los temporizadores");
+            assertTrue(RELOJ_SISTEMA.milis() >= inicio + 120);
+            assertEquals(0, rueda.getPendientes());
+        }
+    }
+
+    @Test
+    @DisplayName("Tareas con error en el hilo de la rueda")
+    void testErrores() throws InterruptedException {
+        try (RuedaTemporizacion rueda = new RuedaTemporizacion(RELOJ_SISTEMA, 10).iniciar()) {
+            CountDownLatch vencido = new CountDownLatch(1);
+            IllegalStateException error = new IllegalStateException("Tarea con error");
+            long inicio = RELOJ_SISTEMA.milis();
+
+            rueda.programar(inicio + 20, () -> {
+                throw error;
+            });
+            rueda.programar(inicio + 60, vencido::countDown);
+
+            assertTrue(vencido.await(5, TimeUnit.SECONDS), "La rueda sigue girando tras el error");
+            assertEquals(1, rueda.getErrores());
+            assertSame(error, rueda.getUltimoError().orElseThrow());
+        }
+
+        assertSame(RuedaTemporizacion.sistema(), RuedaTemporizacion.sistema(), "La rueda del sistema es única");
+    }
+}
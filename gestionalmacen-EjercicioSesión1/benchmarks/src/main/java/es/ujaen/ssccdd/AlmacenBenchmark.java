@@ -0,0 +1,111 @@
+package es.ujaen.ssccdd;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+/**
+ * Benchmarks de las operaciones frecuentes de Robot y EstacionEmpaquetado. La estación
+ * es compartida por todos los hilos y cada hilo maneja su propia flota de robots, que
+ * no admiten uso concurrente. El número de hilos se elige al lanzar JMH (-t) o con
+ * EjecutarBenchmarks.
+ *
+ * Cuando la cola de la estación se llena se procesa en el acto para que la medida no
+ * quede dominada por productos rechazados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlmacenBenchmark {
+    private static final ZonaAlmacen ZONA = ZonaAlmacen.ZONA_A;
+
+    private EstacionEmpaquetado estacion;
+
+    /**
+     * Flota de robots de un hilo, cada robot con su producto en la zona de la estación
+     */
+    @State(Scope.Thread)
+    public static class Flota {
+        @Param({"1", "100", "10000"})
+        private int numRobots;
+
+        private Robot[] robots;
+        private Producto[] productos;
+        private int siguiente;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            TipoProducto[] tipos = TipoProducto.values();
+            String hilo = Thread.currentThread().getName();
+
+            robots = new Robot[numRobots];
+            productos = new Producto[numRobots];
+            for (int i = 0; i < numRobots; i++) {
+                robots[i] = new Robot(hilo + "-ROBOT-" + i, ZONA);
+                productos[i] = new Producto(hilo + "-PROD-" + i, tipos[i % tipos.length], ZONA);
+            }
+            siguiente = 0;
+        }
+
+        private int siguienteRobot() {
+            int resultado = siguiente;
+
+            siguiente = (siguiente + 1) % numRobots;
+
+            return resultado;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        estacion = new EstacionEmpaquetado("EST-001", ZONA);
+    }
+
+    /**
+     * Un robot no puede soltar un producto sin entregarlo, así que recoger y entregar se
+     * miden juntos
+     */
+    @Benchmark
+    public boolean recogerEntregarProducto(Flota flota) {
+        int indice = flota.siguienteRobot();
+        Robot robot = flota.robots[indice];
+        boolean resultado = robot.recogerProducto(flota.productos[indice]);
+
+        if( resultado )
+            resultado = entregar(robot);
+
+        return resultado;
+    }
+
+    @Benchmark
+    public boolean recibirProducto(Flota flota) {
+        return recibir(flota.productos[flota.siguienteRobot()]);
+    }
+
+    private boolean entregar(Robot robot) {
+        boolean resultado = robot.entregarProducto(estacion);
+
+        if( !resultado ) {
+            estacion.procesarProductos();
+            resultado = robot.entregarProducto(estacion);
+        }
+
+        return resultado;
+    }
+
+    private boolean recibir(Producto producto) {
+        boolean resultado = estacion.recibirProducto(producto);
+
+        if( !resultado ) {
+            estacion.procesarProductos();
+            resultado = estacion.recibirProducto(producto);
+        }
+
+        return resultado;
+    }
+}
@@ -1,30 +1,37 @@
 package es.ujaen.ssccdd;
 
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 public interface Constantes {
-    Random aleatorio = new Random();
+    Random aleatorio = new Random(); // Compartido entre hilos, la aplicación usa FUENTE_ALEATORIA
+
+    // Generadores aleatorios por hilo para las operaciones de la aplicación
+    FuenteAleatoria FUENTE_ALEATORIA = FuenteAleatoria.local();
+
+    // Reloj por defecto de estaciones, zonas, eventos y simulaciones
+    Reloj RELOJ_SISTEMA = new RelojSistema();
 
     /**
      * Suma una cantidad de segundos a una fecha dada y nos devuelve la nueva
-     * fecha.
+     * fecha. Las clases de la aplicación trabajan con Reloj.sumarSegundos sobre
+     * milisegundos y no necesitan crear la fecha.
      */
-    BiFunction<Date, Integer, Date> sumarSegundos = (fecha, segundos) -> {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(fecha);
-        calendar.add(Calendar.SECOND, segundos);
-        return calendar.getTime();
-    };
+    BiFunction<Date, Integer, Date> sumarSegundos = (fecha, segundos) ->
+            new Date(Reloj.sumarSegundos(fecha.getTime(), segundos));
 
     /**
      * Predicado para comprobar si se ha alcanzado el vencimiento de una fecha
      * comparando con la fecha actual.
      */
-    Predicate<Date> vencimiento = (fecha) -> fecha.before(new Date());
+    Predicate<Date> vencimiento = (fecha) -> RELOJ_SISTEMA.vencido(fecha.getTime());
 
     /**
      * Representa los diferentes estados posibles de un robot.
@@ -62,6 +69,9 @@ public interface Constantes {
 
         private final int tiempoMaximo;  // Tiempo máximo en segundos que puede estar en este estado
 
+        // Tabla de alias con la que se sortea el estado, todos los estados pesan lo mismo
+        private static final MuestreoPonderado<EstadoRobot> MUESTREO = MuestreoPonderado.uniforme(EstadoRobot.class);
+
         EstadoRobot(int tiempoMaximo) {
             this.tiempoMaximo = tiempoMaximo;
         }
@@ -72,8 +82,17 @@ public interface Constantes {
          * @return Un valor aleatorio de EstadoRobot.
          */
         public static EstadoRobot getEstado() {
-            EstadoRobot[] valores = values();
-            return valores[aleatorio.nextInt(valores.length)];
+            return getEstado(FUENTE_ALEATORIA.generador());
+        }
+
+        /**
+         * Genera un estado aleatorio con el generador indicado, por ejemplo el flujo
+         * de un trabajador de una FuenteReproducible
+         * @param generador el generador del hilo que pide el estado
+         * @return Un valor aleatorio de EstadoRobot.
+         */
+        public static EstadoRobot getEstado(RandomGenerator generador) {
+            return MUESTREO.siguiente(generador);
         }
 
         /**
@@ -188,6 +207,16 @@ public interface Constantes {
             return bateriaMinima;
         }
 
+        /**
+         * Tiempo que necesita una estación para empaquetar un producto de este tipo.
+         * Los productos que requieren manipulación especial se empaquetan más despacio.
+         * @return El tiempo expresado en milisegundos
+         */
+        public int getTiempoEmpaquetado() {
+            return requiereManipulacionEspecial() ? TIEMPO_EMPAQUETADO * FACTOR_MANIPULACION_ESPECIAL
+                                                  : TIEMPO_EMPAQUETADO;
+        }
+
         /**
          * Indica si el objeto requiere una manipulación especial para su manejo o transporte.
          * Esta verificación debe considerar características específicas del tipo de objeto,
@@ -223,6 +252,7 @@ public interface Constantes {
      * - COLISION_EVITADA: Evento que notifica que se ha evitado una colisión.
      * - ERROR_SISTEMA: Representa un error ocurrido en el sistema.
      * - ESTACION_LLENA: Indica que una estación ha alcanzado su capacidad máxima.
+     * - ROBOT_ATASCADO: Un robot ha superado el tiempo máximo de su estado.
      */
     enum TipoEvento {
         RECOGIDA_PRODUCTO,
@@ -230,7 +260,8 @@ public interface Constantes {
         ROBOT_EN_CARGA,
         COLISION_EVITADA,
         ERROR_SISTEMA,
-        ESTACION_LLENA
+        ESTACION_LLENA,
+        ROBOT_ATASCADO
     }
 
     /**
@@ -243,11 +274,160 @@ public interface Constantes {
      * - ZONA_B: Segunda zona de almacenamiento.
      * - ZONA_C: Tercera zona de almacenamiento.
      * - ZONA_D: Cuarta zona de almacenamiento.
+     *
+     * Las zonas están dispuestas en línea a lo largo del pasillo principal, de forma
+     * que la distancia entre dos zonas es el número de zonas que las separan.
      */
     enum ZonaAlmacen {
-        ZONA_A, ZONA_B, ZONA_C, ZONA_D
+        ZONA_A, ZONA_B, ZONA_C, ZONA_D;
+
+        /**
+         * Distancia a otra zona del almacén
+         * @param otra la zona de destino
+         * @return el número de zonas que hay que recorrer, 0 si es la misma zona
+         */
+        public int distancia(ZonaAlmacen otra) {
+            return Math.abs(ordinal() - otra.ordinal());
+        }
+    }
+
+    /**
+     * Enumerado que define cómo sube la batería de un robot en un muelle de carga.
+     *
+     * - LINEAL: La batería sube a VELOCIDAD_CARGA hasta completarse.
+     * - CORRIENTE_TENSION_CONSTANTE: Sube a VELOCIDAD_CARGA hasta NIVEL_CARGA_RAPIDA y
+     *   después se acerca a COMPLETA cada vez más despacio, con una constante de tiempo
+     *   de CONSTANTE_TIEMPO_CARGA, como las baterías de litio reales.
+     *
+     * Ninguna de las dos curvas depende de cuándo empezó la carga, solo del nivel
+     * actual, así que se puede avanzar a saltos de cualquier duración.
+     */
+    enum CurvaCarga {
+        LINEAL {
+            @Override
+            public double cargar(double nivel, double milisegundos) {
+                return Math.min(COMPLETA, nivel + VELOCIDAD_CARGA * milisegundos);
+            }
+        },
+        CORRIENTE_TENSION_CONSTANTE {
+            @Override
+            public double cargar(double nivel, double milisegundos) {
+                double resultado = nivel;
+                double restante = milisegundos;
+
+                if( resultado < NIVEL_CARGA_RAPIDA ) {
+                    double hastaRapida = (NIVEL_CARGA_RAPIDA - resultado) / VELOCIDAD_CARGA;
+
+                    resultado = Math.min(NIVEL_CARGA_RAPIDA, resultado + VELOCIDAD_CARGA * restante);
+                    restante = Math.max(0, restante - hastaRapida);
+                }
+                if( restante > 0 )
+                    resultado = COMPLETA - (COMPLETA - resultado) * Math.exp(-restante / CONSTANTE_TIEMPO_CARGA);
+
+                return resultado;
+            }
+        };
+
+        /**
+         * Nivel de batería tras pasar un tiempo en el muelle
+         * @param nivel el nivel de partida, entre 0 y COMPLETA
+         * @param milisegundos el tiempo de carga
+         * @return el nuevo nivel, nunca por encima de COMPLETA
+         */
+        public abstract double cargar(double nivel, double milisegundos);
+    }
+
+    /**
+     * Enumerado que define el tipo de hilo con el que se ejecutan las tareas
+     * de larga duración del sistema, como el empaquetado en las estaciones.
+     *
+     * - PLATAFORMA: Hilo del sistema operativo.
+     * - VIRTUAL: Hilo virtual gestionado por la JVM.
+     */
+    enum TipoHilo {
+        PLATAFORMA {
+            @Override
+            public ThreadFactory getFabrica() {
+                return Executors.defaultThreadFactory();
+            }
+        },
+        VIRTUAL {
+            @Override
+            public ThreadFactory getFabrica() {
+                return Thread.ofVirtual().factory();
+            }
+        };
+
+        /**
+         * Fábrica para crear hilos de este tipo
+         * @return la fábrica de hilos
+         */
+        public abstract ThreadFactory getFabrica();
+    }
+
+    /**
+     * Enumerado que define los ejecutores disponibles para la simulación del almacén.
+     *
+     * - POOL_FIJO: Pool con un número fijo de hilos de plataforma.
+     * - FORK_JOIN: Pool ForkJoin con robo de tareas entre hilos.
+     * - VIRTUAL: Un hilo virtual por tarea, sin límite de hilos.
+     */
+    enum TipoEjecutor {
+        POOL_FIJO(TipoHilo.PLATAFORMA) {
+            @Override
+            public ExecutorService crearEjecutor(int hilos) {
+                return Executors.newFixedThreadPool(hilos);
+            }
+        },
+        FORK_JOIN(TipoHilo.PLATAFORMA) {
+            @Override
+            public ExecutorService crearEjecutor(int hilos) {
+                return new ForkJoinPool(hilos);
+            }
+        },
+        VIRTUAL(TipoHilo.VIRTUAL) {
+            @Override
+            public ExecutorService crearEjecutor(int hilos) {
+                // El número de hilos no aplica, se crea un hilo virtual por tarea
+                return Executors.newVirtualThreadPerTaskExecutor();
+            }
+        };
+
+        private final TipoHilo tipoHilo;
+
+        TipoEjecutor(TipoHilo tipoHilo) {
+            this.tipoHilo = tipoHilo;
+        }
+
+        /**
+         * Tipo de hilo para las tareas auxiliares que acompañan a este ejecutor
+         * @return el tipo de hilo
+         */
+        public TipoHilo getTipoHilo() {
+            return tipoHilo;
+        }
+
+        /**
+         * Crea un ejecutor de este tipo
+         * @param hilos número de hilos del ejecutor si el tipo lo admite
+         * @return el ejecutor creado
+         */
+        public abstract ExecutorService crearEjecutor(int hilos);
+    }
+
+    /**
+     * Enumerado que define el estado de reserva de un producto.
+     *
+     * - LIBRE: El producto puede ser reservado por cualquier robot.
+     * - RESERVADO: Un robot ha reclamado el producto pero aún no lo ha recogido.
+     * - RECOGIDO: El robot propietario transporta el producto.
+     */
+    enum EstadoReserva {
+        LIBRE, RESERVADO, RECOGIDO, ENTREGADO // ENTREGADO es definitivo, el producto ya está en una estación
     }
 
+    EstadoRobot[] estadosRobot = EstadoRobot.values();
+    ZonaAlmacen[] zonasAlmacen = ZonaAlmacen.values();
 
     int MAX_PRODUCTOS_ESTACION = 10;
     int NIVEL_BATERIA_MINIMO = 10;
@@ -257,4 +437,26 @@ public interface Constantes {
     boolean ASIGNADO = true;
     boolean ACTIVA = true;
     boolean RESERVADO = true;
+    String SIN_PROPIETARIO = ""; // Propietario de las reservas que no indican robot
+    int TIEMPO_EMPAQUETADO = 10; // milisegundos, empaquetado de un producto estándar
+    int FACTOR_MANIPULACION_ESPECIAL = 3; // los productos especiales tardan el triple
+    int ESPERA_EMPAQUETADO = 50; // milisegundos, espera máxima del empaquetador por un producto
+    int LOTE_UNITARIO = 1;
+    int TIEMPO_CARGA = 20; // milisegundos, simula la recarga completa de la batería
+    double VELOCIDAD_CARGA = (double) COMPLETA / TIEMPO_CARGA; // porcentaje por milisegundo en carga rápida
+    int NIVEL_CARGA_RAPIDA = 80; // porcentaje hasta el que la carga es lineal
+    double CONSTANTE_TIEMPO_CARGA = TIEMPO_CARGA / 2.5; // milisegundos, caída de la carga lenta
+    int MUELLES_POR_ZONA = 2;
+    int ESPERA_MUELLE = 1; // milisegundos, paso de un robot que carga en un muelle de la simulación
+    int ESPERA_VIGILANTE = 10; // milisegundos, periodo con el que el vigilante revisa los plazos vencidos
+    int ESPERA_ENTREGA = 5; // milisegundos, espera máxima de un robot por espacio en la estación
+    int ESPERA_FIN_SIMULACION = 5_000; // milisegundos, espera máxima a que los robots terminen su paso
+    int CAPACIDAD_REGISTRO = 1 << 16; // eventos en espera de escribirse en disco
+    int LOTE_REGISTRO = 1024; // eventos que se escriben antes de vaciar el buffer del fichero
+    long ESPERA_REGISTRO = 100_000; // nanosegundos, descanso del escritor si no hay eventos
+    int MAGICO_DIARIO = 0x45564131; // "EVA1", identifica un diario binario de eventos
+    short VERSION_DIARIO = 1;
+    int CABECERA_DIARIO = 16; // bytes: mágico, versión, tamaño de registro y posición de la tabla de robots
+    int TAMANO_REGISTRO_DIARIO = 16; // bytes: marca de tiempo, índice de robot, tipo, zona y relleno
+    int LONGITUD_MAXIMA_ID_DIARIO = 0xFFFF; // bytes UTF-8 de un identificador en la tabla de robots
 }
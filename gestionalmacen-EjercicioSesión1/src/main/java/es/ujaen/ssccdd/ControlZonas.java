@@ -0,0 +1,168 @@
+package es.ujaen.ssccdd;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class ControlZonas {
+    private final Semaphore[] permisos;                 // Plazas libres de cada zona
+    private final Map<String, ZonaAlmacen> ubicaciones; // Zona en la que tiene su plaza cada robot
+    private final int capacidadZona;                    // Robots que caben a la vez en una zona
+    private final LongAdder colisionesEvitadas;         // Movimientos aplazados por zona completa
+    private final Consumer<EventoAlmacen> registro;     // Destino de los eventos COLISION_EVITADA
+    private final Reloj reloj;                          // Marca de tiempo de los eventos
+
+    /*
+        Hay un semáforo independiente por zona, indexado por el ordinal de ZonaAlmacen,
+        de forma que los movimientos hacia zonas distintas no compiten entre sí
+
+        Un semáforo no sabe quién tiene sus permisos y admite liberaciones de más, así
+        que el control guarda la zona de cada robot. Un cambio de zona solo se admite
+        desde la zona en la que el robot tiene su plaza y libera esa, nunca una zona
+        que indique quien llama.
+     */
+
+    public ControlZonas(int capacidadZona) {
+        this(capacidadZona, evento -> {});
+    }
+
+    public ControlZonas(int capacidadZona, Consumer<EventoAlmacen> registro) {
+        this(capacidadZona, registro, RELOJ_SISTEMA);
+    }
+
+    public ControlZonas(int capacidadZona, Consumer<EventoAlmacen> registro, Reloj reloj) {
+        if( capacidadZona < 1 || registro == null || reloj == null )
+            throw new IllegalArgumentException("La capacidad debe ser positiva y el registro y el reloj no pueden ser null");
+
+        this.capacidadZona = capacidadZona;
+        this.registro = registro;
+        this.reloj = reloj;
+        this.colisionesEvitadas = new LongAdder();
+        this.ubicaciones = new ConcurrentHashMap<>();
+        this.permisos = new Semaphore[ZonaAlmacen.values().length];
+        for (int z = 0; z < permisos.length; z++)
+            permisos[z] = new Semaphore(capacidadZona);
+    }
+
+    public int getCapacidadZona() {
+        return capacidadZona;
+    }
+
+    public long getColisionesEvitadas() {
+        return colisionesEvitadas.sum();
+    }
+
+    /**
+     * Número de robots que ocupan la zona en este momento
+     * @return la ocupación de la zona
+     */
+    public int getOcupacion(ZonaAlmacen zona) {
+        return capacidadZona - permisos[zona.ordinal()].availablePermits();
+    }
+
+    /**
+     * Ocupa una plaza en la zona sin esperar, la usa el robot para colocarse en su
+     * posición inicial.
+     *
+     * @param idRobot el robot que se coloca, no puede tener ya una plaza
+     * @param zona la zona que se ocupa
+     * @return true si había plaza en la zona
+     */
+    boolean ocupar(String idRobot, ZonaAlmacen zona) {
+        if( ubicaciones.putIfAbsent(idRobot, zona) != null )
+            throw new IllegalArgumentException("El robot " + idRobot + " ya ocupa una plaza");
+
+        boolean resultado = permisos[zona.ordinal()].tryAcquire();
+
+        if( !resultado )
+            ubicaciones.remove(idRobot, zona);
+
+        return resultado;
+    }
+
+    /**
+     * Zona en la que tiene su plaza un robot
+     * @param idRobot el robot
+     * @return la zona o null si el robot no ocupa ninguna plaza
+     */
+    public ZonaAlmacen getUbicacion(String idRobot) {
+        return idRobot == null ? null : ubicaciones.get(idRobot);
+    }
+
+    /**
+     * Traslada un robot de zona si hay plaza en el destino, sin esperar. Si el destino
+     * está completo el movimiento se aplaza y se registra un evento COLISION_EVITADA.
+     *
+     * @param idRobot el robot que se mueve
+     * @param origen la zona que ocupa el robot
+     * @param destino la zona a la que se quiere mover
+     * @return true si el robot ocupa ya una plaza en el destino
+     * @throws IllegalArgumentException si el robot no tiene su plaza en el origen
+     */
+    public boolean cambiarZona(String idRobot, ZonaAlmacen origen, ZonaAlmacen destino) {
+        comprobarUbicacion(idRobot, origen, destino);
+
+        return completarCambio(idRobot, origen, destino, permisos[destino.ordinal()].tryAcquire());
+    }
+
+    /**
+     * Traslada un robot de zona esperando como máximo el tiempo indicado a que haya
+     * plaza en el destino. Si no la hay se registra un evento COLISION_EVITADA.
+     *
+     * @param idRobot el robot que se mueve
+     * @param origen la zona que ocupa el robot
+     * @param destino la zona a la que se quiere mover
+     * @param tiempo tiempo máximo de espera
+     * @param unidad unidad del tiempo de espera
+     * @return true si el robot ocupa ya una plaza en el destino
+     * @throws IllegalArgumentException si el robot no tiene su plaza en el origen
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public boolean cambiarZona(String idRobot, ZonaAlmacen origen, ZonaAlmacen destino,
+                               long tiempo, TimeUnit unidad) throws InterruptedException {
+        comprobarUbicacion(idRobot, origen, destino);
+
+        return completarCambio(idRobot, origen, destino, permisos[destino.ordinal()].tryAcquire(tiempo, unidad));
+    }
+
+    private void comprobarUbicacion(String idRobot, ZonaAlmacen origen, ZonaAlmacen destino) {
+        if( idRobot == null || origen == null || destino == null )
+            throw new IllegalArgumentException("El robot y las zonas no pueden ser null");
+        if( origen != ubicaciones.get(idRobot) )
+            throw new IllegalArgumentException("El robot " + idRobot + " no tiene su plaza en " + origen);
+    }
+
+    /**
+     * Con la plaza del destino ya tomada, el robot deja la del origen. Si entre tanto
+     * otro hilo ha movido al mismo robot la plaza del destino se devuelve.
+     */
+    private boolean completarCambio(String idRobot, ZonaAlmacen origen, ZonaAlmacen destino, boolean admitido) {
+        if( admitido ) {
+            if( !ubicaciones.replace(idRobot, origen, destino) ) {
+                permisos[destino.ordinal()].release();
+                throw new IllegalArgumentException("El robot " + idRobot + " ya no tiene su plaza en " + origen);
+            }
+            permisos[origen.ordinal()].release();
+        } else {
+            colisionesEvitadas.increment();
+            registro.accept(EventoAlmacen.ahora(reloj, TipoEvento.COLISION_EVITADA, idRobot, destino));
+        }
+
+        return admitido;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder resultado = new StringBuilder("ControlZonas{capacidadZona=" + capacidadZona);
+
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            resultado.append(", ").append(zona).append('=').append(getOcupacion(zona));
+
+        return resultado.append(", colisionesEvitadas=").append(getColisionesEvitadas()).append('}').toString();
+    }
+}
@@ -0,0 +1,206 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class Despachador {
+    private static final TipoProducto[] TIPOS_POR_EXIGENCIA = ordenarPorExigencia();
+
+    private final Inventario inventario;                 // Pedidos abiertos por zona y tipo
+    private final Map<String, Asignacion> pendientes;    // Asignaciones que el robot aún no ha recogido
+
+    /*
+      Cada tic se reparten de una vez los productos pendientes entre los robots LIBRE
+      que no tienen ya una asignación. El coste de una asignación solo depende de la
+      zona del robot y de la del producto, y que el robot pueda manipularlo solo de su
+      batería y del tipo, así que no hace falta mirar los productos uno a uno: basta
+      con las casillas zona x tipo del inventario.
+
+      El reparto es voraz por anillos de distancia. Primero cada robot intenta tomar un
+      producto de su propia zona, después de las zonas a distancia 1, y así hasta la
+      más lejana, de forma que ningún robot viaja lejos mientras otro podría haber
+      usado ese producto sin moverse. Dentro de cada anillo se atiende antes a los
+      robots con menos batería, que son los que menos tipos pueden manipular, y cada
+      uno toma el tipo más exigente que admite su batería; así los productos que solo
+      pueden llevar los robots cargados no se los quedan otros que podían llevar algo
+      más ligero. El coste de un tic es O(R log R + R x Z x T), independiente del
+      número de pedidos abiertos.
+
+      Como en SimulacionAlmacen se reserva batería para llegar después a la estación,
+      y para desplazarse a la zona del producto si no es la del robot.
+
+      Los robots no son seguros entre hilos: el despachador debe usarse desde un solo
+      hilo o sin que los robots se estén moviendo mientras dura el tic.
+     */
+
+    /**
+     * Producto asignado a un robot. El producto ya está reservado para el robot, que
+     * debe moverse a su zona si hace falta y recogerlo.
+     *
+     * @param robot el robot que recoge el producto
+     * @param producto el producto reservado
+     * @param distancia las zonas que tiene que recorrer el robot hasta el producto
+     */
+    public record Asignacion(Robot robot, Producto producto, int distancia) {
+    }
+
+    public Despachador(Inventario inventario) {
+        if( inventario == null )
+            throw new IllegalArgumentException("El inventario no puede ser null");
+
+        this.inventario = inventario;
+        this.pendientes = new HashMap<>();
+    }
+
+    /**
+     * Un tic del despachador: asigna productos a los robots libres de la flota
+     * minimizando el recorrido hasta ellos. Antes revisa las asignaciones de tics
+     * anteriores, olvida las ya recogidas y devuelve al inventario las de los robots
+     * que han dejado de estar libres sin recogerlas.
+     *
+     * @param robots la flota completa
+     * @return las nuevas asignaciones de este tic
+     */
+    public List<Asignacion> despachar(Collection<Robot> robots) {
+        if( robots == null )
+            throw new IllegalArgumentException("La flota no puede ser null");
+
+        revisarPendientes();
+
+        List<Asignacion> resultado = new ArrayList<>();
+        List<Robot> libres = new ArrayList<>(robots.size());
+        for (Robot robot : robots)
+            if( disponible(robot) )
+                libres.add(robot);
+        libres.sort(Comparator.comparingInt(Robot::getNivelBateria));
+
+        boolean[] asignados = new boolean[libres.size()];
+        for (int distancia = 0; distancia < zonasAlmacen.length; distancia++)
+            for (int i = 0; i < libres.size(); i++)
+                if( !asignados[i] ) {
+                    Optional<Asignacion> asignacion = asignar(libres.get(i), distancia);
+
+                    if( asignacion.isPresent() ) {
+                        asignados[i] = ASIGNADO;
+                        pendientes.put(libres.get(i).getId(), asignacion.get());
+                        resultado.add(asignacion.get());
+                    }
+                }
+
+        return resultado;
+    }
+
+    /**
+     * La asignación pendiente del robot, si su producto sigue reservado para él
+     * @param idRobot identificador del robot
+     * @return la asignación o vacío si el robot no tiene ninguna pendiente
+     */
+    public Optional<Asignacion> getAsignacion(String idRobot) {
+        return Optional.ofNullable(pendientes.get(idRobot)).filter(Despachador::reservada);
+    }
+
+    public Inventario getInventario() {
+        return inventario;
+    }
+
+    /**
+     * Asignaciones hechas en tics anteriores que el robot aún no ha recogido
+     * @return una vista no modificable de las asignaciones pendientes
+     */
+    public Collection<Asignacion> getPendientes() {
+        return Collections.unmodifiableCollection(pendientes.values());
+    }
+
+    /**
+     * Olvida las asignaciones cuyo producto ya se ha recogido y devuelve al inventario
+     * las de los robots que ya no pueden recogerlo
+     */
+    private void revisarPendientes() {
+        Iterator<Asignacion> iterador = pendientes.values().iterator();
+
+        while( iterador.hasNext() ) {
+            Asignacion asignacion = iterador.next();
+            Producto producto = asignacion.producto();
+
+            if( !reservada(asignacion) )
+                iterador.remove();
+            else if( asignacion.robot().getEstado() != EstadoRobot.LIBRE ) {
+                inventario.devolverProducto(asignacion.robot().getId(), producto);
+                iterador.remove();
+            }
+        }
+    }
+
+    /**
+     * El producto de la asignación sigue reservado para su robot, que aún no lo ha recogido
+     */
+    private static boolean reservada(Asignacion asignacion) {
+        Producto producto = asignacion.producto();
+
+        return producto.getEstadoReserva() == EstadoReserva.RESERVADO &&
+               asignacion.robot().getId().equals(producto.getPropietario());
+    }
+
+    /**
+     * Un robot puede recibir un producto si está libre, sin carga, con batería para
+     * moverse y sin una asignación pendiente
+     */
+    private boolean disponible(Robot robot) {
+        return robot != null && robot.getEstado() == EstadoRobot.LIBRE && robot.getProductoActual() == null &&
+               robot.getNivelBateria() > NIVEL_BATERIA_MINIMO && !pendientes.containsKey(robot.getId());
+    }
+
+    /**
+     * Busca para el robot un producto en las zonas a la distancia indicada, primero
+     * en la anterior y después en la posterior en el pasillo
+     * @return la asignación con el producto ya reservado
+     */
+    private Optional<Asignacion> asignar(Robot robot, int distancia) {
+        Optional<Asignacion> resultado = Optional.empty();
+        int origen = robot.getPosicionActual().ordinal();
+        int movimientos = distancia == 0 ? 1 : 2;
+        int bateria = robot.getNivelBateria() - CONSUMO_BATERIA * movimientos - 1;
+
+        if( origen - distancia >= 0 )
+            resultado = asignar(robot, zonasAlmacen[origen - distancia], distancia, bateria);
+        if( resultado.isEmpty() && distancia > 0 && origen + distancia < zonasAlmacen.length )
+            resultado = asignar(robot, zonasAlmacen[origen + distancia], distancia, bateria);
+
+        return resultado;
+    }
+
+    /**
+     * Reserva para el robot el producto más exigente de la zona que admite su batería
+     */
+    private Optional<Asignacion> asignar(Robot robot, ZonaAlmacen zona, int distancia, int bateria) {
+        Optional<Asignacion> resultado = Optional.empty();
+
+        for (int t = 0; t < TIPOS_POR_EXIGENCIA.length && resultado.isEmpty(); t++)
+            if( inventario.getDisponibles(zona, TIPOS_POR_EXIGENCIA[t]) > 0 )
+                resultado = inventario.siguienteProducto(robot.getId(), zona, TIPOS_POR_EXIGENCIA[t], bateria)
+                        .map(producto -> new Asignacion(robot, producto, distancia));
+
+        return resultado;
+    }
+
+    /**
+     * Los tipos de producto de mayor a menor batería mínima
+     */
+    private static TipoProducto[] ordenarPorExigencia() {
+        TipoProducto[] resultado = TipoProducto.values();
+
+        Arrays.sort(resultado, Comparator.comparingInt(TipoProducto::getBateriaMinima).reversed());
+
+        return resultado;
+    }
+}
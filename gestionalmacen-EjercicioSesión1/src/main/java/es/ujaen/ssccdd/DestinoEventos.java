@@ -0,0 +1,26 @@
+package es.ujaen.ssccdd;
+
+import java.io.IOException;
+
+/**
+ * Destino en el que el escritor de RegistroEventos vuelca los eventos. Solo lo usa
+ * un hilo, por lo que las implementaciones no necesitan ser seguras para hilos.
+ */
+public interface DestinoEventos extends AutoCloseable {
+
+    /**
+     * Añade un evento al destino, puede quedar en un buffer hasta el siguiente volcado
+     * @param evento el evento a escribir
+     * @throws IOException si falla la escritura
+     */
+    void escribir(EventoAlmacen evento) throws IOException;
+
+    /**
+     * Lleva a disco los eventos escritos hasta el momento
+     * @throws IOException si falla la escritura
+     */
+    void volcar() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
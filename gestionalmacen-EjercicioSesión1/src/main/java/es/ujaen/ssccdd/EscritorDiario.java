@@ -0,0 +1,177 @@
+package es.ujaen.ssccdd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class EscritorDiario implements DestinoEventos {
+    private final FileChannel canal;            // Fichero del diario
+    private final ByteBuffer buffer;            // Registros pendientes de escribir
+    private final Map<String, Integer> indices; // Índice asignado a cada identificador de robot
+    private final List<String> robots;          // Identificadores de robot por orden de índice
+    private long eventos;                       // Registros escritos en el diario
+    private boolean cerrado;
+
+    /*
+        Formato del diario, todos los valores en orden little-endian:
+        - Cabecera: mágico (int), versión (short), tamaño de registro (short) y posición
+          de la tabla de robots (long), que vale 0 hasta que el diario se cierra
+        - Registros de TAMANO_REGISTRO_DIARIO bytes: marca de tiempo en nanosegundos desde
+          la época (long), índice del robot (int), ordinal de TipoEvento (byte), ordinal de
+          ZonaAlmacen (byte) y dos bytes de relleno
+        - Tabla de robots: número de robots (int) y cada identificador como longitud (short
+          sin signo, hasta LONGITUD_MAXIMA_ID_DIARIO) seguida de sus bytes UTF-8
+     */
+
+    public EscritorDiario(Path fichero) throws IOException {
+        this(fichero, LOTE_REGISTRO);
+    }
+
+    /**
+     * @param fichero el fichero del diario, se sobrescribe si existe
+     * @param lote registros que se acumulan antes de escribir en el canal
+     */
+    public EscritorDiario(Path fichero, int lote) throws IOException {
+        if( fichero == null || lote < 1 )
+            throw new IllegalArgumentException("El fichero no puede ser null y el lote debe ser positivo");
+
+        this.canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(lote * TAMANO_REGISTRO_DIARIO).order(ByteOrder.LITTLE_ENDIAN);
+        this.indices = new HashMap<>();
+        this.robots = new ArrayList<>();
+        this.eventos = 0;
+        this.cerrado = false;
+
+        escribirCabecera(0);
+    }
+
+    public long getEventos() {
+        return eventos;
+    }
+
+    public int getRobots() {
+        return robots.size();
+    }
+
+    @Override
+    public void escribir(EventoAlmacen evento) throws IOException {
+        if( evento == null )
+            throw new IllegalArgumentException("El evento no puede ser null");
+        if( cerrado )
+            throw new IOException("El diario está cerrado");
+
+        int indice = indiceRobot(evento.getIdRobot());
+
+        if( !buffer.hasRemaining() )
+            volcar();
+
+        buffer.putLong(evento.getMarcaTiempoNanos())
+                .putInt(indice)
+                .put((byte) evento.getTipo().ordinal())
+                .put((byte) evento.getZona().ordinal())
+                .putShort((short) 0);
+        eventos++;
+    }
+
+    @Override
+    public void volcar() throws IOException {
+        buffer.flip();
+        while( buffer.hasRemaining() )
+            canal.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Escribe los registros pendientes y la tabla de robots, y anota su posición en
+     * la cabecera. Un diario solo puede leerse después de cerrarlo.
+     */
+    @Override
+    public void close() throws IOException {
+        if( !cerrado ) {
+            cerrado = true;
+            try {
+                volcar();
+                long tabla = canal.position();
+                escribirTablaRobots();
+                escribirCabecera(tabla);
+                canal.force(false);
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Índice del identificador en la tabla de robots, que se asigna la primera vez
+     * @throws IllegalArgumentException si el identificador no cabe en la tabla
+     */
+    private int indiceRobot(String idRobot) {
+        Integer indice = indices.get(idRobot);
+
+        if( indice == null ) {
+            if( idRobot.getBytes(StandardCharsets.UTF_8).length > LONGITUD_MAXIMA_ID_DIARIO )
+                throw new IllegalArgumentException("El identificador del robot supera los " +
+                        LONGITUD_MAXIMA_ID_DIARIO + " bytes del diario");
+
+            indice = robots.size();
+            indices.put(idRobot, indice);
+            robots.add(idRobot);
+        }
+
+        return indice;
+    }
+
+    private void escribirTablaRobots() throws IOException {
+        ByteBuffer tabla = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        tabla.putInt(robots.size()).flip();
+        escribirCompleto(tabla);
+
+        for (String idRobot : robots) {
+            byte[] bytes = idRobot.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entrada = ByteBuffer.allocate(Short.BYTES + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            entrada.putShort((short) bytes.length).put(bytes).flip();
+            escribirCompleto(entrada);
+        }
+    }
+
+    private void escribirCabecera(long tabla) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_DIARIO).order(ByteOrder.LITTLE_ENDIAN);
+        cabecera.putInt(MAGICO_DIARIO)
+                .putShort(VERSION_DIARIO)
+                .putShort((short) TAMANO_REGISTRO_DIARIO)
+                .putLong(tabla)
+                .flip();
+
+        long posicion = 0;
+        while( cabecera.hasRemaining() )
+            posicion += canal.write(cabecera, posicion);
+
+        if( canal.position() < CABECERA_DIARIO )
+            canal.position(CABECERA_DIARIO);
+    }
+
+    private void escribirCompleto(ByteBuffer datos) throws IOException {
+        while( datos.hasRemaining() )
+            canal.write(datos);
+    }
+
+    @Override
+    public String toString() {
+        return "EscritorDiario{" +
+                "eventos=" + eventos +
+                ", robots=" + robots.size() +
+                ", cerrado=" + cerrado +
+                '}';
+    }
+}
@@ -1,22 +1,50 @@
 package es.ujaen.ssccdd;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import static es.ujaen.ssccdd.Constantes.*;
 
 public class EstacionEmpaquetado {
     private final String id;                    // Identificador único
     private final ZonaAlmacen ubicacion;        // Ubicación en almacén
-    private final Queue<Producto> productos;    // Productos en espera
-    private boolean activa;                     // Si está operativa
+    private final BlockingQueue<Producto> productos; // Productos en espera
+    private volatile boolean activa;            // Si está operativa
+    private final LongAdder empaquetados;       // Productos empaquetados desde el arranque
+    private Thread empaquetador;                // Hilo de empaquetado en segundo plano
+    private volatile long inicioEmpaquetado;    // Momento en que arrancó el empaquetador
+    private final Reloj reloj;                  // Tiempo de empaquetado de cada producto
+
+    /*
+        La cola es un buffer circular acotado a MAX_PRODUCTOS_ESTACION y reservado
+        en la construcción, la comprobación de espacio y la inserción son atómicas
+     */
 
     public EstacionEmpaquetado(String id, ZonaAlmacen ubicacion) {
+        this(id, ubicacion, RELOJ_SISTEMA);
+    }
+
+    /**
+     * Crea una estación que simula el tiempo de empaquetado con el reloj indicado
+     */
+    public EstacionEmpaquetado(String id, ZonaAlmacen ubicacion, Reloj reloj) {
+        if( reloj == null )
+            throw new IllegalArgumentException("El reloj no puede ser null");
+
+        this.reloj = reloj;
         this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
         this.ubicacion = ubicacion;
-        this.productos = new LinkedList<>();
+        this.productos = new ArrayBlockingQueue<>(MAX_PRODUCTOS_ESTACION);
         this.activa = ACTIVA;
+        this.empaquetados = new LongAdder();
+        this.empaquetador = null;
+        this.inicioEmpaquetado = reloj.nanos();
     }
 
     public String getId() {
@@ -39,19 +67,60 @@ public class EstacionEmpaquetado {
         this.activa = activa;
     }
 
+    public long getEmpaquetados() {
+        return empaquetados.sum();
+    }
+
     /**
      * Recibe un producto del robot
      * Verifica que hay espacio en la cola
      * Actualiza el contador de productos
+     * No espera: si la estación está llena el producto se rechaza
      */
     public boolean recibirProducto(Producto producto) {
         boolean resultado = !EXITO;
-        
-        if( (productos.size() < MAX_PRODUCTOS_ESTACION) && activa && producto != null ) {
-            productos.add(producto);
-            resultado = EXITO;
-        }
-        
+
+        if( activa && producto != null )
+            resultado = productos.offer(producto);
+
+        return resultado;
+    }
+
+    /**
+     * Recibe un producto del robot esperando como máximo el tiempo indicado a que
+     * haya espacio en la cola
+     *
+     * @param producto el producto que se entrega
+     * @param tiempo tiempo máximo de espera
+     * @param unidad unidad del tiempo de espera
+     * @return true si el producto se ha añadido a la cola
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public boolean recibirProducto(Producto producto, long tiempo, TimeUnit unidad) throws InterruptedException {
+        boolean resultado = !EXITO;
+
+        if( activa && producto != null )
+            resultado = productos.offer(producto, tiempo, unidad);
+
+        return resultado;
+    }
+
+    /**
+     * Recibe un producto del robot esperando el tiempo necesario a que haya espacio
+     * en la cola. La espera se hace en tramos de ESPERA_ENTREGA milisegundos para
+     * dejar de esperar si la estación se desactiva mientras tanto.
+     *
+     * @param producto el producto que se entrega
+     * @return true si el producto se ha añadido a la cola, false si la estación no está activa
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public boolean recibirProductoEsperando(Producto producto) throws InterruptedException {
+        boolean resultado = !EXITO;
+
+        if( producto != null )
+            while( activa && !resultado )
+                resultado = productos.offer(producto, ESPERA_ENTREGA, TimeUnit.MILLISECONDS);
+
         return resultado;
     }
 
@@ -59,10 +128,121 @@ public class EstacionEmpaquetado {
      * Procesa los productos en cola
      * Simula el empaquetado
      * Libera espacio en la estación
+     * Los productos se retiran uno a uno de la cola y se contabilizan como empaquetados
+     * sin simular su tiempo de empaquetado, que solo aplica el empaquetador
      */
     public void procesarProductos() {
-        if( activa && !productos.isEmpty() )
-            productos.clear();
+        if( activa ) {
+            while( productos.poll() != null ) {
+                empaquetados.increment();
+            }
+        }
+    }
+
+    /**
+     * Arranca el empaquetador de la estación, que retira productos de la cola en lotes
+     * de como máximo el tamaño indicado y simula el tiempo de empaquetado de cada uno
+     * según su tipo. La recepción de productos y el empaquetado avanzan en paralelo y
+     * el espacio de la cola se libera en cuanto se retira cada lote.
+     *
+     * @param tipoHilo el tipo de hilo del empaquetador
+     * @param tamanoLote número máximo de productos que se retiran de una vez
+     * @return true si se ha arrancado, false si ya había un empaquetador en marcha
+     */
+    public synchronized boolean iniciarEmpaquetado(TipoHilo tipoHilo, int tamanoLote) {
+        if( tipoHilo == null || tamanoLote < LOTE_UNITARIO )
+            throw new IllegalArgumentException("Tipo de hilo o tamaño de lote no válidos");
+
+        boolean resultado = !EXITO;
+
+        if( empaquetador == null ) {
+            ThreadFactory fabrica = tipoHilo.getFabrica();
+            empaquetados.reset();
+            inicioEmpaquetado = reloj.nanos();
+            empaquetador = fabrica.newThread(() -> empaquetarLotes(tamanoLote));
+            empaquetador.start();
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Detiene el empaquetador y espera a que termine el lote que estaba procesando.
+     * Los productos que queden en la cola permanecen en ella.
+     *
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public synchronized void detenerEmpaquetado() throws InterruptedException {
+        if( empaquetador != null ) {
+            empaquetador.interrupt();
+            empaquetador.join();
+            empaquetador = null;
+        }
+    }
+
+    /**
+     * Ritmo de empaquetado desde que se arrancó el empaquetador
+     * @return el número de productos empaquetados por segundo
+     */
+    public double getEmpaquetadosPorSegundo() {
+        double segundos = (reloj.nanos() - inicioEmpaquetado) / 1e9;
+
+        return segundos > 0 ? getEmpaquetados() / segundos : 0;
+    }
+
+    /**
+     * Bucle del empaquetador. Espera un tiempo limitado por el primer producto del
+     * lote y completa el lote con los que ya estén en la cola sin esperar más. Si el
+     * hilo se interrumpe a mitad de un lote, el lote se termina de empaquetar antes
+     * de salir: los productos ya han salido de la cola y no los recogería nadie más.
+     */
+    private void empaquetarLotes(int tamanoLote) {
+        List<Producto> lote = new ArrayList<>(tamanoLote);
+        boolean interrumpido = Thread.currentThread().isInterrupted();
+
+        while( !interrumpido ) {
+            try {
+                Producto primero = activa ? productos.poll(ESPERA_EMPAQUETADO, TimeUnit.MILLISECONDS) : null;
+
+                if( primero != null ) {
+                    lote.add(primero);
+                    productos.drainTo(lote, tamanoLote - LOTE_UNITARIO);
+                } else if( !activa ) {
+                    TimeUnit.MILLISECONDS.sleep(ESPERA_EMPAQUETADO);
+                }
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+
+            for (Producto producto : lote)
+                interrumpido = empaquetar(producto) || interrumpido;
+            lote.clear();
+        }
+
+        Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Simula el tiempo de empaquetado del producto. Si la espera se interrumpe se
+     * repite, el producto solo se cuenta cuando se ha empaquetado por completo.
+     * @return true si el hilo se ha interrumpido durante el empaquetado
+     */
+    private boolean empaquetar(Producto producto) {
+        boolean interrumpido = false;
+        boolean empaquetado = false;
+
+        while( !empaquetado ) {
+            try {
+                reloj.esperar(producto.getTipo().getTiempoEmpaquetado(), TimeUnit.MILLISECONDS);
+                empaquetado = true;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        empaquetados.increment();
+
+        return interrumpido;
     }
 
     /**
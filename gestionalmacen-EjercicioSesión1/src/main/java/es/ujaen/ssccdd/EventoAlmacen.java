@@ -1,12 +1,13 @@
 package es.ujaen.ssccdd;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import static es.ujaen.ssccdd.Constantes.TipoEvento;
 import static es.ujaen.ssccdd.Constantes.ZonaAlmacen;
 
 public class EventoAlmacen {
-    private final Date timestamp;           // Momento del evento
+    private final long timestamp;          // Momento del evento en nanosegundos desde la época
     private final TipoEvento tipo;         // Tipo del evento
     private final String idRobot;          // Robot involucrado
     private final ZonaAlmacen zona;        // Zona donde ocurrió
@@ -16,20 +17,58 @@ public class EventoAlmacen {
      */
 
     public EventoAlmacen(Date timestamp, TipoEvento tipo, String idRobot, ZonaAlmacen zona) {
-        if( timestamp == null || tipo == null || idRobot == null || zona == null)
+        this(marcaTiempo(timestamp), tipo, idRobot, zona);
+    }
+
+    /**
+     * Crea un evento a partir de una marca de tiempo en milisegundos, evitando crear
+     * un objeto Date en el camino habitual de los robots
+     */
+    public EventoAlmacen(long timestamp, TipoEvento tipo, String idRobot, ZonaAlmacen zona) {
+        this(tipo, idRobot, zona, TimeUnit.MILLISECONDS.toNanos(timestamp));
+    }
+
+    private EventoAlmacen(TipoEvento tipo, String idRobot, ZonaAlmacen zona, long nanos) {
+        if( tipo == null || idRobot == null || zona == null)
             throw new IllegalArgumentException("No puede haber argumentos nulos");
 
-        this.timestamp = timestamp;
+        this.timestamp = nanos;
         this.tipo = tipo;
         this.idRobot = idRobot;
         this.zona = zona;
     }
 
+    /**
+     * Crea un evento a partir de una marca de tiempo en nanosegundos desde la época,
+     * por ejemplo al leerlo de un diario
+     */
+    public static EventoAlmacen conNanos(long nanos, TipoEvento tipo, String idRobot, ZonaAlmacen zona) {
+        return new EventoAlmacen(tipo, idRobot, zona, nanos);
+    }
+
+    /**
+     * Crea un evento en el instante actual del reloj, con precisión de nanosegundos
+     */
+    public static EventoAlmacen ahora(Reloj reloj, TipoEvento tipo, String idRobot, ZonaAlmacen zona) {
+        return new EventoAlmacen(tipo, idRobot, zona, nanos(reloj));
+    }
+
     /*
         Incluir solo los métodos de acceso estrictamente necesarios
      */
 
+    /**
+     * El evento es inmutable, se devuelve una fecha nueva en cada llamada
+     */
     public Date getTimestamp() {
+        return new Date(getMarcaTiempo());
+    }
+
+    public long getMarcaTiempo() {
+        return TimeUnit.NANOSECONDS.toMillis(timestamp);
+    }
+
+    public long getMarcaTiempoNanos() {
         return timestamp;
     }
 
@@ -45,6 +84,20 @@ public class EventoAlmacen {
         return zona;
     }
 
+    private static long marcaTiempo(Date timestamp) {
+        if( timestamp == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+
+        return timestamp.getTime();
+    }
+
+    private static long nanos(Reloj reloj) {
+        if( reloj == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+
+        return reloj.nanos();
+    }
+
     /**
      * Devuelve una representación en forma de cadena del evento ocurrido en el almacén.
      * Debe incluir:
@@ -59,7 +112,7 @@ public class EventoAlmacen {
     @Override
     public String toString() {
         return "EventoAlmacen{" +
-                "timestamp=" + timestamp +
+                "timestamp=" + getTimestamp() +
                 ", tipo=" + tipo +
                 ", idRobot='" + idRobot + '\'' +
                 ", zona=" + zona +
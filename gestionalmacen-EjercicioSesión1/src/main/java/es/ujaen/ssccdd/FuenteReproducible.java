@@ -0,0 +1,63 @@
+package es.ujaen.ssccdd;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+public class FuenteReproducible implements FuenteAleatoria {
+    private static final long SALTO_SEMILLA = 0x9E3779B97F4A7C15L; // Separa las semillas de trabajadores consecutivos
+
+    private final long semilla;                                 // Semilla de la ejecución
+    private final AtomicInteger trabajadores;                   // Índice del próximo hilo sin asignar
+    private final ThreadLocal<SplittableRandom> generadores;    // Flujo de cada hilo
+
+    /*
+        El flujo de un trabajador solo depende de la semilla y de su índice, no del
+        resto de hilos. Si un hilo no se ha asignado a un índice con asignar() recibe
+        el siguiente libre la primera vez que pide su generador; para repetir
+        exactamente una ejecución concurrente cada hilo debe asignarse su índice.
+     */
+
+    public FuenteReproducible(long semilla) {
+        this.semilla = semilla;
+        this.trabajadores = new AtomicInteger();
+        this.generadores = ThreadLocal.withInitial(() -> paraTrabajador(trabajadores.getAndIncrement()));
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    /**
+     * Crea el flujo de un trabajador
+     * @param indice el índice del trabajador
+     * @return un generador nuevo, siempre con la misma secuencia para el mismo índice
+     */
+    public SplittableRandom paraTrabajador(int indice) {
+        if( indice < 0 )
+            throw new IllegalArgumentException("El índice del trabajador no puede ser negativo");
+
+        return new SplittableRandom(semilla + SALTO_SEMILLA * (indice + 1L));
+    }
+
+    /**
+     * Asocia el hilo actual al flujo de un trabajador, desde el principio de su secuencia
+     * @param indice el índice del trabajador
+     */
+    public void asignar(int indice) {
+        generadores.set(paraTrabajador(indice));
+    }
+
+    @Override
+    public RandomGenerator generador() {
+        return generadores.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FuenteReproducible{" +
+                "semilla=" + semilla +
+                ", trabajadores=" + trabajadores.get() +
+                '}';
+    }
+}
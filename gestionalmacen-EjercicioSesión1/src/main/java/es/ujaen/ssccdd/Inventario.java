@@ -0,0 +1,204 @@
+package es.ujaen.ssccdd;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class Inventario {
+    private final Queue<Producto>[][] pendientes;   // Productos sin reservar por zona y tipo
+    private final AtomicInteger[][] disponibles;    // Tamaño de cada casilla de la rejilla
+
+    /*
+        La rejilla tiene una casilla por cada combinación ZonaAlmacen x TipoProducto,
+        indexada por los ordinales de ambos enumerados
+     */
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Inventario() {
+        int zonas = ZonaAlmacen.values().length;
+        int tipos = TipoProducto.values().length;
+
+        this.pendientes = new Queue[zonas][tipos];
+        this.disponibles = new AtomicInteger[zonas][tipos];
+        for (int z = 0; z < zonas; z++)
+            for (int t = 0; t < tipos; t++) {
+                pendientes[z][t] = new ConcurrentLinkedQueue<>();
+                disponibles[z][t] = new AtomicInteger();
+            }
+    }
+
+    /**
+     * Incorpora un producto al inventario en la casilla de su zona y tipo.
+     * Los productos ya reservados o entregados no se admiten.
+     *
+     * @param producto el producto a incorporar
+     * @return true si el producto ha quedado disponible para su recogida
+     */
+    public boolean agregarProducto(Producto producto) {
+        boolean resultado = !EXITO;
+
+        if( producto != null && producto.getEstadoReserva() == EstadoReserva.LIBRE ) {
+            int z = producto.getUbicacion().ordinal();
+            int t = producto.getTipo().ordinal();
+
+            pendientes[z][t].add(producto);
+            disponibles[z][t].incrementAndGet();
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Entrega y reserva para el robot el siguiente producto que puede recoger en su
+     * posición con su nivel de batería. El coste no depende del número de productos,
+     * solo se consultan las casillas de la zona del robot.
+     *
+     * @param robot el robot que busca un producto
+     * @return un optional con el producto ya reservado para el robot
+     */
+    public Optional<Producto> siguienteProducto(Robot robot) {
+        if( robot == null )
+            throw new IllegalArgumentException("El robot no puede ser null");
+
+        return siguienteProducto(robot.getId(), robot.getPosicionActual(), robot.getNivelBateria());
+    }
+
+    /**
+     * Entrega y reserva el siguiente producto de la zona que puede manipularse con
+     * el nivel de batería indicado. Si otro robot reservó el producto por otra vía
+     * se descarta y se sigue buscando.
+     *
+     * @param idRobot el robot para el que se reserva el producto
+     * @param zona la zona en la que se busca
+     * @param nivelBateria el nivel de batería del robot
+     * @return un optional con el producto ya reservado para el robot
+     */
+    public Optional<Producto> siguienteProducto(String idRobot, ZonaAlmacen zona, int nivelBateria) {
+        if( idRobot == null || zona == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+
+        Producto resultado = null;
+        int t = 0;
+
+        while( resultado == null && t < disponibles[zona.ordinal()].length ) {
+            resultado = reservar(idRobot, zona.ordinal(), t, nivelBateria);
+            t++;
+        }
+
+        return Optional.ofNullable(resultado);
+    }
+
+    /**
+     * Entrega y reserva el siguiente producto de un tipo en la zona si puede
+     * manipularse con el nivel de batería indicado. Lo usa el despachador, que
+     * elige él mismo el tipo que asigna a cada robot.
+     *
+     * @param idRobot el robot para el que se reserva el producto
+     * @param zona la zona en la que se busca
+     * @param tipo el tipo de producto
+     * @param nivelBateria el nivel de batería del robot
+     * @return un optional con el producto ya reservado para el robot
+     */
+    public Optional<Producto> siguienteProducto(String idRobot, ZonaAlmacen zona, TipoProducto tipo, int nivelBateria) {
+        if( idRobot == null || zona == null || tipo == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+
+        return Optional.ofNullable(reservar(idRobot, zona.ordinal(), tipo.ordinal(), nivelBateria));
+    }
+
+    /**
+     * Saca de una casilla el primer producto que puede manipularse y lo reserva.
+     * Si otro robot reservó el producto por otra vía se descarta y se sigue con
+     * el siguiente de la casilla.
+     *
+     * La cabeza de la cola se mira antes de sacarla para no mover productos que no
+     * se pueden manipular, pero entre peek() y poll() otro robot puede llevársela.
+     * Por eso el producto sacado se vuelve a comprobar y, si no vale, vuelve a la
+     * casilla y se deja de buscar.
+     *
+     * @return el producto reservado o null si la casilla no tiene ninguno válido
+     */
+    private Producto reservar(String idRobot, int z, int t, int nivelBateria) {
+        Producto resultado = null;
+        boolean buscando = true;
+
+        while( resultado == null && buscando ) {
+            Producto producto = pendientes[z][t].peek();
+
+            if( producto != null && producto.puedeSerManipulado(nivelBateria) ) {
+                producto = pendientes[z][t].poll();
+
+                if( producto == null ) {
+                    buscando = false;
+                } else if( !producto.puedeSerManipulado(nivelBateria) ) {
+                    pendientes[z][t].add(producto);
+                    buscando = false;
+                } else {
+                    disponibles[z][t].decrementAndGet();
+                    if( producto.reservarProducto(idRobot) )
+                        resultado = producto;
+                }
+            } else {
+                buscando = false;
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Devuelve al inventario un producto que el robot no ha podido completar,
+     * liberando antes su reserva.
+     *
+     * @param idRobot el robot propietario de la reserva
+     * @param producto el producto que se devuelve
+     * @return true si el producto vuelve a estar disponible
+     */
+    public boolean devolverProducto(String idRobot, Producto producto) {
+        return producto != null && producto.liberarProducto(idRobot) && agregarProducto(producto);
+    }
+
+    /**
+     * Número de productos disponibles en una zona para un tipo dado
+     * @return el número de productos pendientes de recoger
+     */
+    public int getDisponibles(ZonaAlmacen zona, TipoProducto tipo) {
+        if( zona == null || tipo == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+
+        return disponibles[zona.ordinal()][tipo.ordinal()].get();
+    }
+
+    /**
+     * Número de productos disponibles en una zona
+     * @return el número de productos pendientes de recoger en la zona
+     */
+    public int getDisponibles(ZonaAlmacen zona) {
+        int resultado = 0;
+
+        for (TipoProducto tipo : TipoProducto.values())
+            resultado += getDisponibles(zona, tipo);
+
+        return resultado;
+    }
+
+    /**
+     * Devuelve el número de productos disponibles en cada zona del almacén
+     *
+     * @return Una cadena con el formato para Inventario
+     */
+    @Override
+    public String toString() {
+        StringJoiner resultado = new StringJoiner(", ", "Inventario{", "}");
+
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            resultado.add(zona + "=" + getDisponibles(zona));
+
+        return resultado.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package es.ujaen.ssccdd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class LectorDiario implements AutoCloseable {
+    private static final TipoEvento[] TIPOS = TipoEvento.values();
+    private static final ZonaAlmacen[] ZONAS = ZonaAlmacen.values();
+    private static final long REGISTROS_POR_REGION = Integer.MAX_VALUE / TAMANO_REGISTRO_DIARIO;
+
+    private final FileChannel canal;            // Fichero del diario
+    private final long numeroEventos;           // Registros del diario
+    private final String[] robots;              // Identificadores de robot por índice
+    private MappedByteBuffer region;            // Región proyectada que contiene el registro actual
+    private long inicioRegion;                  // Primer registro de la región
+    private long actual;                        // Registro en el que está el cursor, -1 antes de empezar
+    private int posicion;                       // Posición del registro actual dentro de la región
+
+    /*
+        El lector es un cursor sobre el fichero proyectado en memoria: siguiente() avanza
+        un registro y los métodos de acceso leen sus campos directamente de la región,
+        de forma que recorrer el diario no crea ningún objeto por registro. Los
+        identificadores de robot se leen una vez de la tabla y se comparten.
+        Una región no puede superar Integer.MAX_VALUE bytes, los diarios mayores se
+        proyectan por tramos según avanza el cursor.
+     */
+
+    public LectorDiario(Path fichero) throws IOException {
+        if( fichero == null )
+            throw new IllegalArgumentException("El fichero no puede ser null");
+
+        this.canal = FileChannel.open(fichero, StandardOpenOption.READ);
+        try {
+            ByteBuffer cabecera = leer(0, CABECERA_DIARIO);
+            if( cabecera.getInt() != MAGICO_DIARIO || cabecera.getShort() != VERSION_DIARIO
+                    || cabecera.getShort() != TAMANO_REGISTRO_DIARIO )
+                throw new IOException("El fichero no es un diario de eventos válido");
+
+            long tabla = cabecera.getLong();
+            if( tabla < CABECERA_DIARIO || tabla > canal.size() )
+                throw new IOException("El diario no se cerró correctamente");
+
+            this.numeroEventos = (tabla - CABECERA_DIARIO) / TAMANO_REGISTRO_DIARIO;
+            this.robots = leerTablaRobots(tabla);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+
+        this.actual = -1;
+        this.inicioRegion = 0;
+        this.region = null;
+    }
+
+    public long getNumeroEventos() {
+        return numeroEventos;
+    }
+
+    public int getNumeroRobots() {
+        return robots.length;
+    }
+
+    /**
+     * Avanza el cursor al siguiente registro
+     * @return false si no quedan registros
+     */
+    public boolean siguiente() throws IOException {
+        boolean resultado = !EXITO;
+
+        if( actual + 1 < numeroEventos ) {
+            actual++;
+            if( region == null || actual >= inicioRegion + REGISTROS_POR_REGION )
+                proyectarRegion(actual);
+            posicion = (int) ((actual - inicioRegion) * TAMANO_REGISTRO_DIARIO);
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Vuelve a colocar el cursor antes del primer registro
+     */
+    public void reiniciar() {
+        actual = -1;
+        region = null;
+    }
+
+    public long getMarcaTiempoNanos() {
+        comprobarRegistro();
+        return region.getLong(posicion);
+    }
+
+    public long getMarcaTiempo() {
+        return TimeUnit.NANOSECONDS.toMillis(getMarcaTiempoNanos());
+    }
+
+    public int getIndiceRobot() {
+        comprobarRegistro();
+        return region.getInt(posicion + Long.BYTES);
+    }
+
+    public String getIdRobot() {
+        return robots[getIndiceRobot()];
+    }
+
+    public TipoEvento getTipo() {
+        comprobarRegistro();
+        return TIPOS[region.get(posicion + Long.BYTES + Integer.BYTES)];
+    }
+
+    public ZonaAlmacen getZona() {
+        comprobarRegistro();
+        return ZONAS[region.get(posicion + Long.BYTES + Integer.BYTES + Byte.BYTES)];
+    }
+
+    /**
+     * Crea un EventoAlmacen con el registro actual, para los casos en los que
+     * se necesita conservar el evento
+     * @return el evento del registro actual
+     */
+    public EventoAlmacen getEvento() {
+        return EventoAlmacen.conNanos(getMarcaTiempoNanos(), getTipo(), getIdRobot(), getZona());
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        canal.close();
+    }
+
+    private void comprobarRegistro() {
+        if( region == null || actual < 0 )
+            throw new NoSuchElementException("El cursor no está sobre ningún registro");
+    }
+
+    private void proyectarRegion(long registro) throws IOException {
+        long registros = Math.min(REGISTROS_POR_REGION, numeroEventos - registro);
+
+        inicioRegion = registro;
+        region = canal.map(FileChannel.MapMode.READ_ONLY, CABECERA_DIARIO + registro * TAMANO_REGISTRO_DIARIO,
+                registros * TAMANO_REGISTRO_DIARIO);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private String[] leerTablaRobots(long tabla) throws IOException {
+        ByteBuffer datos = leer(tabla, (int) (canal.size() - tabla));
+        String[] resultado = new String[datos.getInt()];
+
+        for (int i = 0; i < resultado.length; i++) {
+            byte[] bytes = new byte[datos.getShort() & 0xFFFF];
+            datos.get(bytes);
+            resultado[i] = new String(bytes, StandardCharsets.UTF_8).intern();
+        }
+
+        return resultado;
+    }
+
+    private ByteBuffer leer(long desde, int bytes) throws IOException {
+        ByteBuffer resultado = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        boolean finFichero = !EXITO;
+
+        while( resultado.hasRemaining() && !finFichero )
+            finFichero = canal.read(resultado, desde + resultado.position()) < 0;
+        if( resultado.hasRemaining() )
+            throw new IOException("El diario está truncado");
+
+        return resultado.flip();
+    }
+
+    @Override
+    public String toString() {
+        return "LectorDiario{" +
+                "eventos=" + numeroEventos +
+                ", robots=" + robots.length +
+                ", actual=" + actual +
+                '}';
+    }
+}
@@ -0,0 +1,181 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+public final class MuestreoPonderado<E extends Enum<E>> {
+    private final E[] valores;
+    private final double[] umbral;          // Probabilidad de quedarse en cada columna de la tabla
+    private final int[] alias;              // Valor al que se salta si se supera el umbral
+    private final double[] probabilidad;    // Probabilidad normalizada de cada valor
+
+    /*
+      Tabla de alias (método de Vose). Cada valor tiene una columna de altura 1 que
+      reparte entre él mismo, hasta el umbral, y un único alias. Para generar un valor
+      se elige una columna al azar y se compara con su umbral, con una sola llamada al
+      generador y sin reservar memoria.
+
+      La tabla se construye una vez y no cambia, se puede compartir entre hilos. Cada
+      hilo debe usar su propio generador, el de su FuenteAleatoria.
+     */
+
+    /**
+     * Construye la tabla con el peso de cada valor del enumerado
+     * @param tipo la clase del enumerado
+     * @param peso el peso de cada valor, no negativo y finito; no hace falta que sumen 1
+     */
+    public MuestreoPonderado(Class<E> tipo, ToDoubleFunction<E> peso) {
+        if( tipo == null || peso == null )
+            throw new IllegalArgumentException("El tipo y el peso no pueden ser null");
+
+        this.valores = tipo.getEnumConstants();
+        this.umbral = new double[valores.length];
+        this.alias = new int[valores.length];
+        this.probabilidad = new double[valores.length];
+
+        double total = 0;
+        for (int i = 0; i < valores.length; i++) {
+            probabilidad[i] = peso.applyAsDouble(valores[i]);
+            if( !(probabilidad[i] >= 0) || Double.isInfinite(probabilidad[i]) )
+                throw new IllegalArgumentException("Peso no válido para " + valores[i] + ": " + probabilidad[i]);
+            total += probabilidad[i];
+        }
+        if( !(total > 0) )
+            throw new IllegalArgumentException("Algún peso debe ser positivo");
+
+        for (int i = 0; i < valores.length; i++)
+            probabilidad[i] /= total;
+
+        construirTabla();
+    }
+
+    /**
+     * Muestreo con los pesos de un mapa, los valores que no aparecen tienen peso 0
+     * @param tipo la clase del enumerado
+     * @param pesos el peso de cada valor
+     * @return el muestreo
+     */
+    public static <E extends Enum<E>> MuestreoPonderado<E> de(Class<E> tipo, Map<E, ? extends Number> pesos) {
+        if( pesos == null )
+            throw new IllegalArgumentException("Los pesos no pueden ser null");
+
+        return new MuestreoPonderado<>(tipo, valor -> {
+            Number resultado = pesos.get(valor);
+            return resultado == null ? 0 : resultado.doubleValue();
+        });
+    }
+
+    /**
+     * Muestreo con los pesos de un fichero de configuración, la clave es el nombre del
+     * valor y los valores que no aparecen tienen peso 0
+     * @param tipo la clase del enumerado
+     * @param configuracion las propiedades con los pesos, por ejemplo DISPONIBLE=50
+     * @return el muestreo
+     */
+    public static <E extends Enum<E>> MuestreoPonderado<E> desdeConfiguracion(Class<E> tipo, Properties configuracion) {
+        if( configuracion == null )
+            throw new IllegalArgumentException("La configuración no puede ser null");
+
+        return new MuestreoPonderado<>(tipo, valor -> {
+            String resultado = configuracion.getProperty(valor.name());
+            try {
+                return resultado == null ? 0 : Double.parseDouble(resultado.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Peso no numérico para " + valor + ": " + resultado, e);
+            }
+        });
+    }
+
+    /**
+     * Muestreo en el que todos los valores son igual de probables
+     * @param tipo la clase del enumerado
+     * @return el muestreo
+     */
+    public static <E extends Enum<E>> MuestreoPonderado<E> uniforme(Class<E> tipo) {
+        return new MuestreoPonderado<>(tipo, valor -> 1);
+    }
+
+    /**
+     * Genera un valor según los pesos en tiempo constante
+     * @param generador el generador del hilo que pide el valor
+     * @return el valor generado
+     */
+    public E siguiente(RandomGenerator generador) {
+        double tirada = generador.nextDouble() * valores.length;
+        int columna = (int) tirada;
+
+        return tirada - columna < umbral[columna] ? valores[columna] : valores[alias[columna]];
+    }
+
+    /**
+     * La probabilidad con la que se genera un valor
+     * @param valor el valor del enumerado
+     * @return su peso dividido entre la suma de todos los pesos
+     */
+    public double getProbabilidad(E valor) {
+        if( valor == null )
+            throw new IllegalArgumentException("El valor no puede ser null");
+
+        return probabilidad[valor.ordinal()];
+    }
+
+    /**
+     * Reparte las columnas: las que superan la altura media ceden lo que les sobra a
+     * las que no llegan, cada columna recibe como mucho de un alias
+     */
+    private void construirTabla() {
+        int n = valores.length;
+        int mayor = 0;
+        double[] altura = new double[n];
+        Deque<Integer> pequenas = new ArrayDeque<>();
+        Deque<Integer> grandes = new ArrayDeque<>();
+
+        for (int i = 0; i < n; i++) {
+            altura[i] = probabilidad[i] * n;
+            alias[i] = i;
+            if( probabilidad[i] > probabilidad[mayor] )
+                mayor = i;
+            if( altura[i] < 1 )
+                pequenas.push(i);
+            else
+                grandes.push(i);
+        }
+
+        while( !pequenas.isEmpty() && !grandes.isEmpty() ) {
+            int pequena = pequenas.pop();
+            int grande = grandes.pop();
+
+            umbral[pequena] = altura[pequena];
+            alias[pequena] = grande;
+            altura[grande] -= 1 - altura[pequena];
+            if( altura[grande] < 1 )
+                pequenas.push(grande);
+            else
+                grandes.push(grande);
+        }
+
+        // Lo que queda son columnas completas salvo errores de redondeo, que nunca deben
+        // hacer posible un valor de peso 0
+        while( !grandes.isEmpty() )
+            umbral[grandes.pop()] = 1;
+        while( !pequenas.isEmpty() ) {
+            int pequena = pequenas.pop();
+            umbral[pequena] = probabilidad[pequena] > 0 ? 1 : 0;
+            alias[pequena] = mayor;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder resultado = new StringBuilder("MuestreoPonderado{");
+
+        for (int i = 0; i < valores.length; i++)
+            resultado.append(i == 0 ? "" : ", ").append(valores[i]).append('=').append(probabilidad[i]);
+
+        return resultado.append('}').toString();
+    }
+}
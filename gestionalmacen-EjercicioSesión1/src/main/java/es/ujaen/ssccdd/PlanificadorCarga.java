@@ -0,0 +1,227 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class PlanificadorCarga {
+    private static final Comparator<Solicitud> PRIORIDAD = Comparator.comparingInt(Solicitud::bateria)
+            .thenComparing(Comparator.comparingInt(Solicitud::trabajoPendiente).reversed())
+            .thenComparingLong(Solicitud::llegada);
+
+    private final int muellesPorZona;           // Muelles de carga de cada zona
+    private final Queue<Solicitud>[] esperas;   // Robots que esperan muelle en cada zona
+    private final List<Carga>[] muelles;        // Robots que cargan en cada zona
+    private final Set<String> atendidos;        // Robots en espera o cargando
+    private final CurvaCarga curva;             // Cómo sube la batería con el tiempo
+    private final Reloj reloj;                  // Tiempo que llevan los robots en el muelle
+    private final LongAdder cargas;             // Robots que han salido del muelle
+    private long llegadas;                      // Orden de llegada para desempatar
+
+    /*
+        Cada zona tiene sus propios muelles y su propia cola de prioridad, un robot
+        carga en la zona en la que está y no gasta batería en desplazarse. La cola
+        atiende antes al robot con menos batería y, a igualdad, al que tiene más
+        trabajo pendiente; el resto de empates por orden de llegada.
+
+        La carga no se simula con esperas: actualizar() avanza la batería de los
+        robots en los muelles según la curva y el tiempo del reloj desde la última
+        actualización. Con la curva CORRIENTE_TENSION_CONSTANTE el último 20 % cuesta
+        más que el primer 80 %, así que un robot deja el muelle en NIVEL_CARGA_RAPIDA
+        si hay otros esperando en su zona y solo se carga por completo si no hace
+        falta el muelle. Así hay más robots trabajando que parados esperando.
+
+        Los métodos están sincronizados, pero los robots no son seguros entre hilos:
+        mientras un robot está en el planificador solo este debe cambiar su estado.
+     */
+
+    /**
+     * Petición de carga de un robot
+     *
+     * @param robot el robot que necesita carga
+     * @param bateria su nivel de batería al pedirla
+     * @param trabajoPendiente productos que esperan al robot
+     * @param llegada orden de llegada de la petición
+     */
+    private record Solicitud(Robot robot, int bateria, int trabajoPendiente, long llegada) {
+    }
+
+    /**
+     * Robot en un muelle, el nivel se guarda con decimales para que los avances
+     * cortos no se pierdan al redondear
+     */
+    private static class Carga {
+        private final Robot robot;
+        private double nivel;
+        private long ultimaActualizacion;       // Nanosegundos del reloj
+
+        private Carga(Robot robot, long ahora) {
+            this.robot = robot;
+            this.nivel = robot.getNivelBateria();
+            this.ultimaActualizacion = ahora;
+        }
+    }
+
+    public PlanificadorCarga() {
+        this(MUELLES_POR_ZONA);
+    }
+
+    public PlanificadorCarga(int muellesPorZona) {
+        this(muellesPorZona, CurvaCarga.CORRIENTE_TENSION_CONSTANTE, RELOJ_SISTEMA);
+    }
+
+    /**
+     * Crea el planificador con todos los muelles libres
+     * @param muellesPorZona los muelles de carga de cada zona
+     * @param curva cómo sube la batería en un muelle
+     * @param reloj el reloj que marca el tiempo de carga
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PlanificadorCarga(int muellesPorZona, CurvaCarga curva, Reloj reloj) {
+        if( curva == null || reloj == null )
+            throw new IllegalArgumentException("La curva y el reloj no pueden ser null");
+        if( muellesPorZona < 1 )
+            throw new IllegalArgumentException("Debe haber al menos un muelle por zona");
+
+        this.muellesPorZona = muellesPorZona;
+        this.esperas = new Queue[zonasAlmacen.length];
+        this.muelles = new List[zonasAlmacen.length];
+        for (int z = 0; z < zonasAlmacen.length; z++) {
+            esperas[z] = new PriorityQueue<>(PRIORIDAD);
+            muelles[z] = new ArrayList<>(muellesPorZona);
+        }
+        this.atendidos = new HashSet<>();
+        this.curva = curva;
+        this.reloj = reloj;
+        this.cargas = new LongAdder();
+        this.llegadas = 0;
+    }
+
+    public int getMuellesPorZona() {
+        return muellesPorZona;
+    }
+
+    public long getCargas() {
+        return cargas.sum();
+    }
+
+    public Reloj getReloj() {
+        return reloj;
+    }
+
+    public synchronized int getEsperando(ZonaAlmacen zona) {
+        return esperas[zona.ordinal()].size();
+    }
+
+    public synchronized int getCargando(ZonaAlmacen zona) {
+        return muelles[zona.ordinal()].size();
+    }
+
+    /**
+     * Pide un muelle de carga para el robot sin trabajo pendiente
+     * @see #solicitarCarga(Robot, int)
+     */
+    public boolean solicitarCarga(Robot robot) {
+        return solicitarCarga(robot, 0);
+    }
+
+    /**
+     * Pide un muelle de carga en la zona del robot, que queda EN_CARGA. Si hay un
+     * muelle libre entra en el acto, si no espera su turno en la cola de la zona.
+     *
+     * @param robot el robot que necesita carga, no puede llevar producto
+     * @param trabajoPendiente productos que esperan al robot, desempata entre robots
+     *                         con la misma batería
+     * @return true si la petición se ha admitido, false si el robot ya estaba en el
+     *         planificador o no puede cargar
+     */
+    public synchronized boolean solicitarCarga(Robot robot, int trabajoPendiente) {
+        if( robot == null || trabajoPendiente < 0 )
+            throw new IllegalArgumentException("El robot no puede ser null ni el trabajo pendiente negativo");
+
+        boolean resultado = !atendidos.contains(robot.getId()) && robot.iniciarCarga();
+
+        if( resultado ) {
+            int z = robot.getPosicionActual().ordinal();
+
+            atendidos.add(robot.getId());
+            esperas[z].add(new Solicitud(robot, robot.getNivelBateria(), trabajoPendiente, llegadas++));
+            ocuparMuelles(z, reloj.nanos());
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Avanza la carga de los robots en los muelles hasta el instante actual del
+     * reloj, saca a los que han terminado y da sus muelles a los siguientes de la
+     * cola de cada zona.
+     *
+     * @return los robots que han salido del muelle y vuelven a estar LIBRE
+     */
+    public synchronized List<Robot> actualizar() {
+        List<Robot> resultado = new ArrayList<>();
+        long ahora = reloj.nanos();
+
+        for (int z = 0; z < zonasAlmacen.length; z++) {
+            Iterator<Carga> iterador = muelles[z].iterator();
+
+            while( iterador.hasNext() ) {
+                Carga carga = iterador.next();
+                double milisegundos = (double) (ahora - carga.ultimaActualizacion) / TimeUnit.MILLISECONDS.toNanos(1);
+
+                carga.nivel = curva.cargar(carga.nivel, milisegundos);
+                carga.ultimaActualizacion = ahora;
+                carga.robot.cargarBateria((int) Math.round(carga.nivel));
+
+                if( terminada(carga.robot, z) && carga.robot.finalizarCarga() ) {
+                    iterador.remove();
+                    atendidos.remove(carga.robot.getId());
+                    cargas.increment();
+                    resultado.add(carga.robot);
+                }
+            }
+
+            ocuparMuelles(z, ahora);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Un robot sale del muelle con la batería completa, o al final de la carga
+     * rápida si otros robots esperan en su zona
+     */
+    private boolean terminada(Robot robot, int z) {
+        return robot.getNivelBateria() >= COMPLETA ||
+               (robot.getNivelBateria() >= NIVEL_CARGA_RAPIDA && !esperas[z].isEmpty());
+    }
+
+    /**
+     * Lleva a los muelles libres de la zona a los primeros robots de su cola
+     */
+    private void ocuparMuelles(int z, long ahora) {
+        while( muelles[z].size() < muellesPorZona && !esperas[z].isEmpty() )
+            muelles[z].add(new Carga(esperas[z].poll().robot(), ahora));
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder resultado = new StringBuilder("PlanificadorCarga{muellesPorZona=" + muellesPorZona);
+
+        for (ZonaAlmacen zona : zonasAlmacen)
+            resultado.append(", ").append(zona).append("=").append(getCargando(zona)).append("+")
+                    .append(getEsperando(zona));
+
+        return resultado.append(", cargas=").append(getCargas()).append('}').toString();
+    }
+}
@@ -1,6 +1,8 @@
 package es.ujaen.ssccdd;
 
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static es.ujaen.ssccdd.Constantes.*;
 
@@ -8,7 +10,7 @@ public class Producto {
     private final String id;                // Identificador único
     private final TipoProducto tipo;        // Tipo del producto
     private ZonaAlmacen ubicacion;          // Ubicación en almacén
-    private boolean reservado;              // Si está asignado a un robot
+    private final AtomicReference<Reserva> reserva; // Estado de reserva y robot propietario
 
     /*
         Los atributos no pueden ser nulos y se inicializan en el constructor
@@ -18,14 +20,14 @@ public class Producto {
         this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
         this.tipo = tipo;
         this.ubicacion = ubicacion;
-        this.reservado = !ASIGNADO;
+        this.reserva = new AtomicReference<>(Reserva.LIBRE);
     }
 
     public Producto(Producto producto) {
         this.id = producto.id;
         this.tipo = producto.tipo;
         this.ubicacion = producto.ubicacion;
-        this.reservado = producto.reservado;
+        this.reserva = new AtomicReference<>(producto.reserva.get());
     }
 
     /*
@@ -45,24 +47,108 @@ public class Producto {
     }
 
     public void setReservado(boolean reservado) {
-        this.reservado = reservado;
+        reserva.set(reservado ? new Reserva(EstadoReserva.RESERVADO, SIN_PROPIETARIO) : Reserva.LIBRE);
     }
 
+    /**
+     * @return true si el producto está reservado o en manos de un robot
+     */
     public boolean isReservado() {
-        return reservado;
+        EstadoReserva estado = reserva.get().estado();
+
+        return estado == EstadoReserva.RESERVADO || estado == EstadoReserva.RECOGIDO;
+    }
+
+    public EstadoReserva getEstadoReserva() {
+        return reserva.get().estado();
+    }
+
+    /**
+     * Robot que tiene reservado, transporta o ha entregado el producto
+     * @return el identificador del robot o null si el producto está libre
+     */
+    public String getPropietario() {
+        Reserva actual = reserva.get();
+
+        return actual.estado() == EstadoReserva.LIBRE ? null : actual.idRobot();
     }
 
     /**
      * Asigna el producto a un robot para su recogida
      * Verifica que el producto no esté ya reservado
-     * Actualiza el estado de reserva
+     * Actualiza el estado de reserva. La reserva no indica robot, así que
+     * cualquier robot puede recoger después el producto.
      */
     public boolean reservarProducto() {
+        return reservarProducto(SIN_PROPIETARIO);
+    }
+
+    /**
+     * Reserva el producto para el robot indicado. La operación es atómica y no
+     * bloquea: si varios robots compiten por el mismo producto solo uno de ellos
+     * obtiene la reserva.
+     *
+     * @param idRobot el robot que reclama el producto
+     * @return true si el robot ha obtenido la reserva, false si ya estaba reservado
+     */
+    public boolean reservarProducto(String idRobot) {
+        Objects.requireNonNull(idRobot, "El robot no puede ser null");
+
+        return reserva.compareAndSet(Reserva.LIBRE, new Reserva(EstadoReserva.RESERVADO, idRobot));
+    }
+
+    /**
+     * Marca el producto como recogido por el robot. Se admite desde LIBRE, en cuyo
+     * caso reserva y recogida se hacen en un único paso, desde una reserva del
+     * mismo robot o desde una reserva sin propietario.
+     *
+     * @param idRobot el robot que recoge el producto
+     * @return true si el producto queda en manos del robot, false si pertenece a otro
+     */
+    public boolean recogerProducto(String idRobot) {
+        Objects.requireNonNull(idRobot, "El robot no puede ser null");
+        Reserva recogido = new Reserva(EstadoReserva.RECOGIDO, idRobot);
         boolean resultado = !EXITO;
+        Reserva actual = reserva.get();
 
-        if( !reservado ) {
-            reservado = ASIGNADO;
-            resultado = EXITO;
+        while( !resultado && puedeRecoger(actual, idRobot) ) {
+            if( actual.estado() == EstadoReserva.RECOGIDO || reserva.compareAndSet(actual, recogido) )
+                resultado = EXITO;
+            else
+                actual = reserva.get();
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Un robot puede recoger el producto si está libre, si ya es suyo o si está
+     * reservado sin indicar robot. Un producto entregado no se vuelve a recoger.
+     */
+    private static boolean puedeRecoger(Reserva actual, String idRobot) {
+        return actual.estado() != EstadoReserva.ENTREGADO &&
+               (actual.estado() == EstadoReserva.LIBRE || actual.idRobot().equals(idRobot) ||
+                (actual.estado() == EstadoReserva.RESERVADO && actual.idRobot().equals(SIN_PROPIETARIO)));
+    }
+
+    /**
+     * Marca como entregado el producto que transporta el robot. Es un estado
+     * definitivo: el producto ya no se libera ni lo recoge otro robot.
+     *
+     * @param idRobot el robot que ha entregado el producto
+     * @return true si el producto estaba recogido por el robot y queda entregado
+     */
+    public boolean entregarProducto(String idRobot) {
+        Objects.requireNonNull(idRobot, "El robot no puede ser null");
+        Reserva entregado = new Reserva(EstadoReserva.ENTREGADO, idRobot);
+        boolean resultado = !EXITO;
+        Reserva actual = reserva.get();
+
+        while( !resultado && actual.estado() == EstadoReserva.RECOGIDO && actual.idRobot().equals(idRobot) ) {
+            if( reserva.compareAndSet(actual, entregado) )
+                resultado = EXITO;
+            else
+                actual = reserva.get();
         }
 
         return resultado;
@@ -73,7 +159,29 @@ public class Producto {
      * Permite que otro robot pueda recogerlo
      */
     public void liberarProducto() {
-        reservado = !ASIGNADO;
+        reserva.set(Reserva.LIBRE);
+    }
+
+    /**
+     * Libera el producto solo si el robot indicado es su propietario, de forma
+     * que un robot no pueda deshacer la reserva de otro.
+     *
+     * @param idRobot el robot que libera el producto
+     * @return true si el producto ha quedado libre
+     */
+    public boolean liberarProducto(String idRobot) {
+        boolean resultado = !EXITO;
+        Reserva actual = reserva.get();
+
+        while( !resultado && (actual.estado() == EstadoReserva.RESERVADO || actual.estado() == EstadoReserva.RECOGIDO)
+                && actual.idRobot().equals(idRobot) ) {
+            if( reserva.compareAndSet(actual, Reserva.LIBRE) )
+                resultado = EXITO;
+            else
+                actual = reserva.get();
+        }
+
+        return resultado;
     }
 
     /**
@@ -135,7 +243,20 @@ public class Producto {
                 "id='" + id + '\'' +
                 ", tipo=" + tipo +
                 ", ubicacion=" + ubicacion +
-                ", reservado=" + reservado +
+                ", reserva=" + reserva.get() +
                 '}';
     }
+
+    /**
+     * Valor inmutable con el estado de reserva y el robot propietario. Se sustituye
+     * completo mediante CAS para que ambos datos cambien a la vez.
+     */
+    private record Reserva(EstadoReserva estado, String idRobot) {
+        private static final Reserva LIBRE = new Reserva(EstadoReserva.LIBRE, SIN_PROPIETARIO);
+
+        @Override
+        public String toString() {
+            return estado == EstadoReserva.LIBRE ? estado.toString() : estado + "(" + idRobot + ")";
+        }
+    }
 }
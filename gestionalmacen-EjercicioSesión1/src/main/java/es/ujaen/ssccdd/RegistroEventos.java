@@ -0,0 +1,277 @@
+package es.ujaen.ssccdd;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class RegistroEventos implements Consumer<EventoAlmacen>, AutoCloseable {
+    private static final long SECUENCIA_CIERRE = Long.MAX_VALUE / 2; // Salto que deja el buffer lleno para siempre
+
+    private final AtomicReferenceArray<EventoAlmacen> eventos; // Buffer circular de eventos pendientes
+    private final int mascara;                  // Capacidad - 1, la capacidad es potencia de dos
+    private final AtomicLong siguiente;         // Siguiente secuencia que reclamará un productor
+    private volatile long consumido;            // Primera secuencia aún no escrita, solo la avanza el escritor
+    private volatile long ultima;               // Última secuencia reclamada antes del cierre
+    private final LongAdder escritos;           // Eventos escritos en disco
+    private final LongAdder rechazados;         // Eventos rechazados por buffer lleno o registro cerrado
+    private final DestinoEventos destino;       // Fichero de eventos, en texto o en binario
+    private final Thread escritor;              // Único consumidor del buffer
+    private volatile boolean cerrado;
+    private volatile IOException error;         // Primer error de escritura, se notifica al cerrar
+
+    /*
+        Buffer de varios productores y un único consumidor. Los productores reclaman una
+        secuencia mediante CAS y publican el evento en su casilla; el escritor recorre las
+        casillas en orden, escribe los eventos por lotes y deja la casilla a null para
+        que pueda reutilizarse. Ningún productor bloquea a otro ni espera por el disco.
+
+        Si el destino falla, también con una excepción no comprobada, el escritor guarda
+        el primer error y sigue vaciando el buffer sin escribir, para que accept() no se
+        quede esperando un hueco que nunca llega. El error se lanza al cerrar. El
+        escritor es un hilo daemon y no impide que la JVM termine si no se cierra el
+        registro, aunque entonces los eventos pendientes se pierden.
+     */
+
+    public RegistroEventos(Path fichero) throws IOException {
+        this(fichero, CAPACIDAD_REGISTRO);
+    }
+
+    public RegistroEventos(Path fichero, int capacidad) throws IOException {
+        this(abrirTexto(fichero, capacidad), capacidad);
+    }
+
+    /**
+     * Crea un registro que vuelca los eventos en el destino indicado, por ejemplo
+     * un EscritorDiario para guardarlos en formato binario
+     */
+    public RegistroEventos(DestinoEventos destino, int capacidad) {
+        if( destino == null || capacidad < 1 )
+            throw new IllegalArgumentException("El destino no puede ser null y la capacidad debe ser positiva");
+
+        int tamano = Integer.highestOneBit(capacidad);
+        tamano = (tamano < capacidad) ? tamano << 1 : tamano;
+
+        this.eventos = new AtomicReferenceArray<>(tamano);
+        this.mascara = tamano - 1;
+        this.siguiente = new AtomicLong();
+        this.consumido = 0;
+        this.ultima = Long.MAX_VALUE;
+        this.escritos = new LongAdder();
+        this.rechazados = new LongAdder();
+        this.destino = destino;
+        this.cerrado = false;
+        this.escritor = TipoHilo.PLATAFORMA.getFabrica().newThread(this::escribir);
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    public int getCapacidad() {
+        return mascara + 1;
+    }
+
+    public long getEscritos() {
+        return escritos.sum();
+    }
+
+    public long getRechazados() {
+        return rechazados.sum();
+    }
+
+    /**
+     * Número de eventos registrados que aún no se han escrito en disco
+     * @return los eventos pendientes
+     */
+    public long getPendientes() {
+        return Math.min(siguiente.get(), ultima) - consumido;
+    }
+
+    /**
+     * Añade un evento al registro sin esperar nunca
+     *
+     * @param evento el evento a registrar
+     * @return true si el evento se ha aceptado, false si el buffer está lleno o el registro cerrado
+     */
+    public boolean registrar(EventoAlmacen evento) {
+        if( evento == null )
+            throw new IllegalArgumentException("El evento no puede ser null");
+
+        boolean resultado = !EXITO;
+        boolean lleno = !EXITO;
+        long secuencia = siguiente.get();
+
+        while( !cerrado && !resultado && !lleno ) {
+            if( secuencia - consumido > mascara )
+                lleno = EXITO;
+            else if( siguiente.compareAndSet(secuencia, secuencia + 1) )
+                resultado = EXITO;
+            else
+                secuencia = siguiente.get();
+        }
+
+        if( resultado )
+            eventos.set((int) (secuencia & mascara), evento);
+        else
+            rechazados.increment();
+
+        return resultado;
+    }
+
+    /**
+     * Añade un evento al registro. Si el buffer está lleno cede el procesador hasta
+     * que el escritor libere espacio, de forma que no se pierden eventos mientras el
+     * registro esté abierto.
+     *
+     * @param evento el evento a registrar
+     */
+    @Override
+    public void accept(EventoAlmacen evento) {
+        if( evento == null )
+            throw new IllegalArgumentException("El evento no puede ser null");
+
+        boolean registrado = !EXITO;
+        long secuencia = siguiente.get();
+
+        while( !cerrado && !registrado ) {
+            if( secuencia - consumido > mascara ) {
+                Thread.yield();
+                secuencia = siguiente.get();
+            } else if( siguiente.compareAndSet(secuencia, secuencia + 1) ) {
+                registrado = EXITO;
+            } else {
+                secuencia = siguiente.get();
+            }
+        }
+
+        if( registrado )
+            eventos.set((int) (secuencia & mascara), evento);
+        else
+            rechazados.increment();
+    }
+
+    /**
+     * Deja de aceptar eventos, espera a que el escritor vuelque los pendientes y
+     * cierra el fichero
+     *
+     * @throws IOException si alguna escritura ha fallado
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        cerrado = true;
+        escritor.join();
+        destino.close();
+
+        if( error != null )
+            throw error;
+    }
+
+    /**
+     * Bucle del escritor. Recoge todos los eventos publicados de forma consecutiva, con
+     * un máximo de LOTE_REGISTRO, los escribe y vacía el buffer de escritura una vez
+     * por lote. Si no hay eventos descansa un instante.
+     * Al cerrar, desplaza la secuencia de los productores para que el buffer parezca
+     * lleno a partir de ese momento y termina tras escribir las secuencias ya reclamadas.
+     */
+    private void escribir() {
+        long secuencia = consumido;
+
+        while( secuencia < ultima ) {
+            int lote = 0;
+            EventoAlmacen evento;
+
+            if( cerrado && ultima == Long.MAX_VALUE )
+                ultima = siguiente.getAndAdd(SECUENCIA_CIERRE);
+
+            while( lote < LOTE_REGISTRO && (evento = eventos.get((int) (secuencia & mascara))) != null ) {
+                escribirEvento(evento);
+                eventos.set((int) (secuencia & mascara), null);
+                secuencia++;
+                lote++;
+            }
+
+            if( lote > 0 ) {
+                volcar();
+                escritos.add(lote);
+                consumido = secuencia;
+            } else if( secuencia < ultima ) {
+                LockSupport.parkNanos(ESPERA_REGISTRO);
+            }
+        }
+    }
+
+    private void escribirEvento(EventoAlmacen evento) {
+        try {
+            if( error == null )
+                destino.escribir(evento);
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Error en el destino de eventos", e);
+        }
+    }
+
+    private void volcar() {
+        try {
+            if( error == null )
+                destino.volcar();
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Error en el destino de eventos", e);
+        }
+    }
+
+    private static DestinoEventos abrirTexto(Path fichero, int capacidad) throws IOException {
+        if( fichero == null || capacidad < 1 )
+            throw new IllegalArgumentException("El fichero no puede ser null y la capacidad debe ser positiva");
+
+        return new Texto(fichero);
+    }
+
+    /**
+     * Destino por defecto, una línea de texto por evento con su toString()
+     */
+    private static class Texto implements DestinoEventos {
+        private final BufferedWriter salida;
+
+        Texto(Path fichero) throws IOException {
+            this.salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void escribir(EventoAlmacen evento) throws IOException {
+            salida.write(evento.toString());
+            salida.newLine();
+        }
+
+        @Override
+        public void volcar() throws IOException {
+            salida.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            salida.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RegistroEventos{" +
+                "capacidad=" + getCapacidad() +
+                ", pendientes=" + getPendientes() +
+                ", escritos=" + getEscritos() +
+                ", rechazados=" + getRechazados() +
+                ", cerrado=" + cerrado +
+                '}';
+    }
+}
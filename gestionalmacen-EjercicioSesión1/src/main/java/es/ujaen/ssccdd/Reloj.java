@@ -0,0 +1,56 @@
+package es.ujaen.ssccdd;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuente de tiempo de la aplicación. Las marcas de tiempo son milisegundos o
+ * nanosegundos desde la época, de forma que comprobar un plazo es una comparación
+ * de enteros sin crear objetos Date.
+ */
+public interface Reloj {
+
+    /**
+     * @return el instante actual en milisegundos desde la época
+     */
+    long milis();
+
+    /**
+     * @return el instante actual en nanosegundos desde la época, nunca retrocede
+     */
+    long nanos();
+
+    /**
+     * Espera el tiempo indicado según este reloj
+     * @param tiempo el tiempo de espera
+     * @param unidad la unidad del tiempo de espera
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    void esperar(long tiempo, TimeUnit unidad) throws InterruptedException;
+
+    /**
+     * Comprueba si se ha alcanzado un instante
+     * @param instante el instante en milisegundos desde la época
+     * @return true si el instante es anterior al momento actual
+     */
+    default boolean vencido(long instante) {
+        return instante < milis();
+    }
+
+    /**
+     * @return la fecha actual, solo para las operaciones que necesitan un Date
+     */
+    default Date fecha() {
+        return new Date(milis());
+    }
+
+    /**
+     * Suma una cantidad de segundos a un instante
+     * @param instante el instante en milisegundos desde la época
+     * @param segundos los segundos a sumar
+     * @return el nuevo instante en milisegundos desde la época
+     */
+    static long sumarSegundos(long instante, int segundos) {
+        return instante + TimeUnit.SECONDS.toMillis(segundos);
+    }
+}
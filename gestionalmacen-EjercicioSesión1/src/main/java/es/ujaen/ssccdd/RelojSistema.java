@@ -0,0 +1,38 @@
+package es.ujaen.ssccdd;
+
+import java.util.concurrent.TimeUnit;
+
+public class RelojSistema implements Reloj {
+    private final long origen;      // Nanosegundos desde la época cuando System.nanoTime() vale 0
+
+    /*
+        Los nanosegundos se calculan a partir de System.nanoTime() anclado a la época
+        al crear el reloj, así la marca es monótona aunque se ajuste la hora del sistema
+     */
+
+    public RelojSistema() {
+        this.origen = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+    }
+
+    @Override
+    public long milis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanos() {
+        return origen + System.nanoTime();
+    }
+
+    @Override
+    public void esperar(long tiempo, TimeUnit unidad) throws InterruptedException {
+        unidad.sleep(tiempo);
+    }
+
+    @Override
+    public String toString() {
+        return "RelojSistema{" +
+                "fecha=" + fecha() +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package es.ujaen.ssccdd;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RelojVirtual implements Reloj {
+    private final AtomicLong instante;     // Nanosegundos desde la época
+
+    /*
+        El tiempo solo avanza cuando se pide de forma explícita o cuando alguien espera.
+        Una espera lleva el reloj hasta el final de la misma sin dormir, y las esperas
+        que se solapan en distintos hilos no se suman, el reloj queda en la que termina
+        más tarde. Así las pruebas no dependen del tiempo real y las simulaciones van
+        más rápido que el reloj de pared.
+     */
+
+    public RelojVirtual() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * @param inicio el instante inicial en milisegundos desde la época
+     */
+    public RelojVirtual(long inicio) {
+        this.instante = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(inicio));
+    }
+
+    @Override
+    public long milis() {
+        return TimeUnit.NANOSECONDS.toMillis(instante.get());
+    }
+
+    @Override
+    public long nanos() {
+        return instante.get();
+    }
+
+    /**
+     * Adelanta el reloj
+     * @param tiempo el tiempo que se adelanta, no puede ser negativo
+     * @param unidad la unidad del tiempo
+     * @return el nuevo instante en milisegundos desde la época
+     */
+    public long avanzar(long tiempo, TimeUnit unidad) {
+        if( tiempo < 0 || unidad == null )
+            throw new IllegalArgumentException("El tiempo no puede ser negativo ni la unidad null");
+
+        return TimeUnit.NANOSECONDS.toMillis(instante.addAndGet(unidad.toNanos(tiempo)));
+    }
+
+    @Override
+    public void esperar(long tiempo, TimeUnit unidad) throws InterruptedException {
+        if( Thread.interrupted() )
+            throw new InterruptedException();
+
+        long fin = instante.get() + unidad.toNanos(tiempo);
+        instante.accumulateAndGet(fin, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "RelojVirtual{" +
+                "fecha=" + fecha() +
+                '}';
+    }
+}
@@ -2,25 +2,80 @@ package es.ujaen.ssccdd;
 
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static es.ujaen.ssccdd.Constantes.*;
 
 public class Robot {
     private final String id;                // Identificador único
-    private EstadoRobot estado;             // Estado actual
+    private final AtomicReference<Transicion> transicion; // Estado actual y desde cuándo
     private int nivelBateria;               // Porcentaje de batería
     private Producto productoActual;        // Producto que transporta
     private ZonaAlmacen posicionActual;     // Ubicación en el almacén
+    private final ControlZonas controlZonas; // Control de ocupación de zonas, null si no se usa
+    private final VigilanteEstados vigilante; // Avisado de cada transición, null si no se usa
+    private final Reloj reloj;              // Marca de tiempo de las transiciones
 
     /*
         Los atributos no pueden ser nulos y estarán inicializados en el constructor
+
+        Todos los cambios de estado pasan por cambiarEstado(), que solo admite los que
+        permite EstadoRobot.siguienteEstado() y los hace con un único compareAndSet
+        sobre la transición actual. Si dos hilos intentan cambiar el estado a la vez
+        solo uno lo consigue, y el otro ve que el robot ya no está en el estado de
+        partida. El resto de atributos no son seguros entre hilos.
+     */
+
+    /**
+     * Estado del robot y el instante en el que entró en él
+     *
+     * @param estado el estado
+     * @param instante nanosegundos del reloj del robot al entrar en el estado
      */
+    public record Transicion(EstadoRobot estado, long instante) {
+    }
+
     public Robot(String id, ZonaAlmacen posicionActual) {
+        this(id, posicionActual, null);
+    }
+
+    /**
+     * Crea un robot cuyos movimientos respetan la capacidad de cada zona. El robot
+     * ocupa una plaza en su posición inicial.
+     *
+     * @param id identificador del robot
+     * @param posicionActual zona inicial del robot
+     * @param controlZonas control de ocupación de las zonas o null si no se usa
+     */
+    public Robot(String id, ZonaAlmacen posicionActual, ControlZonas controlZonas) {
+        this(id, posicionActual, controlZonas, null);
+    }
+
+    /**
+     * Crea un robot cuyos cambios de estado vigila el vigilante indicado, que
+     * también le da el reloj con el que se marcan las transiciones. El vigilante no
+     * lo tiene en cuenta hasta que se llama a VigilanteEstados.vigilar(Robot).
+     *
+     * @param id identificador del robot
+     * @param posicionActual zona inicial del robot
+     * @param controlZonas control de ocupación de las zonas o null si no se usa
+     * @param vigilante vigilante de los tiempos máximos de cada estado o null si no se usa
+     */
+    public Robot(String id, ZonaAlmacen posicionActual, ControlZonas controlZonas, VigilanteEstados vigilante) {
+        if( posicionActual == null )
+            throw new IllegalArgumentException("La posición inicial del robot no puede ser null");
         this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
+        if( controlZonas != null && !controlZonas.ocupar(this.id, posicionActual) )
+            throw new IllegalStateException("No hay plaza para el robot en " + posicionActual);
+
         this.posicionActual = posicionActual;
         this.productoActual = null;
-        this.estado = EstadoRobot.LIBRE;
         this.nivelBateria = COMPLETA;
+        this.controlZonas = controlZonas;
+        this.vigilante = vigilante;
+        this.reloj = vigilante == null ? RELOJ_SISTEMA : vigilante.getReloj();
+        this.transicion = new AtomicReference<>(new Transicion(EstadoRobot.LIBRE, reloj.nanos()));
     }
 
     /*
@@ -32,7 +87,61 @@ public class Robot {
     }
 
     public EstadoRobot getEstado() {
-        return estado;
+        return transicion.get().estado();
+    }
+
+    public Transicion getTransicion() {
+        return transicion.get();
+    }
+
+    VigilanteEstados getVigilante() {
+        return vigilante;
+    }
+
+    /**
+     * Comprueba si el robot lleva en su estado más tiempo del que permite
+     * EstadoRobot.getTiempoMaximo()
+     * @return true si se ha superado el tiempo máximo del estado actual
+     */
+    public boolean excedeTiempoMaximo() {
+        Transicion actual = transicion.get();
+
+        return reloj.nanos() - actual.instante() > TimeUnit.SECONDS.toNanos(actual.estado().getTiempoMaximo());
+    }
+
+    /**
+     * Cambia el estado del robot de forma atómica si está en el estado esperado y
+     * EstadoRobot.siguienteEstado() permite el cambio. La nueva transición queda
+     * marcada con el instante actual y se avisa al vigilante.
+     *
+     * @param esperado el estado en el que debe estar el robot
+     * @param siguiente el nuevo estado
+     * @return true si se ha cambiado el estado, false si el robot no estaba en el
+     *         estado esperado o la transición no está permitida
+     */
+    public boolean cambiarEstado(EstadoRobot esperado, EstadoRobot siguiente) {
+        if( esperado == null || siguiente == null )
+            throw new IllegalArgumentException("Los estados no pueden ser null");
+
+        boolean resultado = !EXITO;
+        boolean reintentar = esperado.siguienteEstado(siguiente);
+
+        // Solo se reintenta si otro hilo ha cambiado el estado y lo ha devuelto al esperado
+        while( reintentar ) {
+            Transicion actual = transicion.get();
+            Transicion nueva = new Transicion(siguiente, reloj.nanos());
+
+            if( actual.estado() != esperado )
+                reintentar = false;
+            else if( transicion.compareAndSet(actual, nueva) ) {
+                if( vigilante != null )
+                    vigilante.vigilar(this, nueva);
+                resultado = EXITO;
+                reintentar = false;
+            }
+        }
+
+        return resultado;
     }
 
     public int getNivelBateria() {
@@ -53,31 +162,71 @@ public class Robot {
      * - Si transporta un producto que requiere manipulación especial
      * - El nivel de batería necesario para el movimiento
      * - Posibles colisiones con otros robots
+     * Si la zona de destino está completa el movimiento se aplaza sin esperar
+     * y no consume batería.
      *
      * @param destino Nueva posición a la que debe moverse el robot
      * @return true si el movimiento se realizó con éxito, false en caso contrario
      */
     public boolean moverA(ZonaAlmacen destino) {
         boolean resultado = !EXITO;
+        boolean aplazado = !EXITO;
+
+        if( puedeMoverseA(destino) ) {
+            if( controlZonas == null || controlZonas.cambiarZona(id, posicionActual, destino) ) {
+                posicionActual = destino;
+                resultado = EXITO;
+            } else {
+                aplazado = EXITO;
+            }
+        }
 
-        if( nivelBateria > NIVEL_BATERIA_MINIMO && destino != null
-            && !posicionActual.equals(destino) ) {
+        if( !aplazado )
+            consumitBateria();
 
-            posicionActual = destino;
-            resultado = EXITO;
+        return resultado;
+    }
+
+    /**
+     * Mueve el robot a una nueva posición esperando como máximo el tiempo indicado
+     * a que haya plaza en la zona de destino.
+     *
+     * @param destino Nueva posición a la que debe moverse el robot
+     * @param tiempo tiempo máximo de espera
+     * @param unidad unidad del tiempo de espera
+     * @return true si el movimiento se realizó con éxito, false en caso contrario
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public boolean moverA(ZonaAlmacen destino, long tiempo, TimeUnit unidad) throws InterruptedException {
+        boolean resultado = !EXITO;
+        boolean aplazado = !EXITO;
+
+        if( puedeMoverseA(destino) ) {
+            if( controlZonas == null || controlZonas.cambiarZona(id, posicionActual, destino, tiempo, unidad) ) {
+                posicionActual = destino;
+                resultado = EXITO;
+            } else {
+                aplazado = EXITO;
+            }
         }
 
-        consumitBateria();
+        if( !aplazado )
+            consumitBateria();
 
         return resultado;
     }
 
+    private boolean puedeMoverseA(ZonaAlmacen destino) {
+        return nivelBateria > NIVEL_BATERIA_MINIMO && destino != null && !posicionActual.equals(destino);
+    }
+
     /**
      * Recoge un producto de su ubicación actual.
      * Antes de recoger el producto verifica:
      * - Que el robot esté libre y con batería suficiente
      * - Que el producto pueda ser manipulado de forma segura
      * - Que el robot pueda manejar el tipo específico de producto
+     * - Que ningún otro robot haya reservado o recogido el producto
      *
      * @param producto El producto a recoger
      * @return true si el producto se recogió con éxito, false si no se pudo recoger
@@ -85,13 +234,16 @@ public class Robot {
     public boolean recogerProducto(Producto producto) {
         boolean resultado = !EXITO;
 
-        if( estado.equals(EstadoRobot.LIBRE) && !necesitaCarga() &&
-            producto.puedeSerManipulado(nivelBateria) && producto.getUbicacion().equals(posicionActual) ) {
+        if( getEstado().equals(EstadoRobot.LIBRE) && !necesitaCarga() &&
+            producto.puedeSerManipulado(nivelBateria) && producto.getUbicacion().equals(posicionActual)
+            && cambiarEstado(EstadoRobot.LIBRE, EstadoRobot.OCUPADO) ) {
 
-            productoActual = producto;
-            productoActual.setReservado(RESERVADO);
-            estado = EstadoRobot.OCUPADO;
-            resultado = EXITO;
+            if( producto.recogerProducto(id) ) {
+                productoActual = producto;
+                resultado = EXITO;
+            } else {
+                cambiarEstado(EstadoRobot.OCUPADO, EstadoRobot.LIBRE);
+            }
         }
 
         return resultado;
@@ -111,18 +263,55 @@ public class Robot {
     public boolean entregarProducto(EstacionEmpaquetado estacion) {
         boolean resultado = !EXITO;
 
-        if( productoActual != null && estacion != null && estacion.getCapacidadActual() < MAX_PRODUCTOS_ESTACION
-            && estacion.getUbicacion().equals(posicionActual) && !necesitaCarga()) {
+        if( puedeEntregar(estacion) && estacion.recibirProducto(productoActual) ) {
+            completarEntrega();
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Entrega el producto en una estación de empaquetado esperando como máximo el
+     * tiempo indicado a que la estación tenga espacio.
+     *
+     * @param estacion La estación donde se entregará el producto
+     * @param tiempo tiempo máximo de espera
+     * @param unidad unidad del tiempo de espera
+     * @return true si la entrega fue exitosa, false en caso contrario
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public boolean entregarProducto(EstacionEmpaquetado estacion, long tiempo, TimeUnit unidad) throws InterruptedException {
+        boolean resultado = !EXITO;
 
-            estacion.recibirProducto(productoActual);
-            productoActual = null;
-            estado = EstadoRobot.LIBRE;
+        if( puedeEntregar(estacion) && estacion.recibirProducto(productoActual, tiempo, unidad) ) {
+            completarEntrega();
             resultado = EXITO;
         }
 
         return resultado;
     }
 
+    /**
+     * Comprueba las condiciones del robot para realizar una entrega en la estación.
+     * La capacidad de la estación no se comprueba aquí, la decide la propia
+     * estación de forma atómica al recibir el producto.
+     */
+    private boolean puedeEntregar(EstacionEmpaquetado estacion) {
+        return productoActual != null && estacion != null
+                && estacion.getUbicacion().equals(posicionActual) && !necesitaCarga();
+    }
+
+    /**
+     * Actualiza el robot tras una entrega aceptada por la estación. El producto
+     * queda ENTREGADO y no vuelve a estar disponible para otro robot.
+     */
+    private void completarEntrega() {
+        productoActual.entregarProducto(id);
+        productoActual = null;
+        cambiarEstado(EstadoRobot.OCUPADO, EstadoRobot.LIBRE);
+    }
+
     /**
      * Verifica si el robot necesita ir a cargar su batería.
      * La decisión se basa en:
@@ -141,13 +330,81 @@ public class Robot {
                 resultado = EXITO;
             }
         } else if( nivelBateria <= NIVEL_BATERIA_MINIMO ) {
-            estado = EstadoRobot.EN_CARGA;
+            // Si ya estaba EN_CARGA el cambio no es necesario
+            cambiarEstado(EstadoRobot.LIBRE, EstadoRobot.EN_CARGA);
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Recarga por completo la batería del robot. Solo es posible si no transporta
+     * ningún producto y está LIBRE o EN_CARGA, y al terminar el robot queda LIBRE.
+     *
+     * @return true si se ha realizado la carga, false en caso contrario
+     */
+    public boolean cargarBateria() {
+        boolean resultado = !EXITO;
+
+        if( productoActual == null && (getEstado().equals(EstadoRobot.LIBRE) ||
+                                       cambiarEstado(EstadoRobot.EN_CARGA, EstadoRobot.LIBRE)) ) {
+            nivelBateria = COMPLETA;
             resultado = EXITO;
         }
 
         return resultado;
     }
 
+    /**
+     * Deja el robot EN_CARGA para que espere un muelle de carga. Solo es posible si
+     * no transporta ningún producto y está LIBRE o ya EN_CARGA.
+     *
+     * @return true si el robot queda EN_CARGA, false en caso contrario
+     */
+    public boolean iniciarCarga() {
+        boolean resultado = !EXITO;
+
+        if( productoActual == null && (getEstado().equals(EstadoRobot.EN_CARGA) ||
+                                       cambiarEstado(EstadoRobot.LIBRE, EstadoRobot.EN_CARGA)) ) {
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Sube la batería hasta el nivel indicado mientras el robot está en un muelle de
+     * carga. El robot sigue EN_CARGA hasta que se llame a finalizarCarga().
+     *
+     * @param nivel el nuevo nivel de batería, nunca por encima de COMPLETA
+     * @return true si el robot está EN_CARGA y sin producto, false en caso contrario
+     */
+    public boolean cargarBateria(int nivel) {
+        boolean resultado = !EXITO;
+
+        if( productoActual == null && getEstado().equals(EstadoRobot.EN_CARGA) ) {
+            nivelBateria = Math.min(COMPLETA, Math.max(nivelBateria, nivel));
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Saca al robot del muelle de carga, queda LIBRE si tiene batería para trabajar
+     *
+     * @return true si el robot ha pasado de EN_CARGA a LIBRE, false en caso contrario
+     */
+    public boolean finalizarCarga() {
+        boolean resultado = !EXITO;
+
+        if( nivelBateria > NIVEL_BATERIA_MINIMO && cambiarEstado(EstadoRobot.EN_CARGA, EstadoRobot.LIBRE) )
+            resultado = EXITO;
+
+        return resultado;
+    }
+
     /**
      * Actualiza el nivel de batería del robot reduciéndolo en una cantidad fija.
      *
@@ -156,10 +413,10 @@ public class Robot {
      *
      * El valor de reducción está definido por la constante {@code CONSUMO_BATERIA}.
      * Debe llamarse a este método solamente cuando sea necesario ajustar el
-     * nivel de batería en función de sus operaciones.
+     * nivel de batería en función de sus operaciones. La batería nunca baja de 0.
      */
     private void consumitBateria() {
-        nivelBateria -= CONSUMO_BATERIA;
+        nivelBateria = Math.max(0, nivelBateria - CONSUMO_BATERIA);
     }
 
     /**
@@ -178,7 +435,7 @@ public class Robot {
     public String toString() {
         return "Robot{" +
                 "id='" + id + '\'' +
-                ", estado=" + estado +
+                ", estado=" + getEstado() +
                 ", nivelBateria=" + nivelBateria +
                 ", productoActual=" + productoActual +
                 ", posicionActual=" + posicionActual +
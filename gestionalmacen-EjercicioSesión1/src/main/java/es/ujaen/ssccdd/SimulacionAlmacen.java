@@ -0,0 +1,393 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class SimulacionAlmacen {
+    private final List<Robot> robots;                   // Robots que trabajan en el almacén
+    private final List<EstacionEmpaquetado> estaciones; // Estaciones de empaquetado
+    private final Inventario inventario;                // Productos pendientes de recoger
+    private final TipoEjecutor tipoEjecutor;            // Ejecutor de las tareas de los robots
+    private final int hilos;                            // Hilos del ejecutor si es de tamaño fijo
+    private final LongAdder recogidas;                  // Productos recogidos
+    private final LongAdder entregas;                   // Productos entregados en estaciones
+    private final LongAdder cargas;                     // Recargas de batería realizadas
+    private final Consumer<EventoAlmacen> registro;     // Destino de los eventos de la simulación
+    private final Reloj reloj;                          // Tiempo de las recargas y de los eventos
+    private final PlanificadorCarga planificador;       // Muelles de carga, null si la recarga es inmediata
+    private final Despachador despachador;              // Reparto de productos, null si cada robot busca el suyo
+    private volatile boolean enMarcha;                  // Si los robots deben seguir trabajando
+    private ExecutorService ejecutor;
+    private CountDownLatch robotsActivos;
+
+    /*
+        Cada paso de un robot (recoger, moverse, entregar o cargar) es una tarea corta
+        que vuelve a enviarse al ejecutor al terminar, así un pool con menos hilos que
+        robots reparte el tiempo entre todos ellos
+
+        Sin planificador de carga un robot recarga la batería completa en TIEMPO_CARGA.
+        Con planificador pide un muelle de su zona y queda EN_CARGA; mientras lo está,
+        cada paso suyo espera ESPERA_MUELLE y actualiza el planificador, que avanza la
+        carga de todos los robots en los muelles y saca a los que terminan. Solo el
+        planificador cambia a un robot EN_CARGA, el paso del robot no lo toca.
+
+        Sin despachador cada robot busca un producto en su zona o va a la zona con más
+        productos. Con despachador el robot que busca producto toma su asignación y, si
+        no tiene, ejecuta un tic que reparte productos a todos los robots libres de la
+        flota; después va a la zona de su producto y lo recoge. El tic y la recogida se
+        hacen con el despachador bloqueado, así ningún tic devuelve al inventario un
+        producto que su robot está recogiendo. Los movimientos quedan fuera porque
+        pueden esperar plaza en la zona: un tic puede ver la posición anterior de un
+        robot, lo que solo empeora el reparto de ese tic.
+     */
+
+    public SimulacionAlmacen(List<Robot> robots, List<EstacionEmpaquetado> estaciones, Inventario inventario,
+                             TipoEjecutor tipoEjecutor, int hilos) {
+        this(robots, estaciones, inventario, tipoEjecutor, hilos, evento -> {});
+    }
+
+    /**
+     * Crea una simulación que notifica al registro cada recogida, entrega, recarga y
+     * entrega rechazada por estación llena
+     */
+    public SimulacionAlmacen(List<Robot> robots, List<EstacionEmpaquetado> estaciones, Inventario inventario,
+                             TipoEjecutor tipoEjecutor, int hilos, Consumer<EventoAlmacen> registro) {
+        this(robots, estaciones, inventario, tipoEjecutor, hilos, registro, RELOJ_SISTEMA);
+    }
+
+    /**
+     * Crea una simulación cuyo tiempo lo marca el reloj indicado. Con un RelojVirtual
+     * las recargas no esperan y la simulación avanza más rápido que el tiempo real.
+     */
+    public SimulacionAlmacen(List<Robot> robots, List<EstacionEmpaquetado> estaciones, Inventario inventario,
+                             TipoEjecutor tipoEjecutor, int hilos, Consumer<EventoAlmacen> registro, Reloj reloj) {
+        this(robots, estaciones, inventario, tipoEjecutor, hilos, registro, reloj, null);
+    }
+
+    /**
+     * Crea una simulación en la que los robots cargan en los muelles del planificador
+     * @param planificador los muelles de carga, con el reloj de la simulación, o null
+     *                     para que la recarga sea inmediata
+     */
+    public SimulacionAlmacen(List<Robot> robots, List<EstacionEmpaquetado> estaciones, Inventario inventario,
+                             TipoEjecutor tipoEjecutor, int hilos, Consumer<EventoAlmacen> registro, Reloj reloj,
+                             PlanificadorCarga planificador) {
+        this(robots, estaciones, inventario, tipoEjecutor, hilos, registro, reloj, planificador, null);
+    }
+
+    /**
+     * Crea una simulación en la que el despachador reparte los productos entre los robots
+     * @param planificador los muelles de carga, con el reloj de la simulación, o null
+     *                     para que la recarga sea inmediata
+     * @param despachador el despachador del inventario de la simulación, o null para
+     *                    que cada robot busque su producto
+     */
+    public SimulacionAlmacen(List<Robot> robots, List<EstacionEmpaquetado> estaciones, Inventario inventario,
+                             TipoEjecutor tipoEjecutor, int hilos, Consumer<EventoAlmacen> registro, Reloj reloj,
+                             PlanificadorCarga planificador, Despachador despachador) {
+        if( robots == null || estaciones == null || inventario == null || tipoEjecutor == null || registro == null
+                || reloj == null )
+            throw new IllegalArgumentException("No puede haber argumentos nulos");
+        if( estaciones.isEmpty() || hilos < 1 )
+            throw new IllegalArgumentException("Debe haber al menos una estación y un hilo");
+        if( planificador != null && planificador.getReloj() != reloj )
+            throw new IllegalArgumentException("El planificador debe usar el reloj de la simulación");
+        if( despachador != null && despachador.getInventario() != inventario )
+            throw new IllegalArgumentException("El despachador debe repartir el inventario de la simulación");
+
+        this.robots = new ArrayList<>(robots);
+        this.estaciones = new ArrayList<>(estaciones);
+        this.inventario = inventario;
+        this.tipoEjecutor = tipoEjecutor;
+        this.hilos = hilos;
+        this.recogidas = new LongAdder();
+        this.entregas = new LongAdder();
+        this.cargas = new LongAdder();
+        this.registro = registro;
+        this.reloj = reloj;
+        this.planificador = planificador;
+        this.despachador = despachador;
+        this.enMarcha = false;
+    }
+
+    public long getRecogidas() {
+        return recogidas.sum();
+    }
+
+    public long getEntregas() {
+        return entregas.sum();
+    }
+
+    public long getCargas() {
+        return cargas.sum();
+    }
+
+    /**
+     * Ejecuta la simulación hasta que se hayan entregado todos los productos del
+     * inventario o haya pasado el tiempo indicado. Arranca el empaquetador de cada
+     * estación y lo detiene al terminar.
+     *
+     * @param duracion tiempo máximo de simulación
+     * @param unidad unidad del tiempo de simulación
+     * @return el resultado de la simulación
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public synchronized Resultado ejecutar(long duracion, TimeUnit unidad) throws InterruptedException {
+        recogidas.reset();
+        entregas.reset();
+        cargas.reset();
+        robotsActivos = new CountDownLatch(robots.size());
+        ejecutor = tipoEjecutor.crearEjecutor(hilos);
+        enMarcha = true;
+
+        for (EstacionEmpaquetado estacion : estaciones)
+            estacion.iniciarEmpaquetado(tipoEjecutor.getTipoHilo(), MAX_PRODUCTOS_ESTACION);
+
+        long inicio = System.nanoTime();
+        try {
+            for (Robot robot : robots)
+                ejecutor.execute(() -> ciclo(robot));
+
+            robotsActivos.await(duracion, unidad);
+        } finally {
+            enMarcha = false;
+            // Un robot atascado en su paso no debe bloquear el final de la simulación
+            if( !robotsActivos.await(ESPERA_FIN_SIMULACION, TimeUnit.MILLISECONDS) )
+                ejecutor.shutdownNow();
+            else
+                ejecutor.shutdown();
+            for (EstacionEmpaquetado estacion : estaciones)
+                estacion.detenerEmpaquetado();
+        }
+
+        return new Resultado(tipoEjecutor, robots.size(), hilos, getRecogidas(), getEntregas(), getCargas(),
+                System.nanoTime() - inicio);
+    }
+
+    /**
+     * Ejecuta un paso del robot y vuelve a planificarlo mientras tenga trabajo y la
+     * simulación siga en marcha. Si el robot no se vuelve a planificar, por haber
+     * terminado o por un error en su paso, se descuenta de los robots activos.
+     */
+    private void ciclo(Robot robot) {
+        boolean replanificado = !EXITO;
+
+        try {
+            if( enMarcha && paso(robot) ) {
+                ejecutor.execute(() -> ciclo(robot));
+                replanificado = EXITO;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if( !replanificado )
+                robotsActivos.countDown();
+        }
+    }
+
+    /**
+     * Un paso del ciclo recoger → mover → entregar → cargar del robot
+     *
+     * @return false si el robot ya no tiene trabajo pendiente
+     */
+    private boolean paso(Robot robot) throws InterruptedException {
+        boolean resultado = EXITO;
+        Producto producto = robot.getProductoActual();
+
+        if( planificador != null && robot.getEstado() == EstadoRobot.EN_CARGA ) {
+            esperarMuelle();
+        } else if( producto != null ) {
+            EstacionEmpaquetado estacion = estacionPara(producto);
+
+            if( !robot.getPosicionActual().equals(estacion.getUbicacion()) ) {
+                robot.moverA(estacion.getUbicacion());
+            } else if( robot.entregarProducto(estacion, ESPERA_ENTREGA, TimeUnit.MILLISECONDS) ) {
+                entregas.increment();
+                registrar(TipoEvento.ENTREGA_PRODUCTO, robot);
+            } else if( estacion.getCapacidadActual() >= MAX_PRODUCTOS_ESTACION ) {
+                registrar(TipoEvento.ESTACION_LLENA, robot);
+            }
+        } else if( robot.necesitaCarga() ) {
+            cargar(robot);
+        } else if( despachador == null ) {
+            resultado = buscarProducto(robot);
+        } else {
+            resultado = despacharProducto(robot);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Recoge un producto en la zona del robot o se desplaza a la zona con más
+     * productos pendientes. Se reserva batería para llegar después a la estación.
+     *
+     * @return false si no quedan productos en el inventario
+     */
+    private boolean buscarProducto(Robot robot) throws InterruptedException {
+        boolean resultado = EXITO;
+        int bateriaTrasMoverse = robot.getNivelBateria() - CONSUMO_BATERIA - 1;
+        Optional<Producto> producto = inventario.siguienteProducto(robot.getId(), robot.getPosicionActual(),
+                bateriaTrasMoverse);
+
+        if( producto.isPresent() ) {
+            if( robot.recogerProducto(producto.get()) ) {
+                recogidas.increment();
+                registrar(TipoEvento.RECOGIDA_PRODUCTO, robot);
+            } else
+                inventario.devolverProducto(robot.getId(), producto.get());
+        } else {
+            ZonaAlmacen zona = zonaConMasProductos();
+
+            // Si el movimiento se aplaza o agota la batería se resuelve en el siguiente paso
+            if( zona == null )
+                resultado = !EXITO;
+            else if( zona.equals(robot.getPosicionActual()) )
+                cargar(robot);
+            else
+                robot.moverA(zona);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Recoge el producto asignado por el despachador o se desplaza a su zona. Si el
+     * robot no tiene asignación se ejecuta un tic para toda la flota; si aun así no
+     * recibe ninguna espera cargando a que quede un producto que pueda llevar.
+     *
+     * @return false si no quedan productos en el inventario
+     */
+    private boolean despacharProducto(Robot robot) throws InterruptedException {
+        boolean resultado = EXITO;
+        ZonaAlmacen destino = null;
+        boolean esperar = !EXITO;
+
+        synchronized (despachador) {
+            Optional<Despachador.Asignacion> asignacion = despachador.getAsignacion(robot.getId());
+
+            if( asignacion.isEmpty() ) {
+                despachador.despachar(robots);
+                asignacion = despachador.getAsignacion(robot.getId());
+            }
+
+            if( asignacion.isPresent() ) {
+                Producto producto = asignacion.get().producto();
+
+                if( !producto.getUbicacion().equals(robot.getPosicionActual()) )
+                    destino = producto.getUbicacion();
+                else if( robot.recogerProducto(producto) ) {
+                    recogidas.increment();
+                    registrar(TipoEvento.RECOGIDA_PRODUCTO, robot);
+                } else
+                    inventario.devolverProducto(robot.getId(), producto);
+            } else if( zonaConMasProductos() == null )
+                resultado = !EXITO;
+            else
+                esperar = EXITO;
+        }
+
+        // Si el movimiento se aplaza o agota la batería se resuelve en el siguiente paso
+        if( destino != null )
+            robot.moverA(destino);
+        else if( esperar )
+            cargar(robot);
+
+        return resultado;
+    }
+
+    /**
+     * Recarga la batería del robot en el acto o, con planificador, le pide un muelle.
+     * Los productos que esperan en su zona le dan prioridad frente a robots con la
+     * misma batería.
+     */
+    private void cargar(Robot robot) throws InterruptedException {
+        if( planificador == null ) {
+            registrar(TipoEvento.ROBOT_EN_CARGA, robot);
+            reloj.esperar(TIEMPO_CARGA, TimeUnit.MILLISECONDS);
+            if( robot.cargarBateria() )
+                cargas.increment();
+        } else {
+            if( planificador.solicitarCarga(robot, inventario.getDisponibles(robot.getPosicionActual())) )
+                registrar(TipoEvento.ROBOT_EN_CARGA, robot);
+            esperarMuelle();
+        }
+    }
+
+    /**
+     * Paso de un robot en un muelle: deja pasar el tiempo y avanza la carga de todos
+     * los robots del planificador
+     */
+    private void esperarMuelle() throws InterruptedException {
+        reloj.esperar(ESPERA_MUELLE, TimeUnit.MILLISECONDS);
+        cargas.add(planificador.actualizar().size());
+    }
+
+    private void registrar(TipoEvento tipo, Robot robot) {
+        registro.accept(EventoAlmacen.ahora(reloj, tipo, robot.getId(), robot.getPosicionActual()));
+    }
+
+    /**
+     * Cada tipo de producto se empaqueta siempre en la misma estación
+     */
+    private EstacionEmpaquetado estacionPara(Producto producto) {
+        return estaciones.get(producto.getTipo().ordinal() % estaciones.size());
+    }
+
+    /**
+     * @return la zona con más productos pendientes o null si el inventario está vacío
+     */
+    private ZonaAlmacen zonaConMasProductos() {
+        ZonaAlmacen resultado = null;
+        int maximo = 0;
+
+        for (ZonaAlmacen zona : ZonaAlmacen.values()) {
+            int disponibles = inventario.getDisponibles(zona);
+            if( disponibles > maximo ) {
+                maximo = disponibles;
+                resultado = zona;
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Resultado de una ejecución de la simulación
+     *
+     * @param tipoEjecutor ejecutor utilizado
+     * @param robots número de robots simulados
+     * @param hilos hilos del ejecutor
+     * @param recogidas productos recogidos
+     * @param entregas productos entregados
+     * @param cargas recargas de batería
+     * @param duracion duración en nanosegundos
+     */
+    public record Resultado(TipoEjecutor tipoEjecutor, int robots, int hilos, long recogidas, long entregas,
+                            long cargas, long duracion) {
+
+        public double getEntregasPorSegundo() {
+            return duracion > 0 ? entregas / (duracion / 1e9) : 0;
+        }
+
+        public double getRobotsPorNucleo() {
+            return (double) robots / Runtime.getRuntime().availableProcessors();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Resultado{ejecutor=%s, robots=%d, hilos=%d, recogidas=%d, entregas=%d, " +
+                            "cargas=%d, duracion=%d ms, entregas/s=%.1f, robots/núcleo=%.1f}",
+                    tipoEjecutor, robots, hilos, recogidas, entregas, cargas,
+                    TimeUnit.NANOSECONDS.toMillis(duracion), getEntregasPorSegundo(), getRobotsPorNucleo());
+        }
+    }
+}
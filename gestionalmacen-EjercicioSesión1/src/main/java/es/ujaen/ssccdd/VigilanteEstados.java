@@ -0,0 +1,215 @@
+package es.ujaen.ssccdd;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static es.ujaen.ssccdd.Constantes.*;
+
+public class VigilanteEstados {
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final PriorityBlockingQueue<Plazo> plazos;      // Transiciones ordenadas por vencimiento
+    private final Map<Robot, Robot.Transicion> atascados;   // Transición en la que se atascó cada robot
+    private final Consumer<EventoAlmacen> registro;         // Destino de los eventos ROBOT_ATASCADO
+    private final Reloj reloj;                              // Marca las transiciones y los vencimientos
+    private final LongAdder detectados;                     // Atascos detectados desde el arranque
+    private Thread vigilante;                               // Hilo que revisa los plazos en segundo plano
+
+    /*
+        Cada transición de un robot deja un plazo en una cola de prioridad ordenada
+        por vencimiento: el instante de la transición más el tiempo máximo del estado.
+        Revisar solo mira la cabeza de la cola y saca los plazos vencidos, no recorre
+        la flota, así que su coste depende de las transiciones que vencen y no del
+        número de robots.
+
+        Un plazo vencido solo es un atasco si la transición sigue siendo la actual del
+        robot, se compara por identidad con la que tiene el robot en ese momento. Los
+        plazos de transiciones ya superadas se descartan sin más. Un robot deja de
+        estar atascado en cuanto cambia de estado.
+     */
+
+    /**
+     * Vencimiento de una transición de un robot
+     */
+    private record Plazo(Robot robot, Robot.Transicion transicion, long vencimiento) {
+    }
+
+    public VigilanteEstados() {
+        this(evento -> {}, RELOJ_SISTEMA);
+    }
+
+    /**
+     * Crea un vigilante que notifica al registro cada robot atascado
+     * @param registro destino de los eventos ROBOT_ATASCADO
+     * @param reloj reloj de las transiciones de los robots vigilados
+     */
+    public VigilanteEstados(Consumer<EventoAlmacen> registro, Reloj reloj) {
+        if( registro == null || reloj == null )
+            throw new IllegalArgumentException("El registro y el reloj no pueden ser null");
+
+        this.plazos = new PriorityBlockingQueue<>(CAPACIDAD_INICIAL, Comparator.comparingLong(Plazo::vencimiento));
+        this.atascados = new ConcurrentHashMap<>();
+        this.registro = registro;
+        this.reloj = reloj;
+        this.detectados = new LongAdder();
+    }
+
+    public Reloj getReloj() {
+        return reloj;
+    }
+
+    public long getDetectados() {
+        return detectados.sum();
+    }
+
+    /**
+     * Empieza a vigilar un robot creado con este vigilante desde su transición
+     * actual. Se llama una sola vez, cuando el robot ya está construido; a partir de
+     * ahí el propio robot anota cada cambio de estado.
+     * @param robot el robot que se vigila
+     */
+    public void vigilar(Robot robot) {
+        if( robot == null || robot.getVigilante() != this )
+            throw new IllegalArgumentException("El robot debe haberse creado con este vigilante");
+
+        vigilar(robot, robot.getTransicion());
+    }
+
+    /**
+     * Anota una nueva transición de un robot, la llama el propio robot al cambiar
+     * de estado
+     * @param robot el robot que ha cambiado de estado
+     * @param transicion su nueva transición
+     */
+    void vigilar(Robot robot, Robot.Transicion transicion) {
+        long maximo = TimeUnit.SECONDS.toNanos(transicion.estado().getTiempoMaximo());
+
+        atascados.remove(robot);
+        plazos.add(new Plazo(robot, transicion, transicion.instante() + maximo));
+    }
+
+    /**
+     * Saca los plazos vencidos hasta el instante actual del reloj y marca como
+     * atascados a los robots que siguen en la misma transición
+     * @return los robots que se han detectado atascados en esta revisión
+     */
+    public synchronized List<Robot> revisar() {
+        List<Robot> resultado = new ArrayList<>();
+        long ahora = reloj.nanos();
+
+        while( !plazos.isEmpty() && plazos.peek().vencimiento() < ahora ) {
+            Plazo plazo = plazos.poll();
+            Robot robot = plazo.robot();
+
+            if( robot.getTransicion() == plazo.transicion() ) {
+                atascados.put(robot, plazo.transicion());
+
+                // Si ha cambiado de estado mientras tanto la marca ya no vale
+                if( robot.getTransicion() != plazo.transicion() )
+                    atascados.remove(robot, plazo.transicion());
+                else {
+                    detectados.increment();
+                    resultado.add(robot);
+                    registro.accept(EventoAlmacen.ahora(reloj, TipoEvento.ROBOT_ATASCADO, robot.getId(),
+                            robot.getPosicionActual()));
+                }
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Robots que siguen en el estado en el que se detectó su atasco
+     * @return una copia de los robots atascados
+     */
+    public List<Robot> getAtascados() {
+        List<Robot> resultado = new ArrayList<>();
+
+        for (Map.Entry<Robot, Robot.Transicion> atasco : atascados.entrySet())
+            if( atasco.getKey().getTransicion() == atasco.getValue() )
+                resultado.add(atasco.getKey());
+
+        return resultado;
+    }
+
+    /**
+     * Número de transiciones cuyo plazo aún no se ha revisado
+     */
+    public int getPendientes() {
+        return plazos.size();
+    }
+
+    /**
+     * Arranca un hilo que revisa los plazos cada ESPERA_VIGILANTE milisegundos de
+     * tiempo real, de forma que los atascos se detectan con ese retraso como máximo
+     *
+     * @param tipoHilo el tipo de hilo del vigilante
+     * @return true si se ha arrancado, false si ya había un vigilante en marcha
+     */
+    public synchronized boolean iniciar(TipoHilo tipoHilo) {
+        if( tipoHilo == null )
+            throw new IllegalArgumentException("El tipo de hilo no puede ser null");
+
+        boolean resultado = !EXITO;
+
+        if( vigilante == null ) {
+            ThreadFactory fabrica = tipoHilo.getFabrica();
+            vigilante = fabrica.newThread(this::vigilarPlazos);
+            vigilante.start();
+            resultado = EXITO;
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Detiene el hilo vigilante y espera a que termine
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public void detener() throws InterruptedException {
+        Thread hilo;
+
+        synchronized (this) {
+            hilo = vigilante;
+            vigilante = null;
+        }
+
+        if( hilo != null ) {
+            hilo.interrupt();
+            hilo.join();
+        }
+    }
+
+    /**
+     * Bucle del hilo vigilante. La espera es de tiempo real aunque el reloj sea
+     * virtual, para no adelantar el reloj de la simulación.
+     */
+    private void vigilarPlazos() {
+        try {
+            while( !Thread.currentThread().isInterrupted() ) {
+                revisar();
+                TimeUnit.MILLISECONDS.sleep(ESPERA_VIGILANTE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VigilanteEstados{" +
+                "pendientes=" + getPendientes() +
+                ", atascados=" + getAtascados().size() +
+                ", detectados=" + getDetectados() +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoEvento.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del control de ocupación de zonas. Se evalúa:
+ * - Que un robot no entra en una zona completa
+ * - Que los movimientos aplazados generan un evento COLISION_EVITADA
+ * - Que un cambio de zona desde una zona que el robot no ocupa se rechaza sin liberar plazas
+ * - Que la capacidad de las zonas se respeta con muchos robots moviéndose a la vez
+ */
+@DisplayName("Pruebas del Control de Zonas")
+public class ControlZonasTest {
+    private List<EventoAlmacen> eventos;
+
+    @BeforeEach
+    void setUp() {
+        eventos = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    @DisplayName("Movimiento aplazado por zona completa")
+    void testMovimientoAplazado() throws InterruptedException {
+        ControlZonas control = new ControlZonas(1, eventos::add);
+        Robot robot1 = new Robot("robot1", ZONA_A, control);
+        Robot robot2 = new Robot("robot2", ZONA_B, control);
+
+        assertThrows(IllegalStateException.class, () -> new Robot("robot3", ZONA_A, control),
+                "No debe colocarse un robot en una zona completa");
+        assertThrows(IllegalArgumentException.class, () -> new Robot("robot4", null, control),
+                "Un robot sin posición no debe ocupar plaza");
+
+        int bateria = robot2.getNivelBateria();
+        assertFalse(robot2.moverA(ZONA_A), "No debe entrar en una zona completa");
+        assertFalse(robot2.moverA(ZONA_A, 10, TimeUnit.MILLISECONDS), "No debe entrar tras la espera");
+
+        assertAll("Movimiento aplazado",
+                () -> assertEquals(ZONA_B, robot2.getPosicionActual(), "Debe permanecer en su zona"),
+                () -> assertEquals(bateria, robot2.getNivelBateria(), "El aplazamiento no consume batería"),
+                () -> assertEquals(2, control.getColisionesEvitadas()),
+                () -> assertEquals(2, eventos.size()),
+                () -> assertEquals(COLISION_EVITADA, eventos.get(0).getTipo()),
+                () -> assertEquals("robot2", eventos.get(0).getIdRobot()),
+                () -> assertEquals(ZONA_A, eventos.get(0).getZona())
+        );
+
+        assertTrue(robot1.moverA(ZONA_C), "Debe poder ir a una zona libre");
+        assertEquals(0, control.getOcupacion(ZONA_A), "La zona de origen debe quedar libre");
+        assertTrue(robot2.moverA(ZONA_A), "Debe entrar cuando la zona queda libre");
+    }
+
+    @Test
+    @DisplayName("Cambio de zona con un origen falso")
+    void testOrigenFalso() {
+        ControlZonas control = new ControlZonas(1, eventos::add);
+        Robot robot = new Robot("robot1", ZONA_A, control);
+
+        assertThrows(IllegalArgumentException.class, () -> control.cambiarZona("intruso", ZONA_B, ZONA_C),
+                "Un robot sin plaza no puede cambiar de zona");
+        assertThrows(IllegalArgumentException.class, () -> control.cambiarZona("robot1", ZONA_B, ZONA_C),
+                "El robot no tiene su plaza en el origen indicado");
+        assertThrows(IllegalArgumentException.class, () -> new Robot("robot1", ZONA_D, control),
+                "Dos robots no comparten identificador");
+
+        assertAll("Las plazas no cambian",
+                () -> assertEquals(1, control.getOcupacion(ZONA_A)),
+                () -> assertEquals(0, control.getOcupacion(ZONA_B)),
+                () -> assertEquals(0, control.getOcupacion(ZONA_C)),
+                () -> assertEquals(0, control.getOcupacion(ZONA_D)),
+                () -> assertEquals(ZONA_A, control.getUbicacion("robot1"))
+        );
+
+        assertTrue(robot.moverA(ZONA_B));
+        assertFalse(new Robot("robot2", ZONA_A, control).moverA(ZONA_B), "ZONA_B está completa");
+        assertEquals(ZONA_B, control.getUbicacion("robot1"));
+        assertEquals(1, control.getOcupacion(ZONA_A), "El origen falso no ha liberado plaza");
+    }
+
+    @Test
+    @DisplayName("Capacidad respetada con movimientos concurrentes")
+    void testMovimientosConcurrentes() throws InterruptedException {
+        int capacidad = 3;
+        int numRobots = capacidad * ZonaAlmacen.values().length - 2;
+        ControlZonas control = new ControlZonas(capacidad, eventos::add);
+        List<Robot> robots = new ArrayList<>();
+        AtomicInteger excesos = new AtomicInteger();
+
+        for (int i = 0; i < numRobots; i++)
+            robots.add(new Robot("robot" + i, ZonaAlmacen.values()[i % ZonaAlmacen.values().length], control));
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(numRobots);
+        for (Robot robot : robots) {
+            ejecutor.execute(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                // La batería limita el número de movimientos que completa cada robot
+                for (int n = 0; n < 1_000 && robot.getNivelBateria() > NIVEL_BATERIA_MINIMO; n++) {
+                    robot.moverA(ZonaAlmacen.values()[azar.nextInt(ZonaAlmacen.values().length)]);
+                    for (ZonaAlmacen zona : ZonaAlmacen.values())
+                        if (control.getOcupacion(zona) > capacidad)
+                            excesos.incrementAndGet();
+                }
+            });
+        }
+
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(30, TimeUnit.SECONDS), "Los robots deben terminar");
+
+        int ocupacionTotal = 0;
+        for (ZonaAlmacen zona : ZonaAlmacen.values()) {
+            assertEquals(robots.stream().filter(robot -> robot.getPosicionActual() == zona).count(),
+                    control.getOcupacion(zona), "La ocupación debe coincidir con las posiciones de los robots");
+            ocupacionTotal += control.getOcupacion(zona);
+        }
+
+        assertEquals(0, excesos.get(), "Ninguna zona debe superar su capacidad");
+        assertEquals(numRobots, ocupacionTotal, "Cada robot debe ocupar exactamente una plaza");
+        assertEquals(control.getColisionesEvitadas(), eventos.size(), "Cada aplazamiento debe registrarse");
+    }
+}
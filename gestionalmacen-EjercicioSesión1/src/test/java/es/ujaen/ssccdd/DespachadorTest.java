@@ -0,0 +1,162 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoProducto.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del despachador de la flota. Se evalúa:
+ * - Que cada robot recibe el producto más cercano y lo puede recoger
+ * - Que se respeta la batería mínima de cada tipo y los robots con poca batería no
+ *   dejan sin producto a los que podían llevar los más exigentes
+ * - Que las asignaciones pendientes no se repiten y se devuelven si el robot deja de estar libre
+ * - El tiempo de un tic con 1.000 robots y 100.000 pedidos abiertos, una vez calentada la JVM
+ */
+@DisplayName("Pruebas del Despachador")
+public class DespachadorTest {
+    private static final int NUM_ROBOTS = 1_000;
+    private static final int NUM_PRODUCTOS = 100_000;
+    private static final int NUM_TICS = 2_000;
+
+    private Inventario inventario;
+    private Despachador despachador;
+
+    @BeforeEach
+    void setUp() {
+        inventario = new Inventario();
+        despachador = new Despachador(inventario);
+    }
+
+    @Test
+    @DisplayName("Producto más cercano")
+    void testMasCercano() {
+        inventario.agregarProducto(new Producto("lejano", ROPA, ZONA_D));
+        inventario.agregarProducto(new Producto("vecino", ROPA, ZONA_B));
+        Robot robot = new Robot("robot1", ZONA_A);
+        Robot otro = new Robot("robot2", ZONA_A);
+
+        List<Despachador.Asignacion> asignaciones = despachador.despachar(List.of(robot, otro));
+
+        assertEquals(2, asignaciones.size());
+        Despachador.Asignacion cercana = asignaciones.get(0);
+        assertAll("Asignación por distancia",
+                () -> assertEquals("vecino", cercana.producto().getId()),
+                () -> assertEquals(1, cercana.distancia()),
+                () -> assertEquals(3, asignaciones.get(1).distancia()),
+                () -> assertEquals(cercana.robot().getId(), cercana.producto().getPropietario(),
+                        "El producto queda reservado para el robot")
+        );
+
+        assertEquals(cercana, despachador.getAsignacion(cercana.robot().getId()).orElseThrow());
+        assertTrue(cercana.robot().moverA(ZONA_B));
+        assertTrue(cercana.robot().recogerProducto(cercana.producto()), "El robot puede recoger lo asignado");
+        assertTrue(despachador.getAsignacion(cercana.robot().getId()).isEmpty(), "Lo recogido ya no está asignado");
+        assertTrue(despachador.despachar(List.of(robot, otro)).isEmpty());
+        assertEquals(1, despachador.getPendientes().size(), "Solo queda pendiente la que no se ha recogido");
+        assertThrows(IllegalArgumentException.class, () -> despachador.despachar(null));
+    }
+
+    @Test
+    @DisplayName("Batería mínima de cada tipo")
+    void testBateria() {
+        inventario.agregarProducto(new Producto("ropa", ROPA, ZONA_A));
+        inventario.agregarProducto(new Producto("grande", ELECTRONICA_GRANDE, ZONA_A));
+        Robot cargado = new Robot("cargado", ZONA_A);
+        Robot descargado = new Robot("descargado", ZONA_A);
+        while (descargado.getNivelBateria() > ROPA.getBateriaMinima() + 2 * CONSUMO_BATERIA)
+            descargado.moverA(descargado.getPosicionActual() == ZONA_A ? ZONA_B : ZONA_A);
+
+        List<Despachador.Asignacion> asignaciones = despachador.despachar(List.of(cargado, descargado));
+
+        assertEquals(2, asignaciones.size(), "Ningún robot se queda sin producto");
+        for (Despachador.Asignacion asignacion : asignaciones) {
+            assertTrue(asignacion.producto().puedeSerManipulado(asignacion.robot().getNivelBateria()));
+            assertEquals(asignacion.robot() == cargado ? ELECTRONICA_GRANDE : ROPA, asignacion.producto().getTipo());
+        }
+
+        Robot sinBateria = new Robot("sinBateria", ZONA_A);
+        inventario.agregarProducto(new Producto("fragil", FRAGIL, ZONA_A));
+        while (sinBateria.getNivelBateria() > FRAGIL.getBateriaMinima())
+            sinBateria.moverA(sinBateria.getPosicionActual() == ZONA_A ? ZONA_B : ZONA_A);
+        assertTrue(despachador.despachar(List.of(sinBateria)).isEmpty(), "No se asigna lo que no puede manipular");
+        assertEquals(1, inventario.getDisponibles(ZONA_A, FRAGIL));
+    }
+
+    @Test
+    @DisplayName("Asignación que no se llega a recoger")
+    void testDevolucion() {
+        inventario.agregarProducto(new Producto("libro", LIBROS, ZONA_C));
+        Robot robot = new Robot("robot1", ZONA_C);
+
+        assertEquals(1, despachador.despachar(List.of(robot)).size());
+        assertTrue(despachador.despachar(List.of(robot)).isEmpty(), "No se asigna dos veces el mismo robot");
+
+        while (robot.getNivelBateria() > NIVEL_BATERIA_MINIMO)
+            robot.moverA(robot.getPosicionActual() == ZONA_C ? ZONA_D : ZONA_C);
+        assertTrue(robot.necesitaCarga());
+        assertTrue(despachador.despachar(List.of(robot)).isEmpty());
+
+        assertTrue(despachador.getPendientes().isEmpty());
+        assertEquals(1, inventario.getDisponibles(ZONA_C, LIBROS), "El producto vuelve al inventario");
+    }
+
+    @Test
+    @DisplayName("Rendimiento con 1.000 robots y 100.000 pedidos")
+    void testRendimiento() {
+        SplittableRandom azar = new SplittableRandom(23);
+        TipoProducto[] tipos = TipoProducto.values();
+        int creados = 0;
+        while (creados < NUM_PRODUCTOS) {
+            inventario.agregarProducto(new Producto("P" + creados, tipos[azar.nextInt(tipos.length)],
+                    zonasAlmacen[azar.nextInt(zonasAlmacen.length)]));
+            creados++;
+        }
+
+        long[] tiempos = new long[NUM_TICS / 2];
+        int asignadas = 0;
+        for (int tic = 0; tic < NUM_TICS; tic++) {
+            // Cada tic llega una flota nueva de robots libres con batería variada
+            List<Robot> flota = new ArrayList<>(NUM_ROBOTS);
+            for (int i = 0; i < NUM_ROBOTS; i++) {
+                Robot robot = new Robot("R" + tic + "-" + i, zonasAlmacen[azar.nextInt(zonasAlmacen.length)]);
+                for (int movimientos = azar.nextInt(12); movimientos > 0; movimientos--)
+                    robot.moverA(robot.getPosicionActual() == ZONA_A ? ZONA_B : ZONA_A);
+                flota.add(robot);
+            }
+
+            long inicio = System.nanoTime();
+            List<Despachador.Asignacion> asignaciones = despachador.despachar(flota);
+            long tiempo = System.nanoTime() - inicio;
+
+            // La primera mitad de los tics calienta la JVM
+            if (tic >= NUM_TICS / 2)
+                tiempos[tic - NUM_TICS / 2] = tiempo;
+            asignadas += asignaciones.size();
+            for (Despachador.Asignacion asignacion : asignaciones) {
+                Robot robot = asignacion.robot();
+                if (asignacion.distancia() > 0)
+                    robot.moverA(asignacion.producto().getUbicacion());
+                assertTrue(robot.recogerProducto(asignacion.producto()), "El robot puede recoger lo asignado");
+
+                // Por cada producto recogido entra un pedido nuevo igual
+                inventario.agregarProducto(new Producto("P" + creados, asignacion.producto().getTipo(),
+                        asignacion.producto().getUbicacion()));
+                creados++;
+            }
+        }
+
+        Arrays.sort(tiempos);
+        long mediana = tiempos[tiempos.length / 2];
+        assertTrue(asignadas > NUM_TICS * NUM_ROBOTS * 0.9, "Casi todos los robots reciben producto");
+        assertEquals(NUM_PRODUCTOS, creados - asignadas, "Los pedidos abiertos se mantienen");
+        assertTrue(mediana < 1_000_000, "Un tic debe durar menos de un milisegundo");
+    }
+}
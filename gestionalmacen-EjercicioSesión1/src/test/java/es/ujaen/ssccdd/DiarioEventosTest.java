@@ -0,0 +1,190 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoEvento.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del diario binario de eventos. Se evalúa:
+ * - Que los eventos leídos coinciden con los escritos
+ * - Que cada registro ocupa TAMANO_REGISTRO_DIARIO bytes
+ * - Que los identificadores de robot se guardan una sola vez y se comparten al leer
+ * - Que se rechazan ficheros que no son diarios o que no se cerraron
+ * - Que los identificadores largos se leen completos y los que no caben se rechazan
+ * - Que el registro de eventos puede escribir en formato binario
+ */
+@DisplayName("Pruebas del Diario Binario de Eventos")
+public class DiarioEventosTest {
+    private static final int NUM_EVENTOS = 1_000_000;
+    private static final int NUM_ROBOTS = 8;
+
+    private Path fichero;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fichero = Files.createTempFile("diario", ".bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(fichero);
+    }
+
+    @Test
+    @DisplayName("Lectura de los eventos escritos")
+    void testEscrituraLectura() throws IOException {
+        EventoAlmacen recogida = new EventoAlmacen(1_000L, RECOGIDA_PRODUCTO, "robot1", ZONA_A);
+        EventoAlmacen colision = new EventoAlmacen(2_000L, COLISION_EVITADA, "robot2", ZONA_D);
+
+        try (EscritorDiario escritor = new EscritorDiario(fichero)) {
+            escritor.escribir(recogida);
+            escritor.escribir(colision);
+            escritor.escribir(recogida);
+        }
+
+        try (LectorDiario lector = new LectorDiario(fichero)) {
+            assertEquals(3, lector.getNumeroEventos());
+            assertEquals(2, lector.getNumeroRobots());
+
+            assertTrue(lector.siguiente());
+            assertAll("Primer evento",
+                    () -> assertEquals(1_000_000_000L, lector.getMarcaTiempoNanos()),
+                    () -> assertEquals(RECOGIDA_PRODUCTO, lector.getTipo()),
+                    () -> assertEquals("robot1", lector.getIdRobot()),
+                    () -> assertEquals(ZONA_A, lector.getZona())
+            );
+
+            assertTrue(lector.siguiente());
+            EventoAlmacen leido = lector.getEvento();
+            assertAll("Segundo evento",
+                    () -> assertEquals(colision.getTimestamp(), leido.getTimestamp()),
+                    () -> assertEquals(COLISION_EVITADA, leido.getTipo()),
+                    () -> assertEquals("robot2", leido.getIdRobot()),
+                    () -> assertEquals(ZONA_D, leido.getZona())
+            );
+
+            assertTrue(lector.siguiente());
+            assertEquals(0, lector.getIndiceRobot(), "El identificador repetido usa el mismo índice");
+            assertFalse(lector.siguiente(), "No quedan más registros");
+
+            lector.reiniciar();
+            assertThrows(java.util.NoSuchElementException.class, lector::getTipo);
+            assertTrue(lector.siguiente(), "Se puede volver a recorrer el diario");
+        }
+    }
+
+    @Test
+    @DisplayName("Registros de tamaño fijo")
+    void testTamanoFijo() throws IOException {
+        long tamanoTabla = Integer.BYTES + Short.BYTES + "robot0".length();
+
+        try (EscritorDiario escritor = new EscritorDiario(fichero, 7)) {
+            for (int i = 0; i < 100; i++)
+                escritor.escribir(new EventoAlmacen(i, ENTREGA_PRODUCTO, "robot0", ZONA_B));
+        }
+
+        assertEquals(CABECERA_DIARIO + 100L * TAMANO_REGISTRO_DIARIO + tamanoTabla, Files.size(fichero));
+    }
+
+    @Test
+    @DisplayName("Identificadores largos")
+    void testIdentificadoresLargos() throws IOException {
+        String largo = "r".repeat(40_000);
+        String maximo = "ñ".repeat(LONGITUD_MAXIMA_ID_DIARIO / 2);
+        String excesivo = "ñ".repeat(LONGITUD_MAXIMA_ID_DIARIO / 2 + 1);
+
+        try (EscritorDiario escritor = new EscritorDiario(fichero)) {
+            escritor.escribir(new EventoAlmacen(1_000L, RECOGIDA_PRODUCTO, largo, ZONA_A));
+            assertThrows(IllegalArgumentException.class,
+                    () -> escritor.escribir(new EventoAlmacen(2_000L, RECOGIDA_PRODUCTO, excesivo, ZONA_A)),
+                    "El identificador no cabe en la tabla de robots");
+            escritor.escribir(new EventoAlmacen(3_000L, ENTREGA_PRODUCTO, maximo, ZONA_B));
+            assertEquals(2, escritor.getEventos(), "El evento rechazado no se escribe");
+        }
+
+        try (LectorDiario lector = new LectorDiario(fichero)) {
+            assertEquals(2, lector.getNumeroEventos());
+            assertTrue(lector.siguiente());
+            assertEquals(largo, lector.getIdRobot());
+            assertTrue(lector.siguiente());
+            assertEquals(maximo, lector.getIdRobot());
+        }
+    }
+
+    @Test
+    @DisplayName("Ficheros no válidos")
+    void testFicherosNoValidos() throws IOException {
+        Files.writeString(fichero, "EventoAlmacen{timestamp=...}");
+        assertThrows(IOException.class, () -> new LectorDiario(fichero), "No es un diario");
+
+        EscritorDiario escritor = new EscritorDiario(fichero);
+        escritor.escribir(new EventoAlmacen(0L, ERROR_SISTEMA, "robot1", ZONA_C));
+        escritor.volcar();
+        assertThrows(IOException.class, () -> new LectorDiario(fichero), "El diario no se ha cerrado");
+        escritor.close();
+
+        assertThrows(IOException.class, () -> escritor.escribir(new EventoAlmacen(0L, ERROR_SISTEMA, "robot1", ZONA_C)));
+        assertThrows(IllegalArgumentException.class, () -> new LectorDiario(null));
+    }
+
+    @Test
+    @DisplayName("Recorrido de un diario grande sin crear objetos")
+    void testRecorridoDiario() throws Exception {
+        ExecutorService robots = Executors.newFixedThreadPool(NUM_ROBOTS);
+
+        try (RegistroEventos registro = new RegistroEventos(new EscritorDiario(fichero), CAPACIDAD_REGISTRO)) {
+            for (int r = 0; r < NUM_ROBOTS; r++) {
+                String idRobot = "robot" + r;
+                robots.execute(() -> {
+                    ZonaAlmacen[] zonas = ZonaAlmacen.values();
+                    for (int n = 0; n < NUM_EVENTOS / NUM_ROBOTS; n++)
+                        registro.accept(new EventoAlmacen(n, ENTREGA_PRODUCTO, idRobot, zonas[n % zonas.length]));
+                });
+            }
+            robots.shutdown();
+            assertTrue(robots.awaitTermination(1, TimeUnit.MINUTES), "Los robots deben terminar");
+        }
+
+        long[] porZona = new long[ZonaAlmacen.values().length];
+        long entregas = 0;
+        String anterior = null;
+        boolean compartidos = true;
+
+        try (LectorDiario lector = new LectorDiario(fichero)) {
+            assertEquals(NUM_EVENTOS, lector.getNumeroEventos());
+            assertEquals(NUM_ROBOTS, lector.getNumeroRobots());
+
+            while (lector.siguiente()) {
+                porZona[lector.getZona().ordinal()]++;
+                if (lector.getTipo() == ENTREGA_PRODUCTO)
+                    entregas++;
+
+                String idRobot = lector.getIdRobot();
+                if (idRobot.equals(anterior) && idRobot != anterior)
+                    compartidos = false;
+                anterior = idRobot;
+            }
+        }
+
+        long total = 0;
+        for (long zona : porZona)
+            total += zona;
+        long totalZonas = total;
+        long totalEntregas = entregas;
+        boolean identificadoresCompartidos = compartidos;
+
+        assertAll("Recorrido del diario",
+                () -> assertEquals(NUM_EVENTOS, totalZonas),
+                () -> assertEquals(NUM_EVENTOS, totalEntregas),
+                () -> assertTrue(identificadoresCompartidos, "Cada identificador de robot debe ser un único objeto")
+        );
+    }
+}
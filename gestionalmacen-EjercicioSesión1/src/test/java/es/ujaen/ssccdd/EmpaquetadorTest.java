@@ -0,0 +1,107 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoProducto.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del empaquetador en segundo plano de EstacionEmpaquetado. Se evalúa:
+ * - Que la recepción y el empaquetado avanzan en paralelo
+ * - Que el espacio de la estación se recicla de forma continua
+ * - Que el tiempo de empaquetado depende del tipo de producto
+ */
+@DisplayName("Pruebas del Empaquetador de EstacionEmpaquetado")
+public class EmpaquetadorTest {
+    private static final int NUM_PRODUCTOS = 5 * MAX_PRODUCTOS_ESTACION;
+    private static final int TAMANO_LOTE = 4;
+
+    private EstacionEmpaquetado estacion;
+
+    @BeforeEach
+    void setUp() {
+        estacion = new EstacionEmpaquetado("est1", ZONA_A);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        estacion.detenerEmpaquetado();
+    }
+
+    @Test
+    @DisplayName("Tiempo de empaquetado por tipo de producto")
+    void testTiempoEmpaquetado() throws InterruptedException {
+        RelojVirtual reloj = new RelojVirtual(0);
+        EstacionEmpaquetado virtual = new EstacionEmpaquetado("virtual", ZONA_A, reloj);
+        long esperado = 0;
+        for (TipoProducto tipo : TipoProducto.values()) {
+            assertTrue(virtual.recibirProducto(new Producto("p-" + tipo, tipo, ZONA_A)));
+            esperado += tipo.getTiempoEmpaquetado();
+        }
+
+        assertTrue(virtual.iniciarEmpaquetado(TipoHilo.PLATAFORMA, TAMANO_LOTE));
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (virtual.getEmpaquetados() < TipoProducto.values().length && System.nanoTime() < limite)
+            TimeUnit.MILLISECONDS.sleep(1);
+        virtual.detenerEmpaquetado();
+
+        // Un solo empaquetador ocupa el reloj virtual con cada producto uno detrás de otro
+        assertEquals(TipoProducto.values().length, virtual.getEmpaquetados());
+        assertEquals(esperado, reloj.milis(), "Cada producto debe ocupar el tiempo de empaquetado de su tipo");
+        assertTrue(esperado > TipoProducto.values().length * (long) TIEMPO_EMPAQUETADO,
+                "Los productos especiales deben empaquetarse más despacio");
+    }
+
+    @Test
+    @DisplayName("Empaquetado en paralelo con hilos de plataforma")
+    void testEmpaquetadoPlataforma() throws InterruptedException {
+        comprobarEmpaquetado(TipoHilo.PLATAFORMA);
+    }
+
+    @Test
+    @DisplayName("Empaquetado en paralelo con hilos virtuales")
+    void testEmpaquetadoVirtual() throws InterruptedException {
+        comprobarEmpaquetado(TipoHilo.VIRTUAL);
+    }
+
+    @Test
+    @DisplayName("Arranque y parada del empaquetador")
+    void testArranqueParada() throws InterruptedException {
+        assertThrows(IllegalArgumentException.class, () -> estacion.iniciarEmpaquetado(null, TAMANO_LOTE));
+        assertThrows(IllegalArgumentException.class, () -> estacion.iniciarEmpaquetado(TipoHilo.PLATAFORMA, 0));
+
+        assertTrue(estacion.iniciarEmpaquetado(TipoHilo.PLATAFORMA, TAMANO_LOTE), "Debe arrancar el empaquetador");
+        assertFalse(estacion.iniciarEmpaquetado(TipoHilo.PLATAFORMA, TAMANO_LOTE), "No debe arrancar dos empaquetadores");
+
+        estacion.detenerEmpaquetado();
+        assertTrue(estacion.recibirProducto(new Producto("p", ROPA, ZONA_A)));
+        TimeUnit.MILLISECONDS.sleep(2L * ESPERA_EMPAQUETADO);
+        assertEquals(1, estacion.getCapacidadActual(), "Sin empaquetador los productos permanecen en la cola");
+
+        assertTrue(estacion.iniciarEmpaquetado(TipoHilo.PLATAFORMA, TAMANO_LOTE), "Debe poder arrancarse de nuevo");
+    }
+
+    private void comprobarEmpaquetado(TipoHilo tipoHilo) throws InterruptedException {
+        assertTrue(estacion.iniciarEmpaquetado(tipoHilo, TAMANO_LOTE));
+
+        // Se entregan más productos de los que caben, solo es posible si el empaquetador libera espacio
+        for (int i = 0; i < NUM_PRODUCTOS; i++) {
+            Producto producto = new Producto("prod" + i, TipoProducto.values()[i % TipoProducto.values().length], ZONA_A);
+            assertTrue(estacion.recibirProductoEsperando(producto), "La estación debe aceptar el producto");
+        }
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (estacion.getEmpaquetados() < NUM_PRODUCTOS && System.nanoTime() < limite)
+            TimeUnit.MILLISECONDS.sleep(TIEMPO_EMPAQUETADO);
+
+        assertAll("Empaquetado con " + tipoHilo,
+                () -> assertEquals(NUM_PRODUCTOS, estacion.getEmpaquetados(), "Deben empaquetarse todos los productos"),
+                () -> assertEquals(0, estacion.getCapacidadActual(), "La estación debe quedar vacía"),
+                () -> assertTrue(estacion.getEmpaquetadosPorSegundo() > 0, "Debe informar del ritmo de empaquetado")
+        );
+    }
+}
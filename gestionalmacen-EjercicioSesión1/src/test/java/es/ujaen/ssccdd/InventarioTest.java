@@ -0,0 +1,74 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Optional;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoProducto.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del inventario indexado por zona y tipo de producto. Se evalúa:
+ * - Que solo se entregan productos de la zona del robot
+ * - Que se respeta el nivel de batería del robot
+ * - Que los productos entregados quedan reservados para el robot
+ */
+@DisplayName("Pruebas del Inventario")
+public class InventarioTest {
+    private Inventario inventario;
+
+    @BeforeEach
+    void setUp() {
+        inventario = new Inventario();
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            for (TipoProducto tipo : TipoProducto.values())
+                inventario.agregarProducto(new Producto(zona + "-" + tipo, tipo, zona));
+    }
+
+    @Test
+    @DisplayName("Contadores por zona y tipo")
+    void testDisponibles() {
+        assertAll("Disponibles",
+                () -> assertEquals(1, inventario.getDisponibles(ZONA_A, ROPA)),
+                () -> assertEquals(TipoProducto.values().length, inventario.getDisponibles(ZONA_B)),
+                () -> assertFalse(inventario.agregarProducto(null), "No debe admitir productos nulos"),
+                () -> assertThrows(IllegalArgumentException.class, () -> inventario.getDisponibles(null, ROPA))
+        );
+    }
+
+    @Test
+    @DisplayName("Siguiente producto según zona y batería")
+    void testSiguienteProducto() {
+        Robot robot = new Robot("robot1", ZONA_C);
+
+        Optional<Producto> producto = inventario.siguienteProducto(robot);
+
+        assertTrue(producto.isPresent(), "Debe haber productos en la zona del robot");
+        assertEquals(ZONA_C, producto.get().getUbicacion(), "El producto debe estar en la zona del robot");
+        assertEquals(robot.getId(), producto.get().getPropietario(), "El producto debe quedar reservado para el robot");
+        assertTrue(robot.recogerProducto(producto.get()), "El robot debe poder recoger el producto entregado");
+
+        // Con poca batería solo se entregan productos sin manipulación especial
+        int bateriaBaja = LIBROS.getBateriaMinima();
+        Optional<Producto> ligero;
+        while ((ligero = inventario.siguienteProducto("robot2", ZONA_D, bateriaBaja)).isPresent())
+            assertTrue(ligero.get().puedeSerManipulado(bateriaBaja), "Debe poder manipularse con la batería disponible");
+
+        assertEquals(0, inventario.getDisponibles(ZONA_D, ROPA));
+        assertEquals(1, inventario.getDisponibles(ZONA_D, FRAGIL), "Los productos frágiles deben seguir disponibles");
+    }
+
+    @Test
+    @DisplayName("Devolución de un producto reservado")
+    void testDevolverProducto() {
+        Producto producto = inventario.siguienteProducto("robot1", ZONA_A, COMPLETA).orElseThrow();
+        int antes = inventario.getDisponibles(ZONA_A);
+
+        assertFalse(inventario.devolverProducto("robot2", producto), "Solo el propietario puede devolverlo");
+        assertTrue(inventario.devolverProducto("robot1", producto), "El propietario debe poder devolverlo");
+        assertEquals(antes + 1, inventario.getDisponibles(ZONA_A));
+        assertFalse(producto.isReservado(), "El producto devuelto debe quedar libre");
+    }
+}
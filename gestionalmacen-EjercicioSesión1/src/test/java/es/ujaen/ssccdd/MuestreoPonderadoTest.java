@@ -0,0 +1,92 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoRobot.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del muestreo ponderado de estados de robot. Se evalúa:
+ * - Que la proporción de cada estado sigue los pesos de la configuración
+ * - Que un estado con peso 0 nunca se genera
+ * - Que varios hilos comparten el mismo muestreo con sus propios generadores
+ * - Que EstadoRobot.getEstado() sortea los estados de forma uniforme
+ */
+@DisplayName("Pruebas del Muestreo Ponderado")
+public class MuestreoPonderadoTest {
+    private static final int MUESTRAS = 1_000_000;
+    private static final double TOLERANCIA = 0.005;
+    private static final int NUM_HILOS = 4;
+
+    @Test
+    @DisplayName("Estados de robot según la configuración")
+    void testConfiguracion() {
+        Properties configuracion = new Properties();
+        configuracion.setProperty("LIBRE", "6");
+        configuracion.setProperty("OCUPADO", "3");
+        configuracion.setProperty("EN_CARGA", "1");
+        MuestreoPonderado<EstadoRobot> muestreo = MuestreoPonderado.desdeConfiguracion(EstadoRobot.class, configuracion);
+        SplittableRandom azar = new SplittableRandom(21);
+        int[] cuentas = new int[estadosRobot.length];
+
+        for (int i = 0; i < MUESTRAS; i++)
+            cuentas[muestreo.siguiente(azar).ordinal()]++;
+
+        assertAll("Proporción de estados",
+                () -> assertEquals(0.6, (double) cuentas[LIBRE.ordinal()] / MUESTRAS, TOLERANCIA),
+                () -> assertEquals(0.3, (double) cuentas[OCUPADO.ordinal()] / MUESTRAS, TOLERANCIA),
+                () -> assertEquals(0.1, (double) cuentas[EN_CARGA.ordinal()] / MUESTRAS, TOLERANCIA),
+                () -> assertEquals(0, cuentas[MANTENIMIENTO.ordinal()], "Sin peso no se genera"),
+                () -> assertEquals(0.25, MuestreoPonderado.uniforme(EstadoRobot.class).getProbabilidad(LIBRE), 1e-12),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> MuestreoPonderado.de(EstadoRobot.class, Map.of(LIBRE, Double.POSITIVE_INFINITY)))
+        );
+    }
+
+    @Test
+    @DisplayName("Muestreo compartido entre hilos")
+    void testHilos() throws InterruptedException, ExecutionException {
+        MuestreoPonderado<EstadoRobot> muestreo = MuestreoPonderado.de(EstadoRobot.class,
+                Map.of(LIBRE, 1, MANTENIMIENTO, 1));
+        FuenteAleatoria fuente = FuenteAleatoria.reproducible(5);
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+        Future<?>[] tareas = new Future<?>[NUM_HILOS];
+
+        for (int hilo = 0; hilo < NUM_HILOS; hilo++)
+            tareas[hilo] = hilos.submit(() -> {
+                int libres = 0;
+                for (int i = 0; i < MUESTRAS; i++) {
+                    EstadoRobot estado = muestreo.siguiente(fuente.generador());
+                    assertTrue(estado == LIBRE || estado == MANTENIMIENTO);
+                    if (estado == LIBRE)
+                        libres++;
+                }
+                assertEquals(0.5, (double) libres / MUESTRAS, TOLERANCIA);
+                return null;
+            });
+        hilos.shutdown();
+
+        for (Future<?> tarea : tareas)
+            tarea.get();
+    }
+
+    @Test
+    @DisplayName("Sorteo uniforme de EstadoRobot")
+    void testEstadoRobot() {
+        SplittableRandom azar = new SplittableRandom(8);
+        int[] cuentas = new int[estadosRobot.length];
+
+        for (int i = 0; i < MUESTRAS; i++)
+            cuentas[EstadoRobot.getEstado(azar).ordinal()]++;
+
+        for (EstadoRobot estado : estadosRobot)
+            assertEquals(1.0 / estadosRobot.length, (double) cuentas[estado.ordinal()] / MUESTRAS, TOLERANCIA,
+                    "Proporción de " + estado);
+    }
+}
@@ -0,0 +1,183 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoRobot.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del planificador de carga. Se evalúa:
+ * - La forma de las curvas de carga
+ * - Que la batería de un robot nunca es negativa
+ * - Que cada zona respeta su número de muelles y atiende antes a los robots con menos batería
+ * - Que un robot deja el muelle al final de la carga rápida si otros esperan
+ * - El trabajo de una flota con distinto número de muelles
+ */
+@DisplayName("Pruebas del Planificador de Carga")
+public class PlanificadorCargaTest {
+    private static final int NUM_ROBOTS = 12;
+    private static final int DURACION_SIMULACION = 2_000; // milisegundos de reloj virtual
+
+    private RelojVirtual reloj;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new RelojVirtual(0);
+    }
+
+    @Test
+    @DisplayName("Curvas de carga")
+    void testCurvas() {
+        CurvaCarga lineal = CurvaCarga.LINEAL;
+        CurvaCarga litio = CurvaCarga.CORRIENTE_TENSION_CONSTANTE;
+
+        assertAll("Forma de las curvas",
+                () -> assertEquals(COMPLETA, lineal.cargar(0, TIEMPO_CARGA), 1e-9),
+                () -> assertEquals(COMPLETA, lineal.cargar(50, 10 * TIEMPO_CARGA), 1e-9),
+                () -> assertEquals(NIVEL_CARGA_RAPIDA, litio.cargar(0, NIVEL_CARGA_RAPIDA / VELOCIDAD_CARGA), 1e-9),
+                () -> assertTrue(litio.cargar(0, TIEMPO_CARGA) < COMPLETA, "El último tramo es más lento"),
+                () -> assertTrue(litio.cargar(NIVEL_CARGA_RAPIDA, 10 * TIEMPO_CARGA) > COMPLETA - 0.5),
+                () -> assertEquals(litio.cargar(20, 30), litio.cargar(litio.cargar(20, 5), 25), 1e-9,
+                        "Cargar a saltos es lo mismo que de una vez")
+        );
+    }
+
+    @Test
+    @DisplayName("La batería no baja de cero")
+    void testBateriaNoNegativa() {
+        Robot robot = new Robot("robot1", ZONA_A);
+
+        for (int i = 0; i < 2 * COMPLETA / CONSUMO_BATERIA; i++)
+            robot.moverA(robot.getPosicionActual() == ZONA_A ? ZONA_B : ZONA_A);
+        assertEquals(0, robot.getNivelBateria());
+
+        // Agotada la batería ya no se mueve, solo lo intenta
+        robot.moverA(ZONA_D);
+        assertEquals(0, robot.getNivelBateria());
+        assertFalse(robot.finalizarCarga(), "Sin estar EN_CARGA no se finaliza");
+        assertFalse(robot.cargarBateria(50), "Solo se carga en un muelle");
+    }
+
+    @Test
+    @DisplayName("Muelles por zona y prioridad por batería")
+    void testPrioridad() {
+        PlanificadorCarga planificador = new PlanificadorCarga(1, CurvaCarga.CORRIENTE_TENSION_CONSTANTE, reloj);
+        Robot primero = descargar(new Robot("primero", ZONA_A), 60);
+        Robot medio = descargar(new Robot("medio", ZONA_A), 40);
+        Robot critico = descargar(new Robot("critico", ZONA_A), NIVEL_BATERIA_MINIMO);
+        Robot conTrabajo = descargar(new Robot("conTrabajo", ZONA_A), 40);
+        Robot otraZona = descargar(new Robot("otraZona", ZONA_C), 50);
+
+        assertTrue(planificador.solicitarCarga(primero));
+        assertTrue(planificador.solicitarCarga(medio));
+        assertTrue(planificador.solicitarCarga(critico));
+        assertTrue(planificador.solicitarCarga(conTrabajo, 5));
+        assertTrue(planificador.solicitarCarga(otraZona));
+        assertFalse(planificador.solicitarCarga(medio), "Un robot no se pide dos veces");
+
+        assertAll("Ocupación de los muelles",
+                () -> assertEquals(1, planificador.getCargando(ZONA_A)),
+                () -> assertEquals(3, planificador.getEsperando(ZONA_A)),
+                () -> assertEquals(1, planificador.getCargando(ZONA_C), "Cada zona tiene sus muelles"),
+                () -> assertEquals(EN_CARGA, medio.getEstado())
+        );
+
+        List<Robot> orden = new ArrayList<>();
+        while (orden.size() < 5) {
+            reloj.avanzar(1, TimeUnit.MILLISECONDS);
+            orden.addAll(planificador.actualizar());
+        }
+
+        List<Robot> zonaA = orden.stream().filter(robot -> robot.getPosicionActual() == ZONA_A).toList();
+        assertEquals(List.of(primero, critico, conTrabajo, medio), zonaA,
+                "El que ya estaba en el muelle sale primero, después por batería y trabajo pendiente");
+        for (Robot robot : orden)
+            assertEquals(LIBRE, robot.getEstado());
+        assertEquals(5, planificador.getCargas());
+    }
+
+    @Test
+    @DisplayName("Salida al final de la carga rápida")
+    void testSalidaCargaRapida() {
+        PlanificadorCarga planificador = new PlanificadorCarga(1, CurvaCarga.CORRIENTE_TENSION_CONSTANTE, reloj);
+        Robot cargando = descargar(new Robot("cargando", ZONA_B), 20);
+        Robot esperando = descargar(new Robot("esperando", ZONA_B), 20);
+
+        planificador.solicitarCarga(cargando);
+        planificador.solicitarCarga(esperando);
+        reloj.avanzar((long) Math.ceil((NIVEL_CARGA_RAPIDA - 20) / VELOCIDAD_CARGA), TimeUnit.MILLISECONDS);
+
+        assertEquals(List.of(cargando), planificador.actualizar());
+        assertEquals(NIVEL_CARGA_RAPIDA, cargando.getNivelBateria(), "Con cola sale al terminar la carga rápida");
+
+        reloj.avanzar(TIEMPO_CARGA, TimeUnit.MILLISECONDS);
+        assertTrue(planificador.actualizar().isEmpty(), "Sin cola se queda hasta completar la carga");
+        assertTrue(esperando.getNivelBateria() > NIVEL_CARGA_RAPIDA);
+
+        reloj.avanzar(10 * TIEMPO_CARGA, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(esperando), planificador.actualizar());
+        assertEquals(COMPLETA, esperando.getNivelBateria());
+        assertThrows(IllegalArgumentException.class, () -> new PlanificadorCarga(0));
+    }
+
+    @Test
+    @DisplayName("Trabajo de la flota según los muelles")
+    void testFlota() {
+        long trabajoUnMuelle = simularFlota(1);
+        long trabajoDosMuelles = simularFlota(2);
+
+        assertTrue(trabajoDosMuelles > trabajoUnMuelle, "Con más muelles hay menos robots parados");
+    }
+
+    /**
+     * Los robots libres se mueven una vez por milisegundo y piden carga cuando la
+     * necesitan
+     * @return los movimientos realizados por la flota
+     */
+    private long simularFlota(int muelles) {
+        RelojVirtual relojFlota = new RelojVirtual(0);
+        PlanificadorCarga planificador = new PlanificadorCarga(muelles, CurvaCarga.CORRIENTE_TENSION_CONSTANTE,
+                relojFlota);
+        List<Robot> flota = new ArrayList<>();
+        for (int i = 0; i < NUM_ROBOTS; i++)
+            flota.add(descargar(new Robot("R" + i, ZONA_A), COMPLETA - CONSUMO_BATERIA * (i % 10)));
+        long resultado = 0;
+
+        for (int milisegundo = 0; milisegundo < DURACION_SIMULACION; milisegundo++) {
+            for (Robot robot : flota)
+                if (robot.getEstado() == LIBRE) {
+                    if (robot.necesitaCarga())
+                        planificador.solicitarCarga(robot);
+                    else if (robot.moverA(robot.getPosicionActual() == ZONA_A ? ZONA_B : ZONA_A))
+                        resultado++;
+                }
+
+            relojFlota.avanzar(1, TimeUnit.MILLISECONDS);
+            planificador.actualizar();
+            for (Robot robot : flota)
+                assertTrue(robot.getNivelBateria() >= 0);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Mueve el robot entre su zona y la siguiente hasta dejarlo en su zona con el
+     * nivel de batería indicado o el inmediatamente inferior
+     */
+    private Robot descargar(Robot robot, int nivel) {
+        ZonaAlmacen inicial = robot.getPosicionActual();
+        ZonaAlmacen vecina = zonasAlmacen[(inicial.ordinal() + 1) % zonasAlmacen.length];
+
+        while (robot.getNivelBateria() > nivel || robot.getPosicionActual() != inicial)
+            robot.moverA(robot.getPosicionActual() == inicial ? vecina : inicial);
+
+        return robot;
+    }
+}
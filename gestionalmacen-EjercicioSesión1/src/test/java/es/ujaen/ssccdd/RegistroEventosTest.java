@@ -0,0 +1,192 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoEvento.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro de eventos del almacén. Se evalúa:
+ * - Que todos los eventos aceptados se escriben en el fichero al cerrar
+ * - Que muchos robots registran eventos a la vez sin perder ninguno
+ * - Que el registro cerrado rechaza los eventos sin bloquear
+ * - Que un destino que falla no deja bloqueados a los productores y su error se lanza al cerrar
+ * - Que la simulación registra una entrada por cada entrega
+ */
+@DisplayName("Pruebas del Registro de Eventos")
+public class RegistroEventosTest {
+    private static final int NUM_ROBOTS = 16;
+    private static final int EVENTOS_POR_ROBOT = 5_000;
+    private static final int CAPACIDAD = 64;
+
+    private Path fichero;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fichero = Files.createTempFile("eventos", ".log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(fichero);
+    }
+
+    @Test
+    @DisplayName("Capacidad redondeada a potencia de dos")
+    void testCapacidad() throws Exception {
+        try (RegistroEventos registro = new RegistroEventos(fichero, 100)) {
+            assertEquals(128, registro.getCapacidad());
+        }
+
+        assertAll("Argumentos no válidos",
+                () -> assertThrows(IllegalArgumentException.class, () -> new RegistroEventos(null)),
+                () -> assertThrows(IllegalArgumentException.class, () -> new RegistroEventos(fichero, 0))
+        );
+    }
+
+    @Test
+    @DisplayName("Eventos escritos en orden al cerrar")
+    void testEscrituraAlCerrar() throws Exception {
+        RegistroEventos registro = new RegistroEventos(fichero);
+        EventoAlmacen recogida = new EventoAlmacen(1_000L, RECOGIDA_PRODUCTO, "robot1", ZONA_A);
+        EventoAlmacen entrega = new EventoAlmacen(2_000L, ENTREGA_PRODUCTO, "robot1", ZONA_B);
+
+        assertTrue(registro.registrar(recogida));
+        registro.accept(entrega);
+        registro.close();
+
+        List<String> lineas = Files.readAllLines(fichero, StandardCharsets.UTF_8);
+        assertAll("Fichero de eventos",
+                () -> assertEquals(List.of(recogida.toString(), entrega.toString()), lineas),
+                () -> assertEquals(2, registro.getEscritos()),
+                () -> assertEquals(0, registro.getPendientes()),
+                () -> assertEquals(0, registro.getRechazados())
+        );
+    }
+
+    @Test
+    @DisplayName("Destino que falla")
+    void testDestinoFallido() throws Exception {
+        RegistroEventos registro = new RegistroEventos(new DestinoEventos() {
+            @Override
+            public void escribir(EventoAlmacen evento) {
+                throw new IllegalStateException("Destino roto");
+            }
+
+            @Override
+            public void volcar() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4);
+        ExecutorService robot = Executors.newSingleThreadExecutor();
+
+        try {
+            // Muchos más eventos que la capacidad, el escritor debe seguir vaciando el buffer
+            Future<?> eventos = robot.submit(() -> {
+                for (int i = 0; i < 1_000; i++)
+                    registro.accept(new EventoAlmacen(i, RECOGIDA_PRODUCTO, "robot1", ZONA_A));
+            });
+            eventos.get(10, TimeUnit.SECONDS);
+        } finally {
+            robot.shutdownNow();
+        }
+
+        IOException error = assertThrows(IOException.class, registro::close);
+        assertTrue(error.getCause() instanceof IllegalStateException, "El error del destino se lanza al cerrar");
+        assertEquals(0, registro.getRechazados(), "Con el registro abierto no se rechaza nada");
+    }
+
+    @Test
+    @DisplayName("Registro cerrado rechaza eventos")
+    void testRegistroCerrado() throws Exception {
+        RegistroEventos registro = new RegistroEventos(fichero);
+        EventoAlmacen evento = new EventoAlmacen(0L, ROBOT_EN_CARGA, "robot1", ZONA_C);
+        registro.close();
+
+        assertFalse(registro.registrar(evento), "No debe aceptar eventos tras cerrar");
+        registro.accept(evento);
+
+        assertAll("Eventos rechazados",
+                () -> assertEquals(2, registro.getRechazados()),
+                () -> assertEquals(0, registro.getEscritos()),
+                () -> assertThrows(IllegalArgumentException.class, () -> registro.registrar(null))
+        );
+    }
+
+    @Test
+    @DisplayName("Robots registrando eventos a la vez")
+    void testRegistroConcurrente() throws Exception {
+        RegistroEventos registro = new RegistroEventos(fichero, CAPACIDAD);
+        ExecutorService robots = Executors.newFixedThreadPool(NUM_ROBOTS);
+
+        for (int r = 0; r < NUM_ROBOTS; r++) {
+            String idRobot = "robot" + r;
+            robots.execute(() -> {
+                for (int n = 0; n < EVENTOS_POR_ROBOT; n++)
+                    registro.accept(new EventoAlmacen(n, ENTREGA_PRODUCTO, idRobot, ZONA_D));
+            });
+        }
+
+        robots.shutdown();
+        assertTrue(robots.awaitTermination(1, TimeUnit.MINUTES), "Los robots deben terminar");
+        registro.close();
+
+        long total = (long) NUM_ROBOTS * EVENTOS_POR_ROBOT;
+
+        long lineas;
+        try (var contenido = Files.lines(fichero, StandardCharsets.UTF_8)) {
+            lineas = contenido.count();
+        }
+        long lineasFichero = lineas;
+
+        assertAll("Registro concurrente",
+                () -> assertEquals(total, registro.getEscritos(), "Deben escribirse todos los eventos"),
+                () -> assertEquals(total, lineasFichero, "Debe haber una línea por evento"),
+                () -> assertEquals(0, registro.getRechazados())
+        );
+    }
+
+    @Test
+    @DisplayName("La simulación registra cada entrega")
+    void testRegistroSimulacion() throws Exception {
+        Inventario inventario = new Inventario();
+        List<Robot> robots = new ArrayList<>();
+        List<EstacionEmpaquetado> estaciones = new ArrayList<>();
+
+        for (ZonaAlmacen zona : ZonaAlmacen.values()) {
+            estaciones.add(new EstacionEmpaquetado("est-" + zona, zona));
+            robots.add(new Robot("robot-" + zona, zona));
+        }
+        for (int i = 0; i < 20; i++)
+            inventario.agregarProducto(new Producto("prod" + i, TipoProducto.ROPA,
+                    ZonaAlmacen.values()[i % ZonaAlmacen.values().length]));
+
+        SimulacionAlmacen.Resultado resultado;
+        try (RegistroEventos registro = new RegistroEventos(fichero)) {
+            SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario,
+                    TipoEjecutor.POOL_FIJO, 2, registro);
+            resultado = simulacion.ejecutar(60, TimeUnit.SECONDS);
+        }
+
+        List<String> lineas = Files.readAllLines(fichero, StandardCharsets.UTF_8);
+        assertAll("Eventos de la simulación",
+                () -> assertEquals(resultado.entregas(),
+                        lineas.stream().filter(l -> l.contains("tipo=" + ENTREGA_PRODUCTO)).count()),
+                () -> assertEquals(resultado.recogidas(),
+                        lineas.stream().filter(l -> l.contains("tipo=" + RECOGIDA_PRODUCTO)).count())
+        );
+    }
+}
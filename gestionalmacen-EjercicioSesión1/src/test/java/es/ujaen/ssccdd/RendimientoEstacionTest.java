@@ -0,0 +1,131 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoProducto.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de rendimiento de N robots entregando productos en M estaciones de
+ * empaquetado. Para cada modo de entrega se verifica:
+ * - Que todas las entregas se completan sin perder productos
+ * - Que cada producto aceptado por una estación se empaqueta una sola vez
+ * - Que la entrega bloqueante deja de esperar si la estación se desactiva
+ */
+@DisplayName("Pruebas de Rendimiento de EstacionEmpaquetado")
+public class RendimientoEstacionTest {
+    private static final int NUM_ROBOTS = 32;
+    private static final int NUM_ESTACIONES = ZonaAlmacen.values().length;
+    private static final int ENTREGAS_POR_ROBOT = 5_000;
+
+    /**
+     * Forma en la que un robot intenta entregar un producto en una estación
+     */
+    private interface ModoEntrega {
+        boolean entregar(EstacionEmpaquetado estacion, Producto producto) throws InterruptedException;
+    }
+
+    @Test
+    @DisplayName("Entrega sin espera con reintento")
+    void testEntregaSinEspera() throws InterruptedException {
+        medir("sin espera", (estacion, producto) -> {
+            boolean entregado = estacion.recibirProducto(producto);
+            if (!entregado)
+                Thread.yield();
+            return entregado;
+        });
+    }
+
+    @Test
+    @DisplayName("Entrega con espera limitada")
+    void testEntregaConEsperaLimitada() throws InterruptedException {
+        medir("espera limitada", (estacion, producto) ->
+                estacion.recibirProducto(producto, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Entrega con espera bloqueante")
+    void testEntregaBloqueante() throws InterruptedException {
+        medir("bloqueante", EstacionEmpaquetado::recibirProductoEsperando);
+    }
+
+    private void medir(String modo, ModoEntrega entrega) throws InterruptedException {
+        List<EstacionEmpaquetado> estaciones = new ArrayList<>();
+        for (int i = 0; i < NUM_ESTACIONES; i++)
+            estaciones.add(new EstacionEmpaquetado("est" + i, ZonaAlmacen.values()[i]));
+
+        LongAdder entregas = new LongAdder();
+        AtomicBoolean produciendo = new AtomicBoolean(true);
+        ExecutorService robots = Executors.newFixedThreadPool(NUM_ROBOTS);
+        ExecutorService empaquetado = Executors.newFixedThreadPool(NUM_ESTACIONES);
+        Producto producto = new Producto("bench", ROPA, ZonaAlmacen.ZONA_A);
+
+        for (EstacionEmpaquetado estacion : estaciones) {
+            empaquetado.execute(() -> {
+                while (produciendo.get() || estacion.getCapacidadActual() > 0) {
+                    estacion.procesarProductos();
+                    Thread.yield();
+                }
+            });
+        }
+
+        for (int r = 0; r < NUM_ROBOTS; r++) {
+            robots.execute(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                try {
+                    for (int n = 0; n < ENTREGAS_POR_ROBOT; n++) {
+                        EstacionEmpaquetado estacion = estaciones.get(azar.nextInt(NUM_ESTACIONES));
+                        while (!entrega.entregar(estacion, producto))
+                            estacion = estaciones.get(azar.nextInt(NUM_ESTACIONES));
+                        entregas.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        robots.shutdown();
+        assertTrue(robots.awaitTermination(2, TimeUnit.MINUTES), "Los robots deben terminar sus entregas");
+        produciendo.set(false);
+        empaquetado.shutdown();
+        assertTrue(empaquetado.awaitTermination(30, TimeUnit.SECONDS), "Las estaciones deben vaciarse");
+
+        long empaquetados = estaciones.stream().mapToLong(EstacionEmpaquetado::getEmpaquetados).sum();
+
+        assertAll("Resultado de " + modo,
+                () -> assertEquals((long) NUM_ROBOTS * ENTREGAS_POR_ROBOT, entregas.sum(),
+                        "Todas las entregas deben completarse"),
+                () -> assertEquals(entregas.sum(), empaquetados,
+                        "Se empaqueta exactamente lo que las estaciones han aceptado"),
+                () -> assertTrue(estaciones.stream().allMatch(estacion -> estacion.getCapacidadActual() == 0),
+                        "Las estaciones deben quedar vacías")
+        );
+    }
+
+    @Test
+    @DisplayName("Entrega bloqueante en una estación que se desactiva")
+    void testDesactivacionDuranteEspera() throws InterruptedException, ExecutionException, TimeoutException {
+        EstacionEmpaquetado estacion = new EstacionEmpaquetado("llena", ZonaAlmacen.ZONA_A);
+        Producto producto = new Producto("bench", ROPA, ZonaAlmacen.ZONA_A);
+        for (int i = 0; i < MAX_PRODUCTOS_ESTACION; i++)
+            assertTrue(estacion.recibirProducto(producto));
+
+        ExecutorService robot = Executors.newSingleThreadExecutor();
+        Future<Boolean> entrega = robot.submit(() -> estacion.recibirProductoEsperando(producto));
+        TimeUnit.MILLISECONDS.sleep(10 * ESPERA_ENTREGA);
+        assertFalse(entrega.isDone(), "Con la estación llena el robot espera");
+
+        estacion.setActiva(false);
+        assertFalse(entrega.get(1, TimeUnit.SECONDS), "Al desactivarse la estación el robot deja de esperar");
+        robot.shutdown();
+        assertEquals(MAX_PRODUCTOS_ESTACION, estacion.getCapacidadActual(), "El producto no se ha aceptado");
+    }
+}
@@ -0,0 +1,218 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.TipoProducto.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la reserva de productos cuando muchos robots compiten a la vez
+ * por un mismo conjunto de productos. Se evalúa:
+ * - Que un producto nunca tiene dos propietarios simultáneos
+ * - Que solo el propietario puede liberar su reserva
+ * - Que la recogida respeta la reserva de otro robot
+ * - Que una reserva sin robot la puede recoger cualquiera
+ * - Que un producto entregado no se libera ni se vuelve a recoger
+ */
+@DisplayName("Pruebas de Reserva Concurrente de Productos")
+public class ReservaConcurrenteTest {
+    private static final int NUM_HILOS = 300;
+    private static final int NUM_PRODUCTOS = 64;
+    private static final int INTENTOS_POR_HILO = 5_000;
+
+    private List<Producto> productos;
+
+    @BeforeEach
+    void setUp() {
+        productos = new ArrayList<>();
+        for (int i = 0; i < NUM_PRODUCTOS; i++) {
+            productos.add(new Producto("prod" + i, ROPA, ZonaAlmacen.values()[i % ZonaAlmacen.values().length]));
+        }
+    }
+
+    /**
+     * Todos los hilos arrancan a la vez y compiten por cada producto una única vez.
+     *
+     * Aspectos evaluados:
+     * 1. Cada producto tiene exactamente un ganador
+     * 2. El propietario registrado es el robot ganador
+     */
+    @Test
+    @DisplayName("Un único ganador por producto")
+    void testUnicoGanador() throws InterruptedException {
+        AtomicIntegerArray ganadores = new AtomicIntegerArray(NUM_PRODUCTOS);
+        String[] propietarios = new String[NUM_PRODUCTOS];
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(NUM_HILOS);
+
+        for (int h = 0; h < NUM_HILOS; h++) {
+            String idRobot = "robot" + h;
+            ejecutor.execute(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = 0; i < NUM_PRODUCTOS; i++) {
+                    if (productos.get(i).reservarProducto(idRobot)) {
+                        ganadores.incrementAndGet(i);
+                        propietarios[i] = idRobot;
+                    }
+                }
+            });
+        }
+
+        salida.countDown();
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(30, TimeUnit.SECONDS), "Los hilos deben terminar");
+
+        for (int i = 0; i < NUM_PRODUCTOS; i++) {
+            assertEquals(1, ganadores.get(i), "Cada producto debe tener un único ganador");
+            assertEquals(propietarios[i], productos.get(i).getPropietario(),
+                    "El propietario debe ser el robot que ganó la reserva");
+        }
+    }
+
+    /**
+     * Los hilos reservan, recogen y liberan productos al azar de forma continua
+     * mientras se comprueba que nadie más tiene el producto en su poder.
+     *
+     * Aspectos evaluados:
+     * 1. Exclusión mutua sobre cada producto sin bloqueos
+     * 2. Ningún robot puede liberar o recoger un producto ajeno
+     * 3. Todos los productos quedan libres al final
+     */
+    @Test
+    @DisplayName("Reserva, recogida y liberación bajo contención")
+    void testContencion() throws InterruptedException {
+        AtomicIntegerArray enPosesion = new AtomicIntegerArray(NUM_PRODUCTOS);
+        AtomicInteger violaciones = new AtomicInteger();
+        AtomicInteger operaciones = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(NUM_HILOS);
+
+        for (int h = 0; h < NUM_HILOS; h++) {
+            String idRobot = "robot" + h;
+            ejecutor.execute(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int n = 0; n < INTENTOS_POR_HILO; n++) {
+                    int i = azar.nextInt(NUM_PRODUCTOS);
+                    Producto producto = productos.get(i);
+                    boolean obtenido = azar.nextBoolean()
+                            ? producto.reservarProducto(idRobot) && producto.recogerProducto(idRobot)
+                            : producto.recogerProducto(idRobot);
+
+                    if (obtenido) {
+                        if (enPosesion.incrementAndGet(i) != 1 || !idRobot.equals(producto.getPropietario()))
+                            violaciones.incrementAndGet();
+
+                        if (producto.liberarProducto("intruso") || producto.recogerProducto("intruso"))
+                            violaciones.incrementAndGet();
+
+                        enPosesion.decrementAndGet(i);
+                        if (!producto.liberarProducto(idRobot))
+                            violaciones.incrementAndGet();
+
+                        operaciones.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        salida.countDown();
+        ejecutor.shutdown();
+        assertTrue(ejecutor.awaitTermination(60, TimeUnit.SECONDS), "Los hilos deben terminar");
+
+        assertAll("Estado tras la contención",
+                () -> assertEquals(0, violaciones.get(), "No debe haber dos propietarios simultáneos"),
+                () -> assertTrue(operaciones.get() > 0, "Algún robot debe haber obtenido productos"),
+                () -> assertTrue(productos.stream().noneMatch(Producto::isReservado),
+                        "Todos los productos deben quedar libres")
+        );
+    }
+
+    /**
+     * Verifica que un robot no recoge un producto reservado por otro robot y que
+     * sí lo recoge cuando la reserva es suya.
+     */
+    @Test
+    @DisplayName("La recogida respeta las reservas de otros robots")
+    void testRecogidaRespetaReserva() {
+        Robot robot1 = new Robot("robot1", ZONA_A);
+        Robot robot2 = new Robot("robot2", ZONA_A);
+        Producto producto = productos.get(0);
+
+        assertTrue(producto.reservarProducto(robot1.getId()), "El primer robot debe obtener la reserva");
+        assertFalse(robot2.recogerProducto(producto), "Otro robot no puede recoger el producto reservado");
+        assertTrue(robot1.recogerProducto(producto), "El propietario debe poder recogerlo");
+        assertEquals(EstadoReserva.RECOGIDO, producto.getEstadoReserva(), "El producto debe constar como recogido");
+        assertFalse(producto.liberarProducto(robot2.getId()), "Otro robot no puede liberarlo");
+    }
+
+    /**
+     * Al entregar el producto queda en un estado definitivo: ni el robot que lo
+     * entregó ni otro pueden liberarlo, recogerlo o devolverlo al inventario.
+     */
+    @Test
+    @DisplayName("Producto entregado")
+    void testProductoEntregado() {
+        Robot robot1 = new Robot("robot1", ZONA_A);
+        Robot robot2 = new Robot("robot2", ZONA_A);
+        EstacionEmpaquetado estacion = new EstacionEmpaquetado("estacion", ZONA_A);
+        Producto producto = productos.get(0);
+        Inventario inventario = new Inventario();
+
+        assertFalse(producto.entregarProducto(robot1.getId()), "Solo se entrega un producto recogido");
+        assertTrue(robot1.recogerProducto(producto));
+        assertFalse(producto.entregarProducto(robot2.getId()), "Solo lo entrega quien lo transporta");
+        assertTrue(robot1.entregarProducto(estacion));
+        assertAll("Producto entregado",
+                () -> assertEquals(EstadoReserva.ENTREGADO, producto.getEstadoReserva()),
+                () -> assertEquals(robot1.getId(), producto.getPropietario()),
+                () -> assertFalse(producto.isReservado()),
+                () -> assertFalse(producto.liberarProducto(robot1.getId()), "No vuelve a quedar libre"),
+                () -> assertFalse(robot2.recogerProducto(producto), "Otro robot no puede recogerlo"),
+                () -> assertFalse(producto.recogerProducto(robot1.getId()), "Tampoco quien lo entregó"),
+                () -> assertFalse(inventario.agregarProducto(producto), "No vuelve al inventario")
+        );
+    }
+
+    /**
+     * Una reserva hecha sin indicar robot no bloquea el producto: lo recoge el
+     * primer robot que llega y a partir de ahí es suyo.
+     */
+    @Test
+    @DisplayName("Reserva sin propietario")
+    void testReservaSinPropietario() {
+        Robot robot1 = new Robot("robot1", ZONA_A);
+        Robot robot2 = new Robot("robot2", ZONA_A);
+        Producto producto = productos.get(0);
+        Producto marcado = productos.get(4);
+
+        assertTrue(producto.reservarProducto(), "La reserva sin robot debe admitirse");
+        marcado.setReservado(true);
+        assertAll("Recogida de reservas sin robot",
+                () -> assertTrue(robot1.recogerProducto(producto), "Cualquier robot puede recogerlo"),
+                () -> assertEquals(robot1.getId(), producto.getPropietario()),
+                () -> assertFalse(robot2.recogerProducto(producto), "Una vez recogido ya tiene dueño"),
+                () -> assertTrue(marcado.recogerProducto(robot2.getId()), "También con setReservado(true)")
+        );
+    }
+}
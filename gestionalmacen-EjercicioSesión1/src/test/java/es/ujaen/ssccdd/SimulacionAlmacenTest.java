@@ -0,0 +1,208 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del motor de simulación del almacén con los distintos ejecutores.
+ * Para cada ejecutor se verifica:
+ * - Que todos los productos del inventario se recogen y se entregan
+ * - Que ningún robot queda con un producto en su poder
+ * - Que ningún producto queda reservado al terminar
+ * - Que con un reloj virtual las esperas no consumen tiempo real
+ * - Que con un planificador de carga los robots cargan en sus muelles
+ * - Que con un despachador los robots recogen los productos que les asigna
+ * - Que un error en el paso de un robot no bloquea la simulación
+ * - Que los contadores de cada ejecución empiezan de cero
+ */
+@DisplayName("Pruebas de la Simulación del Almacén")
+public class SimulacionAlmacenTest {
+    private static final int NUM_ROBOTS = 32;
+    private static final int NUM_PRODUCTOS = 200;
+    private static final int TIEMPO_MAXIMO = 60; // segundos
+
+    private List<Robot> robots;
+    private List<EstacionEmpaquetado> estaciones;
+    private List<Producto> productos;
+    private Inventario inventario;
+
+    @BeforeEach
+    void setUp() {
+        robots = new ArrayList<>();
+        estaciones = new ArrayList<>();
+        productos = new ArrayList<>();
+        inventario = new Inventario();
+        ZonaAlmacen[] zonas = ZonaAlmacen.values();
+        TipoProducto[] tipos = TipoProducto.values();
+
+        for (ZonaAlmacen zona : zonas)
+            estaciones.add(new EstacionEmpaquetado("est-" + zona, zona));
+
+        for (int i = 0; i < NUM_ROBOTS; i++)
+            robots.add(new Robot("robot" + i, zonas[i % zonas.length]));
+
+        for (int i = 0; i < NUM_PRODUCTOS; i++) {
+            Producto producto = new Producto("prod" + i, tipos[i % tipos.length], zonas[(i / tipos.length) % zonas.length]);
+            productos.add(producto);
+            inventario.agregarProducto(producto);
+        }
+    }
+
+    @Test
+    @DisplayName("Simulación con pool fijo")
+    void testPoolFijo() throws InterruptedException {
+        comprobarSimulacion(TipoEjecutor.POOL_FIJO);
+    }
+
+    @Test
+    @DisplayName("Simulación con ForkJoin")
+    void testForkJoin() throws InterruptedException {
+        comprobarSimulacion(TipoEjecutor.FORK_JOIN);
+    }
+
+    @Test
+    @DisplayName("Simulación con hilos virtuales")
+    void testVirtual() throws InterruptedException {
+        comprobarSimulacion(TipoEjecutor.VIRTUAL);
+    }
+
+    @Test
+    @DisplayName("Simulación con reloj virtual")
+    void testRelojVirtual() throws InterruptedException {
+        long inicio = 1_000_000L;
+        RelojVirtual reloj = new RelojVirtual(inicio);
+        List<EventoAlmacen> eventos = new CopyOnWriteArrayList<>();
+        estaciones.clear();
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            estaciones.add(new EstacionEmpaquetado("est-" + zona, zona, reloj));
+
+        SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario, TipoEjecutor.POOL_FIJO,
+                Runtime.getRuntime().availableProcessors(), eventos::add, reloj);
+        SimulacionAlmacen.Resultado resultado = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+
+        assertAll("Simulación con reloj virtual",
+                () -> assertEquals(NUM_PRODUCTOS, resultado.entregas(), "Deben entregarse todos los productos"),
+                () -> assertTrue(reloj.milis() > inicio, "Las esperas deben adelantar el reloj virtual"),
+                () -> assertTrue(eventos.stream().allMatch(e -> e.getMarcaTiempo() >= inicio && e.getMarcaTiempo() <= reloj.milis()),
+                        "Los eventos deben tomar la marca del reloj virtual")
+        );
+    }
+
+    @Test
+    @DisplayName("Simulación con planificador de carga")
+    void testPlanificadorCarga() throws InterruptedException {
+        RelojVirtual reloj = new RelojVirtual(0);
+        PlanificadorCarga planificador = new PlanificadorCarga(1, CurvaCarga.CORRIENTE_TENSION_CONSTANTE, reloj);
+        List<EventoAlmacen> eventos = new CopyOnWriteArrayList<>();
+        estaciones.clear();
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            estaciones.add(new EstacionEmpaquetado("est-" + zona, zona, reloj));
+
+        SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario, TipoEjecutor.POOL_FIJO,
+                Runtime.getRuntime().availableProcessors(), eventos::add, reloj, planificador);
+        SimulacionAlmacen.Resultado resultado = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+
+        assertAll("Simulación con muelles de carga",
+                () -> assertEquals(NUM_PRODUCTOS, resultado.entregas(), "Deben entregarse todos los productos"),
+                () -> assertTrue(resultado.cargas() > 0, "Los robots deben pasar por los muelles"),
+                () -> assertEquals(planificador.getCargas(), resultado.cargas(), "Cada carga sale de un muelle"),
+                () -> assertTrue(eventos.stream().filter(e -> e.getTipo() == TipoEvento.ROBOT_EN_CARGA).count()
+                        >= resultado.cargas(), "Cada robot que entra en un muelle lo registra"),
+                () -> assertTrue(robots.stream().allMatch(robot -> robot.getNivelBateria() >= 0))
+        );
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            assertTrue(planificador.getCargando(zona) <= 1, "Cada zona tiene un solo muelle");
+        assertThrows(IllegalArgumentException.class, () -> new SimulacionAlmacen(robots, estaciones, inventario,
+                TipoEjecutor.POOL_FIJO, 1, eventos::add, RELOJ_SISTEMA, planificador),
+                "El planificador debe usar el reloj de la simulación");
+    }
+
+    @Test
+    @DisplayName("Simulación con despachador")
+    void testDespachador() throws InterruptedException {
+        Despachador despachador = new Despachador(inventario);
+        List<EventoAlmacen> eventos = new CopyOnWriteArrayList<>();
+
+        SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario, TipoEjecutor.POOL_FIJO,
+                Runtime.getRuntime().availableProcessors(), eventos::add, RELOJ_SISTEMA, null, despachador);
+        SimulacionAlmacen.Resultado resultado = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+
+        assertAll("Simulación con despachador",
+                () -> assertEquals(NUM_PRODUCTOS, resultado.recogidas(), "Deben recogerse todos los productos"),
+                () -> assertEquals(NUM_PRODUCTOS, resultado.entregas(), "Deben entregarse todos los productos"),
+                () -> assertTrue(robots.stream().allMatch(robot -> robot.getProductoActual() == null),
+                        "Ningún robot debe quedar con un producto"),
+                () -> assertTrue(productos.stream().noneMatch(Producto::isReservado),
+                        "Ningún producto debe quedar reservado"),
+                () -> assertTrue(robots.stream().allMatch(robot -> despachador.getAsignacion(robot.getId()).isEmpty()),
+                        "Ningún robot debe quedar con una asignación")
+        );
+        assertThrows(IllegalArgumentException.class, () -> new SimulacionAlmacen(robots, estaciones, new Inventario(),
+                TipoEjecutor.POOL_FIJO, 1, eventos::add, RELOJ_SISTEMA, null, despachador),
+                "El despachador debe repartir el inventario de la simulación");
+    }
+
+    @Test
+    @DisplayName("Error en el paso de un robot")
+    void testErrorEnPaso() throws InterruptedException {
+        SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario, TipoEjecutor.POOL_FIJO,
+                Runtime.getRuntime().availableProcessors(), evento -> {
+                    throw new IllegalStateException("Registro no disponible");
+                });
+
+        // El registro falla en la primera recogida de cada robot
+        long inicio = System.nanoTime();
+        SimulacionAlmacen.Resultado resultado = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+        long duracion = System.nanoTime() - inicio;
+
+        assertTrue(duracion < TimeUnit.SECONDS.toNanos(TIEMPO_MAXIMO), "Los robots con error deben darse por terminados");
+        assertEquals(NUM_ROBOTS, resultado.recogidas(), "Cada robot se detiene en su primera recogida");
+
+        SimulacionAlmacen.Resultado repetida = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+        assertEquals(0, repetida.recogidas(), "Los robots cargados no recogen más, la cuenta empieza de cero");
+    }
+
+    @Test
+    @DisplayName("Argumentos no válidos")
+    void testArgumentos() {
+        assertAll("Constructor",
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new SimulacionAlmacen(null, estaciones, inventario, TipoEjecutor.POOL_FIJO, 1)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new SimulacionAlmacen(robots, List.of(), inventario, TipoEjecutor.POOL_FIJO, 1)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new SimulacionAlmacen(robots, estaciones, inventario, TipoEjecutor.POOL_FIJO, 0))
+        );
+    }
+
+    private void comprobarSimulacion(TipoEjecutor tipoEjecutor) throws InterruptedException {
+        int hilos = Runtime.getRuntime().availableProcessors();
+        SimulacionAlmacen simulacion = new SimulacionAlmacen(robots, estaciones, inventario, tipoEjecutor, hilos);
+
+        SimulacionAlmacen.Resultado resultado = simulacion.ejecutar(TIEMPO_MAXIMO, TimeUnit.SECONDS);
+
+        assertAll("Simulación con " + tipoEjecutor,
+                () -> assertEquals(NUM_PRODUCTOS, resultado.recogidas(), "Deben recogerse todos los productos"),
+                () -> assertEquals(NUM_PRODUCTOS, resultado.entregas(), "Deben entregarse todos los productos"),
+                () -> assertTrue(robots.stream().allMatch(robot -> robot.getProductoActual() == null),
+                        "Ningún robot debe quedar con un producto"),
+                () -> assertTrue(productos.stream().noneMatch(Producto::isReservado),
+                        "Ningún producto debe quedar reservado"),
+                () -> assertEquals(0, productosPendientes(), "El inventario debe quedar vacío")
+        );
+    }
+
+    private int productosPendientes() {
+        int resultado = 0;
+        for (ZonaAlmacen zona : ZonaAlmacen.values())
+            resultado += inventario.getDisponibles(zona);
+        return resultado;
+    }
+}
@@ -0,0 +1,161 @@
+package es.ujaen.ssccdd;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static es.ujaen.ssccdd.Constantes.*;
+import static es.ujaen.ssccdd.Constantes.EstadoRobot.*;
+import static es.ujaen.ssccdd.Constantes.ZonaAlmacen.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la máquina de estados del robot y del vigilante de estados. Se evalúa:
+ * - Que solo se admiten las transiciones de EstadoRobot.siguienteEstado() y quedan marcadas en el tiempo
+ * - Que de varios hilos que cambian a la vez el estado de un robot solo uno lo consigue
+ * - Que el vigilante detecta los robots que superan el tiempo máximo de su estado
+ * - Que un vigilante solo empieza a vigilar los robots creados con él
+ * - Que el hilo vigilante detecta los atascos sin recorrer la flota
+ */
+@DisplayName("Pruebas del Vigilante de Estados")
+public class VigilanteEstadosTest {
+    private static final int NUM_HILOS = 4;
+    private static final int NUM_RONDAS = 10_000;
+    private static final int NUM_ROBOTS = 100_000;
+
+    private RelojVirtual reloj;
+    private List<EventoAlmacen> eventos;
+    private VigilanteEstados vigilante;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new RelojVirtual(0);
+        eventos = Collections.synchronizedList(new ArrayList<>());
+        vigilante = new VigilanteEstados(eventos::add, reloj);
+    }
+
+    @Test
+    @DisplayName("Transiciones permitidas")
+    void testTransiciones() {
+        Robot robot = new Robot("robot1", ZONA_A, null, vigilante);
+        vigilante.vigilar(robot);
+        Robot.Transicion inicial = robot.getTransicion();
+
+        reloj.avanzar(100, TimeUnit.MILLISECONDS);
+        assertAll("Reglas de siguienteEstado",
+                () -> assertFalse(robot.cambiarEstado(LIBRE, MANTENIMIENTO), "LIBRE no pasa a MANTENIMIENTO"),
+                () -> assertFalse(robot.cambiarEstado(OCUPADO, LIBRE), "El robot no está OCUPADO"),
+                () -> assertSame(inicial, robot.getTransicion(), "Un cambio rechazado no deja marca"),
+                () -> assertTrue(robot.cambiarEstado(LIBRE, EN_CARGA)),
+                () -> assertEquals(new Robot.Transicion(EN_CARGA, reloj.nanos()), robot.getTransicion()),
+                () -> assertFalse(robot.cambiarEstado(EN_CARGA, OCUPADO), "EN_CARGA no pasa a OCUPADO"),
+                () -> assertTrue(robot.cambiarEstado(EN_CARGA, MANTENIMIENTO)),
+                () -> assertTrue(robot.cambiarEstado(MANTENIMIENTO, LIBRE)),
+                () -> assertThrows(IllegalArgumentException.class, () -> robot.cambiarEstado(null, LIBRE))
+        );
+
+        // Las operaciones del robot también pasan por la máquina de estados
+        Producto producto = new Producto("libro", TipoProducto.LIBROS, ZONA_A);
+        assertTrue(robot.recogerProducto(producto));
+        assertEquals(OCUPADO, robot.getEstado());
+        assertFalse(robot.iniciarCarga(), "Con producto no se va a cargar");
+
+        assertThrows(IllegalArgumentException.class, () -> vigilante.vigilar(null));
+        assertThrows(IllegalArgumentException.class, () -> vigilante.vigilar(new Robot("robot2", ZONA_B)),
+                "El robot no se creó con este vigilante");
+    }
+
+    @Test
+    @DisplayName("Cambios de estado concurrentes")
+    void testConcurrencia() throws InterruptedException, ExecutionException {
+        Robot robot = new Robot("robot1", ZONA_A, null, vigilante);
+        vigilante.vigilar(robot);
+        AtomicInteger ganadores = new AtomicInteger();
+        CyclicBarrier barrera = new CyclicBarrier(NUM_HILOS, () -> {
+            // Entre rondas el robot vuelve a quedar LIBRE
+            robot.cambiarEstado(OCUPADO, LIBRE);
+        });
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS);
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int hilo = 0; hilo < NUM_HILOS; hilo++)
+            tareas.add(hilos.submit(() -> {
+                for (int ronda = 0; ronda < NUM_RONDAS; ronda++) {
+                    if (robot.cambiarEstado(LIBRE, OCUPADO))
+                        ganadores.incrementAndGet();
+                    barrera.await();
+                }
+                return null;
+            }));
+        for (Future<?> tarea : tareas)
+            tarea.get();
+        hilos.shutdown();
+
+        assertEquals(NUM_RONDAS, ganadores.get(), "En cada ronda solo un hilo ocupa el robot");
+        assertEquals(LIBRE, robot.getEstado());
+    }
+
+    @Test
+    @DisplayName("Robots que superan el tiempo máximo")
+    void testAtascos() {
+        Robot parado = new Robot("parado", ZONA_A, null, vigilante);
+        Robot trabajando = new Robot("trabajando", ZONA_B, null, vigilante);
+        vigilante.vigilar(parado);
+        vigilante.vigilar(trabajando);
+
+        reloj.avanzar(500, TimeUnit.MILLISECONDS);
+        assertTrue(trabajando.cambiarEstado(LIBRE, OCUPADO));
+        assertTrue(vigilante.revisar().isEmpty(), "Nadie ha superado su tiempo máximo");
+
+        reloj.avanzar(LIBRE.getTiempoMaximo() * 1_000L, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(parado), vigilante.revisar(), "LIBRE permite 1 s, OCUPADO 2 s");
+        assertTrue(parado.excedeTiempoMaximo());
+        assertFalse(trabajando.excedeTiempoMaximo());
+
+        reloj.avanzar(OCUPADO.getTiempoMaximo() * 1_000L, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(trabajando), vigilante.revisar());
+        assertEquals(2, vigilante.getAtascados().size());
+
+        assertTrue(parado.cambiarEstado(LIBRE, EN_CARGA));
+        assertAll("Un robot deja de estar atascado al cambiar de estado",
+                () -> assertEquals(List.of(trabajando), vigilante.getAtascados()),
+                () -> assertEquals(2, vigilante.getDetectados()),
+                () -> assertEquals(2, eventos.size()),
+                () -> assertEquals(TipoEvento.ROBOT_ATASCADO, eventos.get(0).getTipo()),
+                () -> assertEquals("parado", eventos.get(0).getIdRobot()),
+                () -> assertEquals(1, vigilante.getPendientes(), "Solo queda el plazo de EN_CARGA")
+        );
+    }
+
+    @Test
+    @DisplayName("Hilo vigilante con una flota grande")
+    void testHiloVigilante() throws InterruptedException {
+        List<Robot> flota = new ArrayList<>(NUM_ROBOTS);
+        for (int i = 0; i < NUM_ROBOTS; i++) {
+            flota.add(new Robot("R" + i, zonasAlmacen[i % zonasAlmacen.length], null, vigilante));
+            vigilante.vigilar(flota.get(i));
+        }
+
+        // Todos menos uno cambian de estado antes de superar su tiempo máximo
+        reloj.avanzar(500, TimeUnit.MILLISECONDS);
+        for (int i = 1; i < NUM_ROBOTS; i++)
+            flota.get(i).cambiarEstado(LIBRE, OCUPADO);
+
+        vigilante.revisar();
+
+        assertTrue(vigilante.iniciar(TipoHilo.PLATAFORMA));
+        assertFalse(vigilante.iniciar(TipoHilo.PLATAFORMA), "Solo hay un hilo vigilante");
+        reloj.avanzar(LIBRE.getTiempoMaximo() * 1_000L, TimeUnit.MILLISECONDS);
+        long inicio = System.nanoTime();
+        while (vigilante.getAtascados().isEmpty() && System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(5))
+            TimeUnit.MILLISECONDS.sleep(1);
+        vigilante.detener();
+
+        assertEquals(List.of(flota.get(0)), vigilante.getAtascados());
+        assertEquals(NUM_ROBOTS - 1, vigilante.getPendientes(), "Los plazos de OCUPADO no han vencido");
+    }
+}